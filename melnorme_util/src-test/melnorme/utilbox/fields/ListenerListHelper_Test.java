@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.utilbox.fields;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.tests.CommonTest;
+
+public class ListenerListHelper_Test extends CommonTest {
+	
+	@Test
+	public void testBasic() throws Exception { testBasic$(); }
+	public void testBasic$() throws Exception {
+		ListenerListHelper<Consumer<String>> listeners = new ListenerListHelper<>();
+		ArrayList2<String> events = new ArrayList2<>();
+		Consumer<String> listenerA = (event) -> events.add("A:" + event);
+		Consumer<String> listenerB = (event) -> events.add("B:" + event);
+		
+		listeners.notifyListeners("0", Consumer::accept);
+		assertTrue(events.isEmpty());
+		
+		listeners.addListener(listenerA);
+		listeners.addListener(listenerB);
+		listeners.addListener(listenerA);
+		Indexable<Consumer<String>> snapshot = listeners.getListeners();
+		assertAreEqual(snapshot, ArrayList2.create(listenerA, listenerB, listenerA));
+		
+		listeners.notifyListeners("1", Consumer::accept);
+		assertAreEqual(events, ArrayList2.create("A:1", "B:1", "A:1"));
+		
+		// Only the first occurrence is removed, and snapshots are not affected
+		listeners.removeListener(listenerA);
+		assertAreEqual(listeners.getListeners(), ArrayList2.create(listenerB, listenerA));
+		assertAreEqual(snapshot.size(), 3);
+		listeners.removeListener(listenerA);
+		listeners.removeListener(listenerA);
+		assertAreEqual(listeners.getListeners(), ArrayList2.create(listenerB));
+		
+		listeners.setNewListeners(ArrayList2.create(listenerA, listenerA));
+		assertAreEqual(listeners.getListeners(), ArrayList2.create(listenerA, listenerA));
+		listeners.clear();
+		assertTrue(listeners.getListeners().isEmpty());
+	}
+	
+	protected static final int THREADS = 4;
+	protected static final int LISTENERS_PER_THREAD = 500;
+	
+	@Test
+	public void testConcurrentUpdates() throws Exception { testConcurrentUpdates$(); }
+	public void testConcurrentUpdates$() throws Exception {
+		ListenerListHelper<Object> listeners = new ListenerListHelper<>();
+		Object permanentListener = new Object();
+		listeners.addListener(permanentListener);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		
+		ArrayList2<Thread> threads = new ArrayList2<>();
+		for (int ix = 0; ix < THREADS; ix++) {
+			threads.add(new Thread(() -> {
+				try {
+					ArrayList2<Object> added = new ArrayList2<>();
+					for (int listenerIx = 0; listenerIx < LISTENERS_PER_THREAD; listenerIx++) {
+						Object listener = new Object();
+						listeners.addListener(listener);
+						added.add(listener);
+						assertTrue(listeners.getListeners().contains(permanentListener));
+					}
+					for (Object listener : added) {
+						listeners.removeListener(listener);
+					}
+				} catch(Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join(60_000);
+			assertTrue(!thread.isAlive());
+		}
+		if(failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+		// No update was lost
+		assertAreEqual(listeners.getListeners(), ArrayList2.create(permanentListener));
+	}
+	
+	@Test
+	public void testAsyncDispatch() throws Exception { testAsyncDispatch$(); }
+	public void testAsyncDispatch$() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		owned.add(() -> executor.shutdown());
+		
+		ListenerListHelper<Consumer<Integer>> listeners = new ListenerListHelper<>(executor);
+		CountDownLatch listenerLatch = new CountDownLatch(1);
+		ArrayList2<Integer> events = new ArrayList2<>();
+		AtomicReference<Thread> dispatchThread = new AtomicReference<>();
+		listeners.addListener((event) -> {
+			dispatchThread.set(Thread.currentThread());
+			try {
+				listenerLatch.await();
+			} catch(InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			synchronized(events) {
+				events.add(event);
+			}
+		});
+		
+		// A slow listener doesn't block the thread firing the events
+		for (int ix = 0; ix < 100; ix++) {
+			listeners.notifyListeners(ix, Consumer::accept);
+		}
+		assertTrue(!listeners.isDispatchIdle());
+		listenerLatch.countDown();
+		
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while(!listeners.isDispatchIdle() && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertTrue(listeners.isDispatchIdle());
+		assertTrue(dispatchThread.get() != Thread.currentThread());
+		
+		// Events are delivered in order
+		ArrayList2<Integer> expected = new ArrayList2<>();
+		for (int ix = 0; ix < 100; ix++) {
+			expected.add(ix);
+		}
+		synchronized(events) {
+			assertAreEqual(events, expected);
+		}
+	}
+	
+}
\ No newline at end of file
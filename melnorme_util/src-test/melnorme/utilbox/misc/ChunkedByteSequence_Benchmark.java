@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.utilbox.misc;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import melnorme.utilbox.concurrency.ICancelMonitor.NullCancelMonitor;
+import melnorme.utilbox.process.ExternalProcessHelper.ReadAllBytesTask;
+
+/**
+ * Compares reading process output into a {@link ChunkedByteSequence} (as {@link ReadAllBytesTask} does), 
+ * with the previous implementation: a 1KB read buffer and a {@link ByteArrayOutputStreamExt} 
+ * with an initial capacity of 32 bytes.
+ * Not a unit test, run the main method manually: 
+ * <code>java melnorme.utilbox.misc.ChunkedByteSequence_Benchmark [sizeInMB]</code>
+ */
+public class ChunkedByteSequence_Benchmark {
+	
+	protected static final int WARMUP_ITERATIONS = 3;
+	protected static final int MEASURE_ITERATIONS = 5;
+	
+	public static void main(String[] args) throws Exception {
+		int sizeMB = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		long size = sizeMB * 1024L * 1024L;
+		
+		System.out.println("Process output: " + sizeMB + " MB.");
+		
+		measure("ByteArrayOutputStreamExt, 1KB reads", () -> {
+			ByteArrayOutputStreamExt bytes = new ByteArrayOutputStreamExt(32);
+			byte[] buffer = new byte[1024];
+			InputStream is = new ProcessOutputStream(size);
+			int read;
+			while((read = is.read(buffer)) != StreamUtil.EOF) {
+				bytes.write(buffer, 0, read);
+			}
+			return bytes.getCount();
+		});
+		
+		for (int chunkSize : new int[] { 1024, ByteChunkPool.DEFAULT_CHUNK_SIZE, 64 * 1024 }) {
+			ByteChunkPool pool = new ByteChunkPool(chunkSize, 1);
+			
+			measure("ChunkedByteSequence, " + chunkSize / 1024 + "KB chunks", () -> {
+				ReadAllBytesTask readTask = new ReadAllBytesTask(new ProcessOutputStream(size),
+					new NullCancelMonitor(), pool);
+				return readTask.doRun().getCount();
+			});
+		}
+	}
+	
+	/** Simulates process output: returns at most 4KB per read (the usual pipe buffer size). */
+	protected static class ProcessOutputStream extends InputStream {
+		
+		protected static final byte[] LINE_TEMPLATE = new byte[4096];
+		static {
+			for (int ix = 0; ix < LINE_TEMPLATE.length; ix++) {
+				LINE_TEMPLATE[ix] = (byte) (ix % 80 == 79 ? '\n' : 'a' + ix % 26);
+			}
+		}
+		
+		protected long remaining;
+		
+		public ProcessOutputStream(long size) {
+			this.remaining = size;
+		}
+		
+		@Override
+		public int read() {
+			if(remaining == 0) {
+				return StreamUtil.EOF;
+			}
+			remaining--;
+			return 'x';
+		}
+		
+		@Override
+		public int read(byte[] buffer, int offset, int length) {
+			if(remaining == 0) {
+				return StreamUtil.EOF;
+			}
+			int readCount = (int) Math.min(remaining, Math.min(length, LINE_TEMPLATE.length));
+			System.arraycopy(LINE_TEMPLATE, 0, buffer, offset, readCount);
+			remaining -= readCount;
+			return readCount;
+		}
+		
+	}
+	
+	protected interface Operation {
+		Object run() throws IOException;
+	}
+	
+	protected static Object blackhole;
+	
+	protected static void measure(String name, Operation operation) throws IOException {
+		for (int ix = 0; ix < WARMUP_ITERATIONS; ix++) {
+			blackhole = operation.run();
+		}
+		System.gc();
+		long start = System.nanoTime();
+		for (int ix = 0; ix < MEASURE_ITERATIONS; ix++) {
+			blackhole = operation.run();
+		}
+		long averageMillis = (System.nanoTime() - start) / MEASURE_ITERATIONS / 1000_000;
+		System.out.println(String.format("%-45s %,8d ms/op", name, averageMillis));
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.utilbox.misc;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import melnorme.utilbox.concurrency.ICancelMonitor.NullCancelMonitor;
+import melnorme.utilbox.process.ExternalProcessHelper.ReadAllBytesTask;
+
+import melnorme.utilbox.tests.CommonTest;
+
+public class ChunkedByteSequence_Test extends CommonTest {
+	
+	@Test
+	public void test() throws Exception { test$(); }
+	public void test$() throws Exception {
+		ChunkedByteSequence bytes = new ChunkedByteSequence(4);
+		checkContents(bytes, "");
+		
+		append(bytes, "abc");
+		checkContents(bytes, "abc");
+		append(bytes, "d");
+		checkContents(bytes, "abcd");
+		append(bytes, "efghijklm");
+		checkContents(bytes, "abcdefghijklm");
+		
+		verifyThrows(() -> bytes.byteAt(13), IndexOutOfBoundsException.class);
+		
+		// Multi-byte characters split across chunks
+		ChunkedByteSequence utf8Bytes = new ChunkedByteSequence(4);
+		append(utf8Bytes, "a\u00E9\u00E9\u4E16\u4E16\uD83D\uDE00x");
+		checkContents(utf8Bytes, "a\u00E9\u00E9\u4E16\u4E16\uD83D\uDE00x");
+		
+		// The first chunk starts small, and grows up to the chunk size
+		ChunkedByteSequence bytes3 = new ChunkedByteSequence(1024);
+		append(bytes3, "abc");
+		assertTrue(bytes3.chunks.get(0).length == ChunkedByteSequence.INITIAL_CHUNK_SIZE);
+		String longString = StringUtil.newFilledString(1500, 'x');
+		append(bytes3, longString);
+		assertTrue(bytes3.chunks.get(0).length == 1024);
+		checkContents(bytes3, "abc" + longString);
+		assertTrue(bytes3.chunks.get(1).length == 1024);
+		
+		// Only the read buffer is taken from the pool, and it is returned after reading
+		ByteChunkPool pool = new ByteChunkPool(4, 2);
+		byte[] output = "abcdefghij".getBytes(StringUtil.UTF8);
+		ReadAllBytesTask readTask = new ReadAllBytesTask(new ByteArrayInputStream(output), 
+			new NullCancelMonitor(), pool);
+		checkContents(readTask.doRun(), "abcdefghij");
+		assertEquals(pool.getPooledCount(), 1);
+	}
+	
+	protected static void append(ChunkedByteSequence bytes, String string) {
+		byte[] stringBytes = ("__" + string).getBytes(StringUtil.UTF8);
+		bytes.append(stringBytes, 2, stringBytes.length - 2);
+	}
+	
+	protected void checkContents(ChunkedByteSequence bytes, String expected) throws IOException {
+		byte[] expectedBytes = expected.getBytes(StringUtil.UTF8);
+		
+		assertEquals(bytes.getCount(), expectedBytes.length);
+		assertTrue(Arrays.equals(bytes.toByteArray(), expectedBytes));
+		for (int ix = 0; ix < expectedBytes.length; ix++) {
+			assertTrue(bytes.byteAt(ix) == expectedBytes[ix]);
+		}
+		assertEquals(bytes.toString(StringUtil.UTF8), expected);
+		
+		assertTrue(Arrays.equals(readAll(bytes.toInputStream(), 3), expectedBytes));
+		assertTrue(Arrays.equals(readAll(bytes.toInputStream(), 100), expectedBytes));
+		
+		InputStream is = bytes.toInputStream();
+		for (int ix = 0; ix < expectedBytes.length; ix++) {
+			assertTrue(is.read() == (expectedBytes[ix] & 0xFF));
+		}
+		assertTrue(is.read() == StreamUtil.EOF);
+	}
+	
+	protected static byte[] readAll(InputStream is, int bufferSize) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[bufferSize];
+		int read;
+		while((read = is.read(buffer, 0, bufferSize)) != StreamUtil.EOF) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+	
+}
\ No newline at end of file
@@ -16,6 +16,7 @@ import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
 
 import org.junit.Test;
@@ -25,6 +26,7 @@ import melnorme.utilbox.concurrency.ICancelMonitor.CancelMonitor;
 import melnorme.utilbox.concurrency.ICancelMonitor.CancelMonitorWithLatch;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.fntypes.Result;
+import melnorme.utilbox.process.ProcessReaderExecutors.ReaderThreadsMode;
 import melnorme.utilbox.tests.CommonTest;
 
 public class ExternalProcessHelper_Test extends CommonTest {
@@ -120,6 +122,8 @@ public class ExternalProcessHelper_Test extends CommonTest {
 		
 	}
 	
+	protected static volatile ReaderThreadsMode readerThreadsMode = ReaderThreadsMode.SHARED_POOL;
+	
 	public static class TestsExternalProcessHelper 
 		extends ExternalProcessHandler<EndlessReadTask, EndlessReadTask> {
 		
@@ -150,13 +154,21 @@ public class ExternalProcessHelper_Test extends CommonTest {
 			stderrReaderTask.completeWithResult(new Result<>(null));
 		}
 		
+		@Override
+		protected Executor getReadersExecutor() {
+			return ProcessReaderExecutors.getExecutor(readerThreadsMode);
+		}
+		
 	}
 	
 	@Test
 	public void test() throws Exception { test$(); }
 	public void test$() {
-		for(int i = 0; i < 10; i++) {
-			do_tests();
+		for (ReaderThreadsMode mode : ReaderThreadsMode.values()) {
+			readerThreadsMode = mode;
+			for(int i = 0; i < 10; i++) {
+				do_tests();
+			}
 		}
 	}
 	
@@ -164,6 +176,7 @@ public class ExternalProcessHelper_Test extends CommonTest {
 		test_process_death();
 		test_process_streams_close();
 		test_cancellation();
+		test_cancellation_whileAwaiting();
 		test_cancellation_vs_interrupt();
 	}
 	
@@ -176,17 +189,16 @@ public class ExternalProcessHelper_Test extends CommonTest {
 	}
 	
 	protected void checkReaderThreadsTerminate(TestsExternalProcessHelper eph, boolean awaitProcessTermination) {
-		// ensure threads terminate
-		checkThreadJoin(eph.stderrReaderThread);
+		// ensure reader tasks terminate
 		try {
 			eph.stdoutReaderTask.awaitTermination();
 			eph.stderrReaderTask.awaitTermination();
+			if(awaitProcessTermination) {
+				eph.mainReaderTask.awaitTermination();
+			}
 		} catch(InterruptedException e) {
 			assertFail();
 		}
-		if(awaitProcessTermination) {
-			checkThreadJoin(eph.mainReaderThread);
-		}
 	}
 	
 	protected void test_process_death() {
@@ -223,6 +235,31 @@ public class ExternalProcessHelper_Test extends CommonTest {
 		assertTrue(eph.process.isAlive() == true);
 		
 		checkReaderThreadsTerminate(eph, false);
+		eph.mockProcess.destroy();
+	}
+	
+	protected void test_cancellation_whileAwaiting() {
+		CancelMonitor cancelMonitor = new CancelMonitor();
+		TestsExternalProcessHelper eph = new TestsExternalProcessHelper(true, true, cancelMonitor) {
+			@Override
+			protected int getCancelPollingPeriodMs() {
+				throw assertFail(); // Cancellation should be notified, not polled
+			}
+		};
+		
+		Thread cancelThread = new Thread(() -> {
+			try {
+				Thread.sleep(10);
+			} catch(InterruptedException e) {
+			}
+			cancelMonitor.cancel();
+		});
+		cancelThread.start();
+		
+		check_awaitProcessTermination(eph, OperationCancellation.class, false);
+		assertTrue(eph.process.isAlive() == true);
+		eph.mockProcess.destroy();
+		checkReaderThreadsTerminate(eph, true);
 	}
 	
 	public void test_cancellation_vs_interrupt() {
@@ -246,21 +283,11 @@ public class ExternalProcessHelper_Test extends CommonTest {
 		// check that EPH is not compromised because of interrupt
 		assertTrue(eph.cancelMonitor.isCancelled() == false);
 		assertTrue(eph.process.isAlive());
-		assertTrue(eph.stderrReaderThread.isAlive());
-		assertTrue(eph.mainReaderThread.isAlive());
+		assertTrue(eph.stderrReaderTask.isTerminated() == false);
+		assertTrue(eph.mainReaderTask.isTerminated() == false);
 		
 		eph.process.destroy();
 		check_awaitProcessTermination(eph, null, true);
 	}
 	
-	/* -----------------  ----------------- */
-	
-	protected static void checkThreadJoin(Thread thread) {
-		try {
-			thread.join();
-		} catch(InterruptedException e) {
-			assertFail();
-		}
-	}
-	
 }
\ No newline at end of file
@@ -12,12 +12,27 @@ package melnorme.utilbox.concurrency;
 
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 
 public interface ICancelMonitor {
 	
 	public boolean isCancelled();
 	
+	/**
+	 * Register given listener to be run (in the cancelling thread) when this monitor is cancelled.
+	 * If the monitor is already cancelled, the listener is run immediately.
+	 * A listener registered concurrently with cancellation might be run more than once.
+	 * @return false if this monitor does not support cancel listeners: in that case cancellation 
+	 * can only be detected by polling {@link #isCancelled()}.
+	 */
+	default boolean addCancelListener(Runnable listener) {
+		return false;
+	}
+	
+	default void removeCancelListener(Runnable listener) {
+	}
+	
 	default void checkCancellation() throws OperationCancellation {
 		checkCancelation(this);
 	}
@@ -44,6 +59,7 @@ public interface ICancelMonitor {
 	public static class CancelMonitor implements ICancelMonitor {
 		
 		protected volatile boolean isCancelled = false;
+		protected final CopyOnWriteArrayList<Runnable> cancelListeners = new CopyOnWriteArrayList<>();
 		
 		@Override
 		public boolean isCancelled() {
@@ -52,6 +68,23 @@ public interface ICancelMonitor {
 		
 		public void cancel() {
 			isCancelled = true;
+			for (Runnable listener : cancelListeners) {
+				listener.run();
+			}
+		}
+		
+		@Override
+		public boolean addCancelListener(Runnable listener) {
+			cancelListeners.add(assertNotNull(listener));
+			if(isCancelled()) {
+				listener.run();
+			}
+			return true;
+		}
+		
+		@Override
+		public void removeCancelListener(Runnable listener) {
+			cancelListeners.remove(listener);
 		}
 		
 	}
@@ -68,6 +101,22 @@ public interface ICancelMonitor {
 		public boolean isCancelled() {
 			return super.isCancelled() || parentCancelMonitor.isCancelled();
 		}
+		
+		@Override
+		public boolean addCancelListener(Runnable listener) {
+			boolean parentSupported = parentCancelMonitor.addCancelListener(listener);
+			cancelListeners.add(listener);
+			if(super.isCancelled()) {
+				listener.run();
+			}
+			return parentSupported;
+		}
+		
+		@Override
+		public void removeCancelListener(Runnable listener) {
+			parentCancelMonitor.removeCancelListener(listener);
+			super.removeCancelListener(listener);
+		}
 	}
 	
 	public static class CancelMonitorWithLatch extends CancelMonitor {
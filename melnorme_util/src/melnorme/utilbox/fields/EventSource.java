@@ -10,6 +10,7 @@
  *******************************************************************************/
 package melnorme.utilbox.fields;
 
+import java.util.function.BiConsumer;
 
 import melnorme.utilbox.collections.Indexable;
 
@@ -33,4 +34,8 @@ public class EventSource<T> {
 		return listeners.getListeners();
 	}
 	
+	protected <EVENT> void notifyListeners(EVENT event, BiConsumer<? super T, ? super EVENT> notifier) {
+		listeners.notifyListeners(event, notifier);
+	}
+	
 }
\ No newline at end of file
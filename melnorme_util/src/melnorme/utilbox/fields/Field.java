@@ -48,9 +48,7 @@ public class Field<TYPE> implements IField<TYPE> {
 	public void fireFieldValueChanged() {
 		TYPE newFieldValue = getFieldValue();
 		fieldValueChanged();
-		for (FieldValueListener<? super TYPE> listener : listeners.getListeners()) {
-			listener.fieldValueChanged(newFieldValue);
-		}
+		listeners.notifyListeners(newFieldValue, FieldValueListener::fieldValueChanged);
 	}
 	
 	// this methos allows listening by means of overriding this class
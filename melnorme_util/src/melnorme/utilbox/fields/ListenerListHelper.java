@@ -10,59 +10,180 @@
  *******************************************************************************/
 package melnorme.utilbox.fields;
 
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
-import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.ArrayView;
 import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.core.CoreUtil;
 
 /**
  * Helper to manage a listener list, then used to fire events.
- * This class is designed to be thread safe.
+ * This class is designed to be thread safe, and lock-free: the listeners are kept in an immutable array snapshot, 
+ * which add and remove replace with a compare-and-set. Reading the listeners never blocks, 
+ * and {@link #notifyListeners(Object, BiConsumer)} iterates the snapshot without allocating.
+ * 
+ * Optionally, a dispatch executor can be given, so that notifications run in that executor (in order, 
+ * one at a time) instead of the thread that fires the event - so that slow listeners don't hold up that thread.
+ * 
  * @see also {@link org.eclipse.core.runtime.ListenerList} 
  */
 public class ListenerListHelper<LISTENER> {
 	
-	private volatile Indexable<LISTENER> listeners;
+	protected static final Object[] NO_LISTENERS = new Object[0];
+	
+	private final AtomicReference<ArrayView<LISTENER>> listeners;
+	
+	protected final Executor dispatchExecutor;
+	protected final ConcurrentLinkedQueue<Runnable> pendingNotifications = new ConcurrentLinkedQueue<>();
+	protected final AtomicBoolean dispatchScheduled = new AtomicBoolean(false);
 	
 	public ListenerListHelper() {
-		this.listeners = new ArrayList2<LISTENER>();
+		this((Executor) null);
+	}
+	
+	/**
+	 * @param dispatchExecutor if not null, the executor that listeners are notified in, 
+	 * when using {@link #notifyListeners(Object, BiConsumer)}.
+	 */
+	public ListenerListHelper(Executor dispatchExecutor) {
+		this.listeners = new AtomicReference<>(createSnapshot(NO_LISTENERS));
+		this.dispatchExecutor = dispatchExecutor;
 	}
 	
 	protected ListenerListHelper(Indexable<LISTENER> listeners) {
-		this.listeners = listeners; // listeners must be unmodifiable
+		this.listeners = new AtomicReference<>(createSnapshot(toArray(listeners)));
+		this.dispatchExecutor = null;
 	}
 	
+	protected static <LISTENER> ArrayView<LISTENER> createSnapshot(Object[] array) {
+		return ArrayView.create(CoreUtil.<LISTENER[]>blindCast(array));
+	}
 	
-	public synchronized Indexable<LISTENER> getListeners() {
-		return listeners;
+	protected static Object[] toArray(Indexable<?> listeners) {
+		Object[] array = new Object[listeners.size()];
+		for (int ix = 0; ix < array.length; ix++) {
+			array[ix] = listeners.get(ix);
+		}
+		return array;
 	}
 	
-	public synchronized void addListener(LISTENER listener) {
-		ArrayList2<LISTENER> newListeners = new ArrayList2<>(listeners);
-		newListeners.add(listener);
-		
-		setNewListeners(newListeners);
+	/** @return an immutable snapshot of the current listeners. */
+	public Indexable<LISTENER> getListeners() {
+		return listeners.get();
 	}
 	
-	public synchronized void removeListener(LISTENER listener) {
-		ArrayList2<LISTENER> newListeners = new ArrayList2<LISTENER>(listeners);
-		for (Iterator<LISTENER> iter = newListeners.iterator(); iter.hasNext(); ) {
-			LISTENER iterElem = iter.next();
-			if(iterElem == listener) {
-				iter.remove();
-				break;
+	public void addListener(LISTENER listener) {
+		while(true) {
+			ArrayView<LISTENER> current = listeners.get();
+			Object[] newArray = Arrays.copyOf(current.getInternalArray(), current.size() + 1, Object[].class);
+			newArray[current.size()] = listener;
+			
+			if(listeners.compareAndSet(current, createSnapshot(newArray))) {
+				return;
 			}
 		}
-		
-		setNewListeners(newListeners);
 	}
 	
-	public synchronized void setNewListeners(Indexable<LISTENER> newListeners) {
-		listeners = newListeners;
+	public void removeListener(LISTENER listener) {
+		while(true) {
+			ArrayView<LISTENER> current = listeners.get();
+			int index = indexOf(current, listener);
+			if(index == -1) {
+				return;
+			}
+			Object[] newArray = new Object[current.size() - 1];
+			System.arraycopy(current.getInternalArray(), 0, newArray, 0, index);
+			System.arraycopy(current.getInternalArray(), index + 1, newArray, index, newArray.length - index);
+			
+			if(listeners.compareAndSet(current, createSnapshot(newArray))) {
+				return;
+			}
+		}
+	}
+	
+	protected static int indexOf(Indexable<?> listeners, Object listener) {
+		for (int ix = 0; ix < listeners.size(); ix++) {
+			if(listeners.get(ix) == listener) {
+				return ix;
+			}
+		}
+		return -1;
+	}
+	
+	public void setNewListeners(Indexable<LISTENER> newListeners) {
+		listeners.set(createSnapshot(toArray(newListeners)));
 	}
 	
 	public void clear() {
-		setNewListeners(new ArrayList2<LISTENER>());
+		listeners.set(createSnapshot(NO_LISTENERS));
+	}
+	
+	/* ----------------- notification ----------------- */
+	
+	/**
+	 * Notify the current listeners of given event, with given notifier. 
+	 * Listeners added or removed during the notification don't affect it.
+	 * 
+	 * If there is no dispatch executor, listeners are notified in the calling thread, without allocating 
+	 * (as long as notifier is a non-capturing lambda or method reference). 
+	 * Otherwise this method returns once the notification is queued.
+	 */
+	public <EVENT> void notifyListeners(EVENT event, BiConsumer<? super LISTENER, ? super EVENT> notifier) {
+		ArrayView<LISTENER> snapshot = listeners.get();
+		if(snapshot.isEmpty()) {
+			return;
+		}
+		if(dispatchExecutor == null) {
+			notifyListeners(snapshot, event, notifier);
+			return;
+		}
+		pendingNotifications.add(() -> notifyListeners(snapshot, event, notifier));
+		scheduleDispatch();
+	}
+	
+	protected static <LISTENER, EVENT> void notifyListeners(ArrayView<LISTENER> snapshot, EVENT event,
+			BiConsumer<? super LISTENER, ? super EVENT> notifier) {
+		for (int ix = 0; ix < snapshot.size(); ix++) {
+			notifier.accept(snapshot.get(ix), event);
+		}
+	}
+	
+	protected void scheduleDispatch() {
+		if(!dispatchScheduled.compareAndSet(false, true)) {
+			return; // A dispatch is already scheduled, and will handle the queued notification
+		}
+		try {
+			dispatchExecutor.execute(this::dispatchPendingNotifications);
+		} catch(RejectedExecutionException e) {
+			dispatchScheduled.set(false);
+			throw e;
+		}
+	}
+	
+	protected void dispatchPendingNotifications() {
+		try {
+			Runnable notification;
+			while((notification = pendingNotifications.poll()) != null) {
+				notification.run();
+			}
+		} finally {
+			dispatchScheduled.set(false);
+			// A notification might have been queued after the last poll, but before the flag was cleared
+			if(!pendingNotifications.isEmpty()) {
+				scheduleDispatch();
+			}
+		}
+	}
+	
+	/** @return whether there are no notifications queued for the dispatch executor, or running in it. */
+	public boolean isDispatchIdle() {
+		return !dispatchScheduled.get() && pendingNotifications.isEmpty();
 	}
 	
 }
\ No newline at end of file
@@ -10,7 +10,9 @@
  *******************************************************************************/
 package melnorme.utilbox.misc;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 
 /**
@@ -59,4 +61,14 @@ public class ByteArrayOutputStreamExt extends ByteArrayOutputStream implements I
 		return super.toByteArray();
 	}
 	
+	/** 
+	 * {@inheritDoc} 
+	 * The returned stream reads the internal buffer directly, without copying it, 
+	 * so this should not be modified while the stream is used. 
+	 */
+	@Override
+	public synchronized InputStream toInputStream() {
+		return new ByteArrayInputStream(buf, 0, count);
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.utilbox.misc;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of byte arrays (chunks) of a fixed size, such as the read buffers of process output readers.
+ * Thread-safe.
+ */
+public class ByteChunkPool {
+	
+	public static final int DEFAULT_CHUNK_SIZE = 8 * 1024;
+	
+	public static final ByteChunkPool DEFAULT = new ByteChunkPool(DEFAULT_CHUNK_SIZE, 64);
+	
+	protected final int chunkSize;
+	protected final int maxPooledChunks;
+	protected final ConcurrentLinkedQueue<byte[]> pooledChunks = new ConcurrentLinkedQueue<>();
+	protected final AtomicInteger pooledCount = new AtomicInteger();
+	
+	public ByteChunkPool(int chunkSize, int maxPooledChunks) {
+		assertTrue(chunkSize > 0);
+		this.chunkSize = chunkSize;
+		this.maxPooledChunks = maxPooledChunks;
+	}
+	
+	public int getChunkSize() {
+		return chunkSize;
+	}
+	
+	public int getPooledCount() {
+		return pooledCount.get();
+	}
+	
+	/** @return a chunk from the pool, or a new one if the pool is empty. Contents are undefined. */
+	public byte[] acquire() {
+		byte[] chunk = pooledChunks.poll();
+		if(chunk == null) {
+			return new byte[chunkSize];
+		}
+		pooledCount.decrementAndGet();
+		return chunk;
+	}
+	
+	/** Return given chunk to the pool. The chunk must not be used afterwards. */
+	public void release(byte[] chunk) {
+		if(chunk.length != chunkSize) {
+			return;
+		}
+		if(pooledCount.incrementAndGet() > maxPooledChunks) {
+			pooledCount.decrementAndGet();
+			return; // Pool is full, leave chunk for garbage collection
+		}
+		pooledChunks.add(chunk);
+	}
+	
+}
\ No newline at end of file
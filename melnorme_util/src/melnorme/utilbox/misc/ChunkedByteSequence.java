@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.utilbox.misc;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A growable {@link IByteSequence}, stored in fixed-size chunks.
+ * Appending never copies previously appended bytes (unlike a growing byte array), 
+ * except for the first chunk: it starts small and grows up to the chunk size, so that short sequences 
+ * don't take a whole chunk.
+ * Chunks are not pooled: the sequence is usually kept by the consumers of the process result, 
+ * so there is no point where the chunks can be safely returned.
+ * 
+ * Not thread-safe: there should be a single writer, and readers should only access the sequence after 
+ * it has been safely published (for example, when the writing task has completed).
+ */
+public class ChunkedByteSequence implements IByteSequence {
+	
+	public static final int INITIAL_CHUNK_SIZE = 32;
+	
+	protected final int chunkSize;
+	protected final ArrayList<byte[]> chunks = new ArrayList<>();
+	protected int count = 0;
+	
+	public ChunkedByteSequence() {
+		this(ByteChunkPool.DEFAULT_CHUNK_SIZE);
+	}
+	
+	public ChunkedByteSequence(int chunkSize) {
+		assertTrue(chunkSize > 0);
+		this.chunkSize = chunkSize;
+	}
+	
+	public void append(byte[] buffer, int offset, int length) {
+		while(length > 0) {
+			int chunkIndex = count / chunkSize;
+			int chunkOffset = count % chunkSize;
+			if(chunkOffset == 0 && chunkIndex == chunks.size()) {
+				chunks.add(new byte[chunkIndex == 0 ? Math.min(INITIAL_CHUNK_SIZE, chunkSize) : chunkSize]);
+			}
+			byte[] chunk = chunks.get(chunkIndex);
+			if(chunkOffset + length > chunk.length && chunk.length < chunkSize) {
+				// Grow the first chunk
+				chunk = Arrays.copyOf(chunk, Math.min(chunkSize, Math.max(chunk.length * 2, chunkOffset + length)));
+				chunks.set(chunkIndex, chunk);
+			}
+			
+			int copyLength = Math.min(length, chunkSize - chunkOffset);
+			System.arraycopy(buffer, offset, chunk, chunkOffset, copyLength);
+			offset += copyLength;
+			length -= copyLength;
+			count += copyLength;
+		}
+	}
+	
+	@Override
+	public int getCount() {
+		return count;
+	}
+	
+	@Override
+	public int byteAt(int index) {
+		if(index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException();
+		}
+		return chunks.get(index / chunkSize)[index % chunkSize];
+	}
+	
+	@Override
+	public byte[] toByteArray() {
+		byte[] bytes = new byte[count];
+		for (int ix = 0; ix < chunks.size(); ix++) {
+			int chunkStart = ix * chunkSize;
+			System.arraycopy(chunks.get(ix), 0, bytes, chunkStart, Math.min(chunkSize, count - chunkStart));
+		}
+		return bytes;
+	}
+	
+	@Override
+	public String toString(Charset charset) {
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer chars = CharBuffer.allocate((int) (count * (double) decoder.maxCharsPerByte()) + 1);
+		
+		// Decode chunk by chunk: bytes of a character split across chunks are kept for the next chunk.
+		ByteBuffer input = ByteBuffer.allocate(chunkSize + 16);
+		for (int ix = 0; ix < chunks.size(); ix++) {
+			int chunkStart = ix * chunkSize;
+			input.put(chunks.get(ix), 0, Math.min(chunkSize, count - chunkStart));
+			input.flip();
+			decoder.decode(input, chars, false);
+			input.compact();
+		}
+		input.flip();
+		decoder.decode(input, chars, true);
+		decoder.flush(chars);
+		chars.flip();
+		return chars.toString();
+	}
+	
+	@Override
+	public String toString() {
+		return toString(StringUtil.UTF8);
+	}
+	
+	/** @return an input stream that reads the chunks of this sequence directly, without copying them. */
+	@Override
+	public InputStream toInputStream() {
+		return new ChunksInputStream();
+	}
+	
+	protected class ChunksInputStream extends InputStream {
+		
+		protected final int end = count;
+		protected int position = 0;
+		protected int mark = 0;
+		
+		@Override
+		public int read() {
+			if(position >= end) {
+				return StreamUtil.EOF;
+			}
+			return chunks.get(position / chunkSize)[position++ % chunkSize] & 0xFF;
+		}
+		
+		@Override
+		public int read(byte[] buffer, int offset, int length) {
+			if(length == 0) {
+				return 0;
+			}
+			if(position >= end) {
+				return StreamUtil.EOF;
+			}
+			int chunkOffset = position % chunkSize;
+			int readCount = Math.min(length, Math.min(chunkSize - chunkOffset, end - position));
+			System.arraycopy(chunks.get(position / chunkSize), chunkOffset, buffer, offset, readCount);
+			position += readCount;
+			return readCount;
+		}
+		
+		@Override
+		public long skip(long n) {
+			long skipCount = Math.max(0, Math.min(n, end - position));
+			position += (int) skipCount;
+			return skipCount;
+		}
+		
+		@Override
+		public int available() {
+			return end - position;
+		}
+		
+		@Override
+		public boolean markSupported() {
+			return true;
+		}
+		
+		@Override
+		public synchronized void mark(int readlimit) {
+			mark = position;
+		}
+		
+		@Override
+		public synchronized void reset() {
+			position = mark;
+		}
+		
+	}
+	
+}
\ No newline at end of file
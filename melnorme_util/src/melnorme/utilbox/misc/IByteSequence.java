@@ -10,6 +10,8 @@
  *******************************************************************************/
 package melnorme.utilbox.misc;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 
 /**
@@ -30,4 +32,9 @@ public interface IByteSequence {
 	
 	public byte[] toByteArray();
 	
+	/** @return an input stream that reads the bytes of this sequence. */
+	default InputStream toInputStream() {
+		return new ByteArrayInputStream(toByteArray());
+	}
+	
 }
\ No newline at end of file
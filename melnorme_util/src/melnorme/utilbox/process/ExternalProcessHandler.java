@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -23,15 +24,17 @@ import melnorme.utilbox.concurrency.AbstractRunnableFuture2;
 import melnorme.utilbox.concurrency.ICancelMonitor;
 import melnorme.utilbox.concurrency.ICancelMonitor.NullCancelMonitor;
 import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.concurrency.RunnableFuture2;
 import melnorme.utilbox.core.fntypes.Result;
 import melnorme.utilbox.misc.StreamUtil;
 
 /**
  * Abstract helper class to start an external process and read its output concurrently,
- * using one or two reader threads (for stdout and stderr).
+ * using one or two reader tasks (for stdout and stderr). The reader tasks are run in the executor 
+ * given by {@link #getReadersExecutor()}, by default one shared by all handlers.
  * It also supports waiting for process termination with timeouts.
  * 
- * Subclasses must specify Runnable's for the worker threads reading the process stdout and stderr streams.
+ * Subclasses must specify Runnable's for the worker tasks reading the process stdout and stderr streams.
  */
 public abstract class ExternalProcessHandler<
 	STDOUT_TASK extends AbstractRunnableFuture2<? extends Result<?, IOException>>, 
@@ -48,9 +51,11 @@ public abstract class ExternalProcessHandler<
 	/** This latch exists to signal that the process has terminated, and also that both reader threads 
 	 * have finished reading all input. This last aspect is very important. */
 	protected final CountDownLatch readersAndProcessTerminationLatch;
+	/** Lock to wait for termination or cancellation, notified when either occurs. */
+	protected final Object terminationAwaitLock = new Object();
 	
-	protected final Thread mainReaderThread;
-	protected final Thread stderrReaderThread; // Can be null
+	/** Reads stdout, then waits for process termination and for the stderr reader. */
+	protected final RunnableFuture2<Void> mainReaderTask;
 	
 	public ExternalProcessHandler(Process process, boolean readStdErr, boolean startReaders,
 			ICancelMonitor cancelMonitor) {
@@ -63,8 +68,11 @@ public abstract class ExternalProcessHandler<
 		this.stdoutReaderTask = assertNotNull(init_StdOutReaderTask());
 		this.stderrReaderTask = assertNotNull(init_StdErrReaderTask());
 		
-		this.mainReaderThread = new ProcessHelperMainThread(stdoutReaderTask);
-		this.stderrReaderThread = init_StdErrThread(readStdErr);
+		this.mainReaderTask = new RunnableFuture2<>(this::runMainReader);
+		if(!readStdErr) {
+			completeStderrResult(stderrReaderTask);
+			assertNotNull(stderrReaderTask.getResult_forSuccessfulyCompleted());
+		}
 		
 		if(startReaders) {
 			startReaderThreads();
@@ -75,16 +83,6 @@ public abstract class ExternalProcessHandler<
 	
 	protected abstract STDERR_TASK init_StdErrReaderTask();
 	
-	protected ProcessHelperStdErrThread init_StdErrThread(boolean readStdErr) {
-		if(readStdErr) {
-			return new ProcessHelperStdErrThread(stderrReaderTask);
-		} else {
-			completeStderrResult(stderrReaderTask);
-			assertNotNull(stderrReaderTask.getResult_forSuccessfulyCompleted());
-			return null;
-		}
-	}
-	
 	protected abstract void completeStderrResult(STDERR_TASK stderrReaderTask);
 	
 	@Override
@@ -97,10 +95,16 @@ public abstract class ExternalProcessHandler<
 		return stderrReaderTask;
 	}
 	
+	protected Executor getReadersExecutor() {
+		return ProcessReaderExecutors.getDefault();
+	}
+	
 	public void startReaderThreads() {
-		mainReaderThread.start();
-		if(stderrReaderThread != null) {
-			stderrReaderThread.start();
+		Executor executor = getReadersExecutor();
+		String baseName = getBaseNameForWorkerThreads();
+		executor.execute(ProcessReaderExecutors.namedTask(baseName + "/StdOutReader", mainReaderTask));
+		if(readStdErr) {
+			executor.execute(ProcessReaderExecutors.namedTask(baseName + "/StdErrReader", stderrReaderTask));
 		}
 	}
 	
@@ -130,53 +134,40 @@ public abstract class ExternalProcessHandler<
 		
 	}
 	
-	protected class ProcessHelperMainThread extends Thread {
-		
-		public ProcessHelperMainThread(Runnable runnable) {
-			super(runnable, getBaseNameForWorkerThreads() + "/StdOutReader");
-			setDaemon(true);
-		}
-		
-		@Override
-		public void run() {
+	protected Void runMainReader() {
+		try {
+			stdoutReaderTask.run();
+		} finally {
+			waitForProcessIndefinitely();
+			readersAndProcessTerminationLatch.countDown();
+			signalTerminationAwaiters();
+			
 			try {
-				super.run();
-			} finally {
-				waitForProcessIndefinitely();
-				readersAndProcessTerminationLatch.countDown();
-				
 				mainReaderThread_Terminated();
+			} finally {
+				signalTerminationAwaiters();
 			}
 		}
-		
-		protected void waitForProcessIndefinitely() {
-			while(true) {
-				try {
-					process.waitFor();
-					// Await stderr too:
-					stderrReaderTask.awaitTermination();
-					return;
-				} catch (InterruptedException e) {
-					// retry waitfor, we must ensure process is terminated.
-				}
+		return null;
+	}
+	
+	protected void waitForProcessIndefinitely() {
+		while(true) {
+			try {
+				process.waitFor();
+				// Await stderr too:
+				stderrReaderTask.awaitTermination();
+				return;
+			} catch (InterruptedException e) {
+				// retry waitfor, we must ensure process is terminated.
 			}
 		}
-		
 	}
 	
-	/** Callback method for when main reader thread is about to terminate. Subclasses can extend. */
+	/** Callback method for when main reader task is about to terminate. Subclasses can extend. */
 	public void mainReaderThread_Terminated() {
 	}
 	
-	protected class ProcessHelperStdErrThread extends Thread {
-		
-		public ProcessHelperStdErrThread(Runnable runnable) {
-			super(runnable, getBaseNameForWorkerThreads() + "/StdErrReader");
-			setDaemon(true);
-		}
-		
-	}
-	
 	/*----------  Termination awaiting functionality ----------*/
 	
 	protected boolean isCanceled() {
@@ -185,7 +176,8 @@ public abstract class ExternalProcessHandler<
 	
 	/**
 	 * Await termination of process, with given timeoutMs timeout in milliseconds (-1 for no timeout).
-	 * Periodically polls for cancellation.
+	 * Cancellation is detected as soon as it occurs if the cancel monitor supports cancel listeners, 
+	 * otherwise it is polled periodically.
 	 * @return the process exit value.
 	 * @throws InterruptedException if thread interrupted.
 	 * @throws TimeoutException if timeout reached.
@@ -193,30 +185,53 @@ public abstract class ExternalProcessHandler<
 	 */
 	protected void awaitReadersTermination(int timeoutMs) 
 			throws InterruptedException, TimeoutException, OperationCancellation {
-		int waitedTime = 0;
+		if(Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
 		
-		while(true) {
-			if(isCanceled()) {
-				throw new OperationCancellation();
-			}
-			int cancelPollPeriodMs = getCancelPollingPeriodMs();
-			boolean latchSuccess = doAwaitTermination(cancelPollPeriodMs);
-			if(latchSuccess) {
-				return;
-			}
-			if(timeoutMs != NO_TIMEOUT && waitedTime >= timeoutMs) {
-				throw new TimeoutException();
+		Runnable cancelListener = this::signalTerminationAwaiters;
+		boolean cancelListenerSupported = cancelMonitor.addCancelListener(cancelListener);
+		try {
+			synchronized(terminationAwaitLock) {
+				while(true) {
+					if(isCanceled()) {
+						throw new OperationCancellation();
+					}
+					if(isAwaitedTerminationReached()) {
+						return;
+					}
+					long waitMs = cancelListenerSupported ? 0 : getCancelPollingPeriodMs(); // 0 waits indefinitely
+					if(timeoutMs != NO_TIMEOUT) {
+						long remainingNanos = deadlineNanos - System.nanoTime();
+						if(remainingNanos <= 0) {
+							throw new TimeoutException();
+						}
+						long remainingMs = TimeUnit.NANOSECONDS.toMillis(remainingNanos) + 1;
+						waitMs = waitMs == 0 ? remainingMs : Math.min(waitMs, remainingMs);
+					}
+					terminationAwaitLock.wait(waitMs);
+				}
 			}
-			waitedTime += cancelPollPeriodMs;
+		} finally {
+			cancelMonitor.removeCancelListener(cancelListener);
 		}
 	}
 	
+	/** Polling period for cancel monitors that don't support cancel listeners. */
 	protected int getCancelPollingPeriodMs() {
-		return 200;
+		return 50;
 	}
 	
-	protected boolean doAwaitTermination(int cancelPollPeriodMs) throws InterruptedException {
-		return readersAndProcessTerminationLatch.await(cancelPollPeriodMs, TimeUnit.MILLISECONDS);
+	/** @return whether the termination awaited by {@link #awaitReadersTermination(int)} has been reached. */
+	protected boolean isAwaitedTerminationReached() {
+		return readersAndProcessTerminationLatch.getCount() == 0;
+	}
+	
+	protected void signalTerminationAwaiters() {
+		synchronized(terminationAwaitLock) {
+			terminationAwaitLock.notifyAll();
+		}
 	}
 	
 	@Override
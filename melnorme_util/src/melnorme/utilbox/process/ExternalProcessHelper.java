@@ -22,6 +22,8 @@ import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.core.fntypes.Result;
 import melnorme.utilbox.misc.ByteArrayOutputStreamExt;
+import melnorme.utilbox.misc.ByteChunkPool;
+import melnorme.utilbox.misc.ChunkedByteSequence;
 import melnorme.utilbox.misc.IByteSequence;
 import melnorme.utilbox.process.ExternalProcessHelper.ReadAllBytesTask;
 
@@ -63,43 +65,48 @@ public class ExternalProcessHelper
 		stderrReaderTask.completeWithResult(new Result<>(null));
 	}
 	
-	public static class ReadAllBytesTask extends ReaderTask<ByteArrayOutputStreamExt> {
+	public static class ReadAllBytesTask extends ReaderTask<ChunkedByteSequence> {
 		
-		protected final ByteArrayOutputStreamExt byteArray = new ByteArrayOutputStreamExt(32);
+		protected final ChunkedByteSequence bytes;
 		
 		public ReadAllBytesTask(InputStream is, ICancelMonitor cancelMonitor) {
-			super(is, cancelMonitor);
+			this(is, cancelMonitor, ByteChunkPool.DEFAULT);
+		}
+		
+		public ReadAllBytesTask(InputStream is, ICancelMonitor cancelMonitor, ByteChunkPool bufferPool) {
+			super(is, cancelMonitor, bufferPool);
+			this.bytes = new ChunkedByteSequence(bufferPool.getChunkSize());
 		}
 		
 		@Override
 		protected void notifyReadChunk2(byte[] buffer, int offset, int readCount) {
-			byteArray.write(buffer, 0, readCount);
+			bytes.append(buffer, offset, readCount);
 		}
 		
 		@Override
-		protected ByteArrayOutputStreamExt doGetReturnValue() {
-			return byteArray;
+		protected ChunkedByteSequence doGetReturnValue() {
+			return bytes;
 		}
 		
 	}
 	
 	/* ----------------- result helpers ----------------- */
 	
-	protected ByteArrayOutputStreamExt getStdOutBytes() throws IOException {
+	protected ChunkedByteSequence getStdOutBytes() throws IOException {
 		return stdoutReaderTask.getResult_forSuccessfulyCompleted().get();
 	}
 	
-	protected ByteArrayOutputStreamExt getStdErrBytes() throws IOException {
+	protected ChunkedByteSequence getStdErrBytes() throws IOException {
 		return stderrReaderTask.getResult_forSuccessfulyCompleted().get();
 	}
 	
 	public static class ExternalProcessResult {
 		
 		public final int exitValue;
-		public final ByteArrayOutputStreamExt stdout;
-		public final ByteArrayOutputStreamExt stderr;
+		public final IByteSequence stdout;
+		public final IByteSequence stderr;
 		
-		public ExternalProcessResult(int exitValue, ByteArrayOutputStreamExt stdout, ByteArrayOutputStreamExt stderr) {
+		public ExternalProcessResult(int exitValue, IByteSequence stdout, IByteSequence stderr) {
 			this.exitValue = exitValue;
 			this.stdout = assertNotNull(stdout);
 			this.stderr = stderr != null ? stderr : new ByteArrayOutputStreamExt();
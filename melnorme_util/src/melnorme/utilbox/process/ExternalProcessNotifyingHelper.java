@@ -14,7 +14,6 @@ import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
 import melnorme.utilbox.collections.Indexable;
 import melnorme.utilbox.concurrency.ICancelMonitor;
@@ -55,6 +54,10 @@ public class ExternalProcessNotifyingHelper extends ExternalProcessHelper {
 		}
 	}
 	
+	/**
+	 * Listener for process output. Note: the buffer given to the notify methods is reused for further reads
+	 * once the method returns, so its contents must be copied if they are needed afterwards.
+	 */
 	public static interface IProcessOutputListener {
 		
 		void notifyStdOutListeners(byte[] buffer, int offset, int readCount);
@@ -131,11 +134,11 @@ public class ExternalProcessNotifyingHelper extends ExternalProcessHelper {
 	}
 	
 	@Override
-	protected boolean doAwaitTermination(int cancelPollPeriodMs) throws InterruptedException {
+	protected boolean isAwaitedTerminationReached() {
 		if(awaitListeners.isTrue()) {
-			return listenersTerminationLatch.await(cancelPollPeriodMs, TimeUnit.MILLISECONDS);
+			return listenersTerminationLatch.getCount() == 0;
 		} else {
-			return super.doAwaitTermination(cancelPollPeriodMs);
+			return super.isAwaitedTerminationReached();
 		}
 	}
 	
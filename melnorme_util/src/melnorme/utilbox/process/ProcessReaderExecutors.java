@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.utilbox.process;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import melnorme.utilbox.concurrency.NamingThreadFactory;
+
+/**
+ * Executors for the reader tasks of {@link ExternalProcessHandler}.
+ * 
+ * A reader task blocks on a process stream until the process closes it. Therefore these executors 
+ * don't limit the number of running tasks: otherwise, reading the output of a process could wait for 
+ * unrelated processes to terminate. Instead of creating new threads for each process, threads are reused.
+ */
+public class ProcessReaderExecutors {
+	
+	public static enum ReaderThreadsMode { NEW_THREADS, SHARED_POOL, VIRTUAL_THREADS }
+	
+	/** System property to select the default {@link ReaderThreadsMode}. */
+	public static final String READER_THREADS_MODE_PROPERTY = "melnorme.process.readerThreadsMode";
+	
+	protected static final int POOL_KEEP_ALIVE_SECONDS = 30;
+	
+	protected static final Executor NEW_THREADS_EXECUTOR = (runnable) -> {
+		Thread thread = new Thread(runnable);
+		thread.setDaemon(true);
+		thread.start();
+	};
+	
+	protected static final Executor SHARED_POOL_EXECUTOR = createSharedPool();
+	
+	protected static final Executor VIRTUAL_THREADS_EXECUTOR = createVirtualThreadsExecutor();
+	
+	protected static final Executor DEFAULT_EXECUTOR = getExecutor(getDefaultMode());
+	
+	protected static ThreadPoolExecutor createSharedPool() {
+		NamingThreadFactory threadFactory = new NamingThreadFactory("ProcessReader", true) {
+			@Override
+			public Thread newThread(Runnable runable) {
+				Thread thread = super.newThread(runable);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+		return new ThreadPoolExecutor(0, Integer.MAX_VALUE, POOL_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+			new SynchronousQueue<Runnable>(), threadFactory);
+	}
+	
+	/** @return an executor that starts a virtual thread for each task, or null if not available (Java < 21). */
+	protected static Executor createVirtualThreadsExecutor() {
+		try {
+			return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch(ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+	
+	public static boolean isVirtualThreadsAvailable() {
+		return VIRTUAL_THREADS_EXECUTOR != null;
+	}
+	
+	protected static ReaderThreadsMode getDefaultMode() {
+		String modeName = System.getProperty(READER_THREADS_MODE_PROPERTY);
+		if(modeName != null) {
+			try {
+				return ReaderThreadsMode.valueOf(modeName);
+			} catch(IllegalArgumentException e) {
+				// Ignore, use default
+			}
+		}
+		return isVirtualThreadsAvailable() ? ReaderThreadsMode.VIRTUAL_THREADS : ReaderThreadsMode.SHARED_POOL;
+	}
+	
+	/**
+	 * @return the executor for given mode. 
+	 * If virtual threads are not available, the shared pool is used instead.
+	 */
+	public static Executor getExecutor(ReaderThreadsMode mode) {
+		switch(mode) {
+		case NEW_THREADS:
+			return NEW_THREADS_EXECUTOR;
+		case VIRTUAL_THREADS:
+			if(isVirtualThreadsAvailable()) {
+				return VIRTUAL_THREADS_EXECUTOR;
+			}
+			return SHARED_POOL_EXECUTOR;
+		default:
+			return SHARED_POOL_EXECUTOR;
+		}
+	}
+	
+	public static Executor getDefault() {
+		return DEFAULT_EXECUTOR;
+	}
+	
+	/** @return a runnable that runs given task with the current thread renamed to given name. */
+	public static Runnable namedTask(String threadName, Runnable task) {
+		return () -> {
+			Thread thread = Thread.currentThread();
+			String originalName = thread.getName();
+			thread.setName(threadName);
+			try {
+				task.run();
+			} finally {
+				thread.setName(originalName);
+			}
+		};
+	}
+	
+}
\ No newline at end of file
@@ -18,6 +18,7 @@ import java.io.InputStream;
 import melnorme.utilbox.concurrency.ICancelMonitor;
 import melnorme.utilbox.concurrency.MonitorRunnableFuture;
 import melnorme.utilbox.core.fntypes.Result;
+import melnorme.utilbox.misc.ByteChunkPool;
 import melnorme.utilbox.misc.StreamUtil;
 
 public abstract class ReaderTask<RET> 
@@ -25,10 +26,17 @@ public abstract class ReaderTask<RET>
 {
 	
 	protected final InputStream is;
+	/** Pool for the read buffer. The chunk size of the pool determines the read buffer size. */
+	protected final ByteChunkPool bufferPool;
 	
 	public ReaderTask(InputStream is, ICancelMonitor cancelMonitor) {
+		this(is, cancelMonitor, ByteChunkPool.DEFAULT);
+	}
+	
+	public ReaderTask(InputStream is, ICancelMonitor cancelMonitor, ByteChunkPool bufferPool) {
 		super(cancelMonitor);
 		this.is = assertNotNull(is);
+		this.bufferPool = assertNotNull(bufferPool);
 	}
 	
 	@Override
@@ -38,16 +46,15 @@ public abstract class ReaderTask<RET>
 	
 	public RET doRun() throws IOException {
 		// BM: Hum, should we treat an IOException not as an error, but just like an EOF?
+		byte[] buffer = bufferPool.acquire();
 		try {
-			final int BUFFER_SIZE = 1024;
-			byte[] buffer = new byte[BUFFER_SIZE];
-			
 			int read;
 			while((read = is.read(buffer)) != StreamUtil.EOF && !isCancelled()) {
 				notifyReadChunk2(buffer, 0, read);
 			}
 			return doGetReturnValue();
 		} finally {
+			bufferPool.release(buffer);
 			is.close();
 		}
 	}
@@ -103,12 +103,12 @@ public class DocumentReconcileManager extends AbstractAgentManager {
 			@Override
 			public void documentChanged(DocumentEvent event) {
 				assertTrue(document == event.fDocument);
-				doDocumentChanged();
+				doDocumentChanged(event);
 			}
 		};
 		
-		protected StructureUpdateTask doDocumentChanged() {
-			return structureInfo.queueSourceUpdateTask(document.get());
+		protected StructureUpdateTask doDocumentChanged(DocumentEvent event) {
+			return structureInfo.queueSourceUpdateTask(document.get(), event);
 		}
 		
 	}
@@ -152,14 +152,15 @@ public class DocumentReconcileManager extends AbstractAgentManager {
 		}
 		
 		@Override
-		protected StructureUpdateTask doDocumentChanged() {
-			StructureUpdateTask structureUpdateTask = structureInfo.queueSourceUpdateTask(document.get());
+		protected StructureUpdateTask doDocumentChanged(DocumentEvent event) {
+			StructureUpdateTask structureUpdateTask = structureInfo.queueSourceUpdateTask(document.get(), event);
 			
 			fileSaveLatch.setCancelledResult();
 			fileSaveLatch = new CompletableLatch();
 			
 			if(project != null) {
-				projectReconciler.invalidateProjectModel(project, structureUpdateTask, fileSaveLatch);
+				projectReconciler.invalidateProjectModel(project, structureInfo.getLocation(), structureUpdateTask, 
+					fileSaveLatch);
 			}
 			return structureUpdateTask;
 		}
@@ -207,7 +208,8 @@ public class DocumentReconcileManager extends AbstractAgentManager {
 				StructureUpdateTask structureUpdateTask = structureInfo.documentSaved(document);
 				
 				if(structureUpdateTask != null && project != null) {
-					projectReconciler.invalidateProjectModel(project, structureUpdateTask, fileSaveLatch);
+					projectReconciler.invalidateProjectModel(project, structureInfo.getLocation(), 
+						structureUpdateTask, fileSaveLatch);
 				}
 			}
 			
@@ -14,7 +14,6 @@ import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 
 import org.eclipse.core.resources.IFile;
-import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceRunnable;
@@ -25,6 +24,8 @@ import org.eclipse.core.runtime.jobs.Job;
 import melnorme.lang.ide.core.EclipseCore;
 import melnorme.lang.ide.core.LangCore_Actual;
 import melnorme.lang.ide.core.engine.SourceModelManager.StructureInfo;
+import melnorme.lang.ide.core.operations.MarkerReconciler;
+import melnorme.lang.ide.core.operations.MarkerReconciler.MarkerData;
 import melnorme.lang.ide.core.operations.ToolMarkersHelper;
 import melnorme.lang.ide.core.utils.CoreExecutors;
 import melnorme.lang.ide.core.utils.ResourceUtils;
@@ -143,25 +144,28 @@ public class ProblemMarkerUpdater extends LifecycleObject {
 				return; // It could have been removed in the meanwhile.
 			}
 			
-			file.deleteMarkers(LangCore_Actual.SOURCE_PROBLEM_ID, true, IResource.DEPTH_ZERO);
+			// Only add and delete the markers that changed, 
+			// to avoid resource change events for the markers of problems that are still the same.
+			MarkerReconciler markerReconciler = new MarkerReconciler(LangCore_Actual.SOURCE_PROBLEM_ID);
+			markerReconciler.collectExistingMarkers(file, IResource.DEPTH_ZERO);
 			
-			if(structure == null) {
-				return;
+			if(structure != null) {
+				for (ParserError problem : structure.getParserProblems()) {
+		//			checkIsStillValid();
+					markerReconciler.addMarker(createMarkerData(location, file, problem));
+				}
 			}
 			
-			for (ParserError problem : structure.getParserProblems()) {
-	//			checkIsStillValid();
-				createMarker(location, file, problem);
-			}
+			markerReconciler.deleteUnmatchedMarkers();
 		}
 		
-		protected void createMarker(final Location location, IFile file, ParserError problem) throws CoreException {
-			IMarker marker = file.createMarker(LangCore_Actual.SOURCE_PROBLEM_ID);
-			marker.setAttribute(IMarker.LOCATION, location.toPathString());
-			marker.setAttribute(IMarker.MESSAGE, problem.getUserMessage());
-			marker.setAttribute(IMarker.SEVERITY, ToolMarkersHelper.markerSeverityFrom(problem.getSeverity()));
-			marker.setAttribute(IMarker.CHAR_START, problem.getStartPos());
-			marker.setAttribute(IMarker.CHAR_END, problem.getEndPos());
+		protected MarkerData createMarkerData(final Location location, IFile file, ParserError problem) {
+			MarkerData markerData = new MarkerData(file, 
+				ToolMarkersHelper.markerSeverityFrom(problem.getSeverity()), problem.getUserMessage());
+			markerData.location = location.toPathString();
+			markerData.charStart = problem.getStartPos();
+			markerData.charEnd = problem.getEndPos();
+			return markerData;
 		}
 	
 	}
@@ -12,7 +12,9 @@ package melnorme.lang.ide.core.engine;
 
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 
 import org.eclipse.core.resources.IProject;
 
@@ -27,6 +29,7 @@ import melnorme.utilbox.concurrency.MonitorRunnableFuture;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.concurrency.CompletableResult.CompletableLatch;
 import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.Location;
 
 abstract class AbstractProjectReconcileManager {
 	
@@ -43,21 +46,38 @@ abstract class AbstractProjectReconcileManager {
 		return executor;
 	}
 	
-	public void invalidateProjectModel(IProject project, StructureUpdateTask structureUpdateTask, 
-			CompletableLatch fileSaveLatch) {
+	/**
+	 * @param changedFile the file that was changed, or null if unknown 
+	 * (in which case the whole project is reconciled).
+	 */
+	public void invalidateProjectModel(IProject project, Location changedFile, 
+			StructureUpdateTask structureUpdateTask, CompletableLatch fileSaveLatch) {
 		
 		assertNotNull(fileSaveLatch);
 		
 		synchronized (projectInfosLock) {
 			ProjectReconcileTask currentReconcileTask = projectInfos.get(project);
 			
+			LinkedHashSet<Location> changedFiles = null;
+			if(changedFile != null) {
+				changedFiles = new LinkedHashSet<>();
+				changedFiles.add(changedFile);
+			}
+			
 			// Cancel the previous task
 			if(currentReconcileTask != null) {
 				currentReconcileTask.tryCancel(); 
+				
+				// The previous task might not have completed, so its changes have to be reconciled too
+				if(changedFiles != null && currentReconcileTask.changedFiles != null) {
+					changedFiles.addAll(currentReconcileTask.changedFiles);
+				} else {
+					changedFiles = null;
+				}
 			}
 			
-			ProjectReconcileTask newReconcileTask = 
-					new ProjectReconcileTask(project, currentReconcileTask, structureUpdateTask, fileSaveLatch);
+			ProjectReconcileTask newReconcileTask = new ProjectReconcileTask(project, changedFiles, 
+				currentReconcileTask, structureUpdateTask, fileSaveLatch);
 			
 			projectInfos.put(project, newReconcileTask);
 			
@@ -86,14 +106,17 @@ abstract class AbstractProjectReconcileManager {
 	public class ProjectReconcileTask extends MonitorRunnableFuture<Void> {
 		
 		protected final IProject project;
+		protected final LinkedHashSet<Location> changedFiles; // Can be null
 		protected final ProjectReconcileTask previousReconcileTask;
 		protected final StructureUpdateTask structureUpdateTask;
 		protected final CompletableLatch fileSaveLatch;
 		
-		public ProjectReconcileTask(IProject project, ProjectReconcileTask previousReconcileTask, 
-				StructureUpdateTask structureUpdateTask, CompletableLatch fileSaveLatch) {
+		public ProjectReconcileTask(IProject project, LinkedHashSet<Location> changedFiles,
+				ProjectReconcileTask previousReconcileTask, StructureUpdateTask structureUpdateTask, 
+				CompletableLatch fileSaveLatch) {
 			
 			this.project = assertNotNull(project);
+			this.changedFiles = changedFiles;
 			this.previousReconcileTask = previousReconcileTask;
 			this.structureUpdateTask = assertNotNull(structureUpdateTask);
 			this.fileSaveLatch = assertNotNull(fileSaveLatch);
@@ -130,14 +153,18 @@ abstract class AbstractProjectReconcileManager {
 			if(isCancelled()) {
 				return;
 			}
-			doProjectReconcile(project, getCancelMonitor());
+			doProjectReconcile(project, changedFiles, getCancelMonitor());
 			
 			removeProjectInfo(this);
 		}
 		
 	}
 	
-	public abstract void doProjectReconcile(IProject project, ICancelMonitor opMonitor);
+	/**
+	 * @param changedFiles the files changed since the last reconcile, or null if unknown.
+	 */
+	public abstract void doProjectReconcile(IProject project, Collection<Location> changedFiles, 
+			ICancelMonitor opMonitor);
 	
 }
 
@@ -153,7 +180,7 @@ public class ProjectReconcileManager extends AbstractProjectReconcileManager {
 	}
 	
 	@Override
-	public void doProjectReconcile(IProject project, ICancelMonitor cm) {
+	public void doProjectReconcile(IProject project, Collection<Location> changedFiles, ICancelMonitor cm) {
 		// We would actually like to clear the console, but due to Eclipse UI bug/limitation
 		// clearing the console activates it. :(
 		boolean clearConsole = false;
@@ -161,7 +188,7 @@ public class ProjectReconcileManager extends AbstractProjectReconcileManager {
 				buildMgr.getToolManager().startNewOperation(ProcessStartKind.CHECK_BUILD, clearConsole, false);
 		
 		try {
-			buildMgr.newProjectBuildOperation(opMonitor, project, true, true).execute(new NullOperationMonitor(cm));
+			buildMgr.newProjectCheckOperation(opMonitor, project, changedFiles).execute(new NullOperationMonitor(cm));
 		} catch(CommonException e) {
 			opMonitor.writeInfoMessage("Error during auto-check:\n" + e.getSingleLineRender() + "\n");
 		} catch(OperationCancellation e) {
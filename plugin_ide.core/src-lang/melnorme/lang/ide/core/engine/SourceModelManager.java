@@ -14,12 +14,16 @@ import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 import static melnorme.utilbox.core.CoreUtil.areEqual;
 
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 
 import melnorme.lang.ide.core.LangCore;
 import melnorme.lang.ide.core.engine.DocumentReconcileManager.DocumentReconcileConnection;
+import melnorme.lang.ide.core.operations.ToolchainPreferences;
 import melnorme.lang.tooling.LocationKey;
+import melnorme.lang.tooling.ast.SourceEditDelta;
 import melnorme.lang.tooling.structure.SourceFileStructure;
+import melnorme.lang.utils.concurrency.CoalescingTaskScheduler;
 import melnorme.lang.utils.concurrency.ConcurrentlyDerivedData;
 import melnorme.lang.utils.concurrency.ConcurrentlyDerivedData.DataUpdateTask;
 import melnorme.lang.utils.concurrency.SynchronizedEntryMap;
@@ -41,6 +45,7 @@ import melnorme.utilbox.ownership.StrictDisposable;
 public abstract class SourceModelManager extends AbstractAgentManager {
 	
 	protected final DocumentReconcileManager reconcileMgr;
+	protected final CoalescingTaskScheduler<LocationKey> updateScheduler = init_updateScheduler();
 	
 	public SourceModelManager() {
 		this(new DocumentReconcileManager(), new ProblemMarkerUpdater());
@@ -55,6 +60,33 @@ public abstract class SourceModelManager extends AbstractAgentManager {
 		}
 	}
 	
+	protected CoalescingTaskScheduler<LocationKey> init_updateScheduler() {
+		// Delays are set from preferences on each task submission
+		return new CoalescingTaskScheduler<>(executor, 0, 0);
+	}
+	
+	/** @return the scheduler for structure update tasks. Mainly for statistics and tests. */
+	public CoalescingTaskScheduler<LocationKey> getUpdateScheduler() {
+		return updateScheduler;
+	}
+	
+	@Override
+	protected void dispose_post() {
+		updateScheduler.shutdown();
+		super.dispose_post();
+	}
+	
+	/**
+	 * Submit given update task for execution. 
+	 * Successive tasks for the same key are debounced, and coalesced into the latest one.
+	 */
+	protected void submitUpdateTask(LocationKey key, StructureUpdateTask updateTask) {
+		updateScheduler.setDelays(
+			Math.max(0, ToolchainPreferences.STRUCTURE_UPDATE_QUIET_PERIOD.get()), 
+			Math.max(0, ToolchainPreferences.STRUCTURE_UPDATE_MAX_LATENCY.get()));
+		updateScheduler.submit(key, updateTask);
+	}
+	
 	/* -----------------  ----------------- */
 	
 	protected final SynchronizedEntryMap<LocationKey, StructureInfo> infosMap = 
@@ -129,6 +161,11 @@ public abstract class SourceModelManager extends AbstractAgentManager {
 		protected IDocument document = null;
 		protected DocumentReconcileConnection reconcileConnection = null;
 		
+		/** 
+		 * The document edits since the source of the stored structure, 
+		 * or null if not known (the next structure must be created from scratch).
+		 */
+		protected SourceEditDelta pendingEdits;
 		
 		public StructureInfo(LocationKey key) {
 			super();
@@ -150,6 +187,7 @@ public abstract class SourceModelManager extends AbstractAgentManager {
 				newData = new CommonResult<>(null);
 			}
 			super.internalSetData(newData);
+			pendingEdits = newData.getOrNull() != null ? SourceEditDelta.NONE : null;
 		}
 		
 		@Override
@@ -189,12 +227,27 @@ public abstract class SourceModelManager extends AbstractAgentManager {
 			}
 		}
 		
-		protected StructureUpdateTask queueSourceUpdateTask(final String source) {
+		protected synchronized StructureUpdateTask queueSourceUpdateTask(final String source) {
+			pendingEdits = null;
 			StructureUpdateTask updateTask = createUpdateTask(this, source);
 			queueUpdateTask(updateTask);
 			return updateTask;
 		}
 		
+		/**
+		 * Queue an update task for given document change. 
+		 * @param source the new source of the document, after given event.
+		 */
+		protected synchronized StructureUpdateTask queueSourceUpdateTask(final String source, DocumentEvent event) {
+			if(pendingEdits != null) {
+				int textLength = event.getText() == null ? 0 : event.getText().length();
+				pendingEdits = pendingEdits.addReplaceEdit(event.getOffset(), event.getLength(), textLength);
+			}
+			StructureUpdateTask updateTask = createUpdateTask_forEdit(this, source, pendingEdits);
+			queueUpdateTask(updateTask);
+			return updateTask;
+		}
+		
 		public synchronized StructureUpdateTask documentSaved(IDocument document) {
 			// need to recheck, the underlying document might have changed
 			if(document != this.document) {
@@ -210,7 +263,13 @@ public abstract class SourceModelManager extends AbstractAgentManager {
 		protected synchronized void queueUpdateTask(StructureUpdateTask updateTask) {
 			setUpdateTask(updateTask);
 			
-			executor.submitTask(updateTask);
+			if(infosMap.getEntryOrNull(key2) == this) {
+				submitUpdateTask(key2, updateTask);
+			} else {
+				// An unmanaged StructureInfo (see connectStructureUpdates): its tasks must not be 
+				// coalesced with the tasks of the managed StructureInfo of the same key.
+				executor.submitTask(updateTask);
+			}
 		}
 		
 		@Override
@@ -229,6 +288,19 @@ public abstract class SourceModelManager extends AbstractAgentManager {
 	 */
 	protected abstract StructureUpdateTask createUpdateTask(StructureInfo structureInfo, String source);
 	
+	/**
+	 * Similar to {@link #createUpdateTask(StructureInfo, String)} but for a document change whose 
+	 * edit region is known. This runs under the structureInfo lock.
+	 * 
+	 * @param edit the edits since the source of the stored structure of structureInfo, 
+	 * or null if not known. 
+	 * Default is to ignore the edit, and recreate the structure from scratch. 
+	 */
+	protected StructureUpdateTask createUpdateTask_forEdit(StructureInfo structureInfo, String source, 
+			@SuppressWarnings("unused") SourceEditDelta edit) {
+		return createUpdateTask(structureInfo, source);
+	}
+	
 	/**
 	 * Similar to {@link #createUpdateTask(StructureInfo, String)} but only for when the file buffer 
 	 * is saved to disk. Default is to return null, which ignores this event.
@@ -18,6 +18,7 @@ import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 
 import java.text.MessageFormat;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.eclipse.core.resources.IBuildConfiguration;
 import org.eclipse.core.resources.IProject;
@@ -35,6 +36,7 @@ import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.IToolOp
 import melnorme.lang.ide.core.operations.build.BuildManager;
 import melnorme.lang.ide.core.utils.EclipseUtils;
 import melnorme.lang.ide.core.utils.ResourceUtils;
+import melnorme.lang.tooling.common.ops.IOperationMonitor.NullOperationMonitor;
 import melnorme.lang.tooling.common.ops.Operation;
 import melnorme.utilbox.collections.HashMap2;
 import melnorme.utilbox.concurrency.OperationCancellation;
@@ -96,6 +98,8 @@ public abstract class LangProjectBuilder extends IncrementalProjectBuilder {
 	}
 	
 	protected static HashMap2<String, IToolOperationMonitor> workspaceOpMonitorMap = new HashMap2<>();
+	/** The build markers reconcilers of the projects cleared at the start of the current workspace build. */
+	protected static HashMap2<IProject, MarkerReconciler> workspaceMarkerReconcilers = new HashMap2<>();
 	protected IToolOperationMonitor workspaceOpMonitor;
 	
 	protected void prepareForBuild(IProgressMonitor pm) throws CoreException, OperationCancellation {
@@ -127,6 +131,8 @@ public abstract class LangProjectBuilder extends IncrementalProjectBuilder {
 			headerVeryBig(MessageFormat.format(MSG_Starting_LANG_Build, LangCore_Actual.NAME_OF_LANGUAGE))
 		);
 		
+		// Discard the reconcilers of a previous workspace build that did not end normally
+		workspaceMarkerReconcilers.clear();
 		clearWorkspaceErrorMarkers(pm);
 	}
 	
@@ -140,14 +146,46 @@ public abstract class LangProjectBuilder extends IncrementalProjectBuilder {
 	
 	protected void clearErrorMarkers(IProject project, IProgressMonitor pm) 
 			throws CoreException, OperationCancellation {
-		Operation clearMarkersOp = buildManager.newProjectClearMarkersOperation(workspaceOpMonitor, project);
+		MarkerReconciler markerReconciler = buildManager.newMarkerReconciler();
+		workspaceMarkerReconcilers.put(project, markerReconciler);
+		Operation clearMarkersOp = 
+				buildManager.newProjectClearMarkersOperation(workspaceOpMonitor, project, markerReconciler);
 		EclipseUtils.execute_asCore(EclipseUtils.om(pm), clearMarkersOp);
 	}
 	
 	protected void handleEndWorkspaceBuild2() {
+		finishClearWorkspaceErrorMarkers();
 		workspaceOpMonitor = null;
 	}
 	
+	/** Delete the error markers cleared at the start of the workspace build, that were not created again. */
+	protected void finishClearWorkspaceErrorMarkers() {
+		try {
+			for(Entry<IProject, MarkerReconciler> entry : workspaceMarkerReconcilers.entrySet()) {
+				finishClearErrorMarkers(entry.getKey(), entry.getValue());
+			}
+		} finally {
+			workspaceMarkerReconcilers.clear();
+		}
+	}
+	
+	protected void finishClearErrorMarkers(IProject project, MarkerReconciler markerReconciler) {
+		try {
+			if(workspaceOpMonitor == null) {
+				buildManager.finishMarkersReconcile(project, markerReconciler, (resource) -> true);
+				return;
+			}
+			Operation finishClearMarkersOp = 
+					buildManager.newProjectFinishClearMarkersOperation(workspaceOpMonitor, project, markerReconciler);
+			// Not cancellable, stale markers must be deleted even if the build was cancelled.
+			EclipseUtils.execute_asCore(new NullOperationMonitor(), finishClearMarkersOp);
+		} catch(CoreException ce) {
+			EclipseCore.logStatus(ce);
+		} catch(OperationCancellation e) {
+			// Cannot happen
+		}
+	}
+	
 	@Override
 	protected IProject[] build(int kind, Map<String, String> args, IProgressMonitor monitor) throws CoreException {
 		assertTrue(kind != CLEAN_BUILD);
@@ -174,7 +212,8 @@ public abstract class LangProjectBuilder extends IncrementalProjectBuilder {
 			throw ce;
 		}
 		finally {
-			getProject().refreshLocal(IResource.DEPTH_INFINITE, monitor);
+			// Even if the build was cancelled, it might have written some outputs
+			buildManager.refreshBuildOutputs(getProject());
 			
 			if(isLastProjectOfKind()) {
 				handleEndWorkspaceBuild2();
@@ -199,7 +238,8 @@ public abstract class LangProjectBuilder extends IncrementalProjectBuilder {
 	}
 	
 	protected Operation createBuildOp() throws CommonException {
-		return buildManager.newProjectBuildOperation(workspaceOpMonitor, getProject(), false, false);
+		return buildManager.newProjectBuildOperation(workspaceOpMonitor, getProject(), 
+			workspaceMarkerReconcilers.get(getProject()));
 	}
 	
 	/* ----------------- Clean ----------------- */
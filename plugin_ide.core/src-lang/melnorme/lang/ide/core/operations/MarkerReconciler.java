@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.operations;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.CoreUtil.areEqual;
+import static melnorme.utilbox.misc.HashcodeUtil.getHashCode;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.HashMap2;
+import melnorme.utilbox.misc.HashcodeUtil;
+
+/**
+ * Updates the markers of a given type by comparing the new markers with the existing ones:
+ * an existing marker that is equal to a new marker is kept, only new markers with no equal existing marker
+ * are created, and only the existing markers with no equal new marker are deleted
+ * (see {@link #deleteUnmatchedMarkers()}).
+ * This avoids resource change events (and the respective UI updates) for markers that did not change.
+ *
+ * Methods that modify markers should be called inside a workspace operation,
+ * so that all changes are reported in a single resource change event.
+ */
+public class MarkerReconciler {
+	
+	protected final String markerType;
+	/** Existing markers that were not matched by a new marker yet. */
+	protected final HashMap2<MarkerData, ArrayList2<IMarker>> unmatchedMarkers = new HashMap2<>();
+	
+	public MarkerReconciler(String markerType) {
+		this.markerType = assertNotNull(markerType);
+	}
+	
+	public String getMarkerType() {
+		return markerType;
+	}
+	
+	/** Collect the existing markers of given resource (and its members, according to given depth). */
+	public synchronized void collectExistingMarkers(IResource resource, int depth) throws CoreException {
+		if(!resource.exists()) {
+			return;
+		}
+		for (IMarker marker : resource.findMarkers(markerType, true, depth)) {
+			MarkerData markerData = MarkerData.fromMarker(marker);
+			unmatchedMarkers.computeIfAbsent(markerData, (key) -> new ArrayList2<>()).add(marker);
+		}
+	}
+	
+	/**
+	 * Add a marker with given data: an equal existing marker is reused if there is one,
+	 * otherwise a new marker is created.
+	 */
+	public synchronized IMarker addMarker(MarkerData markerData) throws CoreException {
+		ArrayList2<IMarker> markers = unmatchedMarkers.get(markerData);
+		if(markers != null) {
+			IMarker marker = markers.remove(markers.size() - 1);
+			if(markers.isEmpty()) {
+				unmatchedMarkers.remove(markerData);
+			}
+			if(marker.exists()) {
+				return marker;
+			}
+		}
+		return markerData.createMarker(markerType);
+	}
+	
+	/**
+	 * Delete the existing markers that were not matched by a new marker.
+	 * @return the number of deleted markers.
+	 */
+	public synchronized int deleteUnmatchedMarkers() throws CoreException {
+		return deleteUnmatchedMarkers((resource) -> true);
+	}
+	
+	/**
+	 * Delete the existing markers that were not matched by a new marker, and are on a resource accepted by
+	 * given scope. Unmatched markers on other resources are kept.
+	 * @return the number of deleted markers.
+	 */
+	public synchronized int deleteUnmatchedMarkers(Predicate<IResource> scope) throws CoreException {
+		int deletedCount = 0;
+		Iterator<ArrayList2<IMarker>> iter = unmatchedMarkers.values().iterator();
+		while(iter.hasNext()) {
+			ArrayList2<IMarker> markers = iter.next();
+			if(!scope.test(markers.get(0).getResource())) {
+				continue;
+			}
+			for (IMarker marker : markers) {
+				if(marker.exists()) {
+					marker.delete();
+					deletedCount++;
+				}
+			}
+			iter.remove();
+		}
+		return deletedCount;
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/**
+	 * The resource and attributes of a marker, as used for marker comparison.
+	 * Optional attributes are -1 (or null) if not set.
+	 */
+	public static class MarkerData {
+		
+		public final IResource resource;
+		public final int severity;
+		public final String message;
+		public int lineNumber = -1;
+		public int charStart = -1;
+		public int charEnd = -1;
+		public String location = null;
+		
+		public MarkerData(IResource resource, int severity, String message) {
+			this.resource = assertNotNull(resource);
+			this.severity = severity;
+			this.message = message;
+		}
+		
+		public static MarkerData fromMarker(IMarker marker) {
+			MarkerData markerData = new MarkerData(marker.getResource(),
+				marker.getAttribute(IMarker.SEVERITY, -1),
+				marker.getAttribute(IMarker.MESSAGE, (String) null));
+			markerData.lineNumber = marker.getAttribute(IMarker.LINE_NUMBER, -1);
+			markerData.charStart = marker.getAttribute(IMarker.CHAR_START, -1);
+			markerData.charEnd = marker.getAttribute(IMarker.CHAR_END, -1);
+			markerData.location = marker.getAttribute(IMarker.LOCATION, (String) null);
+			return markerData;
+		}
+		
+		public HashMap<String, Object> getAttributes() {
+			HashMap<String, Object> attributes = new HashMap<>();
+			attributes.put(IMarker.SEVERITY, severity);
+			attributes.put(IMarker.MESSAGE, message);
+			putIfSet(attributes, IMarker.LINE_NUMBER, lineNumber);
+			putIfSet(attributes, IMarker.CHAR_START, charStart);
+			putIfSet(attributes, IMarker.CHAR_END, charEnd);
+			if(location != null) {
+				attributes.put(IMarker.LOCATION, location);
+			}
+			return attributes;
+		}
+		
+		protected static void putIfSet(HashMap<String, Object> attributes, String name, int value) {
+			if(value != -1) {
+				attributes.put(name, value);
+			}
+		}
+		
+		public IMarker createMarker(String markerType) throws CoreException {
+			IMarker marker = resource.createMarker(markerType);
+			marker.setAttributes(getAttributes());
+			return marker;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) return true;
+			if(!(obj instanceof MarkerData)) return false;
+			
+			MarkerData other = (MarkerData) obj;
+			
+			return
+				areEqual(resource, other.resource) &&
+				severity == other.severity &&
+				areEqual(message, other.message) &&
+				lineNumber == other.lineNumber &&
+				charStart == other.charStart &&
+				charEnd == other.charEnd &&
+				areEqual(location, other.location);
+		}
+		
+		@Override
+		public int hashCode() {
+			return HashcodeUtil.combineHashCodes(resource.hashCode(), getHashCode(message), charStart);
+		}
+		
+	}
+	
+}
\ No newline at end of file
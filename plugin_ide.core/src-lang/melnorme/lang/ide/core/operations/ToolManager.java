@@ -36,6 +36,7 @@ import melnorme.lang.ide.core.utils.ResourceUtils;
 import melnorme.lang.ide.core.utils.process.AbstractRunProcessTask;
 import melnorme.lang.ide.core.utils.process.AbstractRunProcessTask.ProcessStartHelper;
 import melnorme.lang.tooling.toolchain.ops.IToolOperationService;
+import melnorme.lang.tooling.toolchain.ops.ToolMetrics;
 import melnorme.lang.utils.EnvUtils;
 import melnorme.lang.utils.ProcessUtils;
 import melnorme.lang.utils.validators.PathValidator;
@@ -49,6 +50,7 @@ import melnorme.utilbox.misc.Location;
 import melnorme.utilbox.misc.MiscUtil;
 import melnorme.utilbox.misc.PathUtil;
 import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
+import melnorme.utilbox.process.ExternalProcessNotifyingHelper;
 import melnorme.utilbox.status.StatusException;
 import melnorme.utilbox.status.StatusLevel;
 
@@ -58,11 +60,17 @@ import melnorme.utilbox.status.StatusLevel;
 public abstract class ToolManager extends EventSource<ILangOperationsListener> {
 	
 	protected final CoreSettings settings;
+	protected final ToolMetrics toolMetrics = new ToolMetrics();
 	
 	public ToolManager(CoreSettings settings) {
 		this.settings = assertNotNull(settings);
 	}
 	
+	/** @return the metrics of the tools run with {@link RunToolTask}. */
+	public ToolMetrics getToolMetrics() {
+		return toolMetrics;
+	}
+	
 	public void shutdownNow() {
 	}
 	
@@ -228,6 +236,7 @@ public abstract class ToolManager extends EventSource<ILangOperationsListener> {
 		
 		protected final IToolOperationMonitor opMonitor;
 		protected final String prefixText;
+		protected ToolMetrics.InvocationListener invocationListener;
 		
 		public RunToolTask(IToolOperationMonitor opMonitor, ProcessBuilder pb, ICancelMonitor cm) {
 			this(opMonitor, null, pb, cm);
@@ -245,6 +254,42 @@ public abstract class ToolManager extends EventSource<ILangOperationsListener> {
 			opMonitor.handleProcessStart(prefixText, pb, psh);
 		}
 		
+		/** 
+		 * Start the process, recording its invocation in the tool metrics. The invocation is completed
+		 * by a process listener, so it is recorded also for callers that await the process themselves.
+		 */
+		@Override
+		public ExternalProcessNotifyingHelper startProcess() throws CommonException, OperationCancellation {
+			invocationListener = toolMetrics.startInvocation(pb, cancelMonitor);
+			addProcessListener(invocationListener);
+			
+			ToolMetrics.Invocation invocation = invocationListener.getInvocation();
+			try {
+				ExternalProcessNotifyingHelper processHelper = super.startProcess();
+				invocation.processStarted();
+				return processHelper;
+			} catch(OperationCancellation e) {
+				invocation.cancelled(cancelMonitor);
+				throw e;
+			} catch(CommonException e) {
+				invocation.failed();
+				throw e;
+			}
+		}
+		
+		@Override
+		public ExternalProcessResult doRunProcess(String input) throws CommonException, OperationCancellation {
+			try {
+				return super.doRunProcess(input);
+			} catch(OperationCancellation e) {
+				invocationListener.getInvocation().cancelled(cancelMonitor);
+				throw e;
+			} catch(CommonException e) {
+				invocationListener.getInvocation().failed();
+				throw e;
+			}
+		}
+		
 	}
 	
 	/* ----------------- ----------------- */
@@ -11,10 +11,14 @@
 package melnorme.lang.ide.core.operations;
 
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertFail;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 
 import java.io.IOException;
 import java.nio.file.Path;
 
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBuffer;
+import org.eclipse.core.filebuffers.LocationKind;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
@@ -23,37 +27,45 @@ import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.text.BadLocationException;
-import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 
-import melnorme.lang.ide.core.EclipseCore;
 import melnorme.lang.ide.core.LangCore_Actual;
+import melnorme.lang.ide.core.operations.MarkerReconciler.MarkerData;
 import melnorme.lang.ide.core.utils.EclipseUtils;
 import melnorme.lang.ide.core.utils.ResourceUtils;
 import melnorme.lang.tooling.ast.SourceRange;
 import melnorme.lang.tooling.common.SourceLineColumnRange;
 import melnorme.lang.tooling.common.ToolSourceMessage;
 import melnorme.lang.tooling.common.ops.IOperationMonitor;
+import melnorme.lang.tooling.parser.SourceLinesInfo;
+import melnorme.lang.utils.SourceLinesInfoCache;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.collections.HashMap2;
 import melnorme.utilbox.core.CommonException;
-import melnorme.utilbox.misc.FileUtil;
 import melnorme.utilbox.misc.Location;
-import melnorme.utilbox.misc.StringUtil;
 import melnorme.utilbox.status.Severity;
 
 public class ToolMarkersHelper {
 	
 	protected boolean readWordForCharEnd;
+	/** If not null, the markers of its type are added to it, instead of created right away. */
+	protected final MarkerReconciler markerReconciler;
 	
 	public ToolMarkersHelper() {
 		this(false);
 	}
 	public ToolMarkersHelper(boolean readWordForCharEnd) {
+		this(readWordForCharEnd, null);
+	}
+	public ToolMarkersHelper(boolean readWordForCharEnd, MarkerReconciler markerReconciler) {
 		this.readWordForCharEnd = readWordForCharEnd;
+		this.markerReconciler = markerReconciler;
 	}
 	
-	protected final HashMap2<Path, Document> documents = new HashMap2<>();
+	/** Lines info of the files with tool messages, shared by all helpers. Bounded to about 4M characters. */
+	protected static final SourceLinesInfoCache linesInfoCache = new SourceLinesInfoCache(4 * 1024 * 1024);
+	
+	protected final HashMap2<Path, MessageSourceText> documents = new HashMap2<>();
 	
 	public void addErrorMarkers(Iterable<ToolSourceMessage> buildErrors, Location rootPath, IOperationMonitor om) 
 			throws CommonException {
@@ -104,21 +116,37 @@ public class ToolMarkersHelper {
 		if(!resource.exists())
 			return;
 		
-		// TODO: check if marker already exists?
-		IMarker marker = resource.createMarker(markerType);
+		MarkerData markerData = createMarkerData(resource, toolMessage);
 		
-		marker.setAttribute(IMarker.SEVERITY, markerSeverityFrom(toolMessage.getSeverity()));
-		marker.setAttribute(IMarker.MESSAGE, toolMessage.getMessage());
+		// If the build is reconciling the markers, an equal existing marker is reused instead of created again.
+		MarkerReconciler markerReconciler = getMarkerReconciler(markerType);
+		if(markerReconciler != null) {
+			markerReconciler.addMarker(markerData);
+		} else {
+			markerData.createMarker(markerType);
+		}
+	}
+	
+	protected MarkerReconciler getMarkerReconciler(String markerType) {
+		if(markerReconciler == null || !markerReconciler.getMarkerType().equals(markerType)) {
+			return null;
+		}
+		return markerReconciler;
+	}
+	
+	protected MarkerData createMarkerData(IResource resource, ToolSourceMessage toolMessage) {
+		MarkerData markerData = new MarkerData(resource, 
+			markerSeverityFrom(toolMessage.getSeverity()), toolMessage.getMessage());
 		
 		if(!(resource instanceof IFile)) {
-			return;
+			return markerData;
 		}
 		
 		IFile file = (IFile) resource;
 		
 		int line = toolMessage.getFileLineNumber();
 		if(line >= 0) {
-			marker.setAttribute(IMarker.LINE_NUMBER, line);
+			markerData.lineNumber = line;
 		}
 		
 		SourceLineColumnRange range = toolMessage.range;
@@ -126,35 +154,96 @@ public class ToolMarkersHelper {
 		SourceRange messageSR;
 		
 		try {
-			Document doc = getDocumentForLocation(file);
+			MessageSourceText doc = getDocumentForLocation(file);
 			messageSR = getMessageRangeUsingDocInfo(range, doc);
 		} catch(IOException e) {
-			return;
+			return markerData;
 		}
 		
 		if(messageSR != null) {
-			try {
-				marker.setAttribute(IMarker.CHAR_START, messageSR.getStartPos());
-				marker.setAttribute(IMarker.CHAR_END, messageSR.getEndPos());
-			} catch (CoreException ce) {
-				EclipseCore.logStatus(ce);
-			}
+			markerData.charStart = messageSR.getStartPos();
+			markerData.charEnd = messageSR.getEndPos();
 		}
-		
+		return markerData;
 	}
 	
-	protected Document getDocumentForLocation(IFile file) throws IOException {
+	protected MessageSourceText getDocumentForLocation(IFile file) throws IOException {
 		Path filePath = file.getLocation().toFile().toPath();
 		if(documents.containsKey(filePath)) {
 			return documents.get(filePath);
 		}
-		String fileContents = FileUtil.readStringFromFile(filePath, StringUtil.UTF8);
-		Document document = new Document(fileContents);
+		MessageSourceText document = createSourceText(file, filePath);
 		documents.put(filePath, document);
 		return document;
 	}
 	
-	protected SourceRange getMessageRangeUsingDocInfo(SourceLineColumnRange range, IDocument doc) {
+	protected MessageSourceText createSourceText(IFile file, Path filePath) throws IOException {
+		// If the file is open in an editor without unsaved changes, use the editor document, it is the same source.
+		ITextFileBuffer textFileBuffer = 
+				FileBuffers.getTextFileBufferManager().getTextFileBuffer(file.getFullPath(), LocationKind.IFILE);
+		if(textFileBuffer != null && !textFileBuffer.isDirty()) {
+			return new DocumentSourceText(textFileBuffer.getDocument());
+		}
+		return new LinesInfoSourceText(linesInfoCache.getLinesInfo(Location.create_fromValid(filePath)));
+	}
+	
+	/** The source of a file, as needed to calculate the source range of tool messages. */
+	protected static interface MessageSourceText {
+		
+		int getLineOffset(int line) throws BadLocationException;
+		
+		char getChar(int offset) throws BadLocationException;
+		
+	}
+	
+	protected static class DocumentSourceText implements MessageSourceText {
+		
+		protected final IDocument document;
+		
+		public DocumentSourceText(IDocument document) {
+			this.document = assertNotNull(document);
+		}
+		
+		@Override
+		public int getLineOffset(int line) throws BadLocationException {
+			return document.getLineOffset(line);
+		}
+		
+		@Override
+		public char getChar(int offset) throws BadLocationException {
+			return document.getChar(offset);
+		}
+		
+	}
+	
+	protected static class LinesInfoSourceText implements MessageSourceText {
+		
+		protected final SourceLinesInfo linesInfo;
+		
+		public LinesInfoSourceText(SourceLinesInfo linesInfo) {
+			this.linesInfo = assertNotNull(linesInfo);
+		}
+		
+		@Override
+		public int getLineOffset(int line) throws BadLocationException {
+			if(line < 0 || line >= linesInfo.getNumberOfLines()) {
+				throw new BadLocationException();
+			}
+			return linesInfo.getOffsetForLine(line);
+		}
+		
+		@Override
+		public char getChar(int offset) throws BadLocationException {
+			String source = linesInfo.getSource();
+			if(offset < 0 || offset >= source.length()) {
+				throw new BadLocationException();
+			}
+			return source.charAt(offset);
+		}
+		
+	}
+	
+	protected SourceRange getMessageRangeUsingDocInfo(SourceLineColumnRange range, MessageSourceText doc) {
 		
 		int charStart;
 		int charEnd;
@@ -190,7 +279,7 @@ public class ToolMarkersHelper {
 		return SourceRange.srStartToEnd(charStart, charEnd);
 	}
 	
-	protected int getCharEnd(int charStart, IDocument doc) {
+	protected int getCharEnd(int charStart, MessageSourceText doc) {
 		if(!readWordForCharEnd) {
 			return charStart + 1;
 		}
@@ -13,6 +13,7 @@ package melnorme.lang.ide.core.operations;
 import melnorme.lang.ide.core.LangCore;
 import melnorme.lang.ide.core.utils.prefs.BooleanPreference;
 import melnorme.lang.ide.core.utils.prefs.IProjectPreference;
+import melnorme.lang.ide.core.utils.prefs.IntPreference;
 import melnorme.lang.ide.core.utils.prefs.StringPreference;
 
 public interface ToolchainPreferences {
@@ -29,4 +30,15 @@ public interface ToolchainPreferences {
 	public static final StringPreference LANGUAGE_SERVER_PATH =
 			new StringPreference("daemon_path", "");
 	
+	/** Time (in milliseconds) without further edits, before a source structure update is started. */
+	public static final IntPreference STRUCTURE_UPDATE_QUIET_PERIOD =
+			new IntPreference(LangCore.PLUGIN_ID, "structure_update.quiet_period", 150);
+	/** Max time (in milliseconds) a source structure update is delayed by further edits. */
+	public static final IntPreference STRUCTURE_UPDATE_MAX_LATENCY =
+			new IntPreference(LangCore.PLUGIN_ID, "structure_update.max_latency", 1000);
+	
+	/** Max number of build tool processes run in parallel. If not positive, the number of processors is used. */
+	public static final IntPreference BUILD_PARALLEL_JOBS =
+			new IntPreference(LangCore.PLUGIN_ID, "build.parallel_jobs", 0);
+	
 }
\ No newline at end of file
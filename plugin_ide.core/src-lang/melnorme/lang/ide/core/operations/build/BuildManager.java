@@ -16,16 +16,26 @@ import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 import static melnorme.utilbox.core.CoreUtil.areEqual;
 import static melnorme.utilbox.core.CoreUtil.option;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Predicate;
 
+import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Platform;
 
 import melnorme.lang.ide.core.LangCore;
+import melnorme.lang.ide.core.LangCore_Actual;
 import melnorme.lang.ide.core.launch.LaunchMessages;
 import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.IToolOperationMonitor;
+import melnorme.lang.ide.core.operations.MarkerReconciler;
 import melnorme.lang.ide.core.operations.ToolManager;
 import melnorme.lang.ide.core.operations.build.BuildTargetOperation.BuildOperationParameters;
 import melnorme.lang.ide.core.project_model.IProjectModelListener;
@@ -46,6 +56,7 @@ import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.collections.Collection2;
 import melnorme.utilbox.collections.Indexable;
 import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.Location;
 import melnorme.utilbox.misc.SimpleLogger;
 import melnorme.utilbox.misc.StringUtil;
 import melnorme.utilbox.status.StatusException;
@@ -484,12 +495,108 @@ public abstract class BuildManager {
 		return autoBuildsEnablement;
 	}
 	
+	/* ----------------- Build markers ----------------- */
+	
+	/** @return a new reconciler for the build markers of a build. */
+	public MarkerReconciler newMarkerReconciler() {
+		return new MarkerReconciler(LangCore_Actual.BUILD_PROBLEM_ID);
+	}
+	
+	/**
+	 * Start reconciling the build markers of given project: existing markers are kept if they are 
+	 * created again with given reconciler, the other ones are deleted by 
+	 * {@link #finishMarkersReconcile(IProject, MarkerReconciler, Predicate)}.
+	 */
+	public void startMarkersReconcile(IProject project, MarkerReconciler markerReconciler) throws CoreException {
+		markerReconciler.collectExistingMarkers(project, IResource.DEPTH_INFINITE);
+	}
+	
+	/**
+	 * Delete the build markers of given project that were not created again with given reconciler, 
+	 * and are on resources accepted by given scope. The other ones are kept.
+	 * @return the number of deleted markers.
+	 */
+	public int finishMarkersReconcile(IProject project, MarkerReconciler markerReconciler, 
+			Predicate<IResource> scope) throws CoreException {
+		int[] deletedCount = { 0 };
+		ResourceUtils.getWorkspace().run(new IWorkspaceRunnable() {
+			@Override
+			public void run(IProgressMonitor monitor) throws CoreException {
+				deletedCount[0] = markerReconciler.deleteUnmatchedMarkers(scope);
+			}
+		}, project, IWorkspace.AVOID_UPDATE, null);
+		return deletedCount[0];
+	}
+	
+	/* ----------------- Build outputs refresh ----------------- */
+	
+	protected final BuildOutputRefresher buildOutputRefresher = new BuildOutputRefresher();
+	
+	/**
+	 * Refresh, in the background, the resources that a build of given project might have written to:
+	 * see {@link #getBuildOutputLocations(IProject)}.
+	 */
+	public void refreshBuildOutputs(IProject project) {
+		ArrayList2<Location> outputLocations;
+		try {
+			outputLocations = getBuildOutputLocations(project);
+		} catch(CommonException e) {
+			outputLocations = null;
+		}
+		
+		if(outputLocations == null) {
+			buildOutputRefresher.scheduleRefresh(project);
+			return;
+		}
+		for (Location outputLocation : outputLocations) {
+			for (IContainer container : 
+					ResourceUtils.getWorkspaceRoot().findContainersForLocationURI(outputLocation.toUri())) {
+				buildOutputRefresher.scheduleRefresh(container);
+			}
+		}
+	}
+	
+	/**
+	 * @return the locations (folders) that a build of given project writes to, or null if unknown, 
+	 * in which case the whole project is refreshed after a build.
+	 */
+	@SuppressWarnings("unused")
+	protected ArrayList2<Location> getBuildOutputLocations(IProject project) throws CommonException {
+		return null;
+	}
+	
+	/** Add the folders of the launch artifacts of the build targets of given project. */
+	protected void addLaunchArtifactFolders(IProject project, ArrayList2<Location> outputLocations) {
+		ProjectBuildInfo buildInfo = getBuildInfo(project);
+		if(buildInfo == null) {
+			return;
+		}
+		for (BuildTarget buildTarget : buildInfo.getBuildTargets()) {
+			try {
+				Location folder = buildTarget.getValidExecutableLocation().getParent();
+				if(folder != null && !outputLocations.contains(folder)) {
+					outputLocations.add(folder);
+				}
+			} catch(StatusException e) {
+				// No launch artifact
+			}
+		}
+	}
+	
+	/* -----------------  ----------------- */
+	
 	protected BuildOperationCreator createBuildOperationCreator(IToolOperationMonitor opMonitor, IProject project) {
 		return new BuildOperationCreator(project, opMonitor);
 	}
 	
-	public Operation newProjectClearMarkersOperation(IToolOperationMonitor opMonitor, IProject project) {
-		return createBuildOperationCreator(opMonitor, project).newClearBuildMarkersOperation();
+	public Operation newProjectClearMarkersOperation(IToolOperationMonitor opMonitor, IProject project,
+			MarkerReconciler markerReconciler) {
+		return createBuildOperationCreator(opMonitor, project).newClearBuildMarkersOperation(markerReconciler);
+	}
+	
+	public Operation newProjectFinishClearMarkersOperation(IToolOperationMonitor opMonitor, IProject project,
+			MarkerReconciler markerReconciler) {
+		return createBuildOperationCreator(opMonitor, project).newFinishClearBuildMarkersOperation(markerReconciler);
 	}
 	
 	public final CompositeBuildOperation newBuildTargetOperation(IProject project, BuildTarget buildTarget)
@@ -512,6 +619,34 @@ public abstract class BuildManager {
 		return newBuildOperation(opMonitor, project, clearMarkers, enabledTargets);
 	}
 	
+	/**
+	 * Create a build operation that creates its build markers with given reconciler (can be null). 
+	 * The reconcile is started and finished by the caller.
+	 */
+	public final Operation newProjectBuildOperation(IToolOperationMonitor opMonitor, IProject project,
+			MarkerReconciler markerReconciler) throws CommonException {
+		ArrayList2<BuildTarget> enabledTargets = getValidBuildInfo(project).getEnabledTargets(true);
+		ArrayList2<Operation> buildCommands = 
+				enabledTargets.mapx((buildTarget) -> buildTarget.getBuildOperation(toolManager, opMonitor));
+		
+		BuildOperationCreator buildOpCreator = createBuildOperationCreator(opMonitor, project);
+		buildOpCreator.setMarkerReconciler(markerReconciler);
+		return buildOpCreator.newProjectBuildOperation(buildCommands, false);
+	}
+	
+	/**
+	 * Create the operation that checks a project after some of its files were saved, 
+	 * see {@link melnorme.lang.ide.core.engine.ProjectReconcileManager}.
+	 * The default implementation runs the auto-build targets for the whole project. Subclasses can restrict
+	 * the check to what is affected by the changed files.
+	 * 
+	 * @param changedFiles the files changed since the last check, or null if unknown.
+	 */
+	public Operation newProjectCheckOperation(IToolOperationMonitor opMonitor, IProject project,
+			Collection<Location> changedFiles) throws CommonException {
+		return newProjectBuildOperation(opMonitor, project, true, true);
+	}
+	
 	/* ----------------- ----------------- */
 	
 	public CompositeBuildOperation newBuildOperation(IToolOperationMonitor opMonitor, IProject project, 
@@ -530,4 +665,16 @@ public abstract class BuildManager {
 		return buildOpCreator.newProjectBuildOperation(buildCommands, clearMarkers);
 	}
 	
+	/**
+	 * Create a build operation that only replaces the build markers on the resources accepted by given scope.
+	 * Markers on other resources are kept, unless the build creates them again.
+	 */
+	public CompositeBuildOperation newTopLevelBuildOperation(IToolOperationMonitor opMonitor, IProject project,
+			Collection2<Operation> buildCommands, Predicate<IResource> markersScope) throws CommonException {
+		BuildOperationCreator buildOpCreator = createBuildOperationCreator(opMonitor, project);
+		buildOpCreator.setMarkersScope(markersScope);
+		
+		return buildOpCreator.newProjectBuildOperation(buildCommands, true);
+	}
+	
 }
\ No newline at end of file
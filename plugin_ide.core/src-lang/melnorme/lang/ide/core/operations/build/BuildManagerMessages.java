@@ -20,8 +20,9 @@ public interface BuildManagerMessages extends BuildConfigMessages {
 			"Could not change build target settings, the build target to be changed is out of date.";
 	
 	public String MSG_BuildingProject = "Building {0} project: {1}";
-	public String MSG_ClearingMarkers = "Cleared problem markers for {0}.";
+	public String MSG_ClearingMarkers = "Cleared {1} problem markers for {0}.";
 	public String MSG_BuildTerminated = "Build terminated.";
+	public String MSG_RefreshingBuildOutputs = "Refreshing build outputs";
 	public String MSG_NoBuildTargetsEnabled = "No build targets enabled.";
 	
 	public String LABEL_EnableForNormalBuild = "Enable for workspace build";
@@ -15,8 +15,8 @@ import static melnorme.lang.ide.core.utils.TextMessageUtils.headerBIG;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 
 import java.util.concurrent.Callable;
+import java.util.function.Predicate;
 
-import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
@@ -27,7 +27,7 @@ import melnorme.lang.ide.core.LangCore;
 import melnorme.lang.ide.core.LangCoreMessages;
 import melnorme.lang.ide.core.LangCore_Actual;
 import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.IToolOperationMonitor;
-import melnorme.lang.ide.core.utils.EclipseUtils;
+import melnorme.lang.ide.core.operations.MarkerReconciler;
 import melnorme.lang.ide.core.utils.ResourceUtils;
 import melnorme.lang.ide.core.utils.TextMessageUtils;
 import melnorme.lang.tooling.common.ops.Operation;
@@ -35,7 +35,6 @@ import melnorme.lang.tooling.common.ops.IOperationMonitor;
 import melnorme.lang.tooling.common.ops.IOperationMonitor.IOperationSubMonitor;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.collections.Collection2;
-import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
 
 /** 
@@ -44,20 +43,39 @@ import melnorme.utilbox.core.CommonException;
 public class BuildOperationCreator implements BuildManagerMessages {
 	
 	protected final BuildManager buildMgr = LangCore.getBuildManager();
-	protected final String buildProblemId = LangCore_Actual.BUILD_PROBLEM_ID;
 	
 	protected final IProject project;
 	protected final IToolOperationMonitor opMonitor;
+	/** The resources whose build markers are replaced by the build. */
+	protected Predicate<IResource> markersScope = (resource) -> true;
+	/** The reconciler the build operations create their build markers with. Can be null. */
+	protected MarkerReconciler markerReconciler;
 	
 	public BuildOperationCreator(IProject project, IToolOperationMonitor opMonitor) {
 		this.project = project;
 		this.opMonitor = assertNotNull(opMonitor);
 	}
 	
+	public void setMarkersScope(Predicate<IResource> markersScope) {
+		this.markersScope = assertNotNull(markersScope);
+	}
+	
+	/** 
+	 * Set the reconciler of the build markers, for a build that does not clear markers itself,
+	 * see {@link BuildManager#newProjectBuildOperation(IToolOperationMonitor, IProject, MarkerReconciler)}.
+	 */
+	public void setMarkerReconciler(MarkerReconciler markerReconciler) {
+		this.markerReconciler = markerReconciler;
+	}
+	
 	protected ArrayList2<Operation> operations;
 	
-	public Operation newClearBuildMarkersOperation() {
-		return doCreateClearBuildMarkersOperation();
+	public Operation newClearBuildMarkersOperation(MarkerReconciler markerReconciler) {
+		return doCreateClearBuildMarkersOperation(assertNotNull(markerReconciler));
+	}
+	
+	public Operation newFinishClearBuildMarkersOperation(MarkerReconciler markerReconciler) {
+		return doCreateFinishClearBuildMarkersOperation(assertNotNull(markerReconciler));
 	}
 	
 	public CompositeBuildOperation newProjectBuildOperation(Collection2<Operation> buildOps, boolean clearMarkers) 
@@ -71,7 +89,13 @@ public class BuildOperationCreator implements BuildManagerMessages {
 		addCompositeBuildOperationMessage();
 		
 		if(clearMarkers) {
-			addOperation(newClearBuildMarkersOperation());
+			// Each build has its own reconciler, so that concurrent builds of the project don't interfere
+			markerReconciler = buildMgr.newMarkerReconciler();
+		}
+		for(Operation buildOp : buildOps) {
+			if(buildOp instanceof BuildTargetOperation) {
+				((BuildTargetOperation) buildOp).setMarkerReconciler(markerReconciler);
+			}
 		}
 		
 		if(buildOps.isEmpty()) {
@@ -79,21 +103,16 @@ public class BuildOperationCreator implements BuildManagerMessages {
 				TextMessageUtils.headerSMALL(MSG_NoBuildTargetsEnabled)));
 		}
 		
-		for(Operation buildOp : buildOps) {
-			addOperation(buildOp);
+		if(clearMarkers) {
+			addOperation(newReconcileMarkersOperation(buildOps, markerReconciler));
+		} else {
+			for(Operation buildOp : buildOps) {
+				addOperation(buildOp);
+			}
 		}
 		
-		// refresh project
-		addOperation(new Operation() {
-			@Override
-			public void execute(IOperationMonitor om) throws CommonException, OperationCancellation {
-				try {
-					project.refreshLocal(IResource.DEPTH_INFINITE, EclipseUtils.pm(om));
-				} catch(CoreException e) {
-					throw EclipseUtils.createCommonException(e);
-				}
-			}
-		});
+		// refresh the build outputs, in the background
+		addOperation((om) -> buildMgr.refreshBuildOutputs(project));
 		
 		addOperation(newMessageOperation(headerBIG(MSG_BuildTerminated)));
 		
@@ -112,33 +131,56 @@ public class BuildOperationCreator implements BuildManagerMessages {
 		addOperation(newMessageOperation(startMsg));
 	}
 	
-	protected Operation doCreateClearBuildMarkersOperation() {
+	/** 
+	 * Build markers are not deleted right away: the build markers existing at the start of the build are kept
+	 * if the build creates them again, and the remaining ones are deleted at the end of the build, 
+	 * even if the build failed or was cancelled. 
+	 * This way, markers that did not change don't cause resource change events.
+	 */
+	protected Operation newReconcileMarkersOperation(Collection2<Operation> buildOps, 
+			MarkerReconciler markerReconciler) {
+		Operation clearMarkersOp = newClearBuildMarkersOperation(markerReconciler);
+		Operation finishClearMarkersOp = newFinishClearBuildMarkersOperation(markerReconciler);
 		return (om) -> {
-			boolean hadDeletedMarkers = doDeleteProjectMarkers(buildProblemId, om);
-			if(hadDeletedMarkers) {
-				opMonitor.writeInfoMessage(
-					format(MSG_ClearingMarkers, project.getName()) + "\n");
+			clearMarkersOp.execute(om);
+			try {
+				for(Operation buildOp : buildOps) {
+					buildOp.execute(om);
+				}
+			} finally {
+				finishClearMarkersOp.execute(om);
 			}
 		};
 	}
 	
-	protected boolean doDeleteProjectMarkers(String markerType, IOperationMonitor parentOM) 
-			throws OperationCancellation {
-		
-		try(IOperationSubMonitor om = parentOM.enterSubTask(LangCoreMessages.BUILD_ClearingProblemMarkers)) {
-			
-			try {
-				IMarker[] findMarkers = project.findMarkers(markerType, true, IResource.DEPTH_INFINITE);
-				parentOM.checkCancellation();
-				if(findMarkers.length != 0) {
-					project.deleteMarkers(markerType, true, IResource.DEPTH_INFINITE);
-					return true;
-				}
+	protected Operation doCreateClearBuildMarkersOperation(MarkerReconciler markerReconciler) {
+		return (om) -> {
+			try(IOperationSubMonitor subOM = om.enterSubTask(LangCoreMessages.BUILD_ClearingProblemMarkers)) {
+				buildMgr.startMarkersReconcile(project, markerReconciler);
 			} catch (CoreException ce) {
 				EclipseCore.logStatus(ce);
 			}
+		};
+	}
+	
+	/** Note: the returned operation does not check for cancellation. */
+	protected Operation doCreateFinishClearBuildMarkersOperation(MarkerReconciler markerReconciler) {
+		return (om) -> {
+			int deletedCount = doDeleteStaleProjectMarkers(markerReconciler);
+			if(deletedCount > 0) {
+				opMonitor.writeInfoMessage(
+					format(MSG_ClearingMarkers, project.getName(), deletedCount) + "\n");
+			}
+		};
+	}
+	
+	protected int doDeleteStaleProjectMarkers(MarkerReconciler markerReconciler) {
+		try {
+			return buildMgr.finishMarkersReconcile(project, markerReconciler, markersScope);
+		} catch (CoreException ce) {
+			EclipseCore.logStatus(ce);
+			return 0;
 		}
-		return false;
 	}
 	
 	protected Operation newMessageOperation(String msg) {
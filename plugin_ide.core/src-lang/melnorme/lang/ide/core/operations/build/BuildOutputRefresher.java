@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.operations.build;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.Job;
+
+import melnorme.lang.ide.core.EclipseCore;
+
+/**
+ * Refreshes the resources written to by builds, in a background job.
+ * Refresh requests made while the job is pending or running are coalesced.
+ *
+ * A resource that does not exist in the workspace yet (for example, an output folder created by the first build)
+ * is refreshed through its nearest existing ancestor, which is refreshed with depth one only.
+ */
+public class BuildOutputRefresher {
+	
+	protected final LinkedHashSet<IResource> pendingResources = new LinkedHashSet<>(); // guarded by this
+	
+	protected final Job refreshJob = new Job(BuildManagerMessages.MSG_RefreshingBuildOutputs) {
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			refreshPendingResources(monitor);
+			return EclipseCore.createOkStatus(null);
+		}
+	};
+	
+	public BuildOutputRefresher() {
+		refreshJob.setSystem(true);
+	}
+	
+	/** Schedule given resource, and its members, to be refreshed. */
+	public void scheduleRefresh(IResource resource) {
+		if(resource.getType() == IResource.ROOT) {
+			return; // Refreshing the whole workspace is never what is intended
+		}
+		synchronized(this) {
+			pendingResources.add(resource);
+		}
+		refreshJob.schedule();
+	}
+	
+	protected void refreshPendingResources(IProgressMonitor pm) {
+		while(!pm.isCanceled()) {
+			IResource resource;
+			synchronized(this) {
+				Iterator<IResource> iter = pendingResources.iterator();
+				if(!iter.hasNext()) {
+					return;
+				}
+				resource = iter.next();
+				iter.remove();
+			}
+			
+			IProject project = resource.getProject();
+			if(project == null || !project.isAccessible()) {
+				continue;
+			}
+			try {
+				refreshResource(resource, IResource.DEPTH_INFINITE, pm);
+			} catch(CoreException ce) {
+				EclipseCore.logStatus(ce);
+			}
+		}
+	}
+	
+	protected void refreshResource(IResource resource, int depth, IProgressMonitor pm) throws CoreException {
+		if(resource.exists()) {
+			resource.refreshLocal(depth, pm);
+			return;
+		}
+		
+		IContainer parent = resource.getParent();
+		if(parent == null) {
+			return;
+		}
+		// Refreshing the parent adds the resource to the workspace, if it exists in the file system.
+		refreshResource(parent, IResource.DEPTH_ONE, pm);
+		if(resource.exists() && depth != IResource.DEPTH_ZERO) {
+			resource.refreshLocal(depth, pm);
+		}
+	}
+	
+}
\ No newline at end of file
@@ -13,17 +13,28 @@ package melnorme.lang.ide.core.operations.build;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 import static melnorme.utilbox.core.CoreUtil.option;
 
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
 import org.eclipse.core.resources.IProject;
 
 import melnorme.lang.ide.core.operations.AbstractToolManagerOperation;
 import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.IToolOperationMonitor;
+import melnorme.lang.ide.core.operations.MarkerReconciler;
 import melnorme.lang.ide.core.operations.ToolManager;
+import melnorme.lang.ide.core.operations.ToolManager.RunToolTask;
 import melnorme.lang.tooling.commands.CommandInvocation;
 import melnorme.lang.tooling.commands.IVariablesResolver;
+import melnorme.lang.tooling.common.ToolSourceMessage;
 import melnorme.lang.tooling.common.ops.IOperationMonitor;
+import melnorme.lang.tooling.toolchain.ops.BuildOutputParser2;
+import melnorme.lang.tooling.toolchain.ops.BuildOutputStreamParser;
+import melnorme.utilbox.collections.Indexable;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
+import melnorme.utilbox.process.ExternalProcessNotifyingHelper;
+import melnorme.utilbox.process.ProcessHelperMessages;
 
 public abstract class BuildTargetOperation extends AbstractToolManagerOperation {
 	
@@ -48,6 +59,8 @@ public abstract class BuildTargetOperation extends AbstractToolManagerOperation
 	protected final IToolOperationMonitor opMonitor;
 	protected final String buildTargetName;
 	protected final CommandInvocation buildCommand;
+	/** The reconciler of the build markers of the build this operation is part of. Can be null. */
+	protected MarkerReconciler markerReconciler;
 	
 	public BuildTargetOperation(BuildOperationParameters buildOpParams) {
 		super(buildOpParams.toolManager, buildOpParams.project);
@@ -61,6 +74,10 @@ public abstract class BuildTargetOperation extends AbstractToolManagerOperation
 		return buildTargetName;
 	}
 	
+	public void setMarkerReconciler(MarkerReconciler markerReconciler) {
+		this.markerReconciler = markerReconciler;
+	}
+	
 	@Override
 	public void execute(IOperationMonitor parentOM) throws CommonException, OperationCancellation {
 		parentOM.runSubTask(getBuildOperationName(), (om) -> {
@@ -95,5 +112,54 @@ public abstract class BuildTargetOperation extends AbstractToolManagerOperation
 	
 	protected abstract void processBuildOutput(ExternalProcessResult processResult, IOperationMonitor om)
 			throws CommonException, OperationCancellation;
+	
+	/* -----------------  ----------------- */
+	
+	/** Period in which build messages are handled, while the build tool is running. */
+	protected static final int BUILD_MESSAGES_PERIOD_MS = 500;
+	
+	/**
+	 * Run the build tool, parsing its output with given parser as it is read. 
+	 * The parsed messages are handed to {@link #handleBuildMessages(Indexable, IOperationMonitor)} in batches,
+	 * in the calling thread, while the build tool is still running.
+	 */
+	protected ExternalProcessResult runBuildToolAndStreamOutput(ProcessBuilder pb, BuildOutputParser2 outputParser,
+			IOperationMonitor om) throws CommonException, OperationCancellation {
+		BuildOutputStreamParser streamParser = new BuildOutputStreamParser(outputParser);
+		
+		RunToolTask runToolTask = getToolManager().newRunProcessTask(opMonitor, pb, om);
+		runToolTask.addProcessListener(streamParser);
+		ExternalProcessNotifyingHelper processHelper = runToolTask.startProcess();
+		
+		ExternalProcessResult result;
+		try {
+			while(true) {
+				try {
+					result = processHelper.awaitTerminationAndResult(BUILD_MESSAGES_PERIOD_MS, false);
+					break;
+				} catch(TimeoutException e) {
+					handleBuildMessages(streamParser.takeMessages(), om);
+				}
+			}
+		} catch(IOException e) {
+			processHelper.getProcess().destroy();
+			throw new CommonException(ProcessHelperMessages.ExternalProcess_ErrorStreamReaderIOException, e);
+		} catch(InterruptedException e) {
+			processHelper.getProcess().destroy();
+			throw new OperationCancellation();
+		} catch(OperationCancellation | CommonException | RuntimeException e) {
+			processHelper.getProcess().destroy();
+			throw e;
+		}
+		
+		// All output has been parsed once the process listeners are notified of termination
+		handleBuildMessages(streamParser.takeMessages(), om);
+		return result;
+	}
+	
+	@SuppressWarnings("unused")
+	protected void handleBuildMessages(Indexable<ToolSourceMessage> buildMessages, IOperationMonitor om)
+			throws CommonException, OperationCancellation {
+	}
 			
 }
\ No newline at end of file
@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.operations.build;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.IToolOperationMonitor;
+import melnorme.lang.ide.core.operations.ToolchainPreferences;
+import melnorme.lang.ide.core.utils.CoreExecutors;
+import melnorme.lang.ide.core.utils.process.AbstractRunProcessTask.ProcessStartHelper;
+import melnorme.lang.tooling.common.ops.IOperationMonitor;
+import melnorme.lang.tooling.common.ops.IOperationMonitor.NullOperationMonitor;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.concurrency.ICancelMonitor;
+import melnorme.utilbox.concurrency.ICommonExecutor;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.process.ExternalProcessNotifyingHelper.IProcessOutputListener;
+
+/**
+ * Runs build tasks in parallel, with a bounded number of workers.
+ *
+ * The console output of each task is buffered, and written to the operation monitor in task submission order,
+ * so that the output of different tasks is not interleaved.
+ * Tasks with the same serial key (for example, tasks writing the same output file) are run one after the other,
+ * in submission order.
+ *
+ * Tasks should not modify the workspace: the build thread usually holds the workspace rule. Instead,
+ * task results (such as the build messages) are returned to the caller, to be applied in the build thread.
+ */
+public class ParallelBuildExecutor {
+	
+	protected static final ICommonExecutor executor = CoreExecutors.newCachedThreadPool(ParallelBuildExecutor.class);
+	
+	public static int getDefaultWorkerCount() {
+		int workerCount = ToolchainPreferences.BUILD_PARALLEL_JOBS.get();
+		return workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+	}
+	
+	public interface BuildTask<RESULT> {
+		
+		/** @return a key such that tasks with equal keys are not run concurrently, or null. */
+		default Object getSerialKey() {
+			return null;
+		}
+		
+		/**
+		 * Run this task, writing console output to given opMonitor.
+		 * Note: this is run outside of the build thread.
+		 */
+		RESULT execute(IToolOperationMonitor opMonitor, IOperationMonitor om)
+				throws CommonException, OperationCancellation;
+		
+	}
+	
+	protected final IToolOperationMonitor opMonitor;
+	protected final int workerCount;
+	
+	public ParallelBuildExecutor(IToolOperationMonitor opMonitor) {
+		this(opMonitor, getDefaultWorkerCount());
+	}
+	
+	public ParallelBuildExecutor(IToolOperationMonitor opMonitor, int workerCount) {
+		this.opMonitor = assertNotNull(opMonitor);
+		this.workerCount = Math.max(1, workerCount);
+	}
+	
+	/**
+	 * Execute given tasks. If a task fails, no further tasks are started, and the failure is rethrown
+	 * once the running tasks have completed.
+	 * @return the results of the tasks, in submission order.
+	 */
+	public <RESULT> ArrayList2<RESULT> execute(Indexable<? extends BuildTask<RESULT>> tasks, ICancelMonitor cm)
+			throws CommonException, OperationCancellation {
+		return new Execution<RESULT>(tasks, cm).execute();
+	}
+	
+	protected class Execution<RESULT> implements ICancelMonitor {
+		
+		protected final ICancelMonitor cm;
+		protected final ArrayList2<TaskSlot<RESULT>> slots = new ArrayList2<>();
+		protected final ConcurrentLinkedQueue<ArrayList2<TaskSlot<RESULT>>> pendingChains;
+		
+		protected volatile boolean aborted = false;
+		protected boolean interrupted = false;
+		
+		public Execution(Indexable<? extends BuildTask<RESULT>> tasks, ICancelMonitor cm) {
+			this.cm = assertNotNull(cm);
+			
+			LinkedHashMap<Object, ArrayList2<TaskSlot<RESULT>>> chains = new LinkedHashMap<>();
+			for (BuildTask<RESULT> task : tasks) {
+				TaskSlot<RESULT> slot = new TaskSlot<>(task);
+				slots.add(slot);
+				
+				Object serialKey = task.getSerialKey();
+				chains.computeIfAbsent(serialKey != null ? serialKey : slot, (key) -> new ArrayList2<>()).add(slot);
+			}
+			pendingChains = new ConcurrentLinkedQueue<>(chains.values());
+		}
+		
+		@Override
+		public boolean isCancelled() {
+			return aborted || cm.isCancelled();
+		}
+		
+		public ArrayList2<RESULT> execute() throws CommonException, OperationCancellation {
+			int workers = Math.min(workerCount, pendingChains.size());
+			for (int ix = 0; ix < workers; ix++) {
+				executor.submitBasicRunnable(this::runPendingChains);
+			}
+			
+			ArrayList2<RESULT> results = new ArrayList2<>();
+			Throwable failure = null;
+			
+			for (TaskSlot<RESULT> slot : slots) {
+				awaitCompletion(slot);
+				if(aborted) {
+					continue;
+				}
+				slot.opMonitor.writeTo(opMonitor);
+				
+				if(slot.failure != null) {
+					failure = slot.failure;
+					aborted = true; // Don't start further tasks
+					continue;
+				}
+				results.add(slot.result);
+			}
+			if(interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			
+			if(failure instanceof CommonException) {
+				throw (CommonException) failure;
+			}
+			if(failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			}
+			if(aborted) {
+				// Cancelled, either by the caller, or by a task
+				throw new OperationCancellation();
+			}
+			return results;
+		}
+		
+		protected void awaitCompletion(TaskSlot<RESULT> slot) {
+			while(true) {
+				if(cm.isCancelled()) {
+					aborted = true;
+				}
+				try {
+					if(slot.completed.await(100, TimeUnit.MILLISECONDS)) {
+						return;
+					}
+				} catch(InterruptedException e) {
+					// Still wait for the running tasks to complete, they will be cancelled
+					interrupted = true;
+					aborted = true;
+				}
+			}
+		}
+		
+		protected void runPendingChains() {
+			ArrayList2<TaskSlot<RESULT>> chain;
+			while((chain = pendingChains.poll()) != null) {
+				boolean chainFailed = false;
+				for (TaskSlot<RESULT> slot : chain) {
+					if(chainFailed || isCancelled()) {
+						// Later tasks in the chain might depend on the failed one, so skip them
+						slot.completed.countDown();
+						continue;
+					}
+					slot.run(this);
+					chainFailed = slot.failure != null;
+				}
+			}
+		}
+		
+	}
+	
+	protected static class TaskSlot<RESULT> {
+		
+		protected final BuildTask<RESULT> task;
+		protected final BufferedToolOperationMonitor opMonitor = new BufferedToolOperationMonitor();
+		protected final CountDownLatch completed = new CountDownLatch(1);
+		
+		protected RESULT result;
+		protected Throwable failure;
+		
+		public TaskSlot(BuildTask<RESULT> task) {
+			this.task = assertNotNull(task);
+		}
+		
+		public void run(ICancelMonitor cm) {
+			try {
+				result = task.execute(opMonitor, new NullOperationMonitor(cm));
+			} catch(CommonException | OperationCancellation | RuntimeException e) {
+				failure = e;
+			} finally {
+				completed.countDown();
+			}
+		}
+		
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/**
+	 * A {@link IToolOperationMonitor} that records operation events and process output,
+	 * to be written later to another monitor.
+	 */
+	public static class BufferedToolOperationMonitor implements IToolOperationMonitor {
+		
+		protected final ArrayList<Consumer<IToolOperationMonitor>> events = new ArrayList<>();
+		
+		public BufferedToolOperationMonitor() {
+		}
+		
+		@Override
+		public synchronized void writeInfoMessage(String operationMessage) {
+			events.add((target) -> target.writeInfoMessage(operationMessage));
+		}
+		
+		@Override
+		public synchronized void activate() {
+			events.add((target) -> target.activate());
+		}
+		
+		@Override
+		public synchronized void handleProcessStart(String prefixText, ProcessBuilder pb, ProcessStartHelper psh) {
+			// Snapshot the command line, since pb might be modified afterwards
+			ProcessBuilder pbCopy = new ProcessBuilder(new ArrayList<>(pb.command()));
+			BufferedProcessOutput output = new BufferedProcessOutput();
+			CommonException startFailure = addProcessListener(psh, output);
+			
+			events.add((target) -> {
+				ArrayList2<IProcessOutputListener> listeners = new ArrayList2<>();
+				target.handleProcessStart(prefixText, pbCopy, (listener) -> {
+					if(startFailure != null) {
+						throw startFailure;
+					}
+					listeners.add(listener);
+				});
+				for (IProcessOutputListener listener : listeners) {
+					output.writeTo(listener);
+				}
+			});
+		}
+		
+		protected static CommonException addProcessListener(ProcessStartHelper psh, IProcessOutputListener listener) {
+			try {
+				psh.addProcessListener(listener);
+				return null;
+			} catch(CommonException ce) {
+				return ce;
+			}
+		}
+		
+		public synchronized void writeTo(IToolOperationMonitor target) {
+			for (Consumer<IToolOperationMonitor> event : events) {
+				event.accept(target);
+			}
+			events.clear();
+		}
+		
+	}
+	
+	public static class BufferedProcessOutput implements IProcessOutputListener {
+		
+		protected final ArrayList<Consumer<IProcessOutputListener>> events = new ArrayList<>();
+		
+		@Override
+		public synchronized void notifyStdOutListeners(byte[] buffer, int offset, int readCount) {
+			byte[] bytes = Arrays.copyOfRange(buffer, offset, offset + readCount);
+			events.add((listener) -> listener.notifyStdOutListeners(bytes, 0, bytes.length));
+		}
+		
+		@Override
+		public synchronized void notifyStdErrListeners(byte[] buffer, int offset, int readCount) {
+			byte[] bytes = Arrays.copyOfRange(buffer, offset, offset + readCount);
+			events.add((listener) -> listener.notifyStdErrListeners(bytes, 0, bytes.length));
+		}
+		
+		@Override
+		public synchronized void notifyProcessTerminatedAndRead(int exitCode) {
+			events.add((listener) -> listener.notifyProcessTerminatedAndRead(exitCode));
+		}
+		
+		public synchronized void writeTo(IProcessOutputListener listener) {
+			for (Consumer<IProcessOutputListener> event : events) {
+				event.accept(listener);
+			}
+		}
+		
+	}
+	
+}
\ No newline at end of file
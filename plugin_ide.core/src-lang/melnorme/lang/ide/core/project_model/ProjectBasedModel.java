@@ -104,9 +104,7 @@ public abstract class ProjectBasedModel<INFO> {
 	}
 	
 	protected void fireUpdateEvent(UpdateEvent<INFO> updateEvent) {
-		for (IProjectModelListener<INFO> listener : listeners.getListeners()) {
-			listener.notifyUpdateEvent(updateEvent);
-		}
+		listeners.notifyListeners(updateEvent, IProjectModelListener::notifyUpdateEvent);
 	}
 	
 }
\ No newline at end of file
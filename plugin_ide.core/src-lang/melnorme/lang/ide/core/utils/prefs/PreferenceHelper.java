@@ -223,14 +223,15 @@ public abstract class PreferenceHelper<T> implements IGlobalPreference<T> {
 		public void doSetValue(IProject project, T newValue) {
 			assertNotNull(project);
 			IEclipsePreferences projectPreferences = getProjectNode(project);
+			setPrefValue(projectPreferences, newValue);
+			
+			// Notify after the value is set, so that listeners see the new effective value
 			try {
 				ProjectLocation projLocHandle = ResourceUtils.locationHandle(project);
 				LangCore.settings().notifySettingChanged(this, projLocHandle, newValue);
 			} catch(CommonException e) {
 				LangCore.logError("Error changing preference.", e);
 			}
-			
-			setPrefValue(projectPreferences, newValue);
 		}
 		
 		@Override
@@ -39,6 +39,12 @@ public abstract class AbstractRunProcessTask implements IRunProcessTask {
 		this.cancelMonitor = assertNotNull(cancelMonitor);
 	}
 	
+	/** Add a listener to be notified of the process output. Must be called before the process is started. */
+	public void addProcessListener(IProcessOutputListener listener) {
+		assertNotNull(processListeners);
+		processListeners.add(listener);
+	}
+	
 	public ExternalProcessNotifyingHelper startProcess() throws CommonException, OperationCancellation {
 		ICancelMonitor.checkCancelation(cancelMonitor);
 		
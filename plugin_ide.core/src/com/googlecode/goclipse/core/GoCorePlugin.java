@@ -13,6 +13,8 @@ package com.googlecode.goclipse.core;
 
 import org.osgi.framework.BundleContext;
 
+import com.googlecode.goclipse.tooling.env.GoPackageIndex;
+
 import melnorme.lang.ide.core.LangCorePlugin;
 
 public class GoCorePlugin extends LangCorePlugin {
@@ -23,6 +25,7 @@ public class GoCorePlugin extends LangCorePlugin {
 	
 	@Override
 	protected void doCustomStop(BundleContext context) {
+		GoPackageIndex.disposeAll();
 	}
 	
 	public static LangCorePlugin getDefault() {
@@ -15,8 +15,11 @@ import static melnorme.utilbox.core.CoreUtil.option;
 import static melnorme.utilbox.misc.StringUtil.nullAsEmpty;
 
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceDelta;
+
 import com.googlecode.goclipse.tooling.GoPackageName;
 import com.googlecode.goclipse.tooling.env.GoEnvironment;
 import com.googlecode.goclipse.tooling.env.GoEnvironmentConstants;
@@ -26,6 +29,7 @@ import com.googlecode.goclipse.tooling.env.GoWorkspaceLocation;
 import com.googlecode.goclipse.tooling.oracle.GoOperationContext;
 
 import melnorme.lang.ide.core.LangCore;
+import melnorme.lang.ide.core.utils.DefaultProjectResourceListener;
 import melnorme.lang.ide.core.utils.ResourceUtils;
 import melnorme.lang.ide.core.utils.prefs.IProjectPreference;
 import melnorme.lang.tooling.ast.SourceRange;
@@ -41,7 +45,7 @@ public class GoProjectEnvironment implements GoEnvironmentConstants {
 	public static GoOperationContext getGoOperationContext(ISourceBuffer sourceBuffer, int offset) {
 		SourceOpContext opContext = sourceBuffer.getSourceOpContext(new SourceRange(offset, 0));
 		
-		IProject project = ResourceUtils.getProjectFromMemberLocation(opContext.getOptionalFileLocation());
+		IProject project = getProjectFromMemberLocation(opContext.getOptionalFileLocation());
 		GoEnvironment goEnv = GoProjectEnvironment.getGoEnvironment(project);
 		
 		IToolOperationService toolsOpService = LangCore.getToolManager().getEngineToolsOperationService();
@@ -81,7 +85,7 @@ public class GoProjectEnvironment implements GoEnvironmentConstants {
 	}
 	
 	public static boolean isProjectInsideGoPathSourceFolder(IProject project) throws CommonException {
-		GoPath goPath = getEffectiveGoPath(project);
+		GoPath goPath = getGoEnvironment(project).getGoPath();
 		return isProjectInsideGoPathSourceFolder(project, goPath);
 	}
 	
@@ -105,7 +109,7 @@ public class GoProjectEnvironment implements GoEnvironmentConstants {
 	}
 	
 	public static GoEnvironment getGoEnvironmentFromLocation(Location fileLocation) {
-		IProject project = ResourceUtils.getProjectFromMemberLocation(fileLocation);
+		IProject project = getProjectFromMemberLocation(fileLocation);
 		return getGoEnvironment(project);
 	}
 	
@@ -114,6 +118,29 @@ public class GoProjectEnvironment implements GoEnvironmentConstants {
 	 * @param project - can be null.
 	 */
 	public static GoEnvironment getGoEnvironment(IProject project) {
+		Object key = project == null ? NO_PROJECT_KEY : project;
+		GoEnvironment goEnv = goEnvironmentCache.get(key);
+		if(goEnv != null) {
+			return goEnv;
+		}
+		
+		int generation;
+		synchronized(cacheLock) {
+			generation = cacheGeneration;
+		}
+		// Compute outside the lock: preference lookups might take other locks.
+		goEnv = createGoEnvironment(project);
+		
+		synchronized(cacheLock) {
+			if(generation == cacheGeneration) {
+				// No invalidation happened in the meanwhile, so goEnv is up to date
+				goEnvironmentCache.put(key, goEnv);
+			}
+		}
+		return goEnv;
+	}
+	
+	public static GoEnvironment createGoEnvironment(IProject project) {
 		GoRoot goRoot = getEffectiveGoRoot(project);
 		GoPath goPath = getEffectiveGoPath(project);
 		return new GoEnvironment(goRoot, goPath);
@@ -135,4 +162,98 @@ public class GoProjectEnvironment implements GoEnvironmentConstants {
 		return goEnv.getBinFolderLocationForSubLocation(loc(project.getLocation()));
 	}
 	
+	/* ----------------- Caches ----------------- */
+	
+	protected static final Object NO_PROJECT_KEY = new Object();
+	protected static final int MEMBER_LOCATION_CACHE_LIMIT = 2000;
+	
+	protected static final Object cacheLock = new Object();
+	protected static int cacheGeneration = 0;
+	
+	protected static final ConcurrentHashMap<Object, GoEnvironment> goEnvironmentCache = new ConcurrentHashMap<>();
+	protected static final ConcurrentHashMap<Location, Optional<IProject>> memberLocationCache = 
+			new ConcurrentHashMap<>();
+	
+	/**
+	 * Cached variant of {@link ResourceUtils#getProjectFromMemberLocation(Location)}.
+	 * The result only depends on the location and open state of workspace projects, 
+	 * see {@link ProjectsChangeListener}.
+	 */
+	public static IProject getProjectFromMemberLocation(Location fileLocation) {
+		Optional<IProject> project = memberLocationCache.get(fileLocation);
+		if(project != null) {
+			return project.orElse(null);
+		}
+		
+		int generation;
+		synchronized(cacheLock) {
+			generation = cacheGeneration;
+		}
+		project = Optional.ofNullable(ResourceUtils.getProjectFromMemberLocation(fileLocation));
+		
+		synchronized(cacheLock) {
+			if(generation == cacheGeneration) {
+				if(memberLocationCache.size() >= MEMBER_LOCATION_CACHE_LIMIT) {
+					memberLocationCache.clear();
+				}
+				memberLocationCache.put(fileLocation, project);
+			}
+		}
+		return project.orElse(null);
+	}
+	
+	public static IProject getProjectFromMemberLocation(Optional<Location> location) {
+		if(location.isPresent()) {
+			return getProjectFromMemberLocation(location.get()); 
+		}
+		return null;
+	}
+	
+	/**
+	 * Invalidate the cached {@link GoEnvironment} of given project, 
+	 * or of all projects if project is null (a global setting changed).
+	 */
+	public static void invalidateGoEnvironment(IProject project) {
+		synchronized(cacheLock) {
+			cacheGeneration++;
+			if(project == null) {
+				goEnvironmentCache.clear();
+			} else {
+				goEnvironmentCache.remove(project);
+			}
+		}
+	}
+	
+	/** Invalidate all cached data, after a change in the set of projects, or in their locations. */
+	public static void invalidateAll() {
+		synchronized(cacheLock) {
+			cacheGeneration++;
+			goEnvironmentCache.clear();
+			memberLocationCache.clear();
+		}
+	}
+	
+	/**
+	 * Invalidates caches when a project is added, removed, opened, closed, or moved.
+	 * Changes inside a project do not affect the cached data. 
+	 */
+	public static class ProjectsChangeListener extends DefaultProjectResourceListener {
+		
+		protected static final int PROJECT_CHANGE_FLAGS = 
+				IResourceDelta.OPEN | IResourceDelta.DESCRIPTION | 
+				IResourceDelta.MOVED_FROM | IResourceDelta.MOVED_TO | IResourceDelta.REPLACED;
+		
+		@Override
+		protected void processWorkspaceDelta(IResourceDelta workspaceDelta) {
+			for (IResourceDelta projectDelta : workspaceDelta.getAffectedChildren()) {
+				if(projectDelta.getKind() != IResourceDelta.CHANGED || 
+						(projectDelta.getFlags() & PROJECT_CHANGE_FLAGS) != 0) {
+					invalidateAll();
+					return;
+				}
+			}
+		}
+		
+	}
+	
 }
\ No newline at end of file
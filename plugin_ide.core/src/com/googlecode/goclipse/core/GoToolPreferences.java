@@ -13,6 +13,7 @@ package com.googlecode.goclipse.core;
 import java.nio.file.Path;
 
 import melnorme.lang.ide.core.LangCore_Actual;
+import melnorme.lang.ide.core.utils.prefs.BooleanPreference;
 import melnorme.lang.ide.core.utils.prefs.DerivedValuePreference;
 import melnorme.lang.ide.core.utils.prefs.OptionalStringPreference;
 import melnorme.lang.utils.validators.LocationOrSinglePathValidator;
@@ -65,6 +66,13 @@ public interface GoToolPreferences {
 		"GoToolPreferences.GO_GURU_Path", "", null, 
 		GURU_PATH_validator);
 	
+	/**
+	 * Use `guru describe` for source structure updates, instead of the built-in Go parser.
+	 * This is much slower, but provides inferred types for variables and constants.
+	 */
+	BooleanPreference STRUCTURE_USE_GURU = new BooleanPreference(
+		"GoToolPreferences.structure.use_guru", false);
+	
 	DerivedValuePreference<Path> GODEF_Path = new DerivedValuePreference<Path>( 
 		"GoToolPreferences.godef.Path", "", null, 
 		GODEF_PATH_validator);
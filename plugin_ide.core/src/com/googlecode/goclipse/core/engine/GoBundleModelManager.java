@@ -11,8 +11,11 @@
 package com.googlecode.goclipse.core.engine;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
 
 import com.googlecode.goclipse.core.GoEnvironmentPrefs;
+import com.googlecode.goclipse.core.GoProjectEnvironment;
 import com.googlecode.goclipse.core.engine.GoBundleModelManager.GoBundleModel;
 
 import melnorme.lang.ide.core.CoreSettings;
@@ -26,9 +29,19 @@ import melnorme.lang.ide.core.utils.ResourceUtils;
 import melnorme.lang.ide.core.utils.prefs.IProjectPreference;
 import melnorme.lang.tooling.LocationHandle;
 import melnorme.lang.tooling.bundle.BundleInfo;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
 
 public class GoBundleModelManager extends BundleModelManager<GoBundleModel> {
 	
+	/** The settings that {@link GoProjectEnvironment#getGoEnvironment(IProject)} depends on. */
+	protected static final Indexable<IProjectPreference<?>> GO_ENVIRONMENT_SETTINGS = new ArrayList2<>(
+		ToolchainPreferences.SDK_PATH,
+		ToolchainPreferences.USE_PROJECT_SETTINGS,
+		GoEnvironmentPrefs.GO_PATH,
+		GoEnvironmentPrefs.APPEND_PROJECT_LOC_TO_GOPATH
+	);
+	
 	protected final CoreSettings settings = LangCore.settings();
 	
 	public static class GoBundleModel extends LangBundleModel {
@@ -44,17 +57,25 @@ public class GoBundleModelManager extends BundleModelManager<GoBundleModel> {
 	public GoBundleModelManager() {
 		super(new GoBundleModel());
 		
+		// Registered right away (not in initializeModelManager), since the caches can be used before startup
+		IResourceChangeListener projectsListener = new GoProjectEnvironment.ProjectsChangeListener();
+		ResourceUtils.getWorkspace().addResourceChangeListener(projectsListener, IResourceChangeEvent.POST_CHANGE);
+		owned.bind(() -> ResourceUtils.getWorkspace().removeResourceChangeListener(projectsListener));
+		
+		// Changes to the global (workspace) preferences are not reported to the settings listener below
+		for (IProjectPreference<?> setting : GO_ENVIRONMENT_SETTINGS) {
+			owned.add(setting.getGlobalPreference().asField().registerListener(
+				(__) -> GoProjectEnvironment.invalidateGoEnvironment(null)));
+		}
+		
 		settings.addSettingsListener(new SettingsChangeListener() {
 			
 			@Override
 			public void preferenceChanged(IProjectPreference<?> setting, LocationHandle location, Object newValue) {
-				if(
-					setting == ToolchainPreferences.SDK_PATH ||
-					setting == ToolchainPreferences.USE_PROJECT_SETTINGS ||
-					setting == GoEnvironmentPrefs.GO_PATH || 
-					setting == GoEnvironmentPrefs.APPEND_PROJECT_LOC_TO_GOPATH
-				) {
+				if(GO_ENVIRONMENT_SETTINGS.contains(setting)) {
 					IProject project = ResourceUtils.getProjectAt(location);
+					GoProjectEnvironment.invalidateGoEnvironment(project);
+					
 					// Trigger a model change notification
 					// This is likely not the best abstraction level to do this
 					
@@ -11,6 +11,8 @@
 package com.googlecode.goclipse.core.engine;
 
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+import static melnorme.utilbox.core.CoreUtil.areEqual;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -19,6 +21,7 @@ import java.nio.file.Files;
 import melnorme.lang.ide.core.LangCore;
 import melnorme.lang.ide.core.engine.SourceModelManager;
 import melnorme.lang.ide.core.operations.ToolManager;
+import melnorme.lang.tooling.ast.SourceEditDelta;
 import melnorme.lang.tooling.structure.SourceFileStructure;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
@@ -34,6 +37,8 @@ import com.googlecode.goclipse.tooling.env.GoEnvironment;
 import com.googlecode.goclipse.tooling.env.GoPath;
 import com.googlecode.goclipse.tooling.oracle.GuruDescribeOperation;
 import com.googlecode.goclipse.tooling.oracle.GuruPackageDescribeParser;
+import com.googlecode.goclipse.tooling.parser.GoSourceFileStructure;
+import com.googlecode.goclipse.tooling.parser.GoStructureParser;
 
 public class GoSourceModelManager extends SourceModelManager {
 	
@@ -48,6 +53,20 @@ public class GoSourceModelManager extends SourceModelManager {
 		return createUpdateTask(structureInfo, source, false);
 	}
 	
+	@Override
+	protected StructureUpdateTask createUpdateTask_forEdit(StructureInfo structureInfo, String source,
+			SourceEditDelta edit) {
+		Location fileLocation = structureInfo.getLocation();
+		if(fileLocation != null && edit != null && !GoToolPreferences.STRUCTURE_USE_GURU.get()) {
+			SourceFileStructure previous = structureInfo.getStoredData().getOrNull();
+			if(previous instanceof GoSourceFileStructure) {
+				return new GoParserStructureUpdateTask(structureInfo, source, fileLocation, 
+					(GoSourceFileStructure) previous, edit);
+			}
+		}
+		return createUpdateTask(structureInfo, source);
+	}
+	
 	@Override
 	protected StructureUpdateTask createUpdateTask_forFileSave(StructureInfo structureInfo, String source) {
 		return createUpdateTask(structureInfo, source, true);
@@ -59,9 +78,54 @@ public class GoSourceModelManager extends SourceModelManager {
 			return new StructureUpdateNullTask(structureInfo);
 		}
 		
+		if(!GoToolPreferences.STRUCTURE_USE_GURU.get()) {
+			return new GoParserStructureUpdateTask(structureInfo, source, fileLocation);
+		}
 		return new GoStructureUpdateTask(structureInfo, source, fileLocation, isSavedToDisk);
 	}
 	
+	/**
+	 * Structure update task using the in-process {@link GoStructureParser}.
+	 */
+	protected class GoParserStructureUpdateTask extends StructureUpdateTask {
+		
+		protected final String source;
+		protected final Location fileLocation;
+		/** The structure to incrementally update, for the source before given edit. Can be null. */
+		protected final GoSourceFileStructure previous;
+		protected final SourceEditDelta edit;
+		
+		public GoParserStructureUpdateTask(StructureInfo structureInfo, String source, Location fileLocation) {
+			this(structureInfo, source, fileLocation, null, null);
+		}
+		
+		public GoParserStructureUpdateTask(StructureInfo structureInfo, String source, Location fileLocation,
+				GoSourceFileStructure previous, SourceEditDelta edit) {
+			super(structureInfo);
+			this.source = source;
+			this.fileLocation = fileLocation;
+			this.previous = previous;
+			this.edit = edit;
+			assertTrue((previous == null) == (edit == null));
+		}
+		
+		@Override
+		protected SourceFileStructure doCreateNewData() {
+			if(isCancelled()) {
+				return null;
+			}
+			GoStructureParser parser = new GoStructureParser(fileLocation, source);
+			if(previous != null && areEqual(previous.getLocation(), fileLocation)) {
+				return parser.parseIncremental(previous, edit);
+			}
+			return parser.parse();
+		}
+		
+	}
+	
+	/**
+	 * Structure update task using `guru describe`.
+	 */
 	protected class GoStructureUpdateTask extends StructureUpdateTask {
 		
 		protected final String source;
@@ -13,10 +13,18 @@ package com.googlecode.goclipse.core.operations;
 import static melnorme.lang.ide.core.utils.ResourceUtils.loc;
 import static melnorme.utilbox.core.CoreUtil.list;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.debug.core.DebugPlugin;
 
 import com.googlecode.goclipse.core.GoCoreMessages;
@@ -24,10 +32,13 @@ import com.googlecode.goclipse.core.GoProjectEnvironment;
 import com.googlecode.goclipse.tooling.GoBuildOutputProcessor;
 import com.googlecode.goclipse.tooling.GoPackageName;
 import com.googlecode.goclipse.tooling.env.CheckSrcFolderRootFilesWithNoPackage;
+import com.googlecode.goclipse.tooling.env.GoBuildResultCache;
 import com.googlecode.goclipse.tooling.env.GoEnvironment;
+import com.googlecode.goclipse.tooling.env.GoImportGraph;
 import com.googlecode.goclipse.tooling.env.GoWorkspaceLocation;
 
 import melnorme.lang.ide.core.LangCore;
+import melnorme.lang.ide.core.LangCorePlugin;
 import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.IToolOperationMonitor;
 import melnorme.lang.ide.core.operations.ToolManager;
 import melnorme.lang.ide.core.operations.ToolMarkersHelper;
@@ -37,6 +48,8 @@ import melnorme.lang.ide.core.operations.build.BuildTarget;
 import melnorme.lang.ide.core.operations.build.BuildTargetData;
 import melnorme.lang.ide.core.operations.build.BuildTargetOperation;
 import melnorme.lang.ide.core.operations.build.BuildTargetOperation.BuildOperationParameters;
+import melnorme.lang.ide.core.operations.build.ParallelBuildExecutor;
+import melnorme.lang.ide.core.operations.build.ParallelBuildExecutor.BuildTask;
 import melnorme.lang.ide.core.project_model.LangBundleModel;
 import melnorme.lang.tooling.bundle.BuildConfiguration;
 import melnorme.lang.tooling.bundle.BuildTargetNameParser;
@@ -45,6 +58,7 @@ import melnorme.lang.tooling.bundle.BundleInfo;
 import melnorme.lang.tooling.bundle.LaunchArtifact;
 import melnorme.lang.tooling.common.ToolSourceMessage;
 import melnorme.lang.tooling.common.ops.IOperationMonitor;
+import melnorme.lang.tooling.common.ops.Operation;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.collections.Collection2;
 import melnorme.utilbox.collections.Indexable;
@@ -63,6 +77,50 @@ public class GoBuildManager extends BuildManager {
 		super(bundleModel, toolManager);
 	}
 	
+	public static GoBuildManager getInstance() {
+		return (GoBuildManager) LangCore.getBuildManager();
+	}
+	
+	protected GoBuildResultCache buildResultCache;
+	
+	/** @return the build result cache, stored in the plugin state location, or null if not available. */
+	public synchronized GoBuildResultCache getBuildResultCache() {
+		if(buildResultCache == null && LangCorePlugin.getInstance() != null) {
+			Location stateLocation = loc(LangCorePlugin.getInstance().getStateLocation());
+			buildResultCache = new GoBuildResultCache(stateLocation.resolve_fromValid("build-results"));
+		}
+		return buildResultCache;
+	}
+	
+	/** The import graphs of the projects, discarded when a project is closed or deleted. */
+	protected final ConcurrentHashMap<IProject, GoImportGraph> importGraphs = new ConcurrentHashMap<>();
+	
+	/** @return the import graph of given project, for the packages under given source root. */
+	public GoImportGraph getImportGraph(IProject project, Location sourceRoot) {
+		return importGraphs.compute(project, (key, importGraph) -> 
+			importGraph != null && importGraph.getSourceRoot().equals(sourceRoot) ? 
+				importGraph : new GoImportGraph(sourceRoot));
+	}
+	
+	/** 
+	 * The import graphs of the source roots of GOPATH entries, for the packages that projects import 
+	 * from outside their own source root. Discarded when any project is closed or deleted, since the GOPATH 
+	 * entries in use might have changed.
+	 */
+	protected final ConcurrentHashMap<Location, GoImportGraph> goPathImportGraphs = new ConcurrentHashMap<>();
+	
+	/** @return the import graph for the packages under given GOPATH source root. */
+	public GoImportGraph getGoPathImportGraph(Location sourceRoot) {
+		return goPathImportGraphs.computeIfAbsent(sourceRoot, GoImportGraph::new);
+	}
+	
+	@Override
+	protected void bundleProjectRemoved(IProject project) {
+		super.bundleProjectRemoved(project);
+		importGraphs.remove(project);
+		goPathImportGraphs.clear();
+	}
+	
 	public static final String BUILD_TYPE_Build = "build";
 	public static final String BUILD_TYPE_BuildTests = "build-tests";
 	public static final String BUILD_TYPE_Lint = "lint";
@@ -231,6 +289,11 @@ public class GoBuildManager extends BuildManager {
 		protected final GoEnvironment goEnv;
 		protected final Location sourceBaseDir;
 		protected Location workingDirectory;
+		/** If non-null, only these packages are built, instead of all the packages of a "..." package spec. */
+		protected Collection<GoPackageName> packagesToCheck = null;
+		/** If non-null, the messages of builds whose inputs did not change are replayed from this cache. */
+		protected GoBuildResultCache buildResultCache = GoBuildManager.getInstance().getBuildResultCache();
+		protected ArrayList2<ToolSourceMessage> streamedMessages = null;
 		
 		public GoBuildTargetOperation(BuildOperationParameters buildOpParams) throws CommonException {
 			super(buildOpParams);
@@ -250,6 +313,36 @@ public class GoBuildManager extends BuildManager {
 			workingDirectory = sourceBaseDir;
 		}
 		
+		public void setPackagesToCheck(Collection<GoPackageName> packagesToCheck) {
+			this.packagesToCheck = packagesToCheck;
+		}
+		
+		/** @return the packages to check that are matched by given multiple packages spec. */
+		protected ArrayList2<GoPackageName> getPackagesToCheck(String goPackageSpec) {
+			String specPrefix = StringUtil.trimEnd(goPackageSpec, "...");
+			ArrayList2<GoPackageName> packages = new ArrayList2<>();
+			for (GoPackageName goPackage : packagesToCheck) {
+				String packagePrefix = goPackage.getFullNameAsString() + GoPackageName.NAME_SEP;
+				if(specPrefix.isEmpty() || specPrefix.equals("./") || packagePrefix.startsWith(specPrefix)) {
+					packages.add(goPackage);
+				}
+			}
+			return packages;
+		}
+		
+		protected static String getLastArgument(List<String> commandLine) {
+			return commandLine.size() <= 1 ? null : commandLine.get(commandLine.size() - 1);
+		}
+		
+		@Override
+		public void execute(IOperationMonitor parentOM) throws CommonException, OperationCancellation {
+			String lastArg = getLastArgument(getConfiguredProcessBuilder2().command());
+			if(packagesToCheck != null && isMultipleGoPackagesSpec(lastArg) && getPackagesToCheck(lastArg).isEmpty()) {
+				return; // None of the packages to check are built by this target
+			}
+			super.execute(parentOM);
+		}
+		
 		@Override
 		public ProcessBuilder getToolProcessBuilder() throws CommonException, OperationCancellation {
 			ProcessBuilder pb = super.getToolProcessBuilder();
@@ -257,6 +350,17 @@ public class GoBuildManager extends BuildManager {
 				pb.directory(workingDirectory.toFile());
 			}
 			goEnv.setupProcessEnv(pb, true);
+			
+			String lastArg = getLastArgument(pb.command());
+			if(packagesToCheck != null && isMultipleGoPackagesSpec(lastArg)) {
+				// Replace the package spec with the packages to check
+				ArrayList2<String> commandLine = new ArrayList2<>(pb.command());
+				commandLine.remove(commandLine.size() - 1);
+				for (GoPackageName goPackage : getPackagesToCheck(lastArg)) {
+					commandLine.add(goPackage.getFullNameAsString());
+				}
+				pb.command(commandLine);
+			}
 			return pb;
 		}
 		
@@ -275,18 +379,142 @@ public class GoBuildManager extends BuildManager {
 			}
 		}
 		
+		@Override
+		public void runBuildToolAndProcessOutput(ProcessBuilder pb, IOperationMonitor om)
+				throws CommonException, OperationCancellation {
+			ArrayList2<GoPackageName> builtPackages = getBuiltPackages();
+			String cacheKey = getBuildResultCacheKey(pb, builtPackages);
+			ArrayList2<ToolSourceMessage> cachedMessages = getCachedBuildMessages(opMonitor, cacheKey, pb);
+			if(cachedMessages != null) {
+				handleBuildMessages(cachedMessages, om);
+				return;
+			}
+			
+			// Create markers while the build is still running, 
+			// instead of waiting for the whole output of a possibly long build.
+			streamedMessages = new ArrayList2<>();
+			ExternalProcessResult result = runBuildToolAndStreamOutput(pb, createBuildOutputParser(), om);
+			putBuildResult(cacheKey, builtPackages, result.exitValue, streamedMessages);
+		}
+		
+		@Override
+		protected void handleBuildMessages(Indexable<ToolSourceMessage> buildMessages, IOperationMonitor om)
+				throws CommonException {
+			if(streamedMessages != null) {
+				buildMessages.forEach(streamedMessages::add);
+			}
+			if(!buildMessages.isEmpty()) {
+				addErrorMarkers(buildMessages, om);
+			}
+		}
+		
+		/* ----------------- build result cache ----------------- */
+		
+		/** 
+		 * @return the packages built by the command line of this operation, 
+		 * or null if these can't be determined (for example, a relative package spec). 
+		 */
+		protected ArrayList2<GoPackageName> getBuiltPackages() {
+			try {
+				return findBuiltPackages(getLastArgument(getConfiguredProcessBuilder2().command()));
+			} catch(CommonException ce) {
+				return null;
+			}
+		}
+		
+		protected ArrayList2<GoPackageName> findBuiltPackages(String lastArg) throws CommonException {
+			if(lastArg == null || lastArg.startsWith(".") || lastArg.startsWith("-") || lastArg.endsWith(".go")) {
+				return null;
+			}
+			
+			if(isMultipleGoPackagesSpec(lastArg)) {
+				if(packagesToCheck != null) {
+					return getPackagesToCheck(lastArg);
+				}
+				GoWorkspaceLocation goWorkspace = goEnv.getGoPath().findGoPathEntry(getProjectLocation());
+				return goWorkspace == null ? null : goWorkspace.findSubPackages(StringUtil.trimEnd(lastArg, "..."));
+			}
+			
+			if(!sourceBaseDir.resolve_fromValid(lastArg).toFile().isDirectory()) {
+				return null;
+			}
+			return ArrayList2.create(new GoPackageName(lastArg));
+		}
+		
+		/** @return the build result cache key for given process builder, or null if results can't be cached. */
+		protected String getBuildResultCacheKey(ProcessBuilder pb, Collection<GoPackageName> builtPackages) {
+			if(buildResultCache == null || builtPackages == null) {
+				return null;
+			}
+			try {
+				GoBuildManager buildMgr = GoBuildManager.getInstance();
+				GoImportGraph importGraph = buildMgr.getImportGraph(project, sourceBaseDir);
+				return GoBuildResultCache.computeKey(goEnv, importGraph, buildMgr::getGoPathImportGraph, 
+					builtPackages, pb);
+			} catch(IOException | CommonException e) {
+				return null;
+			}
+		}
+		
+		protected ArrayList2<ToolSourceMessage> getCachedBuildMessages(IToolOperationMonitor toolOpMonitor, 
+				String cacheKey, ProcessBuilder pb) {
+			if(cacheKey == null) {
+				return null;
+			}
+			ArrayList2<ToolSourceMessage> cachedMessages = buildResultCache.getMessages(cacheKey);
+			if(cachedMessages != null) {
+				toolOpMonitor.writeInfoMessage("  " + StringUtil.collToString(pb.command(), " ") + "\n" + 
+					"    (inputs unchanged since the last run, reusing its messages)\n");
+			}
+			return cachedMessages;
+		}
+		
+		/** 
+		 * Store the build messages under given cache key, computed before the build. 
+		 * If sources were modified during the build, the next build computes a different key anyway.
+		 */
+		protected void putBuildResult(String cacheKey, Collection<GoPackageName> builtPackages, 
+				int exitValue, Collection<ToolSourceMessage> buildMessages) {
+			if(cacheKey == null) {
+				return;
+			}
+			if(exitValue != 0 && buildMessages.isEmpty()) {
+				return; // The failure was not reported in build messages (for example, a tool error), don't replay it
+			}
+			try {
+				Location binFolder = GoProjectEnvironment.getBinFolderLocation(project);
+				Location pkgFolder = new GoWorkspaceLocation(sourceBaseDir.getParent()).getPkgLocation()
+						.resolve_fromValid(goEnv.getEffectiveGoOs() + "_" + goEnv.getEffectiveGoArch());
+				buildResultCache.putMessages(cacheKey, buildMessages, 
+					GoBuildResultCache.getOutputFiles(binFolder, pkgFolder, builtPackages));
+			} catch(CommonException ce) {
+				LangCore.logError(ce.getMessage(), ce.getCause());
+			}
+		}
+		
 		@Override
 		protected void processBuildOutput(ExternalProcessResult buildAllResult, IOperationMonitor om) 
 				throws CommonException, OperationCancellation {
-			GoBuildOutputProcessor buildOutput = new GoBuildOutputProcessor() {
+			addErrorMarkers(parseBuildOutput(buildAllResult), om);
+		}
+		
+		protected GoBuildOutputProcessor createBuildOutputParser() {
+			return new GoBuildOutputProcessor() {
 				@Override
 				protected void handleParseError(CommonException ce) {
 					LangCore.logError(ce.getMessage(), ce.getCause());
 				}
 			};
-			ArrayList<ToolSourceMessage> buildMessages = buildOutput.doParseResult(buildAllResult);
-			
-			new ToolMarkersHelper(true).addErrorMarkers(buildMessages, workingDirectory, om);
+		}
+		
+		protected ArrayList<ToolSourceMessage> parseBuildOutput(ExternalProcessResult buildAllResult)
+				throws CommonException {
+			return createBuildOutputParser().doParseResult(buildAllResult);
+		}
+		
+		protected void addErrorMarkers(Iterable<ToolSourceMessage> buildMessages, IOperationMonitor om)
+				throws CommonException {
+			new ToolMarkersHelper(true, markerReconciler).addErrorMarkers(buildMessages, workingDirectory, om);
 		}
 		
 	}
@@ -312,7 +540,7 @@ public class GoBuildManager extends BuildManager {
 		}
 		
 		protected boolean isMultipleGoPackages(String goPackageName) {
-			return goPackageName.endsWith("/...") || goPackageName.equals("...");
+			return isMultipleGoPackagesSpec(goPackageName);
 		}
 		
 		protected boolean isMultipleGoPackagesCommandInvocation(Indexable<String> commandLine) {
@@ -349,12 +577,62 @@ public class GoBuildManager extends BuildManager {
 					
 					GoWorkspaceLocation goWorkspace = goEnv.getGoPath().findGoPathEntry(getProjectLocation());
 					Collection2<GoPackageName> sourcePackages = goWorkspace.findSubPackages(goPackageToBuild);
+					if(packagesToCheck != null) {
+						ArrayList2<GoPackageName> packagesToBuild = new ArrayList2<>();
+						for (GoPackageName goPackage : sourcePackages) {
+							if(packagesToCheck.contains(goPackage)) {
+								packagesToBuild.add(goPackage);
+							}
+						}
+						sourcePackages = packagesToBuild;
+					}
 					
+					ArrayList2<BuildTask<ArrayList<ToolSourceMessage>>> buildTasks = new ArrayList2<>();
 					for (GoPackageName goPackage : sourcePackages) {
 						argumentsTemplate.set(lastArgIx, goPackage.getFullNameAsString());
+						buildTasks.add(new PackageBuildTask(goPackage, copyProcessBuilder(pb, argumentsTemplate)));
+					}
+					
+					// Messages from shared dependencies are reported by each package build, so remove duplicates
+					LinkedHashSet<ToolSourceMessage> buildMessages = new LinkedHashSet<>();
+					for (ArrayList<ToolSourceMessage> packageMessages :
+							new ParallelBuildExecutor(opMonitor).execute(buildTasks, om)) {
+						buildMessages.addAll(packageMessages);
+					}
+					addErrorMarkers(buildMessages, om);
+				}
+				
+				protected class PackageBuildTask implements BuildTask<ArrayList<ToolSourceMessage>> {
+					
+					protected final GoPackageName goPackage;
+					protected final ProcessBuilder pb;
+					
+					public PackageBuildTask(GoPackageName goPackage, ProcessBuilder pb) {
+						this.goPackage = goPackage;
+						this.pb = pb;
+					}
+					
+					@Override
+					public Object getSerialKey() {
+						// The test executable is written to the working directory, using the package simple name
+						return goPackage.getLastSegment();
+					}
+					
+					@Override
+					public ArrayList<ToolSourceMessage> execute(IToolOperationMonitor taskOpMonitor,
+							IOperationMonitor taskOM) throws CommonException, OperationCancellation {
+						ArrayList2<GoPackageName> builtPackages = ArrayList2.create(goPackage);
+						String cacheKey = getBuildResultCacheKey(pb, builtPackages);
+						ArrayList2<ToolSourceMessage> cachedMessages = 
+								getCachedBuildMessages(taskOpMonitor, cacheKey, pb);
+						if(cachedMessages != null) {
+							return cachedMessages;
+						}
 						
-						pb.command(argumentsTemplate);
-						runBuildToolAndProcessOutput(pb, om);
+						ExternalProcessResult result = runBuildTool(taskOpMonitor, pb, taskOM);
+						ArrayList<ToolSourceMessage> buildMessages = parseBuildOutput(result);
+						putBuildResult(cacheKey, builtPackages, result.exitValue, buildMessages);
+						return buildMessages;
 					}
 					
 				}
@@ -365,6 +643,19 @@ public class GoBuildManager extends BuildManager {
 		
 	}
 	
+	public static boolean isMultipleGoPackagesSpec(String goPackageSpec) {
+		return goPackageSpec != null && (goPackageSpec.endsWith("/...") || goPackageSpec.equals("..."));
+	}
+	
+	protected static ProcessBuilder copyProcessBuilder(ProcessBuilder pb, Indexable<String> commandLine) {
+		ProcessBuilder newPB = new ProcessBuilder(commandLine.toArrayList());
+		newPB.directory(pb.directory());
+		newPB.redirectErrorStream(pb.redirectErrorStream());
+		newPB.environment().clear();
+		newPB.environment().putAll(pb.environment());
+		return newPB;
+	}
+	
 	public static class GoRunTestsBuildType extends AbstractGoBuildType {
 		
 		public GoRunTestsBuildType() {
@@ -383,7 +674,12 @@ public class GoBuildManager extends BuildManager {
 		
 		@Override
 		public BuildTargetOperation getBuildOperation(BuildOperationParameters buildOpParams) throws CommonException {
-			return new GoBuildTargetOperation(buildOpParams);
+			return new GoBuildTargetOperation(buildOpParams) {
+				{
+					// Test results can depend on inputs other than the package files (testdata, environment)
+					buildResultCache = null;
+				}
+			};
 		}
 		
 	}
@@ -402,6 +698,94 @@ public class GoBuildManager extends BuildManager {
 	
 	/* -----------------  ----------------- */
 	
+	/**
+	 * Only the packages of the changed files, and the project packages that import them (directly or 
+	 * indirectly), are checked. The build markers of the other packages are kept.
+	 */
+	@Override
+	public Operation newProjectCheckOperation(IToolOperationMonitor opMonitor, IProject project,
+			Collection<Location> changedFiles) throws CommonException {
+		GoEnvironment goEnv = GoProjectEnvironment.getGoEnvironment(project);
+		Location sourceRoot = goEnv.getGoPath().getSourceRootforLocation(loc(project.getLocation()));
+		ArrayList2<GoPackageName> packagesToCheck = findPackagesToCheck(project, goEnv, sourceRoot, changedFiles);
+		if(packagesToCheck == null) {
+			return super.newProjectCheckOperation(opMonitor, project, changedFiles);
+		}
+		
+		ArrayList2<BuildTarget> enabledTargets = getValidBuildInfo(project).getEnabledTargets(false);
+		if(enabledTargets.isEmpty()) {
+			return Operation.NULL_COMMON_OPERATION;
+		}
+		ArrayList2<Operation> buildCommands = enabledTargets.mapx((buildTarget) -> {
+			BuildTargetOperation buildOp = buildTarget.getBuildOperation(toolManager, opMonitor);
+			if(buildOp instanceof GoBuildTargetOperation) {
+				((GoBuildTargetOperation) buildOp).setPackagesToCheck(packagesToCheck);
+			}
+			return buildOp;
+		});
+		
+		HashSet<Location> packageDirs = new HashSet<>();
+		for (GoPackageName goPackage : packagesToCheck) {
+			packageDirs.add(sourceRoot.resolve_fromValid(goPackage.getFullNameAsString()));
+		}
+		return newTopLevelBuildOperation(opMonitor, project, buildCommands, 
+			(resource) -> isInPackageDirs(resource, packageDirs));
+	}
+	
+	/** 
+	 * @return the packages of given changed files, followed by the project packages that depend on them,
+	 * or null if these can't be determined. 
+	 */
+	protected ArrayList2<GoPackageName> findPackagesToCheck(IProject project, GoEnvironment goEnv, 
+			Location sourceRoot, Collection<Location> changedFiles) throws CommonException {
+		if(changedFiles == null || changedFiles.isEmpty() || sourceRoot == null) {
+			return null;
+		}
+		
+		ArrayList2<GoPackageName> changedPackages = new ArrayList2<>();
+		for (Location changedFile : changedFiles) {
+			Location packageDir = changedFile.getParent();
+			if(packageDir == null || !packageDir.startsWith(sourceRoot) || packageDir.equals(sourceRoot)) {
+				return null;
+			}
+			GoPackageName goPackage = goEnv.getGoPath().findGoPackageForLocation(packageDir);
+			if(goPackage == null) {
+				return null;
+			}
+			changedPackages.add(goPackage);
+		}
+		
+		Collection2<GoPackageName> projectPackages = GoProjectEnvironment.findSourcePackages(project, goEnv);
+		return getImportGraph(project, sourceRoot).findDependentPackages(changedPackages, projectPackages);
+	}
+	
+	/**
+	 * Go builds write to the bin and pkg folders of the GOPATH entry of the project 
+	 * (the test executables are written to the bin folder too), and to the launch artifacts of the build targets.
+	 */
+	@Override
+	protected ArrayList2<Location> getBuildOutputLocations(IProject project) throws CommonException {
+		GoEnvironment goEnv = GoProjectEnvironment.getGoEnvironment(project);
+		GoWorkspaceLocation goWorkspace = goEnv.getGoPath().findGoPathEntry(loc(project.getLocation()));
+		if(goWorkspace == null) {
+			return null;
+		}
+		
+		ArrayList2<Location> outputLocations = ArrayList2.create(goWorkspace.getBinLocation(), 
+			goWorkspace.getPkgLocation());
+		addLaunchArtifactFolders(project, outputLocations);
+		return outputLocations;
+	}
+	
+	protected static boolean isInPackageDirs(IResource resource, HashSet<Location> packageDirs) {
+		IPath resourceLocation = resource.getLocation();
+		if(resourceLocation == null) {
+			return false;
+		}
+		Location location = loc(resourceLocation);
+		return packageDirs.contains(resource.getType() == IResource.FILE ? location.getParent() : location);
+	}
+	
 	@Override
 	protected BuildOperationCreator createBuildOperationCreator(IToolOperationMonitor opMonitor, IProject project) {
 		return new BuildOperationCreator(project, opMonitor) {
@@ -17,6 +17,10 @@ public class GoToolManager extends ToolManager {
 	
 	public GoToolManager(CoreSettings settings) {
 		super(settings);
+		
+		toolMetrics.addSubcommandTool("go");
+		toolMetrics.addSubcommandTool("guru", "-scope", "-tags", "-cpuprofile");
+		toolMetrics.addSubcommandTool("gocode", "-sock", "-addr", "-f", "-in");
 	}
 	
 }
\ No newline at end of file
@@ -1,77 +1,79 @@
 package com.googlecode.goclipse.core.tools;
 
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertFail;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
 import java.nio.file.Path;
 
 import org.eclipse.debug.core.DebugPlugin;
 
 import com.googlecode.goclipse.core.GoToolPreferences.GoToolValidator;
-import com.googlecode.goclipse.tooling.gocode.GocodeCompletionOperation;
+import com.googlecode.goclipse.tooling.gocode.GocodeDaemon;
 
 import melnorme.lang.ide.core.LangCore;
-import melnorme.lang.ide.core.engine.LanguageServerHandler;
+import melnorme.lang.ide.core.LangCore_Actual;
+import melnorme.lang.ide.core.engine.ILanguageServerHandler;
 import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.IToolOperationMonitor;
 import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.ProcessStartKind;
 import melnorme.lang.ide.core.operations.ToolManager;
-import melnorme.lang.tooling.common.ops.IOperationMonitor;
-import melnorme.lang.tooling.common.ops.JobExecutor;
+import melnorme.lang.ide.core.operations.ToolchainPreferences;
 import melnorme.lang.utils.validators.PathValidator;
-import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.concurrency.ICancelMonitor.NullCancelMonitor;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
-import melnorme.utilbox.process.ExternalProcessNotifyingHelper;
 
 /**
  * For Go, gocode is the closest to a language server, since it's the only tool that runs in daemon mode.
+ * The gocode server is managed by a {@link GocodeDaemon}: started on the first completion request,
+ * and restarted if it crashes, or if the gocode path changes.
  */
-public class GocodeServerManager extends LanguageServerHandler<GocodeServerInstance> {
+public class GocodeServerManager implements ILanguageServerHandler {
+	
+	public static final String GOCODE_SERVER_Name = LangCore_Actual.LANGUAGE_SERVER_Name + " server";
 	
-	public GocodeServerManager(JobExecutor jobExecutor, ToolManager toolMgr) {
-		super(jobExecutor, toolMgr);
+	protected final ToolManager toolMgr;
+	protected final PathValidator languageToolPathValidator = new GoToolValidator("gocode path");
+	protected final GocodeDaemon gocodeDaemon = new GocodeServerDaemon();
+	
+	public GocodeServerManager(ToolManager toolMgr) {
+		this.toolMgr = assertNotNull(toolMgr);
 	}
 	
 	@Override
-	protected PathValidator init_ServerToolPathValidator() {
-		return new GoToolValidator("gocode path");
+	public void dispose() {
+		gocodeDaemon.dispose();
 	}
 	
-	@Override
-	protected String getLanguageServerName() {
-		return GocodeServerInstance.GOCODE_SERVER_Name;
+	public Path getServerPath() throws CommonException {
+		return languageToolPathValidator.getValidatedPath(ToolchainPreferences.LANGUAGE_SERVER_PATH.get());
 	}
 	
-	@Override
-	protected GocodeServerInstance doCreateServerInstance(IOperationMonitor om)
-			throws CommonException, OperationCancellation {
-		Path gocodePath = getServerPath();
+	public PathValidator getLanguageToolPathValidator() {
+		return languageToolPathValidator;
+	}
+	
+	public GocodeDaemon getGocodeDaemon() {
+		return gocodeDaemon;
+	}
+	
+	protected class GocodeServerDaemon extends GocodeDaemon {
 		
-		ArrayList2<String> commandLine = new ArrayList2<String>();
-		commandLine.add(gocodePath.toString());
-		commandLine.add("-s");
-		if (GocodeCompletionOperation.USE_TCP) {
-			commandLine.add("-sock=tcp");
+		@Override
+		protected Process startProcess(String gocodePath, ProcessBuilder pb) throws CommonException {
+			LangCore.logInfo("Starting gocode server: " +
+				DebugPlugin.renderArguments(pb.command().toArray(new String[0]), null));
+			
+			IToolOperationMonitor opMonitor = toolMgr.startNewOperation(ProcessStartKind.ENGINE_SERVER, true, false);
+			String prefixText = "==== Starting " + GOCODE_SERVER_Name + " ====\n";
+			try {
+				// Not cancellable: the server outlives the request that starts it. Its output is read by the task.
+				return toolMgr.new RunToolTask(opMonitor, prefixText, pb, new NullCancelMonitor())
+						.startProcess().getProcess();
+			} catch(OperationCancellation e) {
+				throw assertFail();
+			}
 		}
 		
-		LangCore.logInfo("Starting gocode server: " + 
-			DebugPlugin.renderArguments(commandLine.toArray(String.class), null));
-		
-		ProcessBuilder pb = new ProcessBuilder(commandLine);
-		
-		IToolOperationMonitor opMonitor = toolMgr.startNewOperation(ProcessStartKind.ENGINE_SERVER, true, false);
-		String prefixText = "==== Starting gocode server ====\n";
-		
-		gocodeSetEnableBuiltins(gocodePath, om, opMonitor, prefixText);
-		
-		ExternalProcessNotifyingHelper process = 
-				toolMgr.new RunToolTask(opMonitor, prefixText, pb, om).startProcess();
-		
-		return new GocodeServerInstance(gocodePath, process);
-	}
-	
-	protected void gocodeSetEnableBuiltins(Path gocodePath, IOperationMonitor om, 
-			IToolOperationMonitor toolOpMonitor, String prefixText)
-			throws CommonException, OperationCancellation {
-		ProcessBuilder pb = new ProcessBuilder(gocodePath.toString(), "set", "propose-builtins", "true");
-		toolMgr.new RunToolTask(toolOpMonitor, prefixText, pb, om).runProcess();
 	}
 	
 }
\ No newline at end of file
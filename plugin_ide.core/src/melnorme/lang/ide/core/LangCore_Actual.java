@@ -8,7 +8,6 @@ import com.googlecode.goclipse.core.tools.GocodeServerManager;
 import com.googlecode.goclipse.tooling.GoSDKLocationValidator;
 
 import melnorme.lang.ide.core.operations.ToolchainPreferences;
-import melnorme.lang.ide.core.utils.operation.EclipseJobExecutor;
 import melnorme.utilbox.misc.ILogHandler;
 
 public class LangCore_Actual extends AbstractLangCore {
@@ -62,7 +61,7 @@ public class LangCore_Actual extends AbstractLangCore {
 	
 	@Override
 	public GocodeServerManager createLanguageServerHandler() {
-		return new GocodeServerManager(new EclipseJobExecutor(), getToolManager());
+		return new GocodeServerManager(getToolManager());
 	}
 	
 	public GocodeServerManager languageServerHandler() {
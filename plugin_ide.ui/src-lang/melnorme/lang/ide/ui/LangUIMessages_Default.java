@@ -21,6 +21,10 @@ package melnorme.lang.ide.ui;
 			"Timeout invoking content assist.";
 	String ContentAssist_Cancelled = 
 			"Cancelled.";
+	String ContentAssist_Computing = 
+			"Computing proposals...";
+	String ContentAssist_Error = 
+			"Unexpected error computing proposals.";
 	
 	String ContentAssistProcessor_opName = "Content Assist";
 	
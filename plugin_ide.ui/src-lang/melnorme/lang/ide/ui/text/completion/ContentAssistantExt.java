@@ -66,6 +66,27 @@ public class ContentAssistantExt extends ContentAssistant {
 	
 	/* -----------------  ----------------- */
 	
+	protected boolean isAsyncResultsInvocation = false;
+	
+	/**
+	 * Re-invoke content assist, to show the proposals of a request that completed asynchronously.
+	 * The content assist processor should show the same category as the previous invocation.
+	 */
+	public void showAsyncResults() {
+		isAsyncResultsInvocation = true;
+		try {
+			showPossibleCompletions();
+		} finally {
+			isAsyncResultsInvocation = false;
+		}
+	}
+	
+	public boolean isAsyncResultsInvocation() {
+		return isAsyncResultsInvocation;
+	}
+	
+	/* -----------------  ----------------- */
+	
 	public static class ContentAssistSorter implements ICompletionProposalSorter {
 		@Override
 		public int compare(ICompletionProposal proposalA, ICompletionProposal proposalB) {
@@ -11,20 +11,38 @@
 package melnorme.lang.ide.ui.text.completion;
 
 
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.CoreUtil.areEqual;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.ITextOperationTarget;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.contentassist.ICompletionProposalExtension;
+import org.eclipse.jface.text.contentassist.ICompletionProposalExtension2;
+import org.eclipse.jface.text.contentassist.ICompletionProposalExtension4;
+import org.eclipse.jface.text.contentassist.IContentAssistant;
 import org.eclipse.jface.text.contentassist.IContextInformation;
+import org.eclipse.jface.text.source.ISourceViewer;
+import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Display;
 
 import melnorme.lang.ide.core.LangCore;
 import melnorme.lang.ide.core.operations.ToolManager.ToolManagerEngineToolRunner;
 import melnorme.lang.ide.core.text.ISourceBufferExt;
+import melnorme.lang.ide.core.utils.CoreExecutors;
 import melnorme.lang.ide.ui.LangImageProvider;
 import melnorme.lang.ide.ui.LangImages;
 import melnorme.lang.ide.ui.LangUIMessages;
 import melnorme.lang.ide.ui.LangUIPlugin_Actual;
 import melnorme.lang.ide.ui.editor.EditorUtils;
+import melnorme.lang.ide.ui.editor.LangSourceViewer;
 import melnorme.lang.ide.ui.views.AbstractLangImageProvider;
 import melnorme.lang.ide.ui.views.StructureElementLabelProvider;
 import melnorme.lang.tooling.ToolCompletionProposal;
@@ -34,15 +52,41 @@ import melnorme.lang.utils.concurrency.TimeoutCancelMonitor;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.collections.Indexable;
 import melnorme.utilbox.concurrency.ICancelMonitor;
+import melnorme.utilbox.concurrency.ICancelMonitor.CancelMonitor;
+import melnorme.utilbox.concurrency.ICancellableTask;
+import melnorme.utilbox.concurrency.ICommonExecutor;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
 
 public abstract class LangCompletionProposalComputer extends AbstractCompletionProposalComputer {
 	
+	/** Executor for completion requests, so that the UI thread is never blocked waiting for the tools. */
+	protected static final ICommonExecutor completionExecutor = 
+			CoreExecutors.newCachedThreadPool(LangCompletionProposalComputer.class);
+	
+	/** How long the UI thread waits for the result, before showing it later, asynchronously. */
+	protected static final int ASYNC_WAIT_MILLIS = 100;
+	protected static final int COMPLETION_TIMEOUT_MILLIS = 5000;
+	
+	/** The completion request in progress. Only accessed in the UI thread. */
+	protected AsyncCompletionRequest pendingRequest;
+	
 	protected boolean needsEditorSave() {
 		return false;
 	}
 	
+	@Override
+	public void sessionEnded() {
+		cancelPendingRequest();
+	}
+	
+	protected void cancelPendingRequest() {
+		if(pendingRequest != null) {
+			pendingRequest.cancel();
+			pendingRequest = null;
+		}
+	}
+	
 	@Override
 	public Indexable<ICompletionProposal> computeCompletionProposals(ISourceBufferExt sourceBuffer, 
 			ITextViewer viewer, int offset) 
@@ -54,27 +98,25 @@ public abstract class LangCompletionProposalComputer extends AbstractCompletionP
 		
 		SourceOpContext sourceOpContext = sourceBuffer.getSourceOpContext(offset, EditorUtils.getSelectedRange(viewer));
 		
-		final TimeoutCancelMonitor cm = new TimeoutCancelMonitor(5000);
-		try {
-			
-			return computeProposals(sourceOpContext, cm);
-			
-		} catch (OperationCancellation e) {
-			if(cm.isCancelled()) {
-				throw new OperationSoftFailure(LangUIMessages.ContentAssist_Timeout);
-			}
-			// This shouldn't be possible in most concrete implementations,
-			// as OperationCancellation should only occur when the timeout is reached.
-			throw new OperationSoftFailure(LangUIMessages.ContentAssist_Cancelled); 
+		AsyncCompletionRequest request = pendingRequest;
+		if(request == null || !request.isRequestFor(sourceOpContext)) {
+			// The caret moved, or the source changed: previous request is no longer of use
+			cancelPendingRequest();
+			request = pendingRequest = new AsyncCompletionRequest(sourceOpContext, viewer);
+			completionExecutor.submitTask(request);
 		}
-	}
-	
-	protected Indexable<ICompletionProposal> computeProposals(SourceOpContext sourceContext, ICancelMonitor cm)
-			throws CommonException, OperationCancellation, OperationSoftFailure
-	{
 		
-		Indexable<ToolCompletionProposal> resultProposals = doComputeProposals(sourceContext, cm);
+		if(!request.awaitResult(ASYNC_WAIT_MILLIS)) {
+			// Result will be shown by re-invoking content assist, once it is available.
+			return new ArrayList2<>(new PendingResultProposal(offset));
+		}
+		pendingRequest = null;
 		
+		return adaptToolProposals(sourceOpContext, request.getResult());
+	}
+	
+	protected Indexable<ICompletionProposal> adaptToolProposals(SourceOpContext sourceContext, 
+			Indexable<ToolCompletionProposal> resultProposals) {
 		ArrayList2<ICompletionProposal> proposals = new ArrayList2<>();
 		for (ToolCompletionProposal proposal : resultProposals) {
 			proposals.add(adaptToolProposal(sourceContext, proposal));
@@ -83,11 +125,174 @@ public abstract class LangCompletionProposalComputer extends AbstractCompletionP
 		return proposals;
 	}
 	
+	/**
+	 * Compute the proposals for given source context. 
+	 * Note: this is called outside the UI thread, and possibly concurrently with a previous, cancelled, request.
+	 */
 	protected abstract Indexable<ToolCompletionProposal> doComputeProposals(SourceOpContext sourceContext, ICancelMonitor cm) 
 			throws CommonException, OperationCancellation, OperationSoftFailure;
 	
 	/* -----------------  ----------------- */
 	
+	public class AsyncCompletionRequest implements ICancellableTask {
+		
+		protected final SourceOpContext sourceContext;
+		protected final ITextViewer viewer;
+		protected final CancelMonitor requestCM = new CancelMonitor();
+		protected final CountDownLatch completedLatch = new CountDownLatch(1);
+		
+		protected volatile Indexable<ToolCompletionProposal> result;
+		protected volatile Exception resultException;
+		
+		public AsyncCompletionRequest(SourceOpContext sourceContext, ITextViewer viewer) {
+			this.sourceContext = assertNotNull(sourceContext);
+			this.viewer = assertNotNull(viewer);
+		}
+		
+		public boolean isRequestFor(SourceOpContext otherContext) {
+			return 
+				sourceContext.getOffset() == otherContext.getOffset() &&
+				areEqual(sourceContext.getOptionalFileLocation(), otherContext.getOptionalFileLocation()) &&
+				sourceContext.getSource().equals(otherContext.getSource());
+		}
+		
+		@Override
+		public boolean canExecute() {
+			return !requestCM.isCancelled();
+		}
+		
+		@Override
+		public boolean tryCancel() {
+			requestCM.cancel();
+			return true;
+		}
+		
+		public void cancel() {
+			tryCancel();
+		}
+		
+		@Override
+		public void run() {
+			TimeoutCancelMonitor timeoutCM = new TimeoutCancelMonitor(COMPLETION_TIMEOUT_MILLIS);
+			ICancelMonitor cm = () -> timeoutCM.isCancelled() || requestCM.isCancelled();
+			try {
+				result = doComputeProposals(sourceContext, cm);
+			} catch (OperationCancellation e) {
+				if(requestCM.isCancelled()) {
+					return; // Nobody is interested in the result anymore
+				}
+				resultException = new OperationSoftFailure(timeoutCM.isCancelled() ? 
+						LangUIMessages.ContentAssist_Timeout : LangUIMessages.ContentAssist_Cancelled);
+			} catch (CommonException | OperationSoftFailure e) {
+				resultException = e;
+			} catch (RuntimeException e) {
+				resultException = new CommonException(LangUIMessages.ContentAssist_Error, e);
+			} finally {
+				completedLatch.countDown();
+			}
+			
+			if(!requestCM.isCancelled()) {
+				Display.getDefault().asyncExec(this::showResult);
+			}
+		}
+		
+		public boolean awaitResult(int timeoutMillis) throws OperationCancellation {
+			try {
+				return completedLatch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+			} catch(InterruptedException e) {
+				throw new OperationCancellation();
+			}
+		}
+		
+		public Indexable<ToolCompletionProposal> getResult() 
+				throws CommonException, OperationCancellation, OperationSoftFailure {
+			if(resultException instanceof CommonException) {
+				throw (CommonException) resultException;
+			} else if(resultException instanceof OperationSoftFailure) {
+				throw (OperationSoftFailure) resultException;
+			} else if(result == null) {
+				throw new OperationCancellation();
+			}
+			return result;
+		}
+		
+		/** Show the result of this request, if it's still the current request for the current caret offset. */
+		protected void showResult() {
+			if(pendingRequest != this || requestCM.isCancelled()) {
+				return;
+			}
+			StyledText textWidget = viewer.getTextWidget();
+			if(textWidget == null || textWidget.isDisposed()) {
+				return;
+			}
+			if(EditorUtils.getSelectedRange(viewer).getOffset() != sourceContext.getOffset()) {
+				cancelPendingRequest();
+				return;
+			}
+			
+			IContentAssistant contentAssistant = viewer instanceof LangSourceViewer ? 
+					((LangSourceViewer) viewer).getContentAssistant() : null;
+			if(contentAssistant instanceof ContentAssistantExt) {
+				((ContentAssistantExt) contentAssistant).showAsyncResults();
+			} else if(viewer instanceof ITextOperationTarget) {
+				((ITextOperationTarget) viewer).doOperation(ISourceViewer.CONTENTASSIST_PROPOSALS);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Placeholder proposal shown while the completion request is running.
+	 * It purposely doesn't implement {@link ICompletionProposalExtension} or {@link ICompletionProposalExtension2}, 
+	 * so that the proposals are recomputed (and the pending request restarted) if the caret moves.
+	 */
+	public static class PendingResultProposal implements ICompletionProposal, ICompletionProposalExtension4 {
+		
+		protected final int offset;
+		
+		public PendingResultProposal(int offset) {
+			this.offset = offset;
+		}
+		
+		@Override
+		public String getDisplayString() {
+			return LangUIMessages.ContentAssist_Computing;
+		}
+		
+		@Override
+		public Image getImage() {
+			return null;
+		}
+		
+		@Override
+		public String getAdditionalProposalInfo() {
+			return null;
+		}
+		
+		@Override
+		public IContextInformation getContextInformation() {
+			return null;
+		}
+		
+		@Override
+		public Point getSelection(IDocument document) {
+			return new Point(offset, 0);
+		}
+		
+		@Override
+		public void apply(IDocument document) {
+			// Nothing to apply
+		}
+		
+		@Override
+		public boolean isAutoInsertable() {
+			return false;
+		}
+		
+	}
+	
+	/* -----------------  ----------------- */
+	
 	protected ICompletionProposal adaptToolProposal(SourceOpContext sourceContext, ToolCompletionProposal proposal) {
 		IContextInformation ctxInfo = null; // TODO: context information
 		return new LangCompletionProposal(sourceContext, proposal, getImage(proposal), ctxInfo);
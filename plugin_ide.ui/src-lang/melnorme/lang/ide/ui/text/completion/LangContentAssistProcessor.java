@@ -211,6 +211,11 @@ public class LangContentAssistProcessor extends ContenAssistProcessorExt {
 	protected void resetComputeState() {
 		super.resetComputeState();
 		
+		if(contentAssistant.isAsyncResultsInvocation() && invocationIteration > 0) {
+			// Not a repeated invocation, the same category as before is shown again, with the async results
+			invocationIteration--;
+		}
+		
 		// These messages are iteration specific, so they need to be reset:
 		contentAssistant.setStatusMessage(createIterationMessage());
 		contentAssistant.setEmptyMessage(createEmptyMessage());
@@ -16,4 +16,7 @@ public class ConsoleMessages {
 	public static String ScrollLockAction_Name = "&Scroll Lock";
 	public static String ScrollLockAction_Tooltip = "Scroll Lock";
 	
+	public static String ShowToolMetricsAction_Name = "Show Tool &Metrics";
+	public static String ShowToolMetricsAction_Tooltip = "Show the invocation metrics of the external tools";
+	
 }
\ No newline at end of file
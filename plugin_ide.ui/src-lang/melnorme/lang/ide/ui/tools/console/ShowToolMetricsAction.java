@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.ui.tools.console;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import org.eclipse.jface.action.Action;
+
+import melnorme.lang.ide.core.LangCore;
+import melnorme.lang.tooling.toolchain.ops.ToolMetrics;
+
+/**
+ * Writes the metrics of the tools run so far to the console: a summary table, and the JSON snapshot.
+ */
+public class ShowToolMetricsAction extends Action {
+	
+	protected final ToolsConsole console;
+	
+	public ShowToolMetricsAction(ToolsConsole console) {
+		super(ConsoleMessages.ShowToolMetricsAction_Name);
+		this.console = assertNotNull(console);
+		
+		setToolTipText(ConsoleMessages.ShowToolMetricsAction_Tooltip);
+	}
+	
+	@Override
+	public void run() {
+		ToolMetrics toolMetrics = LangCore.getToolManager().getToolMetrics();
+		console.writeOperationInfo("\n>> Tool metrics:\n" + toolMetrics.toSummaryText());
+		console.writeOperationInfo(">> JSON snapshot:\n" + toolMetrics.toJson() + "\n");
+	}
+	
+}
\ No newline at end of file
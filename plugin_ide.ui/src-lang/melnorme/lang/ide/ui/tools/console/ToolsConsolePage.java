@@ -28,6 +28,7 @@ import org.eclipse.ui.console.TextConsoleViewer;
 public class ToolsConsolePage extends TextConsolePage {
 	
 	protected ScrollLockAction fScrollLockAction;
+	protected ShowToolMetricsAction fShowToolMetricsAction; // Can be null
 	
 	public ToolsConsolePage(TextConsole console, IConsoleView view) {
 		super(console, view);
@@ -74,12 +75,18 @@ public class ToolsConsolePage extends TextConsolePage {
 		 super.createActions();
 		 fScrollLockAction = new ScrollLockAction(getConsoleView());
 		 setAutoScroll(!fScrollLockAction.isChecked());
+		 if(getConsole() instanceof EngineToolsConsole) {
+			 fShowToolMetricsAction = new ShowToolMetricsAction((EngineToolsConsole) getConsole());
+		 }
 	 }
 	 
 	 @Override
 	 protected void contextMenuAboutToShow(IMenuManager menuManager) {
 		 super.contextMenuAboutToShow(menuManager);
 		 menuManager.add(fScrollLockAction);
+		 if(fShowToolMetricsAction != null) {
+			 menuManager.add(fShowToolMetricsAction);
+		 }
 	 }
 	 
 	 @Override
@@ -5,14 +5,13 @@ import java.nio.file.Path;
 import org.eclipse.core.resources.IProject;
 
 import com.googlecode.goclipse.core.GoProjectEnvironment;
-import com.googlecode.goclipse.core.tools.GocodeServerInstance;
 import com.googlecode.goclipse.core.tools.GocodeServerManager;
 import com.googlecode.goclipse.tooling.env.GoEnvironment;
+import com.googlecode.goclipse.tooling.gocode.GocodeCompletionCache;
 import com.googlecode.goclipse.tooling.gocode.GocodeCompletionOperation;
 import com.googlecode.goclipse.tooling.gocode.GocodeOutputParser2;
 
 import melnorme.lang.ide.core.LangCore;
-import melnorme.lang.ide.core.utils.ResourceUtils;
 import melnorme.lang.ide.ui.text.completion.LangCompletionProposalComputer;
 import melnorme.lang.tooling.ToolCompletionProposal;
 import melnorme.lang.tooling.toolchain.ops.OperationSoftFailure;
@@ -22,30 +21,39 @@ import melnorme.utilbox.concurrency.ICancelMonitor;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.misc.Location;
-import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
 
 public class GocodeCompletionProposalComputer extends LangCompletionProposalComputer {
 	
 	protected final GocodeServerManager gocodeServerManager = LangCore.get().languageServerHandler();
+	protected final GocodeCompletionCache completionCache = new GocodeCompletionCache();
 	
 	@Override
 	protected Indexable<ToolCompletionProposal> doComputeProposals(SourceOpContext sourceContext, ICancelMonitor cm)
 			throws CommonException, OperationCancellation, OperationSoftFailure {
 		Location fileLoc = sourceContext.getFileLocation();
 		int offset = sourceContext.getOffset();
+		String source = sourceContext.getSource();
+		
+		Indexable<ToolCompletionProposal> cachedProposals = 
+				completionCache.getProposals(fileLoc.toPathString(), source, offset);
+		if(cachedProposals != null) {
+			return cachedProposals;
+		}
 		
-		GocodeServerInstance gocodeServerInstance = gocodeServerManager.getReadyServerInstance();
-		Path gocodePath = gocodeServerInstance.getServerPath();
-		IProject project = ResourceUtils.getProjectFromMemberLocation(sourceContext.getOptionalFileLocation());
+		Path gocodePath = gocodeServerManager.getServerPath();
+		IProject project = GoProjectEnvironment.getProjectFromMemberLocation(sourceContext.getOptionalFileLocation());
 		
 		GoEnvironment goEnvironment = GoProjectEnvironment.getGoEnvironment(project);
 		
-		// TODO: we should run this operation outside the UI thread.
 		GocodeCompletionOperation client = new GocodeCompletionOperation(
-			getEngineToolRunner(), goEnvironment, gocodePath.toString(), cm);
+			getEngineToolRunner(), goEnvironment, gocodePath.toString(), gocodeServerManager.getGocodeDaemon(), cm) {
+			@Override
+			protected void handleRpcFailure(CommonException ce) {
+				LangCore.logWarning("gocode RPC request failed, falling back to gocode client process.", ce);
+			}
+		};
 		
-		String source = sourceContext.getSource();
-		ExternalProcessResult processResult = client.execute(fileLoc.toPathString(), source, offset);
+		String output = client.executeForOutput(fileLoc.toPathString(), source, offset);
 		
 		GocodeOutputParser2 gocodeOutputParser = new GocodeOutputParser2(offset, source){
 			@Override
@@ -53,7 +61,9 @@ public class GocodeCompletionProposalComputer extends LangCompletionProposalComp
 				LangCore.logWarning(message);
 			}
 		};
-		return gocodeOutputParser.doParseResult(processResult);
+		Indexable<ToolCompletionProposal> proposals = gocodeOutputParser.parseOutput(output);
+		completionCache.putProposals(fileLoc.toPathString(), source, offset, proposals);
+		return proposals;
 	}
 	
 }
\ No newline at end of file
@@ -66,10 +66,18 @@ public class GoToolsConfigBlock extends LanguageToolsBlock {
 	}
 	
 	public class GoGuruGroup extends AbstractToolLocationGroup {
+		
+		protected final CheckBoxField useForStructureField;
+		
 		public GoGuruGroup() {
 			super("guru");
 			
 			bindFieldToDerivedPreference(toolLocationField, GoToolPreferences.GO_GURU_Path);
+			
+			this.useForStructureField = new CheckBoxField(
+				"Use guru to update the source outline (slower, but shows inferred types).");
+			addChildWidget(useForStructureField);
+			prefContext.bindToPreference(useForStructureField, GoToolPreferences.STRUCTURE_USE_GURU);
 		}
 		
 		@Override
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package melnorme.lang.ide.ui.text;
 
+import com.googlecode.goclipse.tooling.tools.GoDocCache;
 import com.googlecode.goclipse.tooling.tools.GoFindDocOperation;
 import com.googlecode.goclipse.ui.actions.GoOpenDefinitionOperation;
 
@@ -21,6 +22,9 @@ import melnorme.lang.tooling.toolchain.ops.AbstractToolOperation;
 @LANG_SPECIFIC
 public class DocDisplayInfoSupplier extends AbstractDocDisplayInfoSupplier {
 	
+	/** Shared by all hovers, so that hovering an identifier again is answered from the cache. */
+	protected static final GoDocCache docCache = new GoDocCache();
+	
 	public DocDisplayInfoSupplier(ISourceBuffer sourceBuffer, int offset) {
 		super(sourceBuffer, offset);
 	}
@@ -28,7 +32,7 @@ public class DocDisplayInfoSupplier extends AbstractDocDisplayInfoSupplier {
 	@Override
 	protected AbstractToolOperation<String> getFindDocOperation(ISourceBuffer sourceBuffer, int offset) {
 		return new GoFindDocOperation(
-			GoOpenDefinitionOperation.getFindDefinitionOperation(sourceBuffer, offset));
+			GoOpenDefinitionOperation.getFindDefinitionOperation(sourceBuffer, offset), docCache);
 	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.engine;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.lang.tooling.engine.ManagedToolDaemon.DaemonChannel;
+import melnorme.lang.tooling.engine.ManagedToolDaemon.DaemonRequest;
+import melnorme.lang.tooling.engine.ManagedToolDaemon.StdioDaemonChannel;
+import melnorme.utilbox.concurrency.ICancelMonitor.CancelMonitor;
+import melnorme.utilbox.concurrency.ICancelMonitor.NullCancelMonitor;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.core.CommonException;
+
+public class ManagedToolDaemon_Test extends CommonToolingTest {
+	
+	/**
+	 * The daemon process: answers each line with "<prefix>:<instance id>:<line>".
+	 * Note: only uses JDK classes, so that it can be run with just the tests classpath entry.
+	 */
+	public static class EchoDaemon {
+		
+		public static void main(String[] args) throws Exception {
+			String instanceId = Long.toString(System.nanoTime());
+			BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+			PrintStream out = new PrintStream(System.out, true, "UTF-8");
+			String line;
+			while((line = reader.readLine()) != null) {
+				if(line.equals("crash")) {
+					System.exit(1);
+				}
+				if(line.equals("sleep")) {
+					Thread.sleep(30_000);
+				}
+				System.err.println("Request: " + line);
+				out.println(args[0] + ":" + instanceId + ":" + line);
+			}
+		}
+		
+	}
+	
+	public static class EchoToolDaemon extends ManagedToolDaemon<String, StdioDaemonChannel> {
+		
+		public EchoToolDaemon() {
+			super("EchoDaemon");
+		}
+		
+		@Override
+		protected ProcessBuilder createProcessBuilder(String prefix) throws CommonException {
+			String javaPath = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+			String classpath = new File(EchoDaemon.class.getProtectionDomain().getCodeSource().getLocation().getPath())
+				.getPath();
+			return new ProcessBuilder(javaPath, "-cp", classpath, EchoDaemon.class.getName(), prefix);
+		}
+		
+		@Override
+		protected StdioDaemonChannel openChannel(String prefix, Process process) {
+			return new StdioDaemonChannel(process);
+		}
+		
+	}
+	
+	public static class LineRequest implements DaemonRequest<DaemonChannel, String> {
+		
+		protected final String line;
+		
+		public LineRequest(String line) {
+			this.line = line;
+		}
+		
+		@Override
+		public String execute(DaemonChannel channel) throws IOException {
+			channel.getOutput().write((line + "\n").getBytes(StandardCharsets.UTF_8));
+			channel.getOutput().flush();
+			
+			InputStream input = channel.getInput();
+			ByteArrayOutputStream lineBytes = new ByteArrayOutputStream();
+			int ch;
+			while((ch = input.read()) != '\n') {
+				if(ch == -1) {
+					throw new EOFException();
+				}
+				if(ch != '\r') {
+					lineBytes.write(ch);
+				}
+			}
+			return new String(lineBytes.toByteArray(), StandardCharsets.UTF_8);
+		}
+		
+	}
+	
+	protected static String instanceId(String response) {
+		return response.split(":")[1];
+	}
+	
+	@Test
+	public void test() throws Exception { test$(); }
+	public void test$() throws Exception {
+		EchoToolDaemon daemon = new EchoToolDaemon();
+		owned.add(daemon::dispose);
+		NullCancelMonitor cm = new NullCancelMonitor();
+		
+		String response = daemon.executeRequest("A", new LineRequest("one"), cm);
+		assertTrue(response.startsWith("A:") && response.endsWith(":one"));
+		String instance = instanceId(response);
+		
+		// Same process is reused
+		response = daemon.executeRequest("A", new LineRequest("two"), cm);
+		assertAreEqual(response, "A:" + instance + ":two");
+		
+		// Config change restarts the process
+		response = daemon.executeRequest("B", new LineRequest("three"), cm);
+		assertTrue(response.startsWith("B:") && !instanceId(response).equals(instance));
+		instance = instanceId(response);
+		
+		// Crash: request fails, and process is restarted on the next request
+		verifyThrows(() -> daemon.executeRequest("B", new LineRequest("crash"), cm), CommonException.class);
+		response = daemon.executeRequest("B", new LineRequest("four"), cm);
+		assertTrue(!instanceId(response).equals(instance));
+		instance = instanceId(response);
+		
+		// Cancellation of a request being processed
+		CancelMonitor cancelMonitor = new CancelMonitor();
+		new Thread(() -> {
+			try {
+				Thread.sleep(200);
+			} catch(InterruptedException e) {
+			}
+			cancelMonitor.cancel();
+		}).start();
+		long start = System.currentTimeMillis();
+		verifyThrows(() -> daemon.executeRequest("B", new LineRequest("sleep"), cancelMonitor),
+			OperationCancellation.class);
+		assertTrue(System.currentTimeMillis() - start < 20_000);
+		
+		// Cancelled before being processed
+		verifyThrows(() -> daemon.executeRequest("B", new LineRequest("five"), cancelMonitor),
+			OperationCancellation.class);
+		
+		response = daemon.executeRequest("B", new LineRequest("six"), cm);
+		assertTrue(response.endsWith(":six") && !instanceId(response).equals(instance));
+		
+		daemon.dispose();
+		assertTrue(!daemon.isProcessRunning());
+		verifyThrows(() -> daemon.executeRequest("B", new LineRequest("seven"), cm), OperationCancellation.class);
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.parser;
+
+import java.nio.CharBuffer;
+import java.util.Collections;
+
+import melnorme.lang.utils.parse.LexingUtils;
+import melnorme.lang.utils.parse.StringCharSource;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.misc.StringUtil;
+
+/**
+ * Compares {@link SourceLinesInfo} with the previous implementation (boxed line starts, 
+ * calculated with {@link LexingUtils}), and UTF-8 byte offset calculation with a CharsetEncoder,
+ * on a large source. 
+ * Not a unit test, run the main method manually: 
+ * <code>java melnorme.lang.tooling.parser.SourceLinesInfo_Benchmark [lineCount]</code>
+ */
+public class SourceLinesInfo_Benchmark {
+	
+	protected static final int WARMUP_ITERATIONS = 10;
+	protected static final int MEASURE_ITERATIONS = 20;
+	
+	public static void main(String[] args) throws Exception {
+		int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+		String source = createSource(lineCount);
+		
+		System.out.println("Source: " + lineCount + " lines, " + source.length() + " chars.");
+		
+		measure("create - boxed", () -> new BoxedSourceLinesInfo(source));
+		measure("create - int[]", () -> new SourceLinesInfo(source));
+		
+		BoxedSourceLinesInfo boxedInfo = new BoxedSourceLinesInfo(source);
+		SourceLinesInfo linesInfo = new SourceLinesInfo(source);
+		measure("getLineForOffset x 10_000 - boxed", () -> forOffsets(source, boxedInfo::getLineForOffset));
+		measure("getLineForOffset x 10_000 - int[]", () -> forOffsets(source, linesInfo::getLineForOffset));
+		measure("getIdentifierAt x 10_000 - boxed", () -> forOffsets(source, boxedInfo::getIdentifierAt));
+		measure("getIdentifierAt x 10_000 - int[]", () -> forOffsets(source, linesInfo::getIdentifierAt));
+		
+		measure("UTF-8 byte offset x 10 - encoder", () -> forOffsets(source, 10, 
+			(offset) -> StringUtil.UTF8.newEncoder().encode(CharBuffer.wrap(source, 0, offset)).limit()));
+		measure("UTF-8 byte offset x 10 - mapper", () -> forOffsets(source, 10, linesInfo::getUtf8ByteOffset));
+	}
+	
+	protected static String createSource(int lineCount) {
+		StringBuilder sb = new StringBuilder();
+		for (int ix = 0; ix < lineCount; ix++) {
+			switch(ix % 4) {
+			case 0: sb.append("func function" + ix + "(param int) string {\n"); break;
+			case 1: sb.append("\tvalue := fmt.Sprintf(\"%d - \u00E9\u4E16\", param)\n"); break;
+			case 2: sb.append("\treturn value\r\n"); break;
+			default: sb.append("}\n"); break;
+			}
+		}
+		return sb.toString();
+	}
+	
+	protected interface OffsetFunction {
+		int apply(int offset) throws Exception;
+	}
+	
+	protected static Object forOffsets(String source, OffsetFunction function) throws Exception {
+		return forOffsets(source, 10_000, function);
+	}
+	
+	protected static Object forOffsets(String source, int count, OffsetFunction function) throws Exception {
+		int result = 0;
+		for (int ix = 0; ix < count; ix++) {
+			result += function.apply((int) ((long) ix * source.length() / count));
+		}
+		return result;
+	}
+	
+	protected static Object blackhole;
+	
+	protected interface Operation {
+		Object run() throws Exception;
+	}
+	
+	protected static void measure(String name, Operation operation) throws Exception {
+		for (int ix = 0; ix < WARMUP_ITERATIONS; ix++) {
+			blackhole = operation.run();
+		}
+		long start = System.nanoTime();
+		for (int ix = 0; ix < MEASURE_ITERATIONS; ix++) {
+			blackhole = operation.run();
+		}
+		long averageMicros = (System.nanoTime() - start) / MEASURE_ITERATIONS / 1000;
+		System.out.println(String.format("%-40s %,10d us/op", name, averageMicros));
+	}
+	
+	/** The previous implementation of {@link SourceLinesInfo}, only the parts being measured. */
+	protected static class BoxedSourceLinesInfo {
+		
+		protected final String source;
+		protected final ArrayList2<Integer> lines;
+		
+		public BoxedSourceLinesInfo(String source) {
+			this.source = source;
+			this.lines = calculateLines(new StringCharSource(source));
+		}
+		
+		protected ArrayList2<Integer> calculateLines(StringCharSource parser) {
+			ArrayList2<Integer> lines = new ArrayList2<>();
+			
+			int lineStartOffset = 0;
+			do {
+				consumeNewLine(parser);
+				
+				lines.add(lineStartOffset);
+				lineStartOffset = parser.getReadPosition();
+			} while(parser.hasCharAhead());
+			
+			return lines;
+		}
+		
+		protected void consumeNewLine(StringCharSource parser) {
+			while(true) {
+				String newlineSequence = LexingUtils.determineNewlineSequenceAt(parser, 0);
+				if(newlineSequence != null) {
+					parser.consumeAhead(newlineSequence);
+					return;
+				}
+				
+				parser.consume();
+			}
+		}
+		
+		public int getLineForOffset(int offset) {
+			int binarySearchResult = Collections.binarySearch(lines, offset);
+			return binarySearchResult >= 0 ? binarySearchResult : -(binarySearchResult + 1) -1;
+		}
+		
+		public int getIdentifierAt(int validatedOffset) {
+			StringCharSource parser = new StringCharSource(source);
+			parser.consumeAmount(validatedOffset);
+			return LexingUtils.matchJavaIdentifier(parser);
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -15,6 +15,7 @@ import static melnorme.utilbox.core.Assert.AssertNamespace.assertFail;
 import org.junit.Test;
 
 import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.StringUtil;
 import melnorme.utilbox.tests.CommonTest;
 
 public class SourceLinesInfo_Test extends CommonTest {
@@ -39,6 +40,59 @@ public class SourceLinesInfo_Test extends CommonTest {
 		assertEquals(sourceLinesInfo.getValidatedOffset_1(1, 1), 0);
 		assertEquals(sourceLinesInfo.getValidatedOffset_1(2, 1), 6);
 		assertEquals(sourceLinesInfo.getValidatedOffset_1(2, 6), "12345\n12345".length());
+		
+		testLines("a\n", 0);
+		testLines("a\r\nb\rc\n\nd", 0, 3, 5, 7, 8);
+		testLines("\r\r\n\n", 0, 1, 3);
+		
+		assertEquals(new SourceLinesInfo("foo.bar_1 ").getIdentifierAt(0), 3);
+		assertEquals(new SourceLinesInfo("foo.bar_1 ").getIdentifierAt(4), 5);
+		assertEquals(new SourceLinesInfo("foo.bar_1 ").getIdentifierAt(3), 0);
+		assertEquals(new SourceLinesInfo("foo.bar_1").getIdentifierAt(9), 0);
+		
+		testUtf8("");
+		testUtf8("abc\ndef");
+		testUtf8("a\u00E9b\n\u4E16\u754C\r\n\uD83D\uDE00x\n\u00E9");
+		testUtf8("unpaired \uD83D \uDE00\n");
+		// Byte offset in the middle of a character
+		assertEquals(new SourceLinesInfo("a\u00E9b").getOffsetForUtf8ByteOffset(2), 1);
+		assertEquals(new SourceLinesInfo("a\uD83D\uDE00b").getOffsetForUtf8ByteOffset(3), 1);
+		
+		SourceLinesInfo utf8LinesInfo = new SourceLinesInfo("\u00E9\u00E9\n\u4E16x\n");
+		assertEquals(utf8LinesInfo.getValidatedOffsetForUtf8Column_1(1, 1), 0);
+		assertEquals(utf8LinesInfo.getValidatedOffsetForUtf8Column_1(1, 3), 1);
+		assertEquals(utf8LinesInfo.getValidatedOffsetForUtf8Column_1(1, 5), 2);
+		assertEquals(utf8LinesInfo.getValidatedOffsetForUtf8Column_1(2, 4), 4);
+		assertEquals(utf8LinesInfo.getValidatedOffsetForUtf8Column_1(2, 5), 5);
+		verifyThrows(() -> utf8LinesInfo.getValidatedOffsetForUtf8Column_1(1, 6), null, "Invalid column, out of bounds");
+		verifyThrows(() -> utf8LinesInfo.getValidatedOffsetForUtf8Column_1(2, 7), null, "line+column, out of bounds");
+		verifyThrows(() -> utf8LinesInfo.getValidatedOffsetForUtf8Column_1(3, 1), null, "Invalid line: 3");
+	}
+	
+	protected void testLines(String source, int... expectedLineStarts) throws CommonException {
+		SourceLinesInfo sourceLinesInfo = getSourceLinesInfo(source);
+		assertEquals(sourceLinesInfo.getNumberOfLines(), expectedLineStarts.length);
+		for (int ix = 0; ix < expectedLineStarts.length; ix++) {
+			assertEquals(sourceLinesInfo.getOffsetForLine(ix), expectedLineStarts[ix]);
+		}
+	}
+	
+	protected void testUtf8(String source) throws CommonException {
+		SourceLinesInfo sourceLinesInfo = new SourceLinesInfo(source);
+		
+		for (int offset = 0; offset <= source.length(); offset++) {
+			int expectedByteOffset = source.substring(0, offset).getBytes(StringUtil.UTF8).length;
+			assertEquals(Utf8OffsetMapper.utf8Length(source, 0, offset), expectedByteOffset);
+			assertEquals(sourceLinesInfo.getUtf8ByteOffset(offset), expectedByteOffset);
+			
+			if(offset == source.length() || !Character.isLowSurrogate(source.charAt(offset))) {
+				assertEquals(sourceLinesInfo.getOffsetForUtf8ByteOffset(expectedByteOffset), offset);
+			}
+		}
+		
+		int byteLength = source.getBytes(StringUtil.UTF8).length;
+		verifyThrows(() -> sourceLinesInfo.getOffsetForUtf8ByteOffset(byteLength + 1), null, 
+			"Invalid byte offset " + (byteLength + 1) + ", it is out of bounds.");
 	}
 	
 	public SourceLinesInfo getSourceLinesInfo(String sampleSource) throws CommonException {
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.parser;
+
+import org.junit.Test;
+
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.tests.CommonTest;
+
+public class Utf8OffsetMapper_Test extends CommonTest {
+	
+	@Test
+	public void test() throws Exception { test$(); }
+	public void test$() throws Exception {
+		for (int checkpointInterval : new int[] { 2, 3, 5, Utf8OffsetMapper.DEFAULT_CHECKPOINT_INTERVAL }) {
+			testMapper("", checkpointInterval);
+			testMapper("abc", checkpointInterval);
+			testMapper("a\u00E9b\n\u4E16\u754C\r\n\uD83D\uDE00x\uD83D\uDE00\uD83D\uDE00\n\u00E9", checkpointInterval);
+			testMapper("unpaired \uD83D \uDE00\n\uDE00\uD83D", checkpointInterval);
+		}
+		
+		Utf8OffsetMapper mapper = new Utf8OffsetMapper("a\u00E9\uD83D\uDE00b");
+		assertEquals(mapper.getByteLength(), 8);
+		// Byte offset in the middle of a character
+		assertEquals(mapper.getCharOffset(2), 1);
+		assertEquals(mapper.getCharOffset(4), 2);
+		assertEquals(mapper.getCharOffset(6), 2);
+		assertEquals(mapper.getCharOffset(7), 4);
+		
+		verifyThrows(() -> mapper.getByteOffset(-1), null, "Invalid offset -1");
+		verifyThrows(() -> mapper.getByteOffset(6), null, "Invalid offset 6");
+		verifyThrows(() -> mapper.getCharOffset(-1), null, "Invalid byte offset -1");
+		verifyThrows(() -> mapper.getCharOffset(9), null, "Invalid byte offset 9");
+	}
+	
+	protected void testMapper(String source, int checkpointInterval) throws CommonException {
+		Utf8OffsetMapper mapper = new Utf8OffsetMapper(source, checkpointInterval);
+		assertEquals(mapper.getByteLength(), source.getBytes(StringUtil.UTF8).length);
+		
+		for (int offset = 0; offset <= source.length(); offset++) {
+			int expectedByteOffset = source.substring(0, offset).getBytes(StringUtil.UTF8).length;
+			assertEquals(Utf8OffsetMapper.utf8Length(source, 0, offset), expectedByteOffset);
+			assertEquals(mapper.getByteOffset(offset), expectedByteOffset);
+			
+			boolean isInsideSurrogatePair = offset > 0 && offset < source.length() &&
+					Character.isSurrogatePair(source.charAt(offset - 1), source.charAt(offset));
+			if(!isInsideSurrogatePair) {
+				assertEquals(mapper.getCharOffset(expectedByteOffset), offset);
+			}
+		}
+	}
+	
+}
\ No newline at end of file
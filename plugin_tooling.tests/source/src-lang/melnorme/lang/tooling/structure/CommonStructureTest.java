@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.structure;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+import static melnorme.utilbox.misc.StringUtil.replaceAll;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.lang.tooling.EAttributeFlag;
+import melnorme.lang.tooling.EProtection;
+import melnorme.lang.tooling.ElementAttributes;
+import melnorme.lang.tooling.ast.SourceRange;
+import melnorme.utilbox.collections.Indexable;
+
+/**
+ * Helpers to create the expected structure elements of a source, for structure parser tests.
+ */
+public abstract class CommonStructureTest extends CommonToolingTest {
+	
+	protected static final String DEFAULT_SOURCE = "aaaaa\n0123456789\nxxx\nabcdefghijkl\n";
+	
+	public CommonStructureTest() {
+		super();
+	}
+	
+	protected String source = DEFAULT_SOURCE;
+	
+	public static String quoteString(String string) {
+		return '"' + replaceAll(string, "\"", "\\\"") + '"';
+	}
+	
+	protected SourceRange sr(int offset, int length) {
+		return new SourceRange(offset, length);
+	}
+	
+	protected SourceRange srAt(int startPos, int endPos) {
+		return SourceRange.srStartToEnd(startPos, endPos);
+	}
+	
+	protected int pos(int line_0, int col_0) {
+		int lineOffset = 0;
+		while(line_0 > 0) {
+			int newIx = source.indexOf('\n', lineOffset);
+			assertTrue(newIx > 0);
+			lineOffset = newIx + 1;
+			line_0--;
+		}
+		return lineOffset + col_0;
+	}
+	
+	public static ElementAttributes attrib(EProtection protection, EAttributeFlag... flags) {
+		return new ElementAttributes(protection, flags);
+	}
+	
+	public static ElementAttributes att(EAttributeFlag... flags) {
+		return new ElementAttributes(EProtection.PUBLIC, flags);
+	}
+	
+	public static ElementAttributes attPriv(EAttributeFlag... flags) {
+		return new ElementAttributes(EProtection.PRIVATE, flags);
+	}
+	
+	public StructureElement elem(String name, SourceRange sr, SourceRange nameSR, StructureElementKind elementKind,
+			ElementAttributes elementAttributes, String type, Indexable<StructureElement> children) {
+		if(elementAttributes == null) {
+			elementAttributes = new ElementAttributes(null);
+		}
+		return new StructureElement(name, nameSR, sr, elementKind, elementAttributes, type, children);
+	}
+	
+}
\ No newline at end of file
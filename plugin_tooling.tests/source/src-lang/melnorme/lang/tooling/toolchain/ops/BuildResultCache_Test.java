@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.toolchain.ops;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.lang.tooling.common.SourceLineColumnRange;
+import melnorme.lang.tooling.common.ToolSourceMessage;
+import melnorme.lang.tooling.toolchain.ops.BuildResultCache.KeyBuilder;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.status.Severity;
+import melnorme.utilbox.tests.TestsWorkingDir;
+
+public class BuildResultCache_Test extends CommonToolingTest {
+	
+	protected static final ArrayList2<ToolSourceMessage> MESSAGES = ArrayList2.create(
+		new ToolSourceMessage(path("src/foo.go"), new SourceLineColumnRange(10, 2), Severity.ERROR, "undefined: x"),
+		new ToolSourceMessage(path("/abs/bar.go"), new SourceLineColumnRange(1, 1, 2, 5), Severity.WARNING, "msg\n\"2\"")
+	);
+	
+	@Test
+	public void testKeyBuilder() throws Exception { testKeyBuilder$(); }
+	public void testKeyBuilder$() throws Exception {
+		String key = new KeyBuilder().addString("ab").addString("c").getKey();
+		assertAreEqual(key, new KeyBuilder().addString("ab").addString("c").getKey());
+		assertAreEqual(key.length(), 64);
+		assertTrue(!key.equals(new KeyBuilder().addString("a").addString("bc").getKey()));
+	}
+	
+	@Test
+	public void testCache() throws Exception { testCache$(); }
+	public void testCache$() throws Exception {
+		Location dir = workingDirLoc("BuildResultCache_Test");
+		TestsWorkingDir.deleteDir(dir);
+		Location cacheDir = dir.resolve_valid("cache");
+		Location outputFile = dir.resolve_valid("bin/foo");
+		Location missingOutputFile = dir.resolve_valid("bin/foo.test");
+		outputFile.getParent().toFile().mkdirs();
+		writeStringToFile(outputFile, "exe");
+		
+		BuildResultCache cache = new BuildResultCache(cacheDir, 2);
+		assertTrue(cache.getMessages("key1") == null);
+		
+		cache.putMessages("key1", MESSAGES, ArrayList2.create(outputFile, missingOutputFile));
+		assertAreEqual(cache.getMessages("key1"), MESSAGES);
+		// Entries are read from disk, by other cache instances too
+		assertAreEqual(new BuildResultCache(cacheDir, 2).getMessages("key1"), MESSAGES);
+		
+		cache.putMessages("key2", new ArrayList2<>(), new ArrayList2<>());
+		assertAreEqual(cache.getMessages("key2"), new ArrayList2<>());
+		assertAreEqual(cache.getHitCount(), 2);
+		assertAreEqual(cache.getMissCount(), 1);
+		
+		// Entry is stale when an output file that existed is modified or removed
+		// (output files that did not exist are ignored).
+		writeStringToFile(missingOutputFile, "test exe");
+		assertAreEqual(cache.getMessages("key1"), MESSAGES);
+		writeStringToFile(outputFile, "new exe");
+		assertTrue(cache.getMessages("key1") == null);
+		cache.putMessages("key1", MESSAGES, ArrayList2.create(outputFile));
+		assertAreEqual(cache.getMessages("key1"), MESSAGES);
+		Files.delete(outputFile.toPath());
+		assertTrue(cache.getMessages("key1") == null);
+		
+		// Corrupt entries are ignored
+		writeStringToFile(cacheDir.resolve_valid("key3.json"), "{ \"messages\": [ ");
+		assertTrue(cache.getMessages("key3") == null);
+		
+		// Least recently used entries are removed
+		cache.clear();
+		cache.putMessages("key1", MESSAGES, new ArrayList2<>());
+		cache.putMessages("key2", MESSAGES, new ArrayList2<>());
+		setLastUsedTime(cacheDir, "key1", 1000);
+		setLastUsedTime(cacheDir, "key2", 2000);
+		cache.putMessages("key3", MESSAGES, new ArrayList2<>());
+		assertTrue(cache.getMessages("key1") == null);
+		assertAreEqual(cache.getMessages("key2"), MESSAGES);
+		assertAreEqual(cache.getMessages("key3"), MESSAGES);
+	}
+	
+	protected static void setLastUsedTime(Location cacheDir, String key, long time) throws Exception {
+		Files.setLastModifiedTime(cacheDir.resolve_valid(key + ".json").toPath(), FileTime.fromMillis(time));
+	}
+	
+}
\ No newline at end of file
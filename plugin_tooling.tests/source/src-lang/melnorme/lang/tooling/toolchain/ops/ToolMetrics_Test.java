@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.toolchain.ops;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+import static melnorme.utilbox.core.CoreUtil.list;
+
+import java.io.File;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.lang.tooling.toolchain.ops.ToolMetrics.Invocation;
+import melnorme.lang.tooling.toolchain.ops.ToolMetrics.InvocationListener;
+import melnorme.lang.tooling.toolchain.ops.ToolMetrics.ToolStats;
+import melnorme.lang.utils.concurrency.TimeoutCancelMonitor;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.concurrency.ICancelMonitor.CancelMonitor;
+import melnorme.utilbox.concurrency.ICancelMonitor.NullCancelMonitor;
+import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
+import melnorme.utilbox.process.ExternalProcessNotifyingHelper;
+import melnorme.utilbox.process.ExternalProcessNotifyingHelper.IProcessOutputListener;
+
+public class ToolMetrics_Test extends CommonToolingTest {
+	
+	protected static ToolMetrics createMetrics() {
+		ToolMetrics metrics = new ToolMetrics();
+		metrics.addSubcommandTool("go");
+		metrics.addSubcommandTool("guru", "-scope", "-tags");
+		metrics.addSubcommandTool("gocode", "-sock", "-addr", "-f", "-in");
+		metrics.addSubcommandTool("gofmt");
+		return metrics;
+	}
+	
+	@Test
+	public void test() throws Exception { test$(); }
+	public void test$() throws Exception {
+		ToolMetrics metrics = createMetrics();
+		
+		assertAreEqual(metrics.getToolName(list("/usr/local/go/bin/go", "build", "-v")), "go build");
+		assertAreEqual(metrics.getToolName(list("C:\\Go\\bin\\go.exe", "env")), "go env");
+		assertAreEqual(metrics.getToolName(list("guru", "-json", "describe", "a.go:#10")), "guru describe");
+		assertAreEqual(metrics.getToolName(list("guru", "-scope", "foo", "referrers", "a.go:#10")), 
+			"guru referrers");
+		assertAreEqual(metrics.getToolName(list("gocode", "-sock=tcp", "-f", "csv", "autocomplete")), 
+			"gocode autocomplete");
+		assertAreEqual(metrics.getToolName(list("gocode", "-s")), "gocode");
+		assertAreEqual(metrics.getToolName(list("gofmt", "--", "-x.go")), "gofmt -x.go");
+		// Tools not added as sub-command tools are recorded by executable name only
+		assertAreEqual(metrics.getToolName(list("gometalinter", "./...")), "gometalinter");
+		assertAreEqual(metrics.getToolName(list("godef", "-f", "a.go")), "godef");
+		assertAreEqual(metrics.getToolName(list()), "");
+		
+		Invocation invocation = metrics.startInvocation(new ProcessBuilder("go", "build"));
+		invocation.processStarted();
+		invocation.completed(0, 100);
+		invocation = metrics.startInvocation("go build");
+		invocation.processStarted();
+		invocation.completed(2, 300);
+		metrics.startInvocation("go build").cancelled();
+		metrics.startInvocation("gocode").timedOut();
+		metrics.startInvocation("gocode").failed();
+		
+		ToolStats stats = metrics.getToolStats("go build");
+		assertTrue(stats.getInvocationCount() == 3);
+		assertTrue(stats.getExitCodeCount(0) == 1);
+		assertTrue(stats.getExitCodeCount(2) == 1);
+		assertTrue(stats.getExitCodeCount(1) == 0);
+		assertTrue(stats.getCancellationCount() == 1);
+		assertTrue(stats.getSpawnTime().getTotalCount() == 2);
+		assertTrue(stats.getWallTime().getTotalCount() == 3);
+		assertTrue(stats.getOutputBytes().getMaxValue() == 300);
+		
+		JsonObject json = new JsonParser().parse(metrics.toJson()).getAsJsonObject();
+		JsonObject goBuild = json.getAsJsonObject("go build");
+		assertTrue(goBuild.get("invocations").getAsLong() == 3);
+		assertTrue(goBuild.getAsJsonObject("exitCodes").get("2").getAsLong() == 1);
+		assertTrue(goBuild.getAsJsonObject("outputBytes").get("count").getAsLong() == 2);
+		assertTrue(goBuild.getAsJsonObject("outputBytes").get("max").getAsLong() == 300);
+		JsonObject gocode = json.getAsJsonObject("gocode");
+		assertTrue(gocode.get("timeouts").getAsLong() == 1);
+		assertTrue(gocode.get("failures").getAsLong() == 1);
+		
+		String summary = metrics.toSummaryText();
+		assertTrue(summary.contains("go build"));
+		assertTrue(summary.contains("gocode"));
+		
+		metrics.clear();
+		assertAreEqual(metrics.toJson(), "{}");
+		
+		// Only the first completion is recorded
+		invocation = metrics.startInvocation("go build");
+		invocation.completed(0, 100);
+		invocation.cancelled();
+		stats = metrics.getToolStats("go build");
+		assertTrue(stats.getInvocationCount() == 1);
+		assertTrue(stats.getCancellationCount() == 0);
+		assertTrue(stats.getWallTime().getTotalCount() == 1);
+	}
+	
+	@Test
+	public void testInvocationListener() throws Exception { testInvocationListener$(); }
+	public void testInvocationListener$() throws Exception {
+		ToolMetrics metrics = createMetrics();
+		
+		CancelMonitor cancelMonitor = new CancelMonitor();
+		InvocationListener listener = metrics.startInvocation(new ProcessBuilder("go", "build"), cancelMonitor);
+		cancelMonitor.cancel();
+		listener.notifyProcessTerminatedAndRead(1);
+		assertTrue(metrics.getToolStats("go build").getCancellationCount() == 1);
+		assertTrue(metrics.getToolStats("go build").getExitCodeCount(1) == 0);
+		
+		listener = metrics.startInvocation(new ProcessBuilder("gocode"), new TimeoutCancelMonitor(-1));
+		listener.notifyProcessTerminatedAndRead(1);
+		assertTrue(metrics.getToolStats("gocode").getTimeoutCount() == 1);
+		
+		// A process whose result is polled while its output is streamed, as build operations do.
+		String javaPath = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder pb = new ProcessBuilder(javaPath, "-version");
+		listener = metrics.startInvocation(pb, new NullCancelMonitor());
+		
+		ArrayList2<IProcessOutputListener> listeners = ArrayList2.create(listener);
+		ExternalProcessNotifyingHelper processHelper = new ExternalProcessNotifyingHelper(pb.start(), true, 
+			new NullCancelMonitor(), listeners, (status) -> { });
+		listener.getInvocation().processStarted();
+		
+		ExternalProcessResult result;
+		while(true) {
+			try {
+				result = processHelper.awaitTerminationAndResult(10, false);
+				break;
+			} catch(TimeoutException e) {
+				continue;
+			}
+		}
+		
+		ToolStats stats = metrics.getToolStats("java");
+		assertTrue(stats.getInvocationCount() == 1);
+		assertTrue(stats.getExitCodeCount(result.exitValue) == 1);
+		assertTrue(stats.getSpawnTime().getTotalCount() == 1);
+		assertTrue(stats.getWallTime().getTotalCount() == 1);
+		long outputBytes = result.getStdOutBytes().getCount() + result.getStdErrBytes().getCount();
+		assertTrue(outputBytes > 0);
+		assertTrue(stats.getOutputBytes().getMaxValue() >= outputBytes * 0.9);
+	}
+	
+}
\ No newline at end of file
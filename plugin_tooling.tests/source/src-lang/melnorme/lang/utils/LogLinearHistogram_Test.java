@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.utils;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+
+public class LogLinearHistogram_Test extends CommonToolingTest {
+	
+	@Test
+	public void test() throws Exception { test$(); }
+	public void test$() throws Exception {
+		LogLinearHistogram histogram = new LogLinearHistogram();
+		assertTrue(histogram.getTotalCount() == 0);
+		assertTrue(histogram.getMinValue() == 0);
+		assertTrue(histogram.getValueAtPercentile(50) == 0);
+		
+		// Small values are exact
+		for (int value = 1; value <= 10; value++) {
+			histogram.recordValue(value);
+		}
+		assertTrue(histogram.getTotalCount() == 10);
+		assertTrue(histogram.getMinValue() == 1);
+		assertTrue(histogram.getMaxValue() == 10);
+		assertTrue(histogram.getMean() == 5.5);
+		assertTrue(histogram.getValueAtPercentile(50) == 5);
+		assertTrue(histogram.getValueAtPercentile(90) == 9);
+		assertTrue(histogram.getValueAtPercentile(100) == 10);
+		assertTrue(histogram.getValueAtPercentile(0) == 1);
+		
+		test_bucketBoundaries();
+		test_relativeError();
+	}
+	
+	protected void test_bucketBoundaries() {
+		long previousHighest = -1;
+		for (int ix = 0; ix < LogLinearHistogram.BUCKET_COUNT; ix++) {
+			long highest = LogLinearHistogram.getBucketHighestValue(ix);
+			assertTrue(highest > previousHighest);
+			assertTrue(LogLinearHistogram.getBucketIndex(previousHighest + 1) == ix);
+			assertTrue(LogLinearHistogram.getBucketIndex(highest) == ix);
+			previousHighest = highest;
+		}
+		assertTrue(previousHighest == Long.MAX_VALUE);
+	}
+	
+	protected void test_relativeError() {
+		LogLinearHistogram histogram = new LogLinearHistogram();
+		for (long value = 1; value <= 100_000; value++) {
+			histogram.recordValue(value * 1000);
+		}
+		checkWithinError(histogram.getValueAtPercentile(50), 50_000_000);
+		checkWithinError(histogram.getValueAtPercentile(99), 99_000_000);
+		assertTrue(histogram.getValueAtPercentile(100) == 100_000_000);
+		assertTrue(histogram.getMinValue() == 1000);
+	}
+	
+	protected void checkWithinError(long value, long expected) {
+		assertTrue(value >= expected);
+		assertTrue(value - expected <= expected / LogLinearHistogram.SUB_BUCKET_COUNT);
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.utils;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import melnorme.lang.tooling.parser.SourceLinesInfo;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.tests.CommonTest;
+import melnorme.utilbox.tests.TestsWorkingDir;
+
+public class SourceLinesInfoCache_Test extends CommonTest {
+	
+	@Test
+	public void test() throws Exception { test$(); }
+	public void test$() throws Exception {
+		Location dir = workingDirLoc("SourceLinesInfoCache_Test");
+		TestsWorkingDir.deleteDir(dir);
+		dir.toFile().mkdirs();
+		Location fileA = dir.resolve_valid("a.go");
+		Location fileB = dir.resolve_valid("b.go");
+		Location fileC = dir.resolve_valid("c.go");
+		writeStringToFile(fileA, "12345\n12345");
+		writeStringToFile(fileB, "1\n2\n3\n");
+		writeStringToFile(fileC, "123456789");
+		
+		SourceLinesInfoCache cache = new SourceLinesInfoCache(20);
+		
+		SourceLinesInfo linesInfoA = cache.getLinesInfo(fileA);
+		assertEquals(linesInfoA.getNumberOfLines(), 2);
+		assertEquals(linesInfoA.getOffsetForLine(1), 6);
+		assertTrue(cache.getLinesInfo(fileA) == linesInfoA);
+		
+		// Modified file is read again
+		writeStringToFile(fileA, "1\n123\n1234567");
+		SourceLinesInfo linesInfoA2 = cache.getLinesInfo(fileA);
+		assertTrue(linesInfoA2 != linesInfoA);
+		assertEquals(linesInfoA2.getNumberOfLines(), 3);
+		assertEquals(linesInfoA2.getOffsetForLine(2), 6);
+		assertEquals(cache.getTotalLength(), 13L);
+		
+		SourceLinesInfo linesInfoB = cache.getLinesInfo(fileB);
+		assertEquals(cache.getEntryCount(), 2);
+		assertEquals(cache.getTotalLength(), 19L);
+		
+		// Least recently used entry (a.go) is removed when over the size limit
+		cache.getLinesInfo(fileC);
+		assertEquals(cache.getEntryCount(), 2);
+		assertEquals(cache.getTotalLength(), 15L);
+		assertTrue(cache.getLinesInfo(fileB) == linesInfoB);
+		assertTrue(cache.getLinesInfo(fileA) != linesInfoA2);
+		
+		// Entry larger than the limit is still kept, until another file is read
+		SourceLinesInfoCache smallCache = new SourceLinesInfoCache(5);
+		SourceLinesInfo linesInfoC = smallCache.getLinesInfo(fileC);
+		assertTrue(smallCache.getLinesInfo(fileC) == linesInfoC);
+		smallCache.getLinesInfo(fileB);
+		assertEquals(smallCache.getEntryCount(), 1);
+		
+		verifyThrows(() -> cache.getLinesInfo(dir.resolve_valid("missing.go")), IOException.class);
+		assertEquals(cache.getEntryCount(), 2);
+	}
+	
+}
\ No newline at end of file
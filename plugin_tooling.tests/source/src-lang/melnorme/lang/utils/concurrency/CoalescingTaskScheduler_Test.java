@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.utils.concurrency;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.utilbox.concurrency.CancellableTask;
+import melnorme.utilbox.concurrency.ThreadPoolExecutorExt;
+import melnorme.utilbox.misc.MiscUtil;
+
+public class CoalescingTaskScheduler_Test extends CommonToolingTest {
+	
+	protected ThreadPoolExecutorExt executor;
+	protected CoalescingTaskScheduler<String> scheduler;
+	
+	protected final AtomicInteger runningCount = new AtomicInteger();
+	protected final AtomicInteger maxRunningCount = new AtomicInteger();
+	
+	protected void init(int quietPeriodMillis, int maxLatencyMillis) {
+		executor = new ThreadPoolExecutorExt(0, Integer.MAX_VALUE, new SynchronousQueue<Runnable>(),
+			getClass().getSimpleName(), (throwable) -> throwable.printStackTrace());
+		scheduler = new CoalescingTaskScheduler<>(executor, quietPeriodMillis, maxLatencyMillis);
+		owned.add(() -> {
+			scheduler.shutdown();
+			executor.shutdownNow();
+		});
+		runningCount.set(0);
+		maxRunningCount.set(0);
+	}
+	
+	public class FixtureTask extends CancellableTask {
+		
+		protected final CountDownLatch finishLatch;
+		protected final CountDownLatch ranLatch = new CountDownLatch(1);
+		
+		public FixtureTask() {
+			this(new CountDownLatch(0));
+		}
+		
+		public FixtureTask(CountDownLatch finishLatch) {
+			this.finishLatch = finishLatch;
+		}
+		
+		@Override
+		protected void doRun() {
+			int running = runningCount.incrementAndGet();
+			maxRunningCount.accumulateAndGet(running, Math::max);
+			try {
+				finishLatch.await();
+			} catch(InterruptedException e) {
+				// Continue
+			} finally {
+				runningCount.decrementAndGet();
+				ranLatch.countDown();
+			}
+		}
+		
+		public boolean hasRun() {
+			return ranLatch.getCount() == 0;
+		}
+		
+		public void awaitRun() throws InterruptedException {
+			assertTrue(ranLatch.await(10, TimeUnit.SECONDS));
+		}
+		
+	}
+	
+	protected void awaitIdle(String key) {
+		while(scheduler.hasTasks(key)) {
+			MiscUtil.sleepUnchecked(5);
+		}
+	}
+	
+	protected void checkCounts(long submitted, long coalesced, long executed) {
+		assertTrue(scheduler.getSubmittedCount() == submitted);
+		assertTrue(scheduler.getCoalescedCount() == coalesced);
+		assertTrue(scheduler.getExecutedCount() == executed);
+	}
+	
+	@Test
+	public void testCoalescing() throws Exception { testCoalescing$(); }
+	public void testCoalescing$() throws Exception {
+		init(200, 10_000);
+		
+		FixtureTask[] tasks = new FixtureTask[5];
+		for (int ix = 0; ix < tasks.length; ix++) {
+			tasks[ix] = new FixtureTask();
+			scheduler.submit("A", tasks[ix]);
+		}
+		tasks[4].awaitRun();
+		awaitIdle("A");
+		
+		for (int ix = 0; ix < 4; ix++) {
+			assertTrue(tasks[ix].isCancelled() && !tasks[ix].hasRun());
+		}
+		checkCounts(5, 4, 1);
+		
+		// Different keys are not coalesced
+		FixtureTask taskA = new FixtureTask();
+		FixtureTask taskB = new FixtureTask();
+		scheduler.submit("A", taskA);
+		scheduler.submit("B", taskB);
+		taskA.awaitRun();
+		taskB.awaitRun();
+		awaitIdle("A");
+		awaitIdle("B");
+		checkCounts(7, 4, 3);
+	}
+	
+	@Test
+	public void testMaxLatency() throws Exception { testMaxLatency$(); }
+	public void testMaxLatency$() throws Exception {
+		init(10_000, 100);
+		
+		FixtureTask task = new FixtureTask();
+		scheduler.submit("A", task);
+		// Even though the quiet period never elapses, the task runs after the max latency.
+		task.awaitRun();
+		awaitIdle("A");
+		checkCounts(1, 0, 1);
+	}
+	
+	@Test
+	public void testOneInFlight() throws Exception { testOneInFlight$(); }
+	public void testOneInFlight$() throws Exception {
+		init(0, 0);
+		
+		CountDownLatch finishLatch = new CountDownLatch(1);
+		FixtureTask task1 = new FixtureTask(finishLatch);
+		scheduler.submit("A", task1);
+		while(runningCount.get() == 0) {
+			MiscUtil.sleepUnchecked(5);
+		}
+		
+		FixtureTask task2 = new FixtureTask();
+		FixtureTask task3 = new FixtureTask();
+		scheduler.submit("A", task2);
+		scheduler.submit("A", task3);
+		
+		MiscUtil.sleepUnchecked(50);
+		assertTrue(!task3.hasRun());
+		checkCounts(3, 1, 1);
+		
+		finishLatch.countDown();
+		task3.awaitRun();
+		awaitIdle("A");
+		
+		assertTrue(task2.isCancelled() && !task2.hasRun());
+		assertTrue(maxRunningCount.get() == 1);
+		checkCounts(3, 1, 2);
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.utils.concurrency;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.lang.utils.concurrency.ConcurrentlyDerivedData.DataUpdateTask;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.concurrency.OperationCancellation;
+
+public class ConcurrentlyDerivedData_Test extends CommonToolingTest {
+	
+	public static class TestDerivedData extends ConcurrentlyDerivedData<Integer, TestDerivedData> {
+		
+		protected final AtomicInteger publishedCount = new AtomicInteger();
+		protected final AtomicInteger notifiedCount = new AtomicInteger();
+		
+		public TestDerivedData() {
+			connectedListeners.addListener((derivedData) -> notifiedCount.incrementAndGet());
+		}
+		
+		@Override
+		protected void doHandleDataChanged() {
+			publishedCount.incrementAndGet();
+			super.doHandleDataChanged();
+		}
+		
+	}
+	
+	public static class TestUpdateTask extends DataUpdateTask<Integer> {
+		
+		protected final Integer newData;
+		
+		public TestUpdateTask(TestDerivedData derivedData, Integer newData) {
+			super(derivedData, "TestUpdateTask");
+			this.newData = newData;
+		}
+		
+		@Override
+		protected Integer createNewData() throws OperationCancellation {
+			if(newData == null) {
+				throw new OperationCancellation();
+			}
+			return newData;
+		}
+		
+		@Override
+		protected void handleRuntimeException(RuntimeException e) {
+			throw e;
+		}
+		
+	}
+	
+	@Test
+	public void testBasic() throws Exception { testBasic$(); }
+	public void testBasic$() throws Exception {
+		TestDerivedData derivedData = new TestDerivedData();
+		assertTrue(derivedData.getStoredData() == null && !derivedData.isStale());
+		assertAreEqual(derivedData.awaitUpdatedData(), null);
+		
+		TestUpdateTask task1 = new TestUpdateTask(derivedData, 1);
+		derivedData.setUpdateTask(task1);
+		assertTrue(derivedData.isStale() && derivedData.isStale(null));
+		verifyThrows(() -> derivedData.getSupplierForNextUpdate().awaitResult(10, TimeUnit.MILLISECONDS),
+			TimeoutException.class);
+		
+		// Newer task cancels previous one
+		TestUpdateTask task2 = new TestUpdateTask(derivedData, 2);
+		derivedData.setUpdateTask(task2);
+		assertTrue(task1.isCancelled());
+		derivedData.setNewData(1, task1);
+		assertTrue(derivedData.isStale() && derivedData.getStoredData() == null);
+		
+		task2.run();
+		assertTrue(!derivedData.isStale() && !derivedData.isStale(2) && derivedData.isStale(1));
+		assertAreEqual(derivedData.getStoredData(), 2);
+		assertAreEqual(derivedData.awaitUpdatedData(), 2);
+		assertAreEqual(derivedData.notifiedCount.get(), 1);
+		
+		// Cancelled update: data is not changed, no notification
+		TestUpdateTask task3 = new TestUpdateTask(derivedData, null);
+		derivedData.setUpdateTask(task3);
+		task3.run();
+		assertTrue(!derivedData.isStale());
+		assertAreEqual(derivedData.awaitUpdatedData(), 2);
+		assertAreEqual(derivedData.notifiedCount.get(), 1);
+		
+		// Readers don't block while the lock is held
+		derivedData.setUpdateTask(new TestUpdateTask(derivedData, 4));
+		AtomicReference<Boolean> readerResult = new AtomicReference<>();
+		derivedData.runSynchronized(() -> {
+			Thread reader = new Thread(() -> readerResult.set(derivedData.isStale(derivedData.getStoredData())));
+			reader.start();
+			try {
+				reader.join(10_000);
+			} catch(InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		assertAreEqual(readerResult.get(), true);
+	}
+	
+	protected static final int WRITERS = 4;
+	protected static final int READERS = 4;
+	protected static final int WAITERS = 2;
+	protected static final int UPDATES_PER_WRITER = 2000;
+	
+	@Test
+	public void testConcurrentAccess() throws Exception { testConcurrentAccess$(); }
+	public void testConcurrentAccess$() throws Exception {
+		TestDerivedData derivedData = new TestDerivedData();
+		ConcurrentHashMap<Integer, Boolean> producedData = new ConcurrentHashMap<>();
+		AtomicBoolean writersDone = new AtomicBoolean(false);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		
+		ArrayList2<Thread> writers = new ArrayList2<>();
+		for (int ix = 0; ix < WRITERS; ix++) {
+			int writerId = ix;
+			writers.add(newThread(failure, () -> {
+				for (int updateIx = 0; updateIx < UPDATES_PER_WRITER; updateIx++) {
+					Integer newData = writerId * UPDATES_PER_WRITER + updateIx;
+					producedData.put(newData, true);
+					// Some of the updates are cancelled
+					TestUpdateTask task = new TestUpdateTask(derivedData, updateIx % 7 == 0 ? null : newData);
+					derivedData.setUpdateTask(task);
+					task.run();
+				}
+			}));
+		}
+		
+		ArrayList2<Thread> readers = new ArrayList2<>();
+		for (int ix = 0; ix < READERS; ix++) {
+			readers.add(newThread(failure, () -> {
+				while(!writersDone.get()) {
+					Integer data = derivedData.getStoredData();
+					assertTrue(data == null || producedData.containsKey(data));
+					derivedData.isStale(data);
+				}
+			}));
+		}
+		
+		for (int ix = 0; ix < WAITERS; ix++) {
+			readers.add(newThread(failure, () -> {
+				while(!writersDone.get()) {
+					int published = derivedData.publishedCount.get();
+					try {
+						derivedData.awaitUpdatedData();
+					} catch(InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+					// All updates published before waiting have had their listeners notified
+					assertTrue(derivedData.notifiedCount.get() >= published);
+				}
+			}));
+		}
+		
+		for (Thread thread : readers) {
+			thread.start();
+		}
+		for (Thread thread : writers) {
+			thread.start();
+		}
+		for (Thread thread : writers) {
+			thread.join(60_000);
+			assertTrue(!thread.isAlive());
+		}
+		writersDone.set(true);
+		for (Thread thread : readers) {
+			thread.join(60_000);
+			assertTrue(!thread.isAlive());
+		}
+		if(failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+		
+		assertTrue(!derivedData.isStale());
+		assertAreEqual(derivedData.getSupplierForNextUpdate().awaitResult(10, TimeUnit.SECONDS),
+			derivedData.getStoredData());
+		assertAreEqual(derivedData.notifiedCount.get(), derivedData.publishedCount.get());
+	}
+	
+	protected static Thread newThread(AtomicReference<Throwable> failure, Runnable runnable) {
+		return new Thread(() -> {
+			try {
+				runnable.run();
+			} catch(Throwable e) {
+				failure.compareAndSet(null, e);
+			}
+		});
+	}
+	
+}
\ No newline at end of file
@@ -24,7 +24,9 @@ import org.junit.Test;
 
 import melnorme.lang.tooling.common.SourceLineColumnRange;
 import melnorme.lang.tooling.common.ToolSourceMessage;
+import melnorme.lang.tooling.toolchain.ops.BuildOutputStreamParser;
 import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.StringUtil;
 import melnorme.utilbox.status.Severity;
 
 
@@ -109,6 +111,28 @@ public class GoBuildOutputProcessorTest extends CommonGoToolingTest {
 			throws CommonException {
 		ArrayList<ToolSourceMessage> buildMessages = buildProcessor.parseOutput(stderr);
 		assertEquals(buildMessages, expected);
+		
+		// Test incremental parsing, with output split in chunks of different sizes
+		byte[] output = stderr.getBytes(StringUtil.UTF8);
+		for (int chunkSize : new int[] { 1, 3, 64, output.length + 1 }) {
+			testStreamParse(buildProcessor, output, chunkSize, expected);
+		}
+	}
+	
+	protected void testStreamParse(GoBuildOutputProcessor buildProcessor, byte[] output, int chunkSize, 
+			List<?> expected) {
+		BuildOutputStreamParser streamParser = new BuildOutputStreamParser(buildProcessor);
+		ArrayList<ToolSourceMessage> buildMessages = new ArrayList<>();
+		
+		for (int offset = 0; offset < output.length; offset += chunkSize) {
+			int readCount = Math.min(chunkSize, output.length - offset);
+			streamParser.notifyStdErrListeners(output, offset, readCount);
+			buildMessages.addAll(streamParser.takeMessages());
+		}
+		streamParser.notifyProcessTerminatedAndRead(0);
+		buildMessages.addAll(streamParser.takeMessages());
+		
+		assertEquals(buildMessages, expected);
 	}
 	
 	protected String readTemplatedFile(Path filePath) {
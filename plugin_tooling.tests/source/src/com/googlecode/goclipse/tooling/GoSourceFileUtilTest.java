@@ -14,6 +14,7 @@ import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 
 import org.junit.Test;
 
+import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.tests.CommonTest;
 
@@ -42,4 +43,32 @@ public class GoSourceFileUtilTest extends CommonTest {
 		assertTrue(pkgNameStart != -1 && pkgNameStart == expected);
 	}
 	
+	@Test
+	public void testFindImports() throws Exception { testFindImports$(); }
+	public void testFindImports$() throws Exception {
+		assertAreEqual(GoSourceFileUtil.findImports(""), new ArrayList2<>());
+		assertAreEqual(GoSourceFileUtil.findImports("package xxx"), new ArrayList2<>());
+		assertAreEqual(GoSourceFileUtil.findImports("package xxx\nimport \"fmt\""), new ArrayList2<>("fmt"));
+		assertAreEqual(GoSourceFileUtil.findImports("package xxx; import \"fmt\"; import `os`"),
+			new ArrayList2<>("fmt", "os"));
+		
+		assertAreEqual(GoSourceFileUtil.findImports(
+			"// Doc\n/* package yyy */ package xxx // comment\n\n" +
+			"import (\n" +
+			"	\"fmt\" // comment\n" +
+			"	/* \"commented\" */\n" +
+			"	str \"strings\"\n" +
+			"	. \"math\"; _ \"net/http/pprof\"\n" +
+			")\n" +
+			"import \"github.com/x/y\"\n" +
+			"func main() {}\n" +
+			"import \"after_decl\""
+		), new ArrayList2<>("fmt", "strings", "math", "net/http/pprof", "github.com/x/y"));
+		
+		// Invalid syntax
+		assertAreEqual(GoSourceFileUtil.findImports("package xxx\nimport ( \"fmt\" 123 \"os\" )"),
+			new ArrayList2<>("fmt"));
+		assertAreEqual(GoSourceFileUtil.findImports("import \"fmt\""), new ArrayList2<>());
+	}
+	
 }
\ No newline at end of file
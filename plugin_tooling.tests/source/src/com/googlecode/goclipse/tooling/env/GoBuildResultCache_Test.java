@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.env;
+
+import static com.googlecode.goclipse.tooling.env.GoPackageIndex_Test.packages;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import com.googlecode.goclipse.tooling.CommonGoToolingTest;
+import com.googlecode.goclipse.tooling.GoPackageName;
+
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.MiscUtil;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.tests.TestsWorkingDir;
+
+public class GoBuildResultCache_Test extends CommonGoToolingTest {
+	
+	protected static final Location WORKDIR = TESTS_WORKDIR.resolve_valid("GoBuildResultCache_Test");
+	protected static final Location GOROOT = WORKDIR.resolve_valid("goroot");
+	protected static final Location GOPATH_1 = WORKDIR.resolve_valid("gopath1");
+	protected static final Location GOPATH_2 = WORKDIR.resolve_valid("gopath2");
+	protected static final Location SRC_ROOT = GOPATH_1.resolve_valid("src");
+	
+	protected static final GoEnvironment GO_ENV = new GoEnvironment(new GoRoot(GOROOT.toPathString()),
+		GOPATH_1.toPathString() + File.pathSeparator + GOPATH_2.toPathString());
+	
+	protected static void writeFile(Location dir, String relPath, String contents) throws IOException {
+		Location file = dir.resolve_valid(relPath);
+		Files.createDirectories(file.toPath().getParent());
+		Files.write(file.toPath(), contents.getBytes(StringUtil.UTF8));
+	}
+	
+	protected static void writeGoFile(String relPath, String source) throws IOException {
+		writeFile(SRC_ROOT, relPath, source);
+	}
+	
+	protected final GoImportGraph importGraph = new GoImportGraph(SRC_ROOT);
+	protected final HashMap<Location, GoImportGraph> goPathImportGraphs = new HashMap<>();
+	
+	protected String key(String goPackage, String... command) throws Exception {
+		ProcessBuilder pb = new ProcessBuilder(command);
+		pb.environment().put("GOPATH", GO_ENV.getGoPathString());
+		return GoBuildResultCache.computeKey(GO_ENV, importGraph, 
+			(sourceRoot) -> goPathImportGraphs.computeIfAbsent(sourceRoot, GoImportGraph::new), 
+			packages(goPackage), pb);
+	}
+	
+	@Test
+	public void testComputeKey() throws Exception { testComputeKey$(); }
+	public void testComputeKey$() throws Exception {
+		TestsWorkingDir.deleteDir(WORKDIR);
+		writeFile(GOROOT, "src/fmt/print.go", "package fmt");
+		writeGoFile("proj/base/base.go", "package base\nimport \"fmt\"");
+		writeGoFile("proj/top/top.go", "package top\nimport \"proj/base\"");
+		writeGoFile("proj/other/other.go", "package other");
+		
+		String key = key("proj/top", "go", "install", "proj/top");
+		assertAreEqual(key, key("proj/top", "go", "install", "proj/top"));
+		assertTrue(!key.equals(key("proj/top", "go", "install", "-v", "proj/top")));
+		
+		// Changes to unrelated packages, or ignored files, don't change the key
+		writeGoFile("proj/other/other.go", "package other // changed");
+		writeGoFile("proj/top/_ignored.go", "package top");
+		assertAreEqual(key("proj/top", "go", "install", "proj/top"), key);
+		
+		// Changes to the package files, or to the packages they import
+		writeGoFile("proj/top/top_cgo.c", "int x;");
+		String key2 = key("proj/top", "go", "install", "proj/top");
+		assertTrue(!key2.equals(key));
+		writeGoFile("proj/base/base.go", "package base\nimport \"fmt\" // changed");
+		String key3 = key("proj/top", "go", "install", "proj/top");
+		assertTrue(!key3.equals(key2));
+		
+		// Changes to the standard library packages don't change the key, but to the Go version do
+		writeFile(GOROOT, "src/fmt/print.go", "package fmt // changed");
+		assertAreEqual(key("proj/top", "go", "install", "proj/top"), key3);
+		writeFile(GOROOT, "VERSION", "go1.6");
+		String key4 = key("proj/top", "go", "install", "proj/top");
+		assertTrue(!key4.equals(key3));
+		
+		// Packages imported from other GOPATH entries, and from vendor directories
+		writeGoFile("proj/top/top.go", "package top\nimport ( \"proj/base\"; \"lib\"; \"vlib\" )");
+		writeFile(GOPATH_2, "src/lib/lib.go", "package lib\nimport \"../lib2\"");
+		writeFile(GOPATH_2, "src/lib2/lib2.go", "package lib2");
+		writeGoFile("proj/vendor/vlib/vlib.go", "package vlib");
+		String key5 = key("proj/top", "go", "install", "proj/top");
+		assertTrue(!key5.equals(key4));
+		writeFile(GOPATH_2, "src/lib2/lib2.go", "package lib2 // changed");
+		String key6 = key("proj/top", "go", "install", "proj/top");
+		assertTrue(!key6.equals(key5));
+		// The import graphs of the other GOPATH entries are kept between keys
+		GoImportGraph goPath2Graph = goPathImportGraphs.get(GOPATH_2.resolve_valid("src"));
+		assertTrue(goPath2Graph != null && goPathImportGraphs.size() == 1);
+		assertTrue(goPath2Graph.packageImports.containsKey(new GoPackageName("lib2")));
+		writeGoFile("proj/vendor/vlib/vlib.go", "package vlib // changed");
+		String key7 = key("proj/top", "go", "install", "proj/top");
+		assertTrue(!key7.equals(key6));
+		
+		// The first GOPATH entry with the package is used
+		writeGoFile("lib/lib.go", "package lib");
+		String key8 = key("proj/top", "go", "install", "proj/top");
+		assertTrue(!key8.equals(key7));
+		writeFile(GOPATH_2, "src/lib/lib.go", "package lib // changed");
+		writeFile(GOPATH_2, "src/lib2/lib2.go", "package lib2 // changed again");
+		assertAreEqual(key("proj/top", "go", "install", "proj/top"), key8);
+		
+		// Imports that can't be resolved: results are not cached
+		writeGoFile("proj/top/top.go", "package top\nimport \"missing\"");
+		assertAreEqual(key("proj/top", "go", "install", "proj/top"), null);
+	}
+	
+	@Test
+	public void testOutputFiles() throws Exception { testOutputFiles$(); }
+	public void testOutputFiles$() throws Exception {
+		Location binFolder = GOPATH_1.resolve_valid("bin");
+		Location pkgFolder = GOPATH_1.resolve_valid("pkg/linux_amd64");
+		assertAreEqual(GoBuildResultCache.getOutputFiles(binFolder, pkgFolder, packages("proj/top")), 
+			new ArrayList2<>(
+				binFolder.resolve_valid("top" + MiscUtil.getExecutableSuffix()),
+				binFolder.resolve_valid("top.test" + MiscUtil.getExecutableSuffix()),
+				pkgFolder.resolve_valid("proj/top.a")
+			));
+	}
+	
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.env;
+
+import static com.googlecode.goclipse.tooling.env.GoPackageIndex_Test.packages;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import com.googlecode.goclipse.tooling.CommonGoToolingTest;
+import com.googlecode.goclipse.tooling.GoPackageName;
+
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.tests.TestsWorkingDir;
+
+public class GoImportGraph_Test extends CommonGoToolingTest {
+	
+	protected static final Location SRC_ROOT = TESTS_WORKDIR.resolve_valid("GoImportGraph_Test/src");
+	
+	protected static void writeGoFile(String relPath, String source) throws IOException {
+		Location file = SRC_ROOT.resolve_valid(relPath);
+		Files.createDirectories(file.toPath().getParent());
+		Files.write(file.toPath(), source.getBytes(StringUtil.UTF8));
+	}
+	
+	protected static ArrayList2<GoPackageName> dependents(GoImportGraph graph, String goPackage,
+			ArrayList2<GoPackageName> candidates) {
+		return graph.findDependentPackages(packages(goPackage), candidates);
+	}
+	
+	@Test
+	public void test() throws Exception { test$(); }
+	public void test$() throws Exception {
+		TestsWorkingDir.deleteDir(SRC_ROOT.getParent());
+		writeGoFile("proj/base/base.go", "package base\nimport \"fmt\"");
+		writeGoFile("proj/mid/mid.go", "package mid\nimport \"proj/base\"");
+		writeGoFile("proj/mid/mid_test.go", "package mid\nimport (\"testing\"; \"proj/other\")");
+		writeGoFile("proj/top/top.go", "package top\nimport ( \"proj/mid\"; \"lib\" )");
+		writeGoFile("proj/other/other.go", "package other\nimport \"lib\"");
+		writeGoFile("proj/rel/rel.go", "package rel\nimport \"../base\"");
+		writeGoFile("proj/vendor/lib/lib.go", "package lib");
+		writeGoFile("lib/lib.go", "package lib");
+		
+		ArrayList2<GoPackageName> candidates = packages(
+			"proj/base", "proj/mid", "proj/top", "proj/other", "proj/rel", "proj/vendor/lib");
+		GoImportGraph graph = new GoImportGraph(SRC_ROOT);
+		
+		assertAreEqual(graph.getImports(new GoPackageName("proj/mid")), 
+			new ArrayList2<>("proj/base", "testing", "proj/other"));
+		
+		assertAreEqual(dependents(graph, "proj/top", candidates), packages("proj/top"));
+		assertAreEqual(dependents(graph, "proj/mid", candidates), packages("proj/mid", "proj/top"));
+		assertAreEqual(dependents(graph, "proj/base", candidates), 
+			packages("proj/base", "proj/mid", "proj/rel", "proj/top"));
+		// Test files imports
+		assertAreEqual(dependents(graph, "proj/other", candidates), packages("proj/other", "proj/mid", "proj/top"));
+		// Vendored package is used instead of the GOPATH one
+		assertAreEqual(dependents(graph, "proj/vendor/lib", candidates), 
+			packages("proj/vendor/lib", "proj/top", "proj/other", "proj/mid"));
+		// Only candidates are considered
+		assertAreEqual(dependents(graph, "proj/base", packages("proj/base", "proj/top")), packages("proj/base"));
+		
+		// Only the changed packages are checked for changes, the other ones use the cached imports
+		writeGoFile("proj/other/other.go", "package other\nimport \"proj/top\"");
+		assertAreEqual(dependents(graph, "proj/top", candidates), packages("proj/top"));
+		// Changed files are parsed again
+		assertAreEqual(dependents(graph, "proj/other", candidates), packages("proj/other", "proj/mid", "proj/top"));
+		assertAreEqual(dependents(graph, "proj/top", candidates), packages("proj/top", "proj/other", "proj/mid"));
+		writeGoFile("proj/base/base2.go", "package base\nimport \"proj/rel\"");
+		dependents(graph, "proj/base", candidates);
+		assertAreEqual(dependents(graph, "proj/rel", candidates), 
+			packages("proj/rel", "proj/base", "proj/mid", "proj/top", "proj/other"));
+		
+		Files.delete(SRC_ROOT.resolve_valid("proj/base/base2.go").toPath());
+		assertAreEqual(dependents(graph, "proj/rel", candidates), 
+			packages("proj/rel", "proj/base", "proj/mid", "proj/top", "proj/other"));
+		assertAreEqual(dependents(graph, "proj/base", candidates), 
+			packages("proj/base", "proj/mid", "proj/rel", "proj/top", "proj/other"));
+		assertAreEqual(dependents(graph, "proj/rel", candidates), packages("proj/rel"));
+	}
+	
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.env;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import com.googlecode.goclipse.tooling.CommonGoToolingTest;
+import com.googlecode.goclipse.tooling.GoPackageName;
+
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.tests.TestsWorkingDir;
+
+public class GoPackageIndex_Test extends CommonGoToolingTest {
+	
+	protected static final Location SRC_ROOT = TESTS_WORKDIR.resolve_valid("GoPackageIndex_Test/src");
+	
+	protected static void createFile(String relPath) throws IOException {
+		Location file = SRC_ROOT.resolve_valid(relPath);
+		Files.createDirectories(file.toPath().getParent());
+		Files.write(file.toPath(), "package x\n".getBytes(StringUtil.UTF8));
+	}
+	
+	protected static ArrayList2<GoPackageName> packages(String... packageNames) {
+		ArrayList2<GoPackageName> packages = new ArrayList2<>();
+		for (String packageName : packageNames) {
+			packages.add(new GoPackageName(packageName));
+		}
+		return packages;
+	}
+	
+	/** File system events are delivered asynchronously, so wait for the index to catch up. */
+	protected void checkPackages(GoPackageIndex index, String dir, ArrayList2<GoPackageName> expected)
+			throws InterruptedException {
+		Location directory = dir.isEmpty() ? SRC_ROOT : SRC_ROOT.resolve_valid(dir);
+		long deadline = System.currentTimeMillis() + 30_000;
+		while(!index.findPackages(directory).equals(expected) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertAreEqual(index.findPackages(directory), expected);
+	}
+	
+	@Test
+	public void test() throws Exception { test$(); }
+	public void test$() throws Exception {
+		TestsWorkingDir.deleteDir(SRC_ROOT.getParent());
+		
+		GoPackageIndex index = new GoPackageIndex(SRC_ROOT);
+		owned.add(index::dispose);
+		
+		// Source root doesn't exist yet
+		checkPackages(index, "", packages());
+		assertTrue(!index.isWatching());
+		
+		createFile("a/a.go");
+		createFile("a/b/c/c.go");
+		createFile("a/b/readme.txt");
+		createFile("_ignored/x/x.go");
+		createFile(".hidden/y.go");
+		createFile("d/_d.go");
+		createFile("e/dir.go/e.txt");
+		
+		checkPackages(index, "", packages("a", "a/b/c"));
+		assertTrue(index.isWatching());
+		checkPackages(index, "a/b", packages("a/b/c"));
+		checkPackages(index, "a/b/c", packages("a/b/c"));
+		checkPackages(index, "d", packages());
+		assertAreEqual(index.findPackages(SRC_ROOT.getParent()), packages());
+		
+		// Changes are picked up
+		createFile("a/b/b.go");
+		createFile("f/g/g.go");
+		checkPackages(index, "", packages("a", "a/b", "a/b/c", "f/g"));
+		checkPackages(index, "a/b", packages("a/b", "a/b/c"));
+		
+		Files.delete(SRC_ROOT.resolve_valid("a/a.go").toPath());
+		checkPackages(index, "", packages("a/b", "a/b/c", "f/g"));
+		
+		TestsWorkingDir.deleteDir(SRC_ROOT.resolve_valid("a/b"));
+		checkPackages(index, "", packages("f/g"));
+		
+		Files.move(SRC_ROOT.resolve_valid("f").toPath(), SRC_ROOT.resolve_valid("h").toPath());
+		checkPackages(index, "", packages("h/g"));
+		
+		// Source root removed and recreated
+		TestsWorkingDir.deleteDir(SRC_ROOT);
+		checkPackages(index, "", packages());
+		createFile("k/k.go");
+		checkPackages(index, "", packages("k"));
+		
+		// Without watching, directories are scanned on each request
+		index.dispose();
+		assertTrue(!index.isWatching());
+		createFile("k/l/l.go");
+		assertAreEqual(index.findPackages(SRC_ROOT), packages("k", "k/l"));
+		assertAreEqual(index.findPackages(SRC_ROOT.resolve_valid("k/l")), packages("k/l"));
+		
+		// Shared indexes can be used again after disposeAll
+		GoPackageIndex sharedIndex = GoPackageIndex.getIndex(SRC_ROOT);
+		assertAreEqual(sharedIndex.findPackages(SRC_ROOT), packages("k", "k/l"));
+		GoPackageIndex.disposeAll();
+		assertTrue(!sharedIndex.isWatching());
+		assertTrue(GoPackageIndex.getIndex(SRC_ROOT) != sharedIndex);
+		assertAreEqual(GoPackageIndex.getIndex(SRC_ROOT).findPackages(SRC_ROOT), packages("k", "k/l"));
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.gocode;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import org.junit.Test;
+
+import melnorme.lang.tooling.ToolCompletionProposal;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.tests.CommonTestExt;
+
+public class GocodeCompletionCache_Test extends CommonTestExt {
+	
+	protected static final String GOCODE_OUTPUT =
+		"func,,Print,,func(a ...interface{}) (n int, err error)\n" +
+		"func,,Printf,,func(format string, a ...interface{}) (n int, err error)\n" +
+		"func,,Println,,func(a ...interface{}) (n int, err error)\n" +
+		"type,,Stringer,,interface\n";
+	
+	protected ArrayList2<ToolCompletionProposal> parse(String source, int offset) throws Exception {
+		return new GocodeOutputParser2(offset, source) {
+			@Override
+			protected void logWarning(String message) {
+			}
+		}.parseOutput(GOCODE_OUTPUT);
+	}
+	
+	protected ArrayList2<ToolCompletionProposal> expected(String source, int offset, String prefix) throws Exception {
+		ArrayList2<ToolCompletionProposal> expected = new ArrayList2<>();
+		for (ToolCompletionProposal proposal : parse(source, offset)) {
+			if(proposal.getBaseReplaceString().startsWith(prefix)) {
+				expected.add(proposal);
+			}
+		}
+		return expected;
+	}
+	
+	@Test
+	public void test() throws Exception { test$(); }
+	public void test$() throws Exception {
+		GocodeCompletionCache cache = new GocodeCompletionCache();
+		
+		String source = "package a\nfunc f() {\n\tfmt.\n}";
+		int offset = source.indexOf("fmt.") + 4;
+		assertTrue(cache.getProposals("a.go", source, offset) == null);
+		cache.putProposals("a.go", source, offset, parse(source, offset));
+		
+		assertAreEqual(cache.getProposals("a.go", source, offset), parse(source, offset));
+		
+		// Extend the prefix
+		String source2 = source.substring(0, offset) + "Pri" + source.substring(offset);
+		int offset2 = offset + 3;
+		Indexable<ToolCompletionProposal> proposals = cache.getProposals("a.go", source2, offset2);
+		assertAreEqual(proposals, expected(source2, offset2, "Pri"));
+		assertTrue(proposals.size() == 3);
+		
+		String source3 = source.substring(0, offset) + "Printl" + source.substring(offset);
+		proposals = cache.getProposals("a.go", source3, offset + 6);
+		assertAreEqual(proposals, expected(source3, offset + 6, "Printl"));
+		assertTrue(proposals.size() == 1);
+		
+		// Not applicable: other file, change outside of prefix, prefix not extended
+		assertTrue(cache.getProposals("b.go", source2, offset2) == null);
+		assertTrue(cache.getProposals("a.go", "//" + source2, offset2 + 2) == null);
+		assertTrue(cache.getProposals("a.go", source2 + " ", offset2) == null);
+		assertTrue(cache.getProposals("a.go", source2, offset2 - 1) == null);
+		String source5 = source.substring(0, offset) + "Pr" + source.substring(offset);
+		assertTrue(cache.getProposals("a.go", source5, offset + 2).size() == 3);
+		assertTrue(cache.getProposals("a.go", source, offset - 1) == null);
+		
+		String source4 = source.substring(0, offset) + "Pri(" + source.substring(offset);
+		assertTrue(cache.getProposals("a.go", source4, offset + 4) == null);
+		
+		// Cache entry with a non-empty prefix: deleting back past it is a miss
+		cache.putProposals("a.go", source2, offset2, parse(source2, offset2));
+		assertTrue(cache.getProposals("a.go", source, offset) == null);
+		assertTrue(cache.getHitCount() == 4);
+		
+		cache.clear();
+		assertTrue(cache.getProposals("a.go", source, offset) == null);
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,337 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.gocode;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.googlecode.goclipse.tooling.CommonGoToolingTest;
+import com.googlecode.goclipse.tooling.env.GoEnvironment;
+import com.googlecode.goclipse.tooling.gocode.GobCodec.Decoder;
+import com.googlecode.goclipse.tooling.gocode.GobCodec.Encoder;
+import com.googlecode.goclipse.tooling.gocode.GobCodec.SliceType;
+import com.googlecode.goclipse.tooling.gocode.GobCodec.StructType;
+
+import melnorme.utilbox.concurrency.ICancelMonitor.CancelMonitor;
+import melnorme.utilbox.concurrency.ICancelMonitor.NullCancelMonitor;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.StringUtil;
+
+public class GocodeDaemon_Test extends CommonGoToolingTest {
+	
+	protected static byte[] bytes(int... values) {
+		byte[] bytes = new byte[values.length];
+		for (int ix = 0; ix < values.length; ix++) {
+			bytes[ix] = (byte) values[ix];
+		}
+		return bytes;
+	}
+	
+	@Test
+	public void testGobCodec() throws Exception { testGobCodec$(); }
+	public void testGobCodec$() throws Exception {
+		// Example from the encoding/gob package documentation: Point{22, 33}
+		byte[] expected = bytes(
+			0x1f, 0xff, 0x81, 0x03, 0x01, 0x01, 0x05, 0x50, 0x6f, 0x69, 0x6e, 0x74, 0x01, 0xff, 0x82, 0x00, 0x01, 0x02,
+			0x01, 0x01, 0x58, 0x01, 0x04, 0x00, 0x01, 0x01, 0x59, 0x01, 0x04, 0x00, 0x00, 0x00,
+			0x07, 0xff, 0x82, 0x01, 0x2c, 0x01, 0x42, 0x00
+		);
+		StructType point = new StructType("Point", 65).field("X", GobCodec.TYPE_INT).field("Y", GobCodec.TYPE_INT);
+		
+		Encoder encoder = new Encoder();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		encoder.writeValue(out, point, 22, 33);
+		assertTrue(Arrays.equals(out.toByteArray(), expected));
+		
+		// Type definitions are only sent once
+		out.reset();
+		encoder.writeValue(out, point, 0, -1000);
+		assertTrue(Arrays.equals(out.toByteArray(), bytes(0x07, 0xff, 0x82, 0x02, 0xfe, 0x07, 0xcf, 0x00)));
+		
+		InputStream in = new ByteArrayInputStream(expected);
+		Map<?, ?> value = (Map<?, ?>) new Decoder().readValue(in);
+		assertEquals(value.get("X"), 22L);
+		assertEquals(value.get("Y"), 33L);
+	}
+	
+	/* ----------------- Fake gocode server ----------------- */
+	
+	/**
+	 * A fake gocode server process, started with the arguments of the gocode server.
+	 * Each auto-complete reply ends with a "state" candidate, with the server state as the candidate type:
+	 * "instance id;connection number;set request count;lib-path;propose-builtins;offset;GOOS;GOARCH;GOPATH".
+	 * Files named "crash", "sleep", "drop" and "norpc" make the server fail the request.
+	 * Note: only uses JDK classes and GobCodec, so that it can be run with just the classes it needs.
+	 */
+	public static class FakeGocodeServer {
+		
+		protected static final StructType RESPONSE = new StructType("Response", 65)
+			.field("ServiceMethod", GobCodec.TYPE_STRING)
+			.field("Seq", GobCodec.TYPE_UINT)
+			.field("Error", GobCodec.TYPE_STRING);
+		
+		protected static final StructType REPLY_SET = new StructType("Reply_set", 66)
+			.field("Arg0", GobCodec.TYPE_STRING);
+		
+		protected static final StructType CANDIDATE = new StructType("candidate", 67)
+			.field("Name", GobCodec.TYPE_STRING)
+			.field("Type", GobCodec.TYPE_STRING)
+			.field("Class", GobCodec.TYPE_INT)
+			.field("Package", GobCodec.TYPE_STRING);
+		
+		protected static final StructType REPLY_AUTO_COMPLETE = new StructType("Reply_auto_complete", 68)
+			.field("Arg0", new SliceType("", 69, CANDIDATE))
+			.field("Arg1", GobCodec.TYPE_INT);
+		
+		protected static final String instanceId = Long.toString(System.nanoTime());
+		protected static final AtomicInteger connectionCount = new AtomicInteger();
+		protected static final AtomicInteger setCount = new AtomicInteger();
+		protected static final Map<Object, Object> options = new ConcurrentHashMap<>();
+		
+		public static void main(String[] args) throws Exception {
+			String address = null;
+			for (String arg : args) {
+				if(arg.equals("-exit")) {
+					System.exit(2); // Same as gocode, when the port is taken
+				}
+				if(arg.startsWith("-addr=")) {
+					address = arg.substring("-addr=".length());
+				}
+			}
+			
+			// Terminate along with the test process, which holds stdin open
+			Thread stdinWatcher = new Thread(() -> {
+				try {
+					while(System.in.read() != -1) {
+					}
+				} catch(IOException e) {
+				}
+				System.exit(0);
+			});
+			stdinWatcher.setDaemon(true);
+			stdinWatcher.start();
+			
+			int portSep = address.lastIndexOf(':');
+			ServerSocket serverSocket = new ServerSocket(Integer.parseInt(address.substring(portSep + 1)), 50, 
+				InetAddress.getByName(address.substring(0, portSep)));
+			while(true) {
+				Socket socket = serverSocket.accept();
+				int connection = connectionCount.incrementAndGet();
+				new Thread(() -> {
+					try(Socket socket_ = socket) {
+						handleConnection(connection, socket.getInputStream(), socket.getOutputStream());
+					} catch(IOException | InterruptedException e) {
+						// Connection closed
+					}
+				}).start();
+			}
+		}
+		
+		protected static void handleConnection(int connection, InputStream in, OutputStream out) 
+				throws IOException, InterruptedException {
+			Decoder decoder = new Decoder();
+			Encoder encoder = new Encoder();
+			while(true) {
+				Map<?, ?> request = (Map<?, ?>) decoder.readValue(in);
+				Map<?, ?> args = (Map<?, ?>) decoder.readValue(in);
+				String serviceMethod = (String) request.get("ServiceMethod");
+				Object seq = request.get("Seq");
+				
+				if(serviceMethod.equals("RPC.RPC_set")) {
+					setCount.incrementAndGet();
+					options.put(args.get("Arg0"), args.get("Arg1"));
+					encoder.writeValue(out, RESPONSE, serviceMethod, seq, null);
+					encoder.writeValue(out, REPLY_SET, args.get("Arg0") + " = " + args.get("Arg1"));
+					out.flush();
+					continue;
+				}
+				
+				String filePath = (String) args.get("Arg1");
+				switch(filePath) {
+				case "crash":
+					System.exit(1);
+					break;
+				case "sleep":
+					Thread.sleep(30_000);
+					break;
+				case "drop":
+					return;
+				case "norpc":
+					encoder.writeValue(out, RESPONSE, serviceMethod, seq, 
+						"rpc: can't find method RPC.RPC_auto_complete");
+					encoder.writeValue(out, REPLY_SET, "");
+					out.flush();
+					continue;
+				}
+				
+				Map<?, ?> buildContext = (Map<?, ?>) args.get("Arg3");
+				String state = instanceId + ";" + connection + ";" + setCount.get() + ";" + 
+					options.get("lib-path") + ";" + options.get("propose-builtins") + ";" + args.get("Arg2") + ";" + 
+					buildContext.get("GOOS") + ";" + buildContext.get("GOARCH") + ";" + buildContext.get("GOPATH");
+				List<Object> candidates = Arrays.asList(
+					new Object[] { "fmt", "", 3L, "" },
+					new Object[] { "Println", "func(a ...interface{}) (n int, err error)", 1L, "fmt" },
+					new Object[] { "xxx", "int", 5L, "" },
+					new Object[] { "state", state, 5L, "" }
+				);
+				encoder.writeValue(out, RESPONSE, serviceMethod, seq, null);
+				encoder.writeValue(out, REPLY_AUTO_COMPLETE, candidates, 0);
+				out.flush();
+			}
+		}
+		
+	}
+	
+	protected static String classpathEntry(Class<?> klass) {
+		return new File(klass.getProtectionDomain().getCodeSource().getLocation().getPath()).getPath();
+	}
+	
+	/** Runs the fake gocode server, instead of gocode. */
+	public static class FakeGocodeDaemon extends GocodeDaemon {
+		
+		protected final AtomicInteger startCount = new AtomicInteger();
+		protected volatile int failingStarts = 0;
+		
+		@Override
+		protected ProcessBuilder createProcessBuilder(String gocodePath) throws CommonException {
+			ProcessBuilder pb = super.createProcessBuilder(gocodePath);
+			
+			String javaPath = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+			String classpath = classpathEntry(FakeGocodeServer.class) + File.pathSeparator + 
+				classpathEntry(GobCodec.class) + File.pathSeparator + classpathEntry(StringUtil.class);
+			List<String> command = pb.command();
+			command.remove(0);
+			command.addAll(0, Arrays.asList(javaPath, "-cp", classpath, FakeGocodeServer.class.getName()));
+			if(startCount.incrementAndGet() <= failingStarts) {
+				command.add("-exit");
+			}
+			return pb;
+		}
+		
+		public void awaitProcessTermination() throws InterruptedException {
+			while(isProcessRunning()) {
+				Thread.sleep(10);
+			}
+		}
+		
+	}
+	
+	protected static final String EXPECTED_CSV =
+		"package,,fmt,,\n" +
+		"func,,Println,,func(a ...interface{}) (n int, err error)\n" +
+		"var,,xxx,,int\n";
+	
+	protected static final String STATE_PREFIX = "var,,state,,";
+	
+	protected String source = "package a\n// éé\nfunc f() { fmt. }";
+	protected int offset = source.indexOf("fmt.") + 4;
+	
+	/** @return the server state, after the auto-complete request. */
+	protected String[] autoComplete(GocodeDaemon daemon, String gocodePath, GoEnvironment goEnv, String filePath) 
+			throws CommonException, OperationCancellation {
+		String output = daemon.autoComplete(gocodePath, goEnv, filePath, source, offset, new NullCancelMonitor());
+		assertTrue(output.startsWith(EXPECTED_CSV));
+		String stateLine = output.substring(EXPECTED_CSV.length());
+		assertTrue(stateLine.startsWith(STATE_PREFIX) && stateLine.endsWith("\n"));
+		return stateLine.substring(STATE_PREFIX.length(), stateLine.length() - 1).split(";", -1);
+	}
+	
+	@Test
+	public void testDaemon() throws Exception { testDaemon$(); }
+	public void testDaemon$() throws Exception {
+		FakeGocodeDaemon daemon = new FakeGocodeDaemon();
+		owned.add(daemon::dispose);
+		// The first server terminates before listening, as if its port was taken: the server is started again
+		daemon.failingStarts = 1;
+		
+		String[] state = autoComplete(daemon, "gocode", SAMPLE_GOEnv_1, "/a/a.go");
+		assertTrue(daemon.startCount.get() == 2);
+		assertTrue(daemon.getServerAddress().startsWith(GocodeDaemon.DEFAULT_HOST + ":"));
+		String instance = state[0];
+		assertAreEqual(list(state[1], state[2]), list("1", "2")); // propose-builtins and lib-path are set
+		assertEquals(state[3], SAMPLE_GOEnv_1.getGoPathString());
+		assertEquals(state[4], "true");
+		assertEquals(state[5], Integer.toString(offset + 2)); // Offset in UTF-8 bytes
+		// Build context is that of the environment inherited by Go tool processes
+		assertEquals(state[6], SAMPLE_GOEnv_1.getEffectiveGoOs());
+		assertEquals(state[7], SAMPLE_GOEnv_1.getEffectiveGoArch());
+		assertEquals(state[8], SAMPLE_GOEnv_1.getGoPathString());
+		
+		// Options are not set again, and the connection is reused
+		state = autoComplete(daemon, "gocode", SAMPLE_GOEnv_1, "/a/a.go");
+		assertAreEqual(list(state[0], state[1], state[2]), list(instance, "1", "2"));
+		
+		// lib-path is sent again on change
+		GoEnvironment otherEnv = new GoEnvironment(SAMPLE_GO_ROOT, "/other/gopath");
+		state = autoComplete(daemon, "gocode", otherEnv, "/a/a.go");
+		assertAreEqual(list(state[0], state[1], state[2], state[3]), list(instance, "1", "3", "/other/gopath"));
+		
+		// Connection dropped by server: the request fails, a new connection to the same server is opened
+		verifyThrows(() -> autoComplete(daemon, "gocode", otherEnv, "drop"), CommonException.class);
+		state = autoComplete(daemon, "gocode", otherEnv, "/a/a.go");
+		assertAreEqual(list(state[0], state[1], state[2]), list(instance, "2", "5"));
+		
+		// Cancelled while the server handles it: the connection is closed, but the server keeps running
+		CancelMonitor cancelMonitor = new CancelMonitor();
+		new Thread(() -> {
+			try {
+				Thread.sleep(200);
+			} catch(InterruptedException e) {
+			}
+			cancelMonitor.cancel();
+		}).start();
+		long start = System.currentTimeMillis();
+		verifyThrows(() -> daemon.autoComplete("gocode", otherEnv, "sleep", source, offset, cancelMonitor), 
+			OperationCancellation.class);
+		assertTrue(System.currentTimeMillis() - start < 20_000);
+		state = autoComplete(daemon, "gocode", otherEnv, "/a/a.go");
+		assertAreEqual(list(state[0], state[1]), list(instance, "3"));
+		
+		// Server crash: the request fails, and the server is restarted on the next request
+		verifyThrows(() -> autoComplete(daemon, "gocode", otherEnv, "crash"), CommonException.class);
+		daemon.awaitProcessTermination();
+		state = autoComplete(daemon, "gocode", otherEnv, "/a/a.go");
+		assertTrue(!state[0].equals(instance));
+		assertAreEqual(list(state[1], state[2], state[3]), list("1", "2", "/other/gopath"));
+		instance = state[0];
+		
+		// A gocode path change restarts the server
+		state = autoComplete(daemon, "other/gocode", otherEnv, "/a/a.go");
+		assertTrue(!state[0].equals(instance));
+		assertTrue(daemon.startCount.get() == 4);
+		
+		// Server without the expected RPC methods
+		assertTrue(daemon.isProtocolSupported());
+		verifyThrows(() -> autoComplete(daemon, "other/gocode", otherEnv, "norpc"), CommonException.class);
+		assertTrue(!daemon.isProtocolSupported());
+		
+		daemon.dispose();
+		assertTrue(!daemon.isProcessRunning());
+	}
+	
+}
\ No newline at end of file
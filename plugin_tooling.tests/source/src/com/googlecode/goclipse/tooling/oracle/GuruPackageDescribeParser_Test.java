@@ -37,7 +37,10 @@ import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.collections.Indexable;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.misc.ArrayUtil;
+import melnorme.utilbox.misc.ByteArrayOutputStreamExt;
 import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
 
 public class GuruPackageDescribeParser_Test extends AbstractStructureParser_Test {
 	
@@ -131,6 +134,14 @@ public class GuruPackageDescribeParser_Test extends AbstractStructureParser_Test
 			elem("xxx", sr("xxx"), VARIABLE, attPriv(), "int", null)
 		);
 		
+		// Parse directly from the process output bytes
+		String basicOutput = getClassResource("oracle_describe.1_Basic.json");
+		ByteArrayOutputStreamExt stdout = new ByteArrayOutputStreamExt();
+		stdout.write(basicOutput.getBytes(StringUtil.UTF8));
+		assertEquals(
+			createStructureParser().parse(new ExternalProcessResult(0, stdout, null)), 
+			createStructureParser().parse(basicOutput));
+		
 		try {
 			testParseStructure(getClassResource("oracle_describe.2_Error1.json"), "");
 			assertFail();
@@ -199,6 +210,14 @@ public class GuruPackageDescribeParser_Test extends AbstractStructureParser_Test
 		assertEquals(structure, new SourceFileStructure(location, list(), list(
 			new ParserError(ParserErrorTypes.GENERIC_ERROR, srAt(7, 8), "expected operand, found 'for'", null)))
 		);
+		
+		// Columns are byte counts
+		source = "aaaaa\n\u00E9x foo\n";
+		parser = createStructureParser();
+		structure = parser.parseErrorMessage("guru: /src/describe.go:2:5: expected operand, found 'foo'");
+		assertEquals(structure, new SourceFileStructure(location, list(), list(
+			new ParserError(ParserErrorTypes.GENERIC_ERROR, srAt(9, 12), "expected operand, found 'foo'", null)))
+		);
 	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.parser;
+
+import static melnorme.lang.tooling.structure.StructureElementKind.CONST;
+import static melnorme.lang.tooling.structure.StructureElementKind.FUNCTION;
+import static melnorme.lang.tooling.structure.StructureElementKind.INTERFACE;
+import static melnorme.lang.tooling.structure.StructureElementKind.METHOD;
+import static melnorme.lang.tooling.structure.StructureElementKind.STRUCT;
+import static melnorme.lang.tooling.structure.StructureElementKind.TYPE_DECL;
+import static melnorme.lang.tooling.structure.StructureElementKind.VARIABLE;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import melnorme.lang.tooling.ast.ParserErrorTypes;
+import melnorme.lang.tooling.ast.SourceEditDelta;
+import melnorme.lang.tooling.ast.SourceRange;
+import melnorme.lang.tooling.common.ParserError;
+import melnorme.lang.tooling.structure.CommonStructureTest;
+import melnorme.lang.tooling.structure.SourceFileStructure;
+import melnorme.lang.tooling.structure.StructureElement;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
+
+public class GoStructureParser_Test extends CommonStructureTest {
+	
+	protected ArrayList2<StructureElement> elems(StructureElement... expectedElements) {
+		return new ArrayList2<>(expectedElements);
+	}
+	
+	public int ixof(String marker) {
+		int indexOf = source.indexOf(marker);
+		assertTrue(indexOf >= 0);
+		return indexOf;
+	}
+	
+	public SourceRange sr(String marker) {
+		return sr(ixof(marker), marker.length());
+	}
+	
+	/** @return range of given name, located with the (unique) source text that precedes it. */
+	public SourceRange nameSR(String prefix, String name) {
+		return sr(ixof(prefix + name) + prefix.length(), name.length());
+	}
+	
+	protected SourceFileStructure testParse(String goSource, Indexable<ParserError> expectedProblems,
+			StructureElement... expectedElements) {
+		SourceFileStructure structure = new GoStructureParser(null, goSource).parse();
+		
+		SourceFileStructure expected = new SourceFileStructure(null, elems(expectedElements), expectedProblems);
+		assertAreEqual(structure.getChildren(), expected.getChildren());
+		assertEquals(structure, expected);
+		assertAreEqual(structure.getParserProblems(), expected.getParserProblems());
+		return structure;
+	}
+	
+	protected ParserError error(SourceRange sr, String message) {
+		return new ParserError(ParserErrorTypes.GENERIC_ERROR, sr, message, null);
+	}
+	
+	@Test
+	public void test() throws Exception { test$(); }
+	public void test$() throws Exception {
+		source = "";
+		testParse(source, list(error(sr(0, 0), "expected 'package', found 'EOF'")));
+		
+		source = "package foo\n";
+		testParse(source, list());
+		
+		source = getClassResource("go_structure.1_Sample.go");
+		testParse(source, list(),
+			elem("encodeFragment", sr("const encodeFragment = 5"), nameSR("const ", "encodeFragment"), CONST,
+				attPriv(), null, null),
+			elem("A", sr("A = iota"), sr(ixof("A = iota"), 1), CONST, att(), null, null),
+			elem("b", sr(pos(15, 1), 1), sr(pos(15, 1), 1), CONST, attPriv(), null, null),
+			elem("xxx", sr("xxx"), sr("xxx"), VARIABLE, attPriv(), "int", null),
+			elem("yyy", sr("yyy"), sr("yyy"), VARIABLE, attPriv(), "int", null),
+			elem("Hello2", sr("var Hello2 = func() {\n\tfmt.Println(\"}\")\n}"), sr("Hello2"), VARIABLE,
+				att(), null, null),
+			elem("mu", sr("mu     sync.Mutex // protects }"), sr("mu"), VARIABLE, attPriv(), "sync.Mutex", null),
+			elem("count", sr("count  map[string]int"), sr("count"), VARIABLE, attPriv(), "map[string]int", null),
+			elem("sum", sr("sum    = 1 +\n\t\t2"), sr("sum"), VARIABLE, attPriv(), null, null),
+			elem("geometry", srAt(ixof("type geometry"), ixof("\n\ntype URL")), sr("geometry"), INTERFACE,
+				attPriv(), null, elems(
+				elem("area", sr("area() float64"), sr("area"), METHOD, att(), "func() float64", null),
+				elem("perim", sr("perim(scale int,\n\t\tother string) (float64, error)"), sr("perim"), METHOD,
+					att(), "func(scale int, other string) (float64, error)", null)
+			)),
+			elem("URL", sr("type URL struct {\n\tScheme string `json:\"}\"`\n}"), nameSR("type ", "URL"), STRUCT,
+				att(), null, elems(
+				elem("IsAbs", sr("func (u *URL) IsAbs() bool { return u.Scheme != \"\" }"), sr("IsAbs"), METHOD,
+					att(), "func() bool", null),
+				elem("Parse", srAt(ixof("func (u URL) Parse"), ixof("\n\nfunc (o *Other)")), sr("Parse"), METHOD,
+					att(), "func(ref string) (*URL, error)", null)
+			)),
+			elem("Alias", sr("Alias = URL"), sr("Alias"), TYPE_DECL, att(), "URL", null),
+			elem("List", sr("List[T any] []T"), sr("List"), TYPE_DECL, att(), "[]T", null),
+			elem("User", srAt(ixof("func User"), ixof("\n\nfunc (u *URL)")), sr("User"), FUNCTION,
+				att(), "func(username string) *Userinfo", null),
+			elem("Other", sr("func (o *Other) Method() {}"), null, TYPE_DECL, att(), null, elems(
+				elem("Method", sr("func (o *Other) Method() {}"), sr("Method"), METHOD, att(), "func()", null)
+			))
+		);
+	}
+	
+	@Test
+	public void testErrors() throws Exception { testErrors$(); }
+	public void testErrors$() throws Exception {
+		source = "package foo\nfoo()\nfunc f() {\n/* xxx";
+		testParse(source, list(
+			error(sr(ixof("foo()"), 3), "non-declaration statement outside function body: 'foo'"),
+			error(sr("/*"), "comment not terminated"),
+			error(sr("{"), "expected '}', found 'EOF'")
+			),
+			elem("f", srAt(ixof("func f"), source.length()), sr(ixof("f()"), 1), FUNCTION,
+				attPriv(), "func()", null)
+		);
+		
+		source = "package foo\nvar s = \"abc\nconst (\n\tA = 1\n";
+		testParse(source, list(
+			error(sr(ixof("\"abc"), 1), "string literal not terminated"),
+			error(sr(source.length(), 0), "expected ')', found 'EOF'")
+			),
+			elem("s", sr("var s = \"abc"), sr(ixof("s ="), 1), VARIABLE, attPriv(), null, null),
+			elem("A", sr("A = 1"), sr("A"), CONST, att(), null, null)
+		);
+	}
+	
+	/* -----------------  ----------------- */
+	
+	protected void testIncremental(String baseSource, int offset, int length, String text) {
+		GoSourceFileStructure previous = new GoStructureParser(null, baseSource).parse();
+		String newSource = baseSource.substring(0, offset) + text + baseSource.substring(offset + length);
+		SourceEditDelta edit = SourceEditDelta.fromReplaceEdit(offset, length, text.length());
+		
+		GoSourceFileStructure structure = new GoStructureParser(null, newSource).parseIncremental(previous, edit);
+		checkSameStructure(structure, new GoStructureParser(null, newSource).parse());
+	}
+	
+	protected void checkSameStructure(GoSourceFileStructure structure, GoSourceFileStructure expected) {
+		assertAreEqual(structure.getChildren(), expected.getChildren());
+		assertEquals(structure, expected);
+		assertAreEqual(structure.getParserProblems(), expected.getParserProblems());
+		
+		assertTrue(structure.getDeclarations().size() == expected.getDeclarations().size());
+		for (int ix = 0; ix < expected.getDeclarations().size(); ix++) {
+			assertAreEqual(structure.getDeclarations().get(ix).getRange(),
+				expected.getDeclarations().get(ix).getRange());
+		}
+	}
+	
+	@Test
+	public void testIncremental() throws Exception { testIncremental$(); }
+	public void testIncremental$() throws Exception {
+		source = getClassResource("go_structure.1_Sample.go");
+		
+		testIncremental(source, 0, 0, "");
+		testIncremental(source, 0, 0, "// comment\n");
+		testIncremental(source, 0, 7, "");
+		testIncremental(source, source.length(), 0, "\nfunc added() {}");
+		testIncremental(source, source.length(), 0, "\nfunc added() {");
+		testIncremental(source, ixof("type URL"), 0, "func (x *URL) Inserted() {}\n");
+		testIncremental(source, ixof("Scheme string"), "Scheme".length(), "Host");
+		testIncremental(source, ixof("xxx"), 3, "xyz, zzz");
+		testIncremental(source, ixof("area()"), 0, "}\n");
+		testIncremental(source, ixof("func User"), 0, "/* ");
+		testIncremental(source, ixof("func User"), 0, "\"");
+		testIncremental(source, ixof("func User"), 5, "");
+		testIncremental(source, ixof("const ("), "const".length(), "var");
+		
+		// Each single character deletion, and insertion of a delimiter
+		for (int offset = 0; offset < source.length(); offset++) {
+			testIncremental(source, offset, 1, "");
+			testIncremental(source, offset, 0, "{");
+			testIncremental(source, offset, 0, "\n");
+		}
+		
+		Random random = new Random(0);
+		String[] texts = { "", "x", "(", ")", "\n", "`", "\"", "/*", "+", "}\n", "\nfunc f() {\n", "type T int;" };
+		for (int ix = 0; ix < 500; ix++) {
+			int offset = random.nextInt(source.length() + 1);
+			int length = random.nextInt(Math.min(40, source.length() - offset) + 1);
+			testIncremental(source, offset, length, texts[random.nextInt(texts.length)]);
+		}
+	}
+	
+	@Test
+	public void testIncremental_Multiple() throws Exception { testIncremental_Multiple$(); }
+	public void testIncremental_Multiple$() throws Exception {
+		source = getClassResource("go_structure.1_Sample.go");
+		
+		String currentSource = source;
+		GoSourceFileStructure structure = new GoStructureParser(null, currentSource).parse();
+		
+		Random random = new Random(1);
+		for (int ix = 0; ix < 200; ix++) {
+			// Merge a few edits before reparsing, as done by the reconciler
+			SourceEditDelta edit = SourceEditDelta.NONE;
+			for (int jx = random.nextInt(4); jx >= 0; jx--) {
+				int offset = random.nextInt(currentSource.length() + 1);
+				int length = random.nextInt(Math.min(5, currentSource.length() - offset) + 1);
+				String text = random.nextBoolean() ? "" : "a\n}".substring(random.nextInt(4));
+				currentSource = currentSource.substring(0, offset) + text + currentSource.substring(offset + length);
+				edit = edit.addReplaceEdit(offset, length, text.length());
+			}
+			
+			structure = new GoStructureParser(null, currentSource).parseIncremental(structure, edit);
+			checkSameStructure(structure, new GoStructureParser(null, currentSource).parse());
+		}
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+// Package doc
+package sample
+
+import (
+	"fmt"
+	str "strings"
+)
+
+import "os"
+
+/* block comment with func fake() */
+const encodeFragment = 5
+
+const (
+	A = iota
+	b
+)
+
+var xxx, yyy int = 1, 2
+
+var Hello2 = func() {
+	fmt.Println("}")
+}
+
+var (
+	mu     sync.Mutex // protects }
+	count  map[string]int
+	sum    = 1 +
+		2
+)
+
+type geometry interface {
+	area() float64
+	perim(scale int,
+		other string) (float64, error)
+	fmt.Stringer
+}
+
+type URL struct {
+	Scheme string `json:"}"`
+}
+
+type (
+	Alias = URL
+	List[T any] []T
+)
+
+func User(username string) *Userinfo {
+	return nil
+}
+
+func (u *URL) IsAbs() bool { return u.Scheme != "" }
+
+func (u URL) Parse(ref string) (*URL, error) {
+	s := `raw
+	string }`
+	_ = s
+	return nil, nil
+}
+
+func (o *Other) Method() {}
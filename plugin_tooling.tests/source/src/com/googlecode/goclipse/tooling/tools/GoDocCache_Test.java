@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.tools;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.googlecode.goclipse.tooling.tools.GoDocCache.DefinitionKey;
+
+import melnorme.lang.tooling.common.SourceLineColumnRange;
+import melnorme.lang.tooling.toolchain.ops.SourceLocation;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.tests.CommonTest;
+import melnorme.utilbox.tests.TestsWorkingDir;
+
+public class GoDocCache_Test extends CommonTest {
+	
+	@Test
+	public void testDefinitionKey() throws Exception { testDefinitionKey$(); }
+	public void testDefinitionKey$() throws Exception {
+		Location file = workingDirLoc("GoDocCache_Test/a.go");
+		String source = "fmt.Println(foo)";
+		
+		// Offsets inside the same identifier have the same key
+		assertAreEqual(new DefinitionKey(file, source, 4), new DefinitionKey(file, source, 8));
+		assertAreEqual(new DefinitionKey(file, source, 10).getIdentifierOffset(), 4);
+		assertAreEqual(new DefinitionKey(file, source, 0).getIdentifierOffset(), 0);
+		assertTrue(!new DefinitionKey(file, source, 4).equals(new DefinitionKey(file, source, 2)));
+		// Offset after the end of an identifier is not normalized
+		assertAreEqual(new DefinitionKey(file, source, 11).getIdentifierOffset(), 11);
+		assertAreEqual(new DefinitionKey(file, source, 16).getIdentifierOffset(), 16);
+		
+		// Different source, or file
+		assertTrue(!new DefinitionKey(file, source, 4).equals(new DefinitionKey(file, source + " ", 4)));
+		assertTrue(!new DefinitionKey(file, source, 4).equals(new DefinitionKey(file, "fmt.Printxx(foo)", 4)));
+		Location otherFile = workingDirLoc("GoDocCache_Test/b.go");
+		assertTrue(!new DefinitionKey(file, source, 4).equals(new DefinitionKey(otherFile, source, 4)));
+	}
+	
+	@Test
+	public void testCache() throws Exception { testCache$(); }
+	public void testCache$() throws Exception {
+		Location dir = workingDirLoc("GoDocCache_Test");
+		TestsWorkingDir.deleteDir(dir);
+		dir.toFile().mkdirs();
+		Location srcFile = dir.resolve_valid("src.go");
+		Location defFile = dir.resolve_valid("def.go");
+		writeStringToFile(defFile, "// Doc\nfunc Foo() {}\n");
+		
+		GoDocCache cache = new GoDocCache(2);
+		SourceLocation definition = new SourceLocation(defFile, new SourceLineColumnRange(2, 6));
+		DefinitionKey key = new DefinitionKey(srcFile, "Foo()", 1);
+		
+		assertTrue(cache.getDefinition(key) == null);
+		cache.putDefinition(key, definition);
+		assertAreEqual(cache.getDefinition(new DefinitionKey(srcFile, "Foo()", 2)), definition);
+		
+		AtomicInteger calculations = new AtomicInteger();
+		assertAreEqual(cache.getDoc(definition, () -> "Doc" + calculations.incrementAndGet()), "Doc1");
+		assertAreEqual(cache.getDoc(definition, () -> "Doc" + calculations.incrementAndGet()), "Doc1");
+		
+		// No documentation is cached too
+		SourceLocation definition2 = new SourceLocation(defFile, new SourceLineColumnRange(1, 1));
+		assertAreEqual(cache.getDoc(definition2, () -> { calculations.incrementAndGet(); return null; }), null);
+		assertAreEqual(cache.getDoc(definition2, () -> { calculations.incrementAndGet(); return null; }), null);
+		assertAreEqual(calculations.get(), 2);
+		
+		// Entries are stale once the definition file is modified
+		writeStringToFile(defFile, "// Other doc\nfunc Foo() {}\n");
+		assertTrue(cache.getDefinition(key) == null);
+		assertAreEqual(cache.getDoc(definition, () -> "Doc" + calculations.incrementAndGet()), "Doc3");
+		
+		// Least recently used entry is removed
+		SourceLocation definition3 = new SourceLocation(defFile, new SourceLineColumnRange(2, 1));
+		cache.getDoc(definition3, () -> "Doc" + calculations.incrementAndGet());
+		cache.getDoc(definition, () -> "Doc" + calculations.incrementAndGet());
+		assertAreEqual(calculations.get(), 4);
+		cache.getDoc(definition2, () -> "Doc" + calculations.incrementAndGet());
+		assertAreEqual(calculations.get(), 5);
+	}
+	
+}
\ No newline at end of file
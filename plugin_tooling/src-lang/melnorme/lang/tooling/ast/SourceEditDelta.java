@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.ast;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+/**
+ * The region of a source that was modified by one or more text edits, relative to a base source.
+ *
+ * The text in range [startPos, oldEndPos) of the base source was replaced by the text
+ * in range [startPos, newEndPos) of the new source. Text outside that region is unchanged
+ * (but text after it is shifted by {@link #getDelta()}).
+ */
+public class SourceEditDelta {
+	
+	/** A delta with no modifications. */
+	public static final SourceEditDelta NONE = new SourceEditDelta(0, 0, 0) {
+		@Override
+		public boolean isEmpty() {
+			return true;
+		}
+	};
+	
+	protected final int startPos;
+	protected final int oldEndPos;
+	protected final int newEndPos;
+	
+	public SourceEditDelta(int startPos, int oldEndPos, int newEndPos) {
+		assertTrue(startPos >= 0 && oldEndPos >= startPos && newEndPos >= startPos);
+		this.startPos = startPos;
+		this.oldEndPos = oldEndPos;
+		this.newEndPos = newEndPos;
+	}
+	
+	/** Create a delta for a single replace edit: given length at given offset replaced with given text length. */
+	public static SourceEditDelta fromReplaceEdit(int offset, int length, int textLength) {
+		return new SourceEditDelta(offset, offset + length, offset + textLength);
+	}
+	
+	public boolean isEmpty() {
+		return false;
+	}
+	
+	public int getStartPos() {
+		return startPos;
+	}
+	
+	public int getOldEndPos() {
+		return oldEndPos;
+	}
+	
+	public int getNewEndPos() {
+		return newEndPos;
+	}
+	
+	/** @return the shift in position of the text after the modified region. */
+	public int getDelta() {
+		return newEndPos - oldEndPos;
+	}
+	
+	/**
+	 * @return a delta, relative to the same base source as this one, that includes this delta plus
+	 * the given replace edit (which is relative to the new source of this delta).
+	 */
+	public SourceEditDelta addReplaceEdit(int offset, int length, int textLength) {
+		if(isEmpty()) {
+			return fromReplaceEdit(offset, length, textLength);
+		}
+		int editEnd = offset + length;
+		int editDelta = textLength - length;
+		
+		int newStart = Math.min(startPos, offset);
+		
+		int mappedEnd;
+		if(newEndPos <= offset) {
+			mappedEnd = newEndPos;
+		} else if(newEndPos >= editEnd) {
+			mappedEnd = newEndPos + editDelta;
+		} else {
+			mappedEnd = offset + textLength;
+		}
+		int newNewEnd = Math.max(mappedEnd, offset + textLength);
+		int totalDelta = getDelta() + editDelta;
+		
+		return new SourceEditDelta(newStart, newNewEnd - totalDelta, newNewEnd);
+	}
+	
+	@Override
+	public String toString() {
+		return isEmpty() ? "[NONE]" : "[" + startPos + ", " + oldEndPos + " -> " + newEndPos + "]";
+	}
+	
+}
\ No newline at end of file
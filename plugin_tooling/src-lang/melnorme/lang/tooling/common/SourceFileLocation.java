@@ -99,4 +99,15 @@ public class SourceFileLocation {
 		return new SourceRange(validatedOffset, length);
 	}
 	
+	/** Like {@link #parseSourceRangeFrom1BasedIndex(SourceLinesInfo)}, but the column is a UTF-8 byte count. */
+	public SourceRange parseSourceRangeFrom1BasedUtf8Index(SourceLinesInfo sourceLinesInfo) throws CommonException {
+		int line_1based = NumberUtil.parseInt(line);
+		int column_1based = NumberUtil.parseInt(column);
+		
+		int validatedOffset = sourceLinesInfo.getValidatedOffsetForUtf8Column_1(line_1based, column_1based);
+		int length = sourceLinesInfo.getIdentifierAt(validatedOffset);
+		
+		return new SourceRange(validatedOffset, length);
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,521 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.engine;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.CoreUtil.areEqual;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import melnorme.lang.tooling.engine.ManagedToolDaemon.DaemonChannel;
+import melnorme.lang.utils.ProcessUtils;
+import melnorme.utilbox.concurrency.ICancelMonitor;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.StreamUtil;
+import melnorme.utilbox.process.ProcessReaderExecutors;
+
+/**
+ * A long-running tool process that answers requests sent on a channel: the process stdin/stdout,
+ * or a socket connection to the process.
+ * This avoids starting a new process (and re-loading the tool's state) for each request.
+ *
+ * Requests are queued, and sent to the process one at a time, by a worker thread.
+ * The process is started when needed, and restarted if it has terminated (for example, if it crashed),
+ * or if a request has a different configuration (such as the tool path) than the one
+ * the process was started with. If the process terminates before its channel could be opened
+ * (for example, if the port it was given was taken by another process), it is started again.
+ *
+ * A request that is cancelled while queued is not sent. If cancelled while the process is handling it,
+ * the channel is closed, since its response can no longer be told apart from the response to the next request.
+ * The process is kept running if a new channel to it can be opened (such as a new socket connection),
+ * otherwise it is destroyed.
+ */
+public abstract class ManagedToolDaemon<CONFIG, CHANNEL extends DaemonChannel> {
+	
+	public static interface DaemonRequest<CHANNEL, RESULT> {
+		
+		/**
+		 * Send this request on given channel (flushing the output), and read the response.
+		 * The whole response must be consumed, even if a CommonException is thrown,
+		 * since the channel is then used for further requests.
+		 * @throws IOException if the channel failed: it will then be closed.
+		 */
+		RESULT execute(CHANNEL channel) throws IOException, CommonException;
+		
+	}
+	
+	protected static final int CANCEL_POLLING_PERIOD_MS = 50;
+	protected static final int CONNECT_POLLING_PERIOD_MS = 50;
+	protected static final int PROCESS_START_ATTEMPTS = 3;
+	
+	protected final String daemonName;
+	protected final LinkedBlockingQueue<PendingRequest<?>> requestQueue = new LinkedBlockingQueue<>();
+	
+	protected final Object workerLock = new Object();
+	protected Thread workerThread; // Lazily started, guarded by workerLock
+	protected volatile boolean disposed = false;
+	
+	/** The current process. Only the worker thread starts processes, but any thread can destroy them. */
+	protected volatile DaemonProcess daemonProcess;
+	
+	public ManagedToolDaemon(String daemonName) {
+		this.daemonName = assertNotNull(daemonName);
+	}
+	
+	public String getDaemonName() {
+		return daemonName;
+	}
+	
+	protected abstract ProcessBuilder createProcessBuilder(CONFIG config) throws CommonException;
+	
+	/**
+	 * Open the channel to exchange requests with given process. Called when the process has been started,
+	 * and again if the previous channel was closed, but can be re-opened.
+	 * @throws IOException if the channel could not be opened. The process is then restarted.
+	 */
+	protected abstract CHANNEL openChannel(CONFIG config, Process process) throws IOException;
+	
+	/** Start the process for given config. Stderr is discarded. */
+	protected Process startProcess(@SuppressWarnings("unused") CONFIG config, ProcessBuilder pb)
+			throws CommonException {
+		Process process = ProcessUtils.startProcess(pb);
+		// Stderr must be read, otherwise the process might block writing to it
+		discardStreamAsync(process.getErrorStream(), "StdErrReader");
+		return process;
+	}
+	
+	protected void discardStreamAsync(InputStream is, String readerName) {
+		ProcessReaderExecutors.getDefault().execute(ProcessReaderExecutors.namedTask(
+			daemonName + "/" + readerName, () -> discardStream(is)));
+	}
+	
+	public void dispose() {
+		disposed = true;
+		synchronized(workerLock) {
+			if(workerThread != null) {
+				workerThread.interrupt();
+			}
+		}
+		cancelQueuedRequests();
+		destroyProcess();
+	}
+	
+	/** @return whether a daemon process is currently running. */
+	public boolean isProcessRunning() {
+		DaemonProcess process = daemonProcess;
+		return process != null && process.isAlive();
+	}
+	
+	public void destroyProcess() {
+		DaemonProcess process = daemonProcess;
+		if(process != null) {
+			process.destroy();
+		}
+	}
+	
+	/**
+	 * Send given request to the daemon process for given config, and wait for the response.
+	 */
+	public <RESULT> RESULT executeRequest(CONFIG config, DaemonRequest<? super CHANNEL, RESULT> request,
+			ICancelMonitor cm) throws CommonException, OperationCancellation {
+		PendingRequest<RESULT> pendingRequest = new PendingRequest<>(config, request);
+		if(disposed) {
+			throw new OperationCancellation();
+		}
+		requestQueue.add(pendingRequest);
+		ensureWorkerStarted();
+		if(disposed) {
+			cancelQueuedRequests(); // In case dispose happened concurrently, and missed this request
+		}
+		return pendingRequest.awaitResult(cm);
+	}
+	
+	protected void ensureWorkerStarted() {
+		synchronized(workerLock) {
+			if(workerThread == null) {
+				workerThread = new Thread(this::runWorker, daemonName + "/RequestWorker");
+				workerThread.setDaemon(true);
+				workerThread.start();
+			}
+		}
+	}
+	
+	protected void cancelQueuedRequests() {
+		PendingRequest<?> pendingRequest;
+		while((pendingRequest = requestQueue.poll()) != null) {
+			pendingRequest.cancel();
+		}
+	}
+	
+	protected void runWorker() {
+		try {
+			while(!disposed) {
+				PendingRequest<?> pendingRequest;
+				try {
+					pendingRequest = requestQueue.take();
+				} catch(InterruptedException e) {
+					continue; // Check if disposed
+				}
+				if(pendingRequest.startProcessing()) {
+					processRequest(pendingRequest);
+				}
+			}
+		} finally {
+			cancelQueuedRequests();
+			destroyProcess();
+		}
+	}
+	
+	protected <RESULT> void processRequest(PendingRequest<RESULT> pendingRequest) {
+		DaemonProcess process;
+		try {
+			process = getProcessFor(pendingRequest.config);
+		} catch(CommonException ce) {
+			pendingRequest.setFailure(ce);
+			return;
+		}
+		CHANNEL channel = process.channel;
+		if(!pendingRequest.setChannel(process, channel)) {
+			return; // Cancelled
+		}
+		
+		try {
+			RESULT result = pendingRequest.request.execute(channel);
+			pendingRequest.setResult(result);
+		} catch(IOException e) {
+			process.closeChannel(channel);
+			pendingRequest.setFailure(new CommonException(daemonName + " request failed: " + e.getMessage(), e));
+		} catch(CommonException ce) {
+			pendingRequest.setFailure(ce);
+		} catch(RuntimeException e) {
+			process.destroy();
+			pendingRequest.setFailure(new CommonException(daemonName + " internal error: " + e, e));
+		}
+	}
+	
+	/** @return the process for given config, with an open channel. */
+	protected DaemonProcess getProcessFor(CONFIG config) throws CommonException {
+		DaemonProcess process = daemonProcess;
+		if(process != null) {
+			if(process.isAlive() && areEqual(process.config, config)) {
+				if(process.channel.isOpen()) {
+					return process;
+				}
+				try {
+					process.channel = openChannel(config, process.process);
+					return process;
+				} catch(IOException e) {
+					// Restart the process
+				}
+			}
+			process.destroy();
+		}
+		
+		process = startDaemonProcess(config);
+		daemonProcess = process;
+		return process;
+	}
+	
+	protected DaemonProcess startDaemonProcess(CONFIG config) throws CommonException {
+		for (int attempt = 1; ; attempt++) {
+			Process process = startProcess(config, createProcessBuilder(config));
+			try {
+				return new DaemonProcess(config, process, openChannel(config, process));
+			} catch(IOException e) {
+				boolean terminated = !process.isAlive();
+				process.destroy();
+				if(!terminated || attempt == PROCESS_START_ATTEMPTS || disposed) {
+					throw new CommonException(daemonName + " process could not be started: " + e.getMessage(), e);
+				}
+				// Start again: for example, the port given to the process was taken before the process bound it.
+			}
+		}
+	}
+	
+	protected class DaemonProcess {
+		
+		protected final CONFIG config;
+		protected final Process process;
+		/** The current channel. Only the worker thread opens channels, but any thread can close them. */
+		protected volatile CHANNEL channel;
+		/** Set on destroy, since the process might still be alive for a while after it is destroyed. */
+		protected volatile boolean destroyed = false;
+		
+		public DaemonProcess(CONFIG config, Process process, CHANNEL channel) {
+			this.config = config;
+			this.process = assertNotNull(process);
+			this.channel = assertNotNull(channel);
+		}
+		
+		public boolean isAlive() {
+			return !destroyed && process.isAlive();
+		}
+		
+		public void destroy() {
+			destroyed = true;
+			channel.close();
+			process.destroy();
+		}
+		
+		/** Close given channel of this process. The process is destroyed if the channel can't be re-opened. */
+		public void closeChannel(CHANNEL channel) {
+			channel.close();
+			if(!channel.isReopenable()) {
+				destroy();
+			}
+		}
+		
+	}
+	
+	protected static void discardStream(InputStream is) {
+		byte[] buffer = new byte[1024];
+		try {
+			while(is.read(buffer) != StreamUtil.EOF) {
+				// Discard
+			}
+		} catch(IOException e) {
+			// Stream closed, process terminated
+		}
+	}
+	
+	/* ----------------- Channels ----------------- */
+	
+	/** The streams on which requests are exchanged with the daemon process. */
+	public static abstract class DaemonChannel {
+		
+		protected final InputStream input;
+		protected final OutputStream output;
+		protected volatile boolean closed = false;
+		
+		public DaemonChannel(InputStream input, OutputStream output) {
+			this.input = new BufferedInputStream(input);
+			this.output = new BufferedOutputStream(output);
+		}
+		
+		public InputStream getInput() {
+			return input;
+		}
+		
+		public OutputStream getOutput() {
+			return output;
+		}
+		
+		public boolean isOpen() {
+			return !closed;
+		}
+		
+		/** Close this channel. A request in flight on this channel fails with an IOException. */
+		public void close() {
+			closed = true;
+			doClose();
+		}
+		
+		protected abstract void doClose();
+		
+		/** @return whether a new channel to the same process can be opened, once this one is closed. */
+		public abstract boolean isReopenable();
+		
+	}
+	
+	/** A channel on the stdin/stdout of the process. It can't be re-opened: closing it destroys the process. */
+	public static class StdioDaemonChannel extends DaemonChannel {
+		
+		public StdioDaemonChannel(Process process) {
+			super(process.getInputStream(), process.getOutputStream());
+		}
+		
+		@Override
+		protected void doClose() {
+			// The streams are closed when the process is destroyed
+		}
+		
+		@Override
+		public boolean isReopenable() {
+			return false;
+		}
+		
+	}
+	
+	/** A channel on a socket connection to the process. Closing it leaves the process running. */
+	public static class SocketDaemonChannel extends DaemonChannel {
+		
+		protected final Socket socket;
+		
+		public SocketDaemonChannel(Socket socket) throws IOException {
+			super(socket.getInputStream(), socket.getOutputStream());
+			this.socket = socket;
+		}
+		
+		@Override
+		protected void doClose() {
+			try {
+				socket.close();
+			} catch(IOException e) {
+				// Ignore
+			}
+		}
+		
+		@Override
+		public boolean isReopenable() {
+			return true;
+		}
+		
+	}
+	
+	/**
+	 * Connect to given address, waiting for given process to listen on it.
+	 * @throws IOException if the process terminated, or didn't listen on the address within given timeout.
+	 */
+	protected Socket connectWhenListening(Process process, InetSocketAddress address, int timeoutMillis)
+			throws IOException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while(true) {
+			if(!process.isAlive()) {
+				throw new IOException(daemonName + " process terminated with exit value " + process.exitValue());
+			}
+			Socket socket = new Socket();
+			try {
+				socket.setTcpNoDelay(true);
+				socket.connect(address, timeoutMillis);
+			} catch(IOException e) {
+				socket.close();
+				if(System.currentTimeMillis() >= deadline) {
+					throw new IOException(daemonName + " process is not listening on " + address, e);
+				}
+				try {
+					Thread.sleep(CONNECT_POLLING_PERIOD_MS);
+				} catch(InterruptedException ie) {
+					throw new InterruptedIOException();
+				}
+				continue;
+			}
+			
+			if(!process.isAlive()) {
+				// The process terminated right away, the connection is to another process that took the address.
+				socket.close();
+				throw new IOException(daemonName + " process terminated with exit value " + process.exitValue());
+			}
+			return socket;
+		}
+	}
+	
+	/* -----------------  ----------------- */
+	
+	protected static enum RequestState { QUEUED, PROCESSING, COMPLETED, CANCELLED }
+	
+	protected class PendingRequest<RESULT> {
+		
+		protected final CONFIG config;
+		protected final DaemonRequest<? super CHANNEL, RESULT> request;
+		
+		protected RequestState state = RequestState.QUEUED; // guarded by this
+		protected DaemonProcess process; // guarded by this
+		protected CHANNEL channel; // guarded by this
+		protected RESULT result;
+		protected CommonException failure;
+		
+		public PendingRequest(CONFIG config, DaemonRequest<? super CHANNEL, RESULT> request) {
+			this.config = config;
+			this.request = assertNotNull(request);
+		}
+		
+		/** @return false if the request was cancelled, and should not be processed. */
+		public synchronized boolean startProcessing() {
+			if(state != RequestState.QUEUED) {
+				return false;
+			}
+			state = RequestState.PROCESSING;
+			return true;
+		}
+		
+		/** @return false if the request was cancelled, and should not be sent. */
+		public synchronized boolean setChannel(DaemonProcess process, CHANNEL channel) {
+			this.process = process;
+			this.channel = channel;
+			return state == RequestState.PROCESSING;
+		}
+		
+		public synchronized void setResult(RESULT result) {
+			if(state == RequestState.PROCESSING) {
+				this.result = result;
+				state = RequestState.COMPLETED;
+				notifyAll();
+			}
+		}
+		
+		public synchronized void setFailure(CommonException failure) {
+			if(state == RequestState.PROCESSING) {
+				this.failure = failure;
+				state = RequestState.COMPLETED;
+				notifyAll();
+			}
+		}
+		
+		public synchronized void cancel() {
+			if(state == RequestState.COMPLETED || state == RequestState.CANCELLED) {
+				return;
+			}
+			if(state == RequestState.PROCESSING && process != null) {
+				process.closeChannel(channel);
+			}
+			state = RequestState.CANCELLED;
+			notifyAll();
+		}
+		
+		protected synchronized void signal() {
+			notifyAll();
+		}
+		
+		public RESULT awaitResult(ICancelMonitor cm) throws CommonException, OperationCancellation {
+			Runnable cancelListener = this::signal;
+			boolean cancelListenerSupported = cm.addCancelListener(cancelListener);
+			try {
+				synchronized(this) {
+					while(true) {
+						if(state == RequestState.COMPLETED) {
+							if(failure != null) {
+								throw failure;
+							}
+							return result;
+						}
+						if(state == RequestState.CANCELLED) {
+							throw new OperationCancellation();
+						}
+						if(cm.isCancelled()) {
+							cancel();
+							throw new OperationCancellation();
+						}
+						try {
+							wait(cancelListenerSupported ? 0 : CANCEL_POLLING_PERIOD_MS);
+						} catch(InterruptedException e) {
+							cancel();
+							Thread.currentThread().interrupt();
+							throw new OperationCancellation();
+						}
+					}
+				}
+			} finally {
+				cm.removeCancelListener(cancelListener);
+			}
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -10,50 +10,54 @@
  *******************************************************************************/
 package melnorme.lang.tooling.parser;
 
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 
-import java.util.Collections;
+import java.util.Arrays;
 
-import melnorme.lang.utils.parse.LexingUtils;
-import melnorme.lang.utils.parse.StringCharSource;
-import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
 
+/**
+ * Line information for a source snapshot: line start offsets, and conversion between char offsets and
+ * line/column positions, or UTF-8 byte offsets.
+ * 
+ * Instances are immutable (the {@link Utf8OffsetMapper} is created on first use), 
+ * so they can be shared by different parsers and threads working on the same source.
+ */
 public class SourceLinesInfo {
 	
 	protected final String source;
-	protected final ArrayList2<Integer> lines; // entries contain lineStart
+	/** The start offset of each line. Only the first {@link #lineCount} entries are used. */
+	protected final int[] lineStarts;
+	protected final int lineCount;
+	private volatile Utf8OffsetMapper utf8OffsetMapper;
 	
 	public SourceLinesInfo(String source) {
-		this.source = source;
-		this.lines = calculateLines(new StringCharSource(source));
-	}
-	
-	protected ArrayList2<Integer> calculateLines(StringCharSource parser) {
-		ArrayList2<Integer> lines = new ArrayList2<>();
+		this.source = assertNotNull(source);
 		
-		int lineStartOffset = 0;
-		do {
-			consumeNewLine(parser);
-			
-			lines.add(lineStartOffset);
-			lineStartOffset = parser.getReadPosition();
-		} while(parser.hasCharAhead());
+		int[] lineStarts = new int[Math.max(16, source.length() / 32)];
+		int lineCount = 1; // First line starts at 0
 		
-		return lines;
-	}
-	
-	protected void consumeNewLine(StringCharSource parser) {
-		while(true) {
-			String newlineSequence = LexingUtils.determineNewlineSequenceAt(parser, 0);
-			if(newlineSequence != null) {
-				parser.consumeAhead(newlineSequence);
-				return;
+		int length = source.length();
+		for (int ix = 0; ix < length; ix++) {
+			char ch = source.charAt(ix);
+			if(ch != '\n' && ch != '\r') {
+				continue;
+			}
+			if(ch == '\r' && ix + 1 < length && source.charAt(ix + 1) == '\n') {
+				ix++;
+			}
+			if(ix + 1 == length) {
+				break; // A newline at the end of source does not start a new line
+			}
+			if(lineCount == lineStarts.length) {
+				lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
 			}
-			
-			parser.consume();
+			lineStarts[lineCount++] = ix + 1;
 		}
 		
+		this.lineStarts = lineStarts;
+		this.lineCount = lineCount;
 	}
 	
 	public String getSource() {
@@ -69,18 +73,23 @@ public class SourceLinesInfo {
 	}
 	
 	public int getNumberOfLines() {
-		return lines.size();
+		return lineCount;
 	}
 	
 	public int getOffsetForLine(int lineIndex) {
-		assertTrue(lineIndex >= 0 && lineIndex < lines.size());
-		return lines.get(lineIndex);
+		assertTrue(lineIndex >= 0 && lineIndex < lineCount);
+		return lineStarts[lineIndex];
 	}
 	
 	public int getLineForOffset(int offset) throws CommonException {
 		validateOffset(offset);
 		
-		int binarySearchResult = Collections.binarySearch(lines, offset);
+		return findEntry(lineStarts, lineCount, offset);
+	}
+	
+	/** @return the index of the last entry of given sorted array that is lower or equal to given value. */
+	protected static int findEntry(int[] sortedValues, int count, int value) {
+		int binarySearchResult = Arrays.binarySearch(sortedValues, 0, count, value);
 		return binarySearchResult >= 0 ? binarySearchResult : -(binarySearchResult + 1) -1;
 	}
 	
@@ -105,9 +114,9 @@ public class SourceLinesInfo {
 		int lineIndex = line_1 - 1;
 		int columnIndex = column_1 - 1;
 		
-		if(lineIndex >= lines.size()) {
+		if(lineIndex >= lineCount) {
 			throw CommonException.fromMsgFormat("Invalid line: {0} is over the max bound: {1}.", 
-				line_1, lines.size());
+				line_1, lineCount);
 		}
 		
 		return getValidateOffset_do(lineIndex, columnIndex);
@@ -121,9 +130,9 @@ public class SourceLinesInfo {
 			throw new CommonException("Invalid column number: " + line_0);
 		}
 		
-		if(line_0 >= lines.size()) {
+		if(line_0 >= lineCount) {
 			throw CommonException.fromMsgFormat("Invalid line: {0} is over the max bound: {1}.", 
-				line_0, lines.size());
+				line_0, lineCount);
 		}
 		
 		return getValidateOffset_do(line_0, column_0);
@@ -132,7 +141,7 @@ public class SourceLinesInfo {
 	protected int getValidateOffset_do(int lineIndex, int columnIndex) throws CommonException {
 		int offset = getOffsetForLine(lineIndex) + columnIndex;
 		
-		if(lineIndex + 1 < lines.size()) {
+		if(lineIndex + 1 < lineCount) {
 			if(offset >= getOffsetForLine(lineIndex + 1)) {
 				throw new CommonException("Invalid column, out of bounds.");
 			}
@@ -144,12 +153,62 @@ public class SourceLinesInfo {
 		return offset;
 	}
 	
+	/* ----------------- UTF-8 ----------------- */
+	
+	public Utf8OffsetMapper getUtf8OffsetMapper() {
+		Utf8OffsetMapper utf8OffsetMapper = this.utf8OffsetMapper;
+		if(utf8OffsetMapper == null) {
+			// Racy initialization is fine, the result is always equivalent.
+			this.utf8OffsetMapper = utf8OffsetMapper = new Utf8OffsetMapper(source);
+		}
+		return utf8OffsetMapper;
+	}
+	
+	/** @return the UTF-8 byte offset for given char offset. */
+	public int getUtf8ByteOffset(int offset) throws CommonException {
+		validateOffset(offset);
+		return getUtf8OffsetMapper().getByteOffset(offset);
+	}
+	
+	/** 
+	 * @return the char offset for given UTF-8 byte offset. 
+	 * If the byte offset is in the middle of a character encoding, the offset of that character is returned.
+	 */
+	public int getOffsetForUtf8ByteOffset(int byteOffset) throws CommonException {
+		return getUtf8OffsetMapper().getCharOffset(byteOffset);
+	}
+	
+	/**
+	 * Like {@link #getValidatedOffset_1(int, int)}, but with a column that is a UTF-8 byte count from the 
+	 * line start, such as the columns reported by Go tools.
+	 */
+	public int getValidatedOffsetForUtf8Column_1(int line_1, int byteColumn_1) throws CommonException {
+		int lineStart = getValidatedOffset_1(line_1, 1);
+		if(byteColumn_1 < 1) {
+			throw new CommonException("Invalid column number: " + byteColumn_1);
+		}
+		
+		Utf8OffsetMapper utf8OffsetMapper = getUtf8OffsetMapper();
+		int byteOffset = utf8OffsetMapper.getByteOffset(lineStart) + byteColumn_1 - 1;
+		if(byteOffset > utf8OffsetMapper.getByteLength()) {
+			throw new CommonException("Invalid line+column, out of bounds.");
+		}
+		int offset = utf8OffsetMapper.getCharOffset(byteOffset);
+		
+		return getValidateOffset_do(line_1 - 1, offset - lineStart);
+	}
+	
 	/* -----------------  ----------------- */
 	
 	public int getIdentifierAt(int validatedOffset) {
-		StringCharSource parser = new StringCharSource(source);
-		parser.consumeAmount(validatedOffset);
-		return LexingUtils.matchJavaIdentifier(parser);
+		int end = validatedOffset;
+		if(end < source.length() && Character.isJavaIdentifierStart(source.charAt(end))) {
+			end++;
+			while(end < source.length() && Character.isJavaIdentifierPart(source.charAt(end))) {
+				end++;
+			}
+		}
+		return end - validatedOffset;
 	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.parser;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.Arrays;
+
+import melnorme.utilbox.core.CommonException;
+
+/**
+ * Converts between char offsets and UTF-8 byte offsets of a source snapshot, 
+ * such as the offsets used by Go tools. 
+ * 
+ * The byte offset is recorded at checkpoints, roughly every {@link #checkpointInterval} chars, 
+ * so that a conversion only needs to count the bytes from the nearest checkpoint. No memory is allocated 
+ * after construction. Instances are immutable.
+ */
+public class Utf8OffsetMapper {
+	
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 256;
+	
+	protected final CharSequence source;
+	protected final int checkpointInterval;
+	/** Char offset of each checkpoint. Checkpoints never split a surrogate pair. */
+	protected final int[] charCheckpoints;
+	/** Byte offset of each checkpoint. The last checkpoint is the end of source. */
+	protected final int[] byteCheckpoints;
+	
+	public Utf8OffsetMapper(CharSequence source) {
+		this(source, DEFAULT_CHECKPOINT_INTERVAL);
+	}
+	
+	public Utf8OffsetMapper(CharSequence source, int checkpointInterval) {
+		this.source = assertNotNull(source);
+		assertTrue(checkpointInterval > 1);
+		this.checkpointInterval = checkpointInterval;
+		
+		int length = source.length();
+		int count = length / checkpointInterval + 2;
+		int[] charCheckpoints = new int[count];
+		int[] byteCheckpoints = new int[count];
+		
+		int ix = 1;
+		int charOffset = 0;
+		int byteOffset = 0;
+		while(charOffset < length) {
+			int nextCharOffset = Math.min(charOffset + checkpointInterval, length);
+			if(nextCharOffset < length && Character.isLowSurrogate(source.charAt(nextCharOffset))
+					&& Character.isHighSurrogate(source.charAt(nextCharOffset - 1))) {
+				nextCharOffset++;
+			}
+			byteOffset += utf8Length(source, charOffset, nextCharOffset);
+			charOffset = nextCharOffset;
+			
+			charCheckpoints[ix] = charOffset;
+			byteCheckpoints[ix] = byteOffset;
+			ix++;
+		}
+		
+		this.charCheckpoints = Arrays.copyOf(charCheckpoints, ix);
+		this.byteCheckpoints = Arrays.copyOf(byteCheckpoints, ix);
+	}
+	
+	public CharSequence getSource() {
+		return source;
+	}
+	
+	public int getByteLength() {
+		return byteCheckpoints[byteCheckpoints.length - 1];
+	}
+	
+	/** @return the UTF-8 byte offset for given char offset. */
+	public int getByteOffset(int charOffset) throws CommonException {
+		if(charOffset < 0 || charOffset > source.length()) {
+			throw CommonException.fromMsgFormat("Invalid offset {0}, it is out of bounds.", charOffset);
+		}
+		int ix = findCheckpoint(charCheckpoints, charOffset);
+		return byteCheckpoints[ix] + utf8Length(source, charCheckpoints[ix], charOffset);
+	}
+	
+	/**
+	 * @return the char offset for given UTF-8 byte offset. 
+	 * If the byte offset is in the middle of a character encoding, the offset of that character is returned.
+	 */
+	public int getCharOffset(int byteOffset) throws CommonException {
+		if(byteOffset < 0 || byteOffset > getByteLength()) {
+			throw CommonException.fromMsgFormat("Invalid byte offset {0}, it is out of bounds.", byteOffset);
+		}
+		int ix = findCheckpoint(byteCheckpoints, byteOffset);
+		
+		int charOffset = charCheckpoints[ix];
+		int bytes = byteCheckpoints[ix];
+		while(bytes < byteOffset) {
+			int charEnd = charOffset + 1;
+			if(charEnd < source.length() &&
+					Character.isSurrogatePair(source.charAt(charOffset), source.charAt(charEnd))) {
+				charEnd++;
+			}
+			int charBytes = utf8Length(source, charOffset, charEnd);
+			if(bytes + charBytes > byteOffset) {
+				break;
+			}
+			bytes += charBytes;
+			charOffset = charEnd;
+		}
+		return charOffset;
+	}
+	
+	/** @return the index of the last checkpoint that is lower or equal to given value. */
+	protected static int findCheckpoint(int[] checkpoints, int value) {
+		// Both char and byte checkpoints are strictly increasing
+		int binarySearchResult = Arrays.binarySearch(checkpoints, value);
+		return binarySearchResult >= 0 ? binarySearchResult : -(binarySearchResult + 1) - 1;
+	}
+	
+	/**
+	 * @return the length of the UTF-8 encoding of given source range, the same as 
+	 * <code>source.substring(start, end).getBytes(UTF_8).length</code>, but without allocating.
+	 */
+	public static int utf8Length(CharSequence source, int start, int end) {
+		int length = 0;
+		for (int ix = start; ix < end; ix++) {
+			char ch = source.charAt(ix);
+			if(ch < 0x80) {
+				length += 1;
+			} else if(ch < 0x800) {
+				length += 2;
+			} else if(!Character.isSurrogate(ch)) {
+				length += 3;
+			} else if(ix + 1 < end && Character.isSurrogatePair(ch, source.charAt(ix + 1))) {
+				length += 4;
+				ix++;
+			} else {
+				length += 1; // Unpaired surrogate, encoded as a replacement '?'
+			}
+		}
+		return length;
+	}
+	
+}
\ No newline at end of file
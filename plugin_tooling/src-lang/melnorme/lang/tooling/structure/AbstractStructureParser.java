@@ -10,6 +10,7 @@
  *******************************************************************************/
 package melnorme.lang.tooling.structure;
 
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 
 import melnorme.lang.tooling.parser.SourceLinesInfo;
 import melnorme.lang.tooling.structure.SourceFileStructure;
@@ -24,8 +25,13 @@ public abstract class AbstractStructureParser {
 	protected final SourceLinesInfo sourceLinesInfo;
 	
 	public AbstractStructureParser(Location location, String langSource) {
+		this(location, new SourceLinesInfo(langSource));
+	}
+	
+	/** Create a parser using given lines info, which can be shared with other users of the same source. */
+	public AbstractStructureParser(Location location, SourceLinesInfo sourceLinesInfo) {
 		this.location = location;
-		this.sourceLinesInfo = new SourceLinesInfo(langSource);
+		this.sourceLinesInfo = assertNotNull(sourceLinesInfo);
 	}
 	
 	public abstract SourceFileStructure parse(String outputParseSource) throws CommonException;
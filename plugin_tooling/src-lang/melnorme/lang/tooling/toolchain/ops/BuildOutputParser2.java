@@ -97,6 +97,15 @@ public abstract class BuildOutputParser2 extends AbstractToolResultParser<ArrayL
 	
 	protected abstract ToolMessageData parseMessageData(StringCharSource output) throws CommonException;
 	
+	/**
+	 * @return whether given output line continues the message of the previous line. 
+	 * Used when parsing output incrementally (see {@link BuildOutputStreamParser}), 
+	 * parsers of messages spanning several lines should override.
+	 */
+	protected boolean isMessageContinuationLine(String line) {
+		return false;
+	}
+	
 	protected final void handleMessageParseError(CommonException ce) {
 		handleParseError(ce);
 	}
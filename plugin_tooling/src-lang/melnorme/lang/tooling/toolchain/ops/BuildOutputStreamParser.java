@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.toolchain.ops;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import melnorme.lang.tooling.common.ToolSourceMessage;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.process.ExternalProcessNotifyingHelper.IProcessOutputListener;
+
+/**
+ * Parses build output incrementally, as it is read from the build process (both stdout and stderr).
+ *
+ * The output is split into lines. A message is parsed once it is known to be complete, that is,
+ * when a line that is not a continuation line (see {@link BuildOutputParser2#isMessageContinuationLine(String)})
+ * is read after it, or when the process terminates.
+ * Parsed messages are queued, to be retrieved with {@link #takeMessages()}, usually by another thread.
+ */
+public class BuildOutputStreamParser implements IProcessOutputListener {
+	
+	protected final BuildOutputParser2 parser;
+	protected final OutputStreamParser stdOut = new OutputStreamParser();
+	protected final OutputStreamParser stdErr = new OutputStreamParser();
+	protected final ConcurrentLinkedQueue<ToolSourceMessage> messages = new ConcurrentLinkedQueue<>();
+	
+	public BuildOutputStreamParser(BuildOutputParser2 parser) {
+		this.parser = assertNotNull(parser);
+	}
+	
+	@Override
+	public void notifyStdOutListeners(byte[] buffer, int offset, int readCount) {
+		stdOut.append(buffer, offset, readCount);
+	}
+	
+	@Override
+	public void notifyStdErrListeners(byte[] buffer, int offset, int readCount) {
+		stdErr.append(buffer, offset, readCount);
+	}
+	
+	@Override
+	public void notifyProcessTerminatedAndRead(int exitCode) {
+		flush();
+	}
+	
+	/** Parse any remaining output, including an unterminated last line. */
+	public void flush() {
+		stdOut.flush();
+		stdErr.flush();
+	}
+	
+	/** @return the messages parsed since the last call, in the order they were parsed. */
+	public ArrayList2<ToolSourceMessage> takeMessages() {
+		ArrayList2<ToolSourceMessage> result = new ArrayList2<>();
+		ToolSourceMessage message;
+		while((message = messages.poll()) != null) {
+			result.add(message);
+		}
+		return result;
+	}
+	
+	protected void parseMessages(String output) {
+		ArrayList2<ToolSourceMessage> parsedMessages;
+		// Stdout and stderr are read in different threads, but the parser is not thread-safe.
+		synchronized(parser) {
+			try {
+				parsedMessages = new ArrayList2<>(parser.parseOutput(output));
+			} catch(CommonException ce) {
+				parser.handleMessageParseError(ce);
+				return;
+			}
+		}
+		messages.addAll(parsedMessages);
+	}
+	
+	protected class OutputStreamParser {
+		
+		protected byte[] lineBytes = new byte[256];
+		protected int lineLength = 0;
+		protected final StringBuilder pendingMessage = new StringBuilder();
+		
+		public synchronized void append(byte[] buffer, int offset, int readCount) {
+			int end = offset + readCount;
+			int lineStart = offset;
+			for (int ix = offset; ix < end; ix++) {
+				if(buffer[ix] == '\n') {
+					appendLineBytes(buffer, lineStart, ix + 1 - lineStart);
+					handleLine(takeLine());
+					lineStart = ix + 1;
+				}
+			}
+			appendLineBytes(buffer, lineStart, end - lineStart);
+		}
+		
+		protected void appendLineBytes(byte[] buffer, int offset, int length) {
+			if(lineLength + length > lineBytes.length) {
+				lineBytes = Arrays.copyOf(lineBytes, Math.max(lineBytes.length * 2, lineLength + length));
+			}
+			System.arraycopy(buffer, offset, lineBytes, lineLength, length);
+			lineLength += length;
+		}
+		
+		protected String takeLine() {
+			// '\n' never occurs inside a multi-byte UTF-8 sequence, so each line can be decoded on its own.
+			String line = new String(lineBytes, 0, lineLength, StringUtil.UTF8);
+			lineLength = 0;
+			return line;
+		}
+		
+		protected void handleLine(String line) {
+			if(pendingMessage.length() > 0 && !parser.isMessageContinuationLine(line)) {
+				parsePendingMessage();
+			}
+			pendingMessage.append(line);
+		}
+		
+		protected void parsePendingMessage() {
+			if(pendingMessage.length() > 0) {
+				parseMessages(pendingMessage.toString());
+				pendingMessage.setLength(0);
+			}
+		}
+		
+		public synchronized void flush() {
+			if(lineLength > 0) {
+				handleLine(takeLine());
+			}
+			parsePendingMessage();
+		}
+		
+	}
+	
+}
\ No newline at end of file
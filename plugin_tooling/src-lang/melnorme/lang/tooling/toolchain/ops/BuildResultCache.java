@@ -0,0 +1,326 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.toolchain.ops;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+
+import melnorme.lang.tooling.common.SourceLineColumnRange;
+import melnorme.lang.tooling.common.ToolSourceMessage;
+import melnorme.lang.utils.gson.GsonHelper;
+import melnorme.lang.utils.gson.JsonParserX;
+import melnorme.lang.utils.gson.JsonParserX.JsonSyntaxExceptionX;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.FileUtil;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.PathUtil;
+import melnorme.utilbox.status.Severity;
+
+/**
+ * An on-disk cache of the messages of build tool invocations, so that a build whose inputs did not change
+ * can replay the messages of the previous build, instead of running the build tool again.
+ *
+ * Entries are keyed by a hash of the build inputs (see {@link KeyBuilder}), and stored as one JSON file each,
+ * in the cache directory. An entry also records the size and modification time of the output files
+ * of the build, if these existed: if any of them was modified or removed since, the entry is stale.
+ * Once there are more than maxEntries entries, the least recently used ones are removed.
+ */
+public class BuildResultCache {
+	
+	public static final int DEFAULT_MAX_ENTRIES = 512;
+	
+	protected static final String ENTRY_FILE_SUFFIX = ".json";
+	
+	protected final Location cacheDir;
+	protected final int maxEntries;
+	
+	protected int hitCount = 0;
+	protected int missCount = 0;
+	
+	public BuildResultCache(Location cacheDir) {
+		this(cacheDir, DEFAULT_MAX_ENTRIES);
+	}
+	
+	public BuildResultCache(Location cacheDir, int maxEntries) {
+		this.cacheDir = assertNotNull(cacheDir);
+		this.maxEntries = maxEntries;
+	}
+	
+	public Location getCacheDir() {
+		return cacheDir;
+	}
+	
+	public synchronized int getHitCount() {
+		return hitCount;
+	}
+	
+	public synchronized int getMissCount() {
+		return missCount;
+	}
+	
+	protected Path getEntryFile(String key) {
+		return cacheDir.toPath().resolve(key + ENTRY_FILE_SUFFIX);
+	}
+	
+	/**
+	 * @return the build messages for given key, or null if there is no entry, or the entry is stale.
+	 */
+	public synchronized ArrayList2<ToolSourceMessage> getMessages(String key) {
+		Path entryFile = getEntryFile(key);
+		ArrayList2<ToolSourceMessage> messages = null;
+		try {
+			messages = readEntry(entryFile);
+			if(messages != null) {
+				// Mark entry as recently used
+				Files.setLastModifiedTime(entryFile, FileTime.fromMillis(System.currentTimeMillis()));
+			}
+		} catch(IOException e) {
+			messages = null;
+		}
+		if(messages == null) {
+			missCount++;
+		} else {
+			hitCount++;
+		}
+		return messages;
+	}
+	
+	/**
+	 * Store the build messages for given key. The size and modification time of those of given outputFiles
+	 * that exist are recorded.
+	 */
+	public synchronized void putMessages(String key, Iterable<ToolSourceMessage> messages,
+			Collection<Location> outputFiles) throws CommonException {
+		Path entryFile = getEntryFile(key);
+		try {
+			Files.createDirectories(cacheDir.toPath());
+			Path tempFile = Files.createTempFile(cacheDir.toPath(), key, ".tmp");
+			FileUtil.writeStringToFile(tempFile.toFile(), toJson(messages, outputFiles), StandardCharsets.UTF_8);
+			Files.move(tempFile, entryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(IOException e) {
+			throw new CommonException("Error writing build result cache entry: ", e);
+		}
+		removeLeastRecentlyUsed();
+	}
+	
+	public synchronized void clear() throws IOException {
+		for (Path entryFile : listEntryFiles()) {
+			Files.deleteIfExists(entryFile);
+		}
+	}
+	
+	protected ArrayList<Path> listEntryFiles() throws IOException {
+		ArrayList<Path> entryFiles = new ArrayList<>();
+		if(!Files.isDirectory(cacheDir.toPath())) {
+			return entryFiles;
+		}
+		try(DirectoryStream<Path> dirStream = Files.newDirectoryStream(cacheDir.toPath(), "*" + ENTRY_FILE_SUFFIX)) {
+			for (Path entryFile : dirStream) {
+				entryFiles.add(entryFile);
+			}
+		}
+		return entryFiles;
+	}
+	
+	protected void removeLeastRecentlyUsed() {
+		try {
+			ArrayList<Path> entryFiles = listEntryFiles();
+			if(entryFiles.size() <= maxEntries) {
+				return;
+			}
+			
+			ArrayList<FileTime> lastUsedTimes = new ArrayList<>();
+			for (Path entryFile : entryFiles) {
+				lastUsedTimes.add(getLastModifiedTime(entryFile));
+			}
+			ArrayList<Integer> indexes = new ArrayList<>();
+			for (int ix = 0; ix < entryFiles.size(); ix++) {
+				indexes.add(ix);
+			}
+			indexes.sort((ix1, ix2) -> lastUsedTimes.get(ix1).compareTo(lastUsedTimes.get(ix2)));
+			
+			for (int ix = 0; ix < entryFiles.size() - maxEntries; ix++) {
+				Files.deleteIfExists(entryFiles.get(indexes.get(ix)));
+			}
+		} catch(IOException e) {
+			// Ignore, will try again on the next put
+		}
+	}
+	
+	protected static FileTime getLastModifiedTime(Path file) {
+		try {
+			return Files.getLastModifiedTime(file);
+		} catch(IOException e) {
+			return FileTime.fromMillis(0);
+		}
+	}
+	
+	/* ----------------- serialization ----------------- */
+	
+	protected String toJson(Iterable<ToolSourceMessage> messages, Collection<Location> outputFiles)
+			throws IOException {
+		StringWriter stringWriter = new StringWriter();
+		try(JsonWriter writer = new JsonWriter(stringWriter)) {
+			writer.beginObject();
+			
+			writer.name("messages").beginArray();
+			for (ToolSourceMessage message : messages) {
+				writer.beginObject();
+				writer.name("path").value(message.getFilePath().toString());
+				writer.name("line").value(message.range.line);
+				writer.name("column").value(message.range.column);
+				writer.name("endLine").value(message.range.endLine);
+				writer.name("endColumn").value(message.range.endColumn);
+				writer.name("severity").value(message.getSeverity().name());
+				writer.name("message").value(message.getMessage());
+				writer.endObject();
+			}
+			writer.endArray();
+			
+			writer.name("outputs").beginArray();
+			for (Location outputFile : outputFiles) {
+				BasicFileAttributes attrs;
+				try {
+					attrs = Files.readAttributes(outputFile.toPath(), BasicFileAttributes.class);
+				} catch(IOException e) {
+					continue; // Output file doesn't exist
+				}
+				writer.beginObject();
+				writer.name("path").value(outputFile.toPathString());
+				writer.name("size").value(attrs.size());
+				writer.name("modified").value(attrs.lastModifiedTime().toMillis());
+				writer.endObject();
+			}
+			writer.endArray();
+			
+			writer.endObject();
+		}
+		return stringWriter.toString();
+	}
+	
+	/** @return the messages of given entry file, or null if the entry is stale, or can't be read. */
+	protected ArrayList2<ToolSourceMessage> readEntry(Path entryFile) throws IOException {
+		if(!Files.exists(entryFile)) {
+			return null;
+		}
+		String json = FileUtil.readStringFromFile(entryFile, StandardCharsets.UTF_8);
+		try {
+			GsonHelper helper = new GsonHelper();
+			JsonElement element = new JsonParserX().parse(json, false);
+			if(!element.isJsonObject()) {
+				return null;
+			}
+			JsonObject entry = element.getAsJsonObject();
+			
+			for (JsonElement outputElement : helper.getArray(entry, "outputs")) {
+				JsonObject output = outputElement.getAsJsonObject();
+				Path outputFile = PathUtil.createPath(helper.getString(output, "path"));
+				BasicFileAttributes attrs;
+				try {
+					attrs = Files.readAttributes(outputFile, BasicFileAttributes.class);
+				} catch(IOException e) {
+					return null; // Output file was removed
+				}
+				if(attrs.size() != helper.getNumber(output, "size").longValue() ||
+					attrs.lastModifiedTime().toMillis() != helper.getNumber(output, "modified").longValue()) {
+					return null;
+				}
+			}
+			
+			ArrayList2<ToolSourceMessage> messages = new ArrayList2<>();
+			JsonArray messagesArray = helper.getArray(entry, "messages");
+			for (JsonElement messageElement : messagesArray) {
+				JsonObject message = messageElement.getAsJsonObject();
+				SourceLineColumnRange range = new SourceLineColumnRange(
+					helper.getInteger(message, "line"), helper.getInteger(message, "column"),
+					helper.getInteger(message, "endLine"), helper.getInteger(message, "endColumn"));
+				messages.add(new ToolSourceMessage(
+					PathUtil.createPath(helper.getString(message, "path")),
+					range,
+					Severity.fromString(helper.getString(message, "severity")),
+					helper.getString(message, "message")
+				));
+			}
+			return messages;
+		} catch(JsonSyntaxExceptionX | CommonException | IllegalStateException e) {
+			return null; // Entry is corrupt, it will be replaced
+		}
+	}
+	
+	/* ----------------- keys ----------------- */
+	
+	/**
+	 * Computes a cache key: a SHA-256 hash of the build inputs added to it.
+	 */
+	public static class KeyBuilder {
+		
+		protected final MessageDigest digest;
+		
+		public KeyBuilder() {
+			try {
+				digest = MessageDigest.getInstance("SHA-256");
+			} catch(NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e); // SHA-256 support is required of every Java platform
+			}
+		}
+		
+		public KeyBuilder addString(String string) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			addLength(bytes.length);
+			digest.update(bytes);
+			return this;
+		}
+		
+		protected void addLength(int length) {
+			// Length prefix, so that the inputs ("ab", "c") and ("a", "bc") have different keys
+			digest.update(new byte[] { (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8),
+				(byte) length });
+		}
+		
+		/** Add the name and contents of given file. */
+		public KeyBuilder addFile(Path file) throws IOException {
+			addString(file.getFileName().toString());
+			byte[] bytes = Files.readAllBytes(file);
+			addLength(bytes.length);
+			digest.update(bytes);
+			return this;
+		}
+		
+		public String getKey() {
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest.digest()) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -110,9 +110,15 @@ public class SourceOpContext {
 		return FileUtil.readFileContents(location, StringUtil.UTF8);
 	}
 	
+	public SourceLinesInfo getSourceLinesInfoFor(Location location) throws CommonException {
+		if(this.fileLocation.isPresent() && areEqual(location, fileLocation.get())) {
+			return getSourceLinesInfo();
+		}
+		return new SourceLinesInfo(getSourceFor(location));
+	}
+	
 	public int getOffsetFor(SourceLocation findDefResult) throws CommonException {
-		String fileContents = getSourceFor(findDefResult.getFileLocation());
-		SourceLinesInfo linesInfo = new SourceLinesInfo(fileContents);
+		SourceLinesInfo linesInfo = getSourceLinesInfoFor(findDefResult.getFileLocation());
 		
 		SourceLineColumnRange sourceLCRange = findDefResult.getSourceRange();
 		return linesInfo.getOffsetForLine(sourceLCRange.getValidLineIndex()) + sourceLCRange.getValidColumnIndex();
@@ -0,0 +1,392 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.toolchain.ops;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.Set;
+
+import com.google.gson.stream.JsonWriter;
+
+import melnorme.lang.utils.LogLinearHistogram;
+import melnorme.lang.utils.concurrency.TimeoutCancelMonitor;
+import melnorme.utilbox.concurrency.ICancelMonitor;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.process.ExternalProcessNotifyingHelper.IProcessOutputListener;
+
+/**
+ * Records metrics for the invocations of external tools, per tool: invocation count, 
+ * process spawn time, wall time, output size, exit codes, failures, cancellations and timeouts.
+ * 
+ * Metrics can be read as a JSON snapshot ({@link #toJson()}), or as a text summary ({@link #toSummaryText()}).
+ */
+public class ToolMetrics {
+	
+	protected final ConcurrentHashMap<String, ToolStats> toolStats = new ConcurrentHashMap<>();
+	/** The value flags of each tool whose sub-command is recorded, keyed by executable name. */
+	protected final ConcurrentHashMap<String, Set<String>> subcommandTools = new ConcurrentHashMap<>();
+	
+	public ToolMetrics() {
+	}
+	
+	public ToolStats getToolStats(String toolName) {
+		return toolStats.computeIfAbsent(toolName, ToolStats::new);
+	}
+	
+	public void clear() {
+		toolStats.clear();
+	}
+	
+	/**
+	 * Record the invocations of given tool per sub-command (for example "go build"). 
+	 * The sub-command is the first argument that is not a flag, or the value of a flag.
+	 * 
+	 * @param valueFlags the flags of the tool that take their value as a separate argument (for example "-scope").
+	 */
+	public void addSubcommandTool(String executableName, String... valueFlags) {
+		Set<String> flags = new HashSet<>();
+		for (String valueFlag : valueFlags) {
+			flags.add(valueFlag);
+		}
+		subcommandTools.put(executableName, flags);
+	}
+	
+	public Invocation startInvocation(ProcessBuilder pb) {
+		return startInvocation(getToolName(pb.command()));
+	}
+	
+	public Invocation startInvocation(String toolName) {
+		return new Invocation(getToolStats(toolName));
+	}
+	
+	/**
+	 * Start an invocation of given process. The returned listener should be added to the listeners of the process,
+	 * it records the invocation once the process has terminated and its output has been read.
+	 */
+	public InvocationListener startInvocation(ProcessBuilder pb, ICancelMonitor cancelMonitor) {
+		return new InvocationListener(startInvocation(pb), cancelMonitor);
+	}
+	
+	/**
+	 * @return the tool name for given command line: the executable name (without extension), 
+	 * followed by the sub-command if the tool was added with {@link #addSubcommandTool(String, String...)}.
+	 */
+	public String getToolName(List<String> commandLine) {
+		if(commandLine.isEmpty()) {
+			return "";
+		}
+		String toolPath = commandLine.get(0);
+		// Handle both separators, regardless of the current platform
+		int nameStart = Math.max(toolPath.lastIndexOf('/'), toolPath.lastIndexOf('\\')) + 1;
+		String toolName = StringUtil.trimEnd(toolPath.substring(nameStart), ".exe");
+		
+		Set<String> valueFlags = subcommandTools.get(toolName);
+		if(valueFlags == null) {
+			return toolName;
+		}
+		
+		for (int ix = 1; ix < commandLine.size(); ix++) {
+			String arg = commandLine.get(ix);
+			if(arg.equals("--")) {
+				if(ix + 1 < commandLine.size()) {
+					return toolName + " " + commandLine.get(ix + 1);
+				}
+				break;
+			}
+			if(!arg.startsWith("-")) {
+				return toolName + " " + arg;
+			}
+			if(valueFlags.contains(arg)) {
+				ix++; // Skip the flag value
+			}
+		}
+		return toolName;
+	}
+	
+	/* -----------------  ----------------- */
+	
+	public static class ToolStats {
+		
+		protected final String toolName;
+		
+		protected final AtomicLong invocations = new AtomicLong();
+		protected final AtomicLong failures = new AtomicLong();
+		protected final AtomicLong cancellations = new AtomicLong();
+		protected final AtomicLong timeouts = new AtomicLong();
+		protected final ConcurrentHashMap<Integer, AtomicLong> exitCodes = new ConcurrentHashMap<>();
+		
+		/** Time to start the process, in microseconds. */
+		protected final LogLinearHistogram spawnTime = new LogLinearHistogram();
+		/** Time from the start of the invocation until the process output has been read, in microseconds. */
+		protected final LogLinearHistogram wallTime = new LogLinearHistogram();
+		/** Size of the process output (stdout and stderr), in bytes. */
+		protected final LogLinearHistogram outputBytes = new LogLinearHistogram();
+		
+		public ToolStats(String toolName) {
+			this.toolName = assertNotNull(toolName);
+		}
+		
+		public String getToolName() {
+			return toolName;
+		}
+		
+		public long getInvocationCount() {
+			return invocations.get();
+		}
+		
+		public long getFailureCount() {
+			return failures.get();
+		}
+		
+		public long getCancellationCount() {
+			return cancellations.get();
+		}
+		
+		public long getTimeoutCount() {
+			return timeouts.get();
+		}
+		
+		public long getExitCodeCount(int exitCode) {
+			AtomicLong count = exitCodes.get(exitCode);
+			return count == null ? 0 : count.get();
+		}
+		
+		public LogLinearHistogram getSpawnTime() {
+			return spawnTime;
+		}
+		
+		public LogLinearHistogram getWallTime() {
+			return wallTime;
+		}
+		
+		public LogLinearHistogram getOutputBytes() {
+			return outputBytes;
+		}
+		
+	}
+	
+	/**
+	 * Records the metrics of a single tool invocation. 
+	 * One of the completion methods (such as {@link #completed(int, long)}) should be called, 
+	 * only the first call is recorded.
+	 */
+	public static class Invocation {
+		
+		protected final ToolStats stats;
+		protected final long startNanos = System.nanoTime();
+		protected final AtomicBoolean finished = new AtomicBoolean();
+		
+		public Invocation(ToolStats stats) {
+			this.stats = assertNotNull(stats);
+			stats.invocations.incrementAndGet();
+		}
+		
+		protected long elapsedMicros() {
+			return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+		}
+		
+		public void processStarted() {
+			stats.spawnTime.recordValue(elapsedMicros());
+		}
+		
+		protected boolean finish() {
+			return finished.compareAndSet(false, true);
+		}
+		
+		public void completed(int exitCode, long outputByteCount) {
+			if(!finish()) {
+				return;
+			}
+			stats.wallTime.recordValue(elapsedMicros());
+			stats.outputBytes.recordValue(outputByteCount);
+			stats.exitCodes.computeIfAbsent(exitCode, (key) -> new AtomicLong()).incrementAndGet();
+		}
+		
+		/** The process could not be started, or its output could not be read. */
+		public void failed() {
+			if(!finish()) {
+				return;
+			}
+			stats.wallTime.recordValue(elapsedMicros());
+			stats.failures.incrementAndGet();
+		}
+		
+		public void cancelled() {
+			if(!finish()) {
+				return;
+			}
+			stats.wallTime.recordValue(elapsedMicros());
+			stats.cancellations.incrementAndGet();
+		}
+		
+		public void timedOut() {
+			if(!finish()) {
+				return;
+			}
+			stats.wallTime.recordValue(elapsedMicros());
+			stats.timeouts.incrementAndGet();
+		}
+		
+		/** Record a cancellation by given monitor: a timeout if it is a {@link TimeoutCancelMonitor}. */
+		public void cancelled(ICancelMonitor cancelMonitor) {
+			if(cancelMonitor instanceof TimeoutCancelMonitor) {
+				timedOut();
+			} else {
+				cancelled();
+			}
+		}
+		
+	}
+	
+	/**
+	 * Process listener that records an {@link Invocation} when the process has terminated and its output 
+	 * has been read. This way, the invocation is recorded however the process is awaited 
+	 * (for example, by polling for its result while the output is streamed).
+	 */
+	public static class InvocationListener implements IProcessOutputListener {
+		
+		protected final Invocation invocation;
+		protected final ICancelMonitor cancelMonitor;
+		protected final AtomicLong outputBytes = new AtomicLong();
+		
+		public InvocationListener(Invocation invocation, ICancelMonitor cancelMonitor) {
+			this.invocation = assertNotNull(invocation);
+			this.cancelMonitor = assertNotNull(cancelMonitor);
+		}
+		
+		public Invocation getInvocation() {
+			return invocation;
+		}
+		
+		@Override
+		public void notifyStdOutListeners(byte[] buffer, int offset, int readCount) {
+			outputBytes.addAndGet(readCount);
+		}
+		
+		@Override
+		public void notifyStdErrListeners(byte[] buffer, int offset, int readCount) {
+			outputBytes.addAndGet(readCount);
+		}
+		
+		@Override
+		public void notifyProcessTerminatedAndRead(int exitCode) {
+			// If cancelled, the process was most likely destroyed because of the cancellation
+			if(cancelMonitor.isCancelled()) {
+				invocation.cancelled(cancelMonitor);
+			} else {
+				invocation.completed(exitCode, outputBytes.get());
+			}
+		}
+		
+	}
+	
+	/* ----------------- snapshot ----------------- */
+	
+	protected TreeMap<String, ToolStats> getSortedStats() {
+		return new TreeMap<>(toolStats);
+	}
+	
+	public String toJson() {
+		StringWriter stringWriter = new StringWriter();
+		try(JsonWriter writer = new JsonWriter(stringWriter)) {
+			writer.setIndent("  ");
+			writer.beginObject();
+			for (ToolStats stats : getSortedStats().values()) {
+				writer.name(stats.toolName);
+				writeJson(writer, stats);
+			}
+			writer.endObject();
+		} catch(IOException e) {
+			throw new RuntimeException(e); // Cannot happen with a StringWriter
+		}
+		return stringWriter.toString();
+	}
+	
+	protected void writeJson(JsonWriter writer, ToolStats stats) throws IOException {
+		writer.beginObject();
+		writer.name("invocations").value(stats.getInvocationCount());
+		writer.name("failures").value(stats.getFailureCount());
+		writer.name("cancellations").value(stats.getCancellationCount());
+		writer.name("timeouts").value(stats.getTimeoutCount());
+		
+		writer.name("exitCodes").beginObject();
+		for (Entry<Integer, AtomicLong> entry : new TreeMap<>(stats.exitCodes).entrySet()) {
+			writer.name(entry.getKey().toString()).value(entry.getValue().get());
+		}
+		writer.endObject();
+		
+		writer.name("spawnTimeMicros");
+		writeJson(writer, stats.spawnTime);
+		writer.name("wallTimeMicros");
+		writeJson(writer, stats.wallTime);
+		writer.name("outputBytes");
+		writeJson(writer, stats.outputBytes);
+		writer.endObject();
+	}
+	
+	protected void writeJson(JsonWriter writer, LogLinearHistogram histogram) throws IOException {
+		writer.beginObject();
+		writer.name("count").value(histogram.getTotalCount());
+		writer.name("min").value(histogram.getMinValue());
+		writer.name("mean").value(Math.round(histogram.getMean()));
+		writer.name("p50").value(histogram.getValueAtPercentile(50));
+		writer.name("p90").value(histogram.getValueAtPercentile(90));
+		writer.name("p99").value(histogram.getValueAtPercentile(99));
+		writer.name("max").value(histogram.getMaxValue());
+		writer.endObject();
+	}
+	
+	public String toSummaryText() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-20s %7s %6s %6s %6s %9s %9s %9s %9s %10s%n",
+			"Tool", "Runs", "Fail", "Cancel", "T/out", "Spawn p50", "Wall p50", "Wall p90", "Wall max", "Out p90"));
+		for (ToolStats stats : getSortedStats().values()) {
+			sb.append(String.format("%-20s %7d %6d %6d %6d %9s %9s %9s %9s %10s%n",
+				stats.toolName,
+				stats.getInvocationCount(),
+				stats.getFailureCount(),
+				stats.getCancellationCount(),
+				stats.getTimeoutCount(),
+				formatMicros(stats.spawnTime.getValueAtPercentile(50)),
+				formatMicros(stats.wallTime.getValueAtPercentile(50)),
+				formatMicros(stats.wallTime.getValueAtPercentile(90)),
+				formatMicros(stats.wallTime.getMaxValue()),
+				formatBytes(stats.outputBytes.getValueAtPercentile(90))
+			));
+		}
+		return sb.toString();
+	}
+	
+	protected static String formatMicros(long micros) {
+		if(micros < 10_000) {
+			return String.format("%.1fms", micros / 1000.0);
+		}
+		return String.format("%dms", micros / 1000);
+	}
+	
+	protected static String formatBytes(long bytes) {
+		if(bytes < 10 * 1024) {
+			return bytes + "B";
+		}
+		return (bytes / 1024) + "KB";
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.utils;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative long values, with fixed memory and bounded relative error
+ * (in the style of HdrHistogram): values below {@link #SUB_BUCKET_COUNT} are recorded exactly, 
+ * and each power of two range above that is split into {@link #SUB_BUCKET_COUNT} buckets of equal size, 
+ * so a value is reported with an error of at most 1/{@link #SUB_BUCKET_COUNT} (about 3%).
+ * 
+ * Recording is lock-free and can be done concurrently. Reads are not atomic with regards to 
+ * concurrent recording, but every recorded value is eventually visible.
+ */
+public class LogLinearHistogram {
+	
+	public static final int SUB_BUCKET_BITS = 5;
+	public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	
+	protected static final int BUCKET_COUNT = getBucketIndex(Long.MAX_VALUE) + 1;
+	
+	protected final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	protected final AtomicLong totalCount = new AtomicLong();
+	protected final AtomicLong totalSum = new AtomicLong();
+	protected final AtomicLong minValue = new AtomicLong(Long.MAX_VALUE);
+	protected final AtomicLong maxValue = new AtomicLong(0);
+	
+	public LogLinearHistogram() {
+	}
+	
+	protected static int getBucketIndex(long value) {
+		if(value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+		return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+	}
+	
+	/** @return the highest value that is recorded in the same bucket as the values of given bucket index. */
+	protected static long getBucketHighestValue(int bucketIndex) {
+		if(bucketIndex < SUB_BUCKET_COUNT) {
+			return bucketIndex;
+		}
+		int shift = (bucketIndex - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+		long subBucket = (bucketIndex - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+		long nextLowest = (SUB_BUCKET_COUNT + subBucket + 1) << shift;
+		return nextLowest - 1;
+	}
+	
+	public void recordValue(long value) {
+		assertTrue(value >= 0);
+		counts.incrementAndGet(getBucketIndex(value));
+		totalSum.addAndGet(value);
+		minValue.accumulateAndGet(value, Math::min);
+		maxValue.accumulateAndGet(value, Math::max);
+		totalCount.incrementAndGet();
+	}
+	
+	public long getTotalCount() {
+		return totalCount.get();
+	}
+	
+	/** @return the minimum recorded value, or 0 if there are no values. */
+	public long getMinValue() {
+		return getTotalCount() == 0 ? 0 : minValue.get();
+	}
+	
+	public long getMaxValue() {
+		return maxValue.get();
+	}
+	
+	public double getMean() {
+		long count = getTotalCount();
+		return count == 0 ? 0 : (double) totalSum.get() / count;
+	}
+	
+	/**
+	 * @return a value such that given percentage of the recorded values are equal or lower to it
+	 * (within the precision of this histogram), or 0 if there are no values. 
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long count = getTotalCount();
+		if(count == 0) {
+			return 0;
+		}
+		double boundedPercentile = Math.min(Math.max(percentile, 0.0), 100.0);
+		long targetCount = Math.max(1, (long) Math.ceil(boundedPercentile / 100.0 * count));
+		
+		long accumulatedCount = 0;
+		for (int ix = 0; ix < BUCKET_COUNT; ix++) {
+			accumulatedCount += counts.get(ix);
+			if(accumulatedCount >= targetCount) {
+				return Math.min(getBucketHighestValue(ix), getMaxValue());
+			}
+		}
+		return getMaxValue();
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.utils;
+
+import java.io.IOException;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import melnorme.lang.tooling.parser.SourceLinesInfo;
+import melnorme.utilbox.misc.FileUtil;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.StringUtil;
+
+/**
+ * A cache of the {@link SourceLinesInfo} of files, to avoid reading a file and calculating its lines again
+ * when it has not changed. Entries are validated with the file modification time and size.
+ *
+ * The cache is bounded by the total length of the cached sources: the least recently used entries are removed
+ * first.
+ */
+public class SourceLinesInfoCache {
+	
+	protected final long maxTotalLength;
+	protected final LinkedHashMap<Location, LinesInfoEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	protected long totalLength = 0;
+	
+	public SourceLinesInfoCache(long maxTotalLength) {
+		this.maxTotalLength = maxTotalLength;
+	}
+	
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+	
+	public synchronized long getTotalLength() {
+		return totalLength;
+	}
+	
+	public synchronized void clear() {
+		entries.clear();
+		totalLength = 0;
+	}
+	
+	/** @return the lines info for the current contents of given file. */
+	public SourceLinesInfo getLinesInfo(Location fileLocation) throws IOException {
+		LinesInfoEntry entry;
+		synchronized(this) {
+			entry = entries.computeIfAbsent(fileLocation, LinesInfoEntry::new);
+		}
+		
+		// Read outside of the cache lock, only requests for the same file wait for each other.
+		synchronized(entry) {
+			if(!entry.isStale()) {
+				return entry.getValue();
+			}
+			String source;
+			try {
+				source = FileUtil.readStringFromFile(fileLocation.toPath(), StringUtil.UTF8);
+			} catch(IOException e) {
+				removeEntry(entry);
+				throw e;
+			}
+			SourceLinesInfo linesInfo = new SourceLinesInfo(source);
+			entry.updateValue(linesInfo);
+			
+			updateLength(entry, linesInfo.getSource().length());
+			return linesInfo;
+		}
+	}
+	
+	protected synchronized void updateLength(LinesInfoEntry entry, int newLength) {
+		if(entries.get(entry.getFileLocation()) != entry) {
+			return; // Entry was removed in the meanwhile
+		}
+		totalLength += newLength - entry.length;
+		entry.length = newLength;
+		
+		Iterator<LinesInfoEntry> iter = entries.values().iterator();
+		while(totalLength > maxTotalLength && entries.size() > 1) {
+			LinesInfoEntry eldest = iter.next();
+			if(eldest == entry) {
+				continue; // Keep the entry just read
+			}
+			iter.remove();
+			totalLength -= eldest.length;
+		}
+	}
+	
+	protected synchronized void removeEntry(LinesInfoEntry entry) {
+		if(entries.remove(entry.getFileLocation(), entry)) {
+			totalLength -= entry.length;
+		}
+	}
+	
+	protected static class LinesInfoEntry extends FileCachingEntry<SourceLinesInfo> {
+		
+		protected int length = 0;
+		
+		public LinesInfoEntry(Location location) {
+			super(location);
+		}
+		
+		@Override
+		protected void handleWarning_ModifiedTimeInTheFuture(FileTime lastModifiedTime) {
+			// Ignore, entry will be considered stale when the modified time changes again.
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.utils.concurrency;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.HashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import melnorme.utilbox.concurrency.ICancellableTask;
+import melnorme.utilbox.concurrency.ICommonExecutor;
+import melnorme.utilbox.concurrency.NamingThreadFactory;
+
+/**
+ * Schedules tasks for execution in an executor, debouncing and coalescing the tasks submitted under the same key:
+ *
+ * - A task only runs once a quiet period has elapsed with no other submissions for the same key,
+ * but no later than a max latency after the first submission that is still pending.
+ * - A pending task superseded by a new submission for the same key is cancelled, and is never run.
+ * - At most one task per key is in flight: if a task is still running, the next task for the same key
+ * waits for it to finish.
+ */
+public class CoalescingTaskScheduler<KEY> {
+	
+	protected final ICommonExecutor executor;
+	protected final ScheduledThreadPoolExecutor timer;
+	protected final HashMap<KEY, KeyEntry> entries = new HashMap<>();
+	
+	protected volatile int quietPeriodMillis;
+	protected volatile int maxLatencyMillis;
+	
+	protected final AtomicLong submittedCount = new AtomicLong();
+	protected final AtomicLong coalescedCount = new AtomicLong();
+	protected final AtomicLong executedCount = new AtomicLong();
+	
+	public CoalescingTaskScheduler(ICommonExecutor executor, int quietPeriodMillis, int maxLatencyMillis) {
+		this.executor = assertNotNull(executor);
+		setDelays(quietPeriodMillis, maxLatencyMillis);
+		
+		this.timer = new ScheduledThreadPoolExecutor(1, new NamingThreadFactory(executor.getName() + ".timer"));
+		this.timer.setRemoveOnCancelPolicy(true);
+		this.timer.setKeepAliveTime(10, TimeUnit.SECONDS);
+		this.timer.allowCoreThreadTimeOut(true);
+	}
+	
+	/**
+	 * Set the quiet period and max latency for tasks submitted from now on.
+	 * A quiet period of 0 means tasks are dispatched as soon as possible.
+	 */
+	public void setDelays(int quietPeriodMillis, int maxLatencyMillis) {
+		assertTrue(quietPeriodMillis >= 0 && maxLatencyMillis >= 0);
+		this.quietPeriodMillis = quietPeriodMillis;
+		this.maxLatencyMillis = maxLatencyMillis;
+	}
+	
+	public int getQuietPeriodMillis() {
+		return quietPeriodMillis;
+	}
+	
+	public int getMaxLatencyMillis() {
+		return maxLatencyMillis;
+	}
+	
+	/** @return the number of tasks submitted to this scheduler. */
+	public long getSubmittedCount() {
+		return submittedCount.get();
+	}
+	
+	/** @return the number of tasks that were superseded by a later task with the same key, before running. */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+	
+	/** @return the number of tasks that have been run by the executor. */
+	public long getExecutedCount() {
+		return executedCount.get();
+	}
+	
+	public void shutdown() {
+		timer.shutdownNow();
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/**
+	 * Submit given task for execution, replacing any pending task with the same key.
+	 */
+	public synchronized void submit(KEY key, ICancellableTask task) {
+		assertNotNull(task);
+		submittedCount.incrementAndGet();
+		
+		KeyEntry entry = entries.get(key);
+		if(entry == null) {
+			entry = new KeyEntry(key);
+			entries.put(key, entry);
+		}
+		
+		if(entry.pendingTask != null) {
+			coalescedCount.incrementAndGet();
+			entry.pendingTask.tryCancel();
+		} else {
+			entry.firstPendingNanos = System.nanoTime();
+		}
+		entry.pendingTask = task;
+		entry.schedulePending();
+	}
+	
+	/** @return whether there is a task pending or running for given key. */
+	public synchronized boolean hasTasks(KEY key) {
+		return entries.containsKey(key);
+	}
+	
+	protected class KeyEntry {
+		
+		protected final KEY key;
+		
+		protected ICancellableTask pendingTask;
+		protected long firstPendingNanos;
+		/** Whether the delay of the pending task has elapsed */
+		protected boolean isDue;
+		protected boolean isRunning;
+		
+		protected ScheduledFuture<?> timerFuture;
+		protected int timerGeneration;
+		
+		public KeyEntry(KEY key) {
+			this.key = key;
+		}
+		
+		protected void schedulePending() {
+			isDue = false;
+			if(timerFuture != null) {
+				timerFuture.cancel(false);
+				timerFuture = null;
+			}
+			
+			long quietPeriodNanos = TimeUnit.MILLISECONDS.toNanos(quietPeriodMillis);
+			long maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+			long delayNanos = Math.min(quietPeriodNanos, firstPendingNanos + maxLatencyNanos - System.nanoTime());
+			
+			if(delayNanos <= 0 || timer.isShutdown()) {
+				isDue = true;
+				dispatchIfReady();
+				return;
+			}
+			
+			// The generation guards against a timer that fires concurrently with its cancellation
+			int generation = ++timerGeneration;
+			timerFuture = timer.schedule(() -> timerElapsed(this, generation), delayNanos, TimeUnit.NANOSECONDS);
+		}
+		
+		protected void dispatchIfReady() {
+			if(!isDue || isRunning || pendingTask == null) {
+				return;
+			}
+			ScheduledTask scheduledTask = new ScheduledTask(this, pendingTask);
+			pendingTask = null;
+			isDue = false;
+			
+			isRunning = true;
+			try {
+				executor.submitTask(scheduledTask);
+			} catch(RuntimeException e) {
+				isRunning = false;
+				removeIfIdle();
+				throw e;
+			}
+		}
+		
+		protected void removeIfIdle() {
+			if(!isRunning && pendingTask == null) {
+				entries.remove(key);
+			}
+		}
+		
+	}
+	
+	protected synchronized void timerElapsed(KeyEntry entry, int generation) {
+		if(entry.timerGeneration != generation || entries.get(entry.key) != entry) {
+			return;
+		}
+		entry.timerFuture = null;
+		entry.isDue = true;
+		entry.dispatchIfReady();
+	}
+	
+	protected synchronized void taskFinished(KeyEntry entry) {
+		assertTrue(entry.isRunning);
+		entry.isRunning = false;
+		entry.dispatchIfReady();
+		entry.removeIfIdle();
+	}
+	
+	protected class ScheduledTask implements ICancellableTask {
+		
+		protected final KeyEntry entry;
+		protected final ICancellableTask task;
+		
+		public ScheduledTask(KeyEntry entry, ICancellableTask task) {
+			this.entry = entry;
+			this.task = task;
+		}
+		
+		@Override
+		public boolean canExecute() {
+			return task.canExecute();
+		}
+		
+		@Override
+		public boolean tryCancel() {
+			return task.tryCancel();
+		}
+		
+		@Override
+		public void run() {
+			try {
+				executedCount.incrementAndGet();
+				task.run();
+			} finally {
+				taskFinished(entry);
+			}
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -13,9 +13,11 @@ package melnorme.lang.utils.concurrency;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 
-import java.util.concurrent.CountDownLatch;
+import java.util.HashSet;
+import java.util.concurrent.Phaser;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import melnorme.lang.tooling.common.ops.IOperationMonitor;
 import melnorme.utilbox.concurrency.AsyncSupplier;
@@ -32,6 +34,12 @@ import melnorme.utilbox.fields.ListenerListHelper;
  * 
  * The responsibility for actually executing the update task lies externally, not here. 
  * 
+ * The data, and whether it is stale, are published as an immutable {@link DataSnapshot}, 
+ * so readers ({@link #getStoredData()}, {@link #isStale()}) never block. 
+ * Writers (the update task transitions) are serialized by the instance lock, 
+ * which subclasses can use to guard state tied to those transitions. 
+ * Listeners are notified outside that lock.
+ * 
  * @param SELF must be a subtype of the parameterized class.
  */
 public class ConcurrentlyDerivedData<DATA, SELF> {
@@ -41,20 +49,52 @@ public class ConcurrentlyDerivedData<DATA, SELF> {
 	protected final ListenerListHelper<IDataUpdateRequestedListener<SELF>> updateRequestedListeners = 
 			new ListenerListHelper<>();
 	
+	/** The data to publish in the next snapshot, guarded by this. */
 	private DATA data = null;
-	private DataUpdateTask<DATA> latestUpdateTask = null;
-	private CountDownLatch latch = new CountDownLatch(0);
+	private final AtomicReference<DataSnapshot<DATA>> snapshot = new AtomicReference<>();
+	/** 
+	 * Advances once for each completed update (after listeners have been notified of it), 
+	 * so its phase is the number of completed updates. 
+	 * Note: phase wrap-around (after Integer.MAX_VALUE updates) is not handled.
+	 */
+	private final Phaser completedUpdatesPhaser = new Phaser(1);
+	/** Updates that completed before an earlier update did, so they can't arrive at the phaser yet. */
+	private final HashSet<Integer> pendingArrivals = new HashSet<>();
 	
 	public ConcurrentlyDerivedData() {
 		internalSetData(null);
+		snapshot.set(new DataSnapshot<>(data, null, 0));
 	}
 	
+	/**
+	 * An immutable snapshot of the stored data, and of the update task in progress (null if none).
+	 */
+	protected static class DataSnapshot<DATA> {
+		
+		protected final DATA data;
+		protected final DataUpdateTask<DATA> updateTask;
+		/** The number of updates completed before this snapshot. */
+		protected final int completedUpdates;
+		
+		public DataSnapshot(DATA data, DataUpdateTask<DATA> updateTask, int completedUpdates) {
+			this.data = data;
+			this.updateTask = updateTask;
+			this.completedUpdates = completedUpdates;
+		}
+		
+		public boolean isStale() {
+			return updateTask != null;
+		}
+		
+	}
+	
+	/** Set the data for the next snapshot. Runs under the instance lock. */
 	protected void internalSetData(DATA newData) {
 		this.data = newData;
 	}
 	
-	public synchronized DATA getStoredData() {
-		return data;
+	public DATA getStoredData() {
+		return snapshot.get().data;
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -62,12 +102,13 @@ public class ConcurrentlyDerivedData<DATA, SELF> {
 		return (SELF) this;
 	}
 	
-	public synchronized boolean isStale() {
-		return latestUpdateTask != null;
+	public boolean isStale() {
+		return snapshot.get().isStale();
 	}
 	
-	public synchronized boolean isStale(DATA data) {
-		return isStale() || getStoredData() != data;
+	public boolean isStale(DATA data) {
+		DataSnapshot<DATA> current = snapshot.get();
+		return current.isStale() || current.data != data;
 	}
 	
 	public synchronized void runSynchronized(Runnable runnable) {
@@ -78,53 +119,75 @@ public class ConcurrentlyDerivedData<DATA, SELF> {
 		return callable.call();
 	}
 	
-	public synchronized CountDownLatch getLatchForUpdateTask() {
-		return latch;
-	}
-	
-	public synchronized void setUpdateTask(DataUpdateTask<DATA> newUpdateTask) {
+	public void setUpdateTask(DataUpdateTask<DATA> newUpdateTask) {
 		assertNotNull(newUpdateTask);
 		assertTrue(!newUpdateTask.hasExecuted());
-		assertTrue(latestUpdateTask != newUpdateTask);
-		
-		if(latestUpdateTask == null) {
-			assertTrue(latch.getCount() == 0);
-			latch = new CountDownLatch(1);
-		} else {
-			assertTrue(latch.getCount() == 1);
-			latestUpdateTask.cancel();
+		
+		synchronized(this) {
+			DataSnapshot<DATA> current = snapshot.get();
+			assertTrue(current.updateTask != newUpdateTask);
+			
+			if(current.updateTask != null) {
+				current.updateTask.cancel();
+			}
+			snapshot.set(new DataSnapshot<>(data, newUpdateTask, current.completedUpdates));
 		}
-		latestUpdateTask = newUpdateTask;
 		
 		doHandleDataUpdateRequested();
 	}
 	
 	protected void doHandleDataUpdateRequested() {
-		for(IDataUpdateRequestedListener<SELF> listener : updateRequestedListeners.getListeners()) {
-			listener.dataUpdateRequested(getSelf());
+		updateRequestedListeners.notifyListeners(getSelf(), IDataUpdateRequestedListener::dataUpdateRequested);
+	}
+	
+	public void setNewData(DATA newData, DataUpdateTask<DATA> updateTask) {
+		int completedUpdate = -1;
+		try {
+			synchronized(this) {
+				DataSnapshot<DATA> current = snapshot.get();
+				if(current.updateTask != updateTask) {
+					// Ignore, means this update task was cancelled
+					assertTrue(updateTask.isCancelled());
+					return;
+				}
+				completedUpdate = current.completedUpdates + 1;
+				try {
+					internalSetData(newData);
+				} finally {
+					snapshot.set(new DataSnapshot<>(data, null, completedUpdate));
+				}
+			}
+			
+			doHandleDataChanged();
+		} finally {
+			if(completedUpdate != -1) {
+				arriveCompletedUpdate(completedUpdate);
+			}
 		}
 	}
 	
-	public synchronized void setNewData(DATA newData, DataUpdateTask<DATA> updateTask) {
-		if(latestUpdateTask != updateTask) {
-			// Ignore, means this update task was cancelled
-			assertTrue(updateTask.isCancelled());
-		} else {
-			try {
-				internalSetData(newData);
-				doHandleDataChanged();
-			} finally {
-				latestUpdateTask = null;
-				latch.countDown();
+	public void cancelUpdateTask(DataUpdateTask<DATA> updateTask) {
+		int completedUpdate;
+		synchronized(this) {
+			DataSnapshot<DATA> current = snapshot.get();
+			if(current.updateTask != updateTask) {
+				return;
 			}
+			completedUpdate = current.completedUpdates + 1;
+			snapshot.set(new DataSnapshot<>(data, null, completedUpdate));
 		}
+		arriveCompletedUpdate(completedUpdate);
 	}
 	
-	public synchronized void cancelUpdateTask(DataUpdateTask<DATA> updateTask) {
-		if(latestUpdateTask == updateTask) {
-			latestUpdateTask = null;
-			
-			latch.countDown();
+	protected void arriveCompletedUpdate(int completedUpdate) {
+		// The phaser has a single party, so concurrent arrivals (of different updates) must be serialized.
+		// Also, updates can complete out of order (a cancellation can complete while the previous update 
+		// is still notifying listeners), so the phaser only advances past an update once all previous ones did.
+		synchronized(this) {
+			pendingArrivals.add(completedUpdate);
+			while(pendingArrivals.remove(completedUpdatesPhaser.getPhase() + 1)) {
+				completedUpdatesPhaser.arrive();
+			}
 		}
 	}
 	
@@ -187,31 +250,47 @@ public class ConcurrentlyDerivedData<DATA, SELF> {
 	
 	public class DataUpdateFuture implements AsyncSupplier<DATA> {
 		
+		/** 
+		 * @return the number of completed updates to wait for: those of the current snapshot, 
+		 * plus the update in progress, if any. 
+		 */
+		protected int getTargetPhase() {
+			DataSnapshot<DATA> current = snapshot.get();
+			return current.isStale() ? current.completedUpdates + 1 : current.completedUpdates;
+		}
+		
 		public void awaitTermination() throws InterruptedException {
-			getLatchForUpdateTask().await();
+			int targetPhase = getTargetPhase();
+			int phase = completedUpdatesPhaser.getPhase();
+			while(phase < targetPhase) {
+				phase = completedUpdatesPhaser.awaitAdvanceInterruptibly(phase);
+			}
 		}
 		
 		public void awaitTermination(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
-			boolean success = getLatchForUpdateTask().await(timeout, unit);
-			if(!success) {
-				throw new TimeoutException();
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			int targetPhase = getTargetPhase();
+			int phase = completedUpdatesPhaser.getPhase();
+			while(phase < targetPhase) {
+				phase = completedUpdatesPhaser.awaitAdvanceInterruptibly(phase, 
+					deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
 			}
 		}
 		
 		@Override
 		public DATA awaitResult() throws InterruptedException {
 			awaitTermination();
-			return data;
+			return getStoredData();
 		}
 		
 		@Override
 		public DATA awaitResult(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
 			awaitTermination(timeout, unit);
-			return data;
+			return getStoredData();
 		}
 		
 	}
-
+	
 	/* -----------------  ----------------- */
 	
 	public static interface IDataUpdateRequestedListener<DERIVED_DATA> {
@@ -219,9 +298,10 @@ public class ConcurrentlyDerivedData<DATA, SELF> {
 		/** 
 		 * Indicates that an asynchronous request to change the underlying derived data has been made.
 		 * 
-		 * This method runs under a {@link ConcurrentlyDerivedData} lock, so listeners should finish quickly.
+		 * This method runs in the thread that made the request, outside the {@link ConcurrentlyDerivedData} lock,
+		 * so listeners should finish quickly.
 		 */
-		void dataUpdateRequested(DERIVED_DATA lockedDerivedData);
+		void dataUpdateRequested(DERIVED_DATA derivedData);
 		
 	}
 	
@@ -230,17 +310,18 @@ public class ConcurrentlyDerivedData<DATA, SELF> {
 		/** 
 		 * Indicates that underlying derived data has changed.
 		 * 
-		 * This method runs under a {@link ConcurrentlyDerivedData} lock, so listeners should finish quickly.
+		 * This method runs in the update task thread, outside the {@link ConcurrentlyDerivedData} lock, 
+		 * so the data might have changed again in the meanwhile. 
+		 * Waiters of {@link ConcurrentlyDerivedData#awaitUpdatedData()} are only released 
+		 * after listeners have been notified, so listeners should finish quickly.
 		 */
-		void dataChanged(DERIVED_DATA lockedDerivedData);
+		void dataChanged(DERIVED_DATA derivedData);
 		
 	}
 	
-	protected static <DATA> void notifyStructureChanged(final DATA lockedDerivedData, 
+	protected static <DATA> void notifyStructureChanged(final DATA derivedData, 
 			ListenerListHelper<? extends IDataChangedListener<DATA>> listeners) {
-		for(IDataChangedListener<DATA> listener : listeners.getListeners()) {
-			listener.dataChanged(lockedDerivedData);
-		}
+		listeners.notifyListeners(derivedData, IDataChangedListener::dataChanged);
 	}
 	
 }
\ No newline at end of file
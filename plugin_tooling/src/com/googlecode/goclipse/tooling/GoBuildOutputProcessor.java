@@ -93,6 +93,11 @@ public abstract class GoBuildOutputProcessor extends BuildOutputParser2 {
 		return msgData;
 	}
 	
+	@Override
+	protected boolean isMessageContinuationLine(String line) {
+		return line.startsWith("\t");
+	}
+	
 	@Override
 	protected ToolSourceMessage createMessage(ToolMessageData msgdata) throws CommonException {
 		if(msgdata.messageTypeString == null) {
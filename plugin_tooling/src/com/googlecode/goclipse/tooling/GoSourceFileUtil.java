@@ -12,6 +12,7 @@ package com.googlecode.goclipse.tooling;
 
 import melnorme.lang.utils.parse.LexingUtils;
 import melnorme.lang.utils.parse.StringCharSource;
+import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
 
 public class GoSourceFileUtil {
@@ -61,4 +62,80 @@ public class GoSourceFileUtil {
 		}
 	}
 	
+	/**
+	 * Heuristic method to find the import paths of a Go source file, from the import declarations
+	 * that follow the package clause. Parsing stops at the first other declaration.
+	 */
+	public static ArrayList2<String> findImports(String source) {
+		ArrayList2<String> imports = new ArrayList2<>();
+		StringCharSource parser = new StringCharSource(source);
+		
+		skipWhitespaceAndComments(parser);
+		if(!"package".equals(LexingUtils.tryConsumeJavaIdentifier(parser))) {
+			return imports;
+		}
+		skipWhitespaceAndComments(parser);
+		LexingUtils.tryConsumeJavaIdentifier(parser);
+		
+		while(true) {
+			skipWhitespaceAndComments(parser);
+			parser.tryConsume(';');
+			skipWhitespaceAndComments(parser);
+			if(!"import".equals(LexingUtils.tryConsumeJavaIdentifier(parser))) {
+				return imports;
+			}
+			skipWhitespaceAndComments(parser);
+			
+			if(!parser.tryConsume('(')) {
+				if(!parseImportSpec(parser, imports)) {
+					return imports;
+				}
+				continue;
+			}
+			while(true) {
+				skipWhitespaceAndComments(parser);
+				if(parser.tryConsume(';')) {
+					continue;
+				}
+				if(parser.tryConsume(')') || !parseImportSpec(parser, imports)) {
+					break;
+				}
+			}
+		}
+	}
+	
+	/** Parse an import spec: an optional package name, and the import path. */
+	protected static boolean parseImportSpec(StringCharSource parser, ArrayList2<String> imports) {
+		if(!parser.tryConsume('.') && !parser.tryConsume('_')) {
+			LexingUtils.tryConsumeJavaIdentifier(parser);
+		}
+		skipWhitespaceAndComments(parser);
+		
+		if(parser.tryConsume('"')) {
+			imports.add(LexingUtils.consumeUntilDelimiterOrEOS(parser, '"', '\\'));
+			return true;
+		}
+		if(parser.tryConsume('`')) {
+			imports.add(LexingUtils.consumeUntilDelimiterOrEOS(parser, '`'));
+			return true;
+		}
+		return false;
+	}
+	
+	protected static void skipWhitespaceAndComments(StringCharSource parser) {
+		while(true) {
+			LexingUtils.skipWhitespace(parser);
+			
+			if(parser.tryConsume("//")) {
+				LexingUtils.consumeLine(parser);
+			} else if(parser.tryConsume("/*")) {
+				while(parser.hasCharAhead() && !parser.tryConsume("*/")) {
+					parser.consume();
+				}
+			} else {
+				return;
+			}
+		}
+	}
+	
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ public class GoArch {
 	public static final String ARCH_AMD64 = "amd64";
 	public static final String ARCH_386   = "386";
 	public static final String ARCH_ARM   = "arm";
+	public static final String ARCH_ARM64 = "arm64";
 	
 	protected final String goArch;
 	
@@ -25,6 +26,17 @@ public class GoArch {
 		this.goArch = assertNotNull(emptyAsNull(goArch));
 	}
 	
+	/** @return the GOARCH of the host that this JVM runs on (the default of the go tool). */
+	public static String getHostGoArch() {
+		String osArch = System.getProperty("os.arch", "");
+		switch(osArch) {
+		case "x86": case "i386": case "i486": case "i586": case "i686": return ARCH_386;
+		case "arm": return ARCH_ARM;
+		case "aarch64": return ARCH_ARM64;
+		default: return ARCH_AMD64;
+		}
+	}
+	
 	public String asString() {
 		return goArch;
 	}
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.env;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import com.googlecode.goclipse.tooling.GoPackageName;
+
+import melnorme.lang.tooling.toolchain.ops.BuildResultCache;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.MiscUtil;
+import melnorme.utilbox.misc.Pair;
+
+/**
+ * A {@link BuildResultCache} for Go tool invocations that build (or check) a given set of packages.
+ */
+public class GoBuildResultCache extends BuildResultCache {
+	
+	public GoBuildResultCache(Location cacheDir) {
+		super(cacheDir);
+	}
+	
+	public GoBuildResultCache(Location cacheDir, int maxEntries) {
+		super(cacheDir, maxEntries);
+	}
+	
+	/**
+	 * @return the cache key for the Go tool invocation of given process builder, which builds given packages
+	 * of the source root of given import graph, in given Go environment. The imports from other GOPATH entries 
+	 * are resolved with the import graphs of goPathImportGraphs (one per source root). The key is a hash of:
+	 * - the command line, working directory, and Go environment variables (GOPATH, GOOS, etc.)
+	 * of the invocation, and the GOROOT and Go version.
+	 * - the contents of the files of the given packages, and of the packages these import, directly or 
+	 * indirectly, from any GOPATH entry. Packages of the standard library are not hashed.
+	 * 
+	 * Return null if the results can't be cached, because an import can't be resolved.
+	 */
+	public static String computeKey(GoEnvironment goEnv, GoImportGraph importGraph, 
+			Function<Location, GoImportGraph> goPathImportGraphs, Collection<GoPackageName> goPackages, 
+			ProcessBuilder pb) throws IOException, CommonException {
+		KeyBuilder keyBuilder = new KeyBuilder();
+		
+		for (String argument : pb.command()) {
+			keyBuilder.addString(argument);
+		}
+		keyBuilder.addString(pb.directory() == null ? "" : pb.directory().getPath());
+		
+		TreeMap<String, String> environment = new TreeMap<>();
+		for (Entry<String, String> envEntry : pb.environment().entrySet()) {
+			String key = envEntry.getKey();
+			if(key.startsWith("GO") || key.startsWith("CGO_") || key.equalsIgnoreCase("PATH")) {
+				environment.put(key, envEntry.getValue());
+			}
+		}
+		for (Entry<String, String> envEntry : environment.entrySet()) {
+			keyBuilder.addString(envEntry.getKey()).addString(envEntry.getValue());
+		}
+		
+		Location goRoot = goEnv.getGoRoot_Location();
+		keyBuilder.addString(goRoot.toPathString());
+		Path goVersionFile = goRoot.resolve_fromValid("VERSION").toPath();
+		if(Files.isRegularFile(goVersionFile)) {
+			keyBuilder.addFile(goVersionFile);
+		}
+		
+		ArrayList2<Location> sourceRoots = new ArrayList2<>();
+		for (String goPathEntry : goEnv.getGoPathEntries()) {
+			Location goPathEntryLoc = Location.createValidOrNull(goPathEntry);
+			if(goPathEntryLoc != null) {
+				sourceRoots.add(goPathEntryLoc.resolve_fromValid(GoPath.SRC_DIR));
+			}
+		}
+		
+		TreeSet<Path> packageDirs = findImportedPackageDirs(importGraph, goPathImportGraphs, goPackages, 
+			goEnv.getGoRoot().getSourceRootLocation(), sourceRoots);
+		if(packageDirs == null) {
+			return null;
+		}
+		for (Path packageDir : packageDirs) {
+			keyBuilder.addString(packageDir.toString());
+			for (Path packageFile : getPackageFiles(packageDir)) {
+				keyBuilder.addFile(packageFile);
+			}
+		}
+		return keyBuilder.getKey();
+	}
+	
+	/**
+	 * @return the directories of given packages of the source root of given import graph, and of the packages 
+	 * these import, directly or indirectly. Import paths are resolved like the go tool does: in vendor 
+	 * directories, then in the GOROOT source root (standard library packages are not returned), 
+	 * then in given GOPATH source roots, in order.
+	 * 
+	 * Return null if an import path can't be resolved: the package might be created later on,
+	 * which would change the build result.
+	 */
+	protected static TreeSet<Path> findImportedPackageDirs(GoImportGraph importGraph, 
+			Function<Location, GoImportGraph> goPathImportGraphs, Collection<GoPackageName> goPackages, 
+			Location goRootSourceRoot, Collection<Location> sourceRoots) {
+		LinkedHashMap<Location, GoImportGraph> graphs = new LinkedHashMap<>();
+		for (Location sourceRoot : sourceRoots) {
+			graphs.put(sourceRoot, sourceRoot.equals(importGraph.getSourceRoot()) ? 
+				importGraph : goPathImportGraphs.apply(sourceRoot));
+		}
+		
+		TreeSet<Path> packageDirs = new TreeSet<>();
+		HashSet<Location> visited = new HashSet<>();
+		ArrayDeque<Pair<GoImportGraph, GoPackageName>> pending = new ArrayDeque<>();
+		for (GoPackageName goPackage : goPackages) {
+			pending.add(Pair.create(importGraph, goPackage));
+		}
+		
+		while(!pending.isEmpty()) {
+			Pair<GoImportGraph, GoPackageName> entry = pending.remove();
+			GoImportGraph graph = entry.getFirst();
+			GoPackageName goPackage = entry.getSecond();
+			Location packageDir = graph.getSourceRoot().resolve_fromValid(goPackage.getFullNameAsString());
+			if(!visited.add(packageDir)) {
+				continue;
+			}
+			packageDirs.add(packageDir.toPath());
+			
+			for (String importPath : graph.getImports(goPackage)) {
+				if(importPath.equals("C")) {
+					continue; // cgo pseudo-package
+				}
+				GoPackageName imported = GoImportGraph.resolveImport(goPackage, importPath, 
+					(candidate) -> !candidate.getFullNameAsString().equals(importPath) 
+						&& graph.isSourcePackage(candidate));
+				if(imported != null) {
+					pending.add(Pair.create(graph, imported));
+					continue;
+				}
+				if(importPath.startsWith(".")) {
+					return null;
+				}
+				if(goRootSourceRoot.resolve_fromValid(importPath).toFile().isDirectory()) {
+					continue; // Standard library package
+				}
+				
+				Pair<GoImportGraph, GoPackageName> resolved = null;
+				for (GoImportGraph sourceRootGraph : graphs.values()) {
+					if(sourceRootGraph.isSourcePackage(new GoPackageName(importPath))) {
+						resolved = Pair.create(sourceRootGraph, new GoPackageName(importPath));
+						break;
+					}
+				}
+				if(resolved == null) {
+					return null;
+				}
+				pending.add(resolved);
+			}
+		}
+		return packageDirs;
+	}
+	
+	/**
+	 * @return the files of given package directory (not just Go source files, since cgo and assembly files
+	 * are built too), sorted by name.
+	 */
+	protected static TreeSet<Path> getPackageFiles(Path packageDir) throws IOException {
+		TreeSet<Path> packageFiles = new TreeSet<>();
+		if(!Files.isDirectory(packageDir)) {
+			return packageFiles;
+		}
+		try(DirectoryStream<Path> dirStream = Files.newDirectoryStream(packageDir)) {
+			for (Path file : dirStream) {
+				if(!GoPackageIndex.isIgnoredName(file.getFileName().toString()) && Files.isRegularFile(file)) {
+					packageFiles.add(file);
+				}
+			}
+		}
+		return packageFiles;
+	}
+	
+	/**
+	 * @return the files that building given packages can write: to given bin folder, the command executable 
+	 * of `go install` and the test executable of `go test -c`, and to given pkg folder 
+	 * (the GOOS_GOARCH folder of the pkg folder of the GOPATH entry), the package archive of `go install`.
+	 */
+	public static ArrayList2<Location> getOutputFiles(Location binFolder, Location pkgFolder, 
+			Collection<GoPackageName> goPackages) {
+		ArrayList2<Location> outputFiles = new ArrayList2<>();
+		for (GoPackageName goPackage : goPackages) {
+			String exeName = goPackage.getLastSegment();
+			outputFiles.add(binFolder.resolve_fromValid(exeName + MiscUtil.getExecutableSuffix()));
+			outputFiles.add(binFolder.resolve_fromValid(exeName + ".test" + MiscUtil.getExecutableSuffix()));
+			outputFiles.add(pkgFolder.resolve_fromValid(goPackage.getFullNameAsString() + ".a"));
+		}
+		return outputFiles;
+	}
+	
+}
\ No newline at end of file
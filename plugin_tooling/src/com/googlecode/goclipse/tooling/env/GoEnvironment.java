@@ -62,6 +62,36 @@ public class GoEnvironment {
 		return goPath.getGoPathString();
 	}
 	
+	/** 
+	 * @return the GOOS that Go tools run with: that of the environment they inherit, 
+	 * or else the go tool default (the host OS).
+	 */
+	public String getEffectiveGoOs() {
+		String goOs = System.getenv(GoEnvironmentConstants.GOOS);
+		return isNullOrEmpty(goOs) ? GoOs.getHostGoOs() : goOs;
+	}
+	
+	/** 
+	 * @return the GOARCH that Go tools run with: that of the environment they inherit, 
+	 * or else the go tool default (the host arch).
+	 */
+	public String getEffectiveGoArch() {
+		String goArch = System.getenv(GoEnvironmentConstants.GOARCH);
+		return isNullOrEmpty(goArch) ? GoArch.getHostGoArch() : goArch;
+	}
+	
+	/** 
+	 * @return whether cgo is enabled for Go tools, as set by CGO_ENABLED in the environment they inherit. 
+	 * If not set, like the go tool, cgo is enabled only when not cross-compiling.
+	 */
+	public boolean isCgoEnabled() {
+		String cgoEnabled = System.getenv(GoEnvironmentConstants.CGO_ENABLED);
+		if(!isNullOrEmpty(cgoEnabled)) {
+			return !cgoEnabled.equals("0");
+		}
+		return getEffectiveGoOs().equals(GoOs.getHostGoOs()) && getEffectiveGoArch().equals(GoArch.getHostGoArch());
+	}
+	
 	
 	/* ----------------- validation: ----------------- */
 	
@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.env;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import com.googlecode.goclipse.tooling.GoPackageName;
+import com.googlecode.goclipse.tooling.GoSourceFileUtil;
+
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.misc.FileUtil;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.StringUtil;
+
+/**
+ * The imports of the Go source packages under a GOPATH source root, used to find the packages that depend
+ * on a given package.
+ *
+ * The imports of a package are parsed from its Go source files (test files included), and cached:
+ * they are parsed again only when the Go source files of the package change, as detected
+ * with the names, modification times and sizes of the files.
+ * 
+ * The graph is owned by whoever keeps it (such as the build manager, per project), and is discarded with it.
+ */
+public class GoImportGraph {
+	
+	protected final Location sourceRoot;
+	protected final HashMap<GoPackageName, PackageImports> packageImports = new HashMap<>();
+	
+	public GoImportGraph(Location sourceRoot) {
+		this.sourceRoot = assertNotNull(sourceRoot);
+	}
+	
+	public Location getSourceRoot() {
+		return sourceRoot;
+	}
+	
+	protected static class PackageImports {
+		
+		protected final String filesStamp;
+		protected final LinkedHashSet<String> imports;
+		
+		public PackageImports(String filesStamp, LinkedHashSet<String> imports) {
+			this.filesStamp = filesStamp;
+			this.imports = imports;
+		}
+		
+	}
+	
+	/** @return the import paths of given package, as written in its source files. */
+	public synchronized ArrayList2<String> getImports(GoPackageName goPackage) {
+		return new ArrayList2<>(updatePackage(goPackage).imports);
+	}
+	
+	/** @return the cached imports of given package, parsing them only if not cached yet. */
+	protected PackageImports getPackageImports(GoPackageName goPackage) {
+		PackageImports entry = packageImports.get(goPackage);
+		return entry != null ? entry : updatePackage(goPackage);
+	}
+	
+	/** Check the source files of given package for changes, and parse its imports again if they changed. */
+	protected PackageImports updatePackage(GoPackageName goPackage) {
+		Path packageDir = sourceRoot.resolve_fromValid(goPackage.getFullNameAsString()).toPath();
+		TreeMap<String, BasicFileAttributes> goFiles = getGoSourceFiles(packageDir);
+		
+		StringBuilder filesStamp = new StringBuilder();
+		for (Entry<String, BasicFileAttributes> goFile : goFiles.entrySet()) {
+			BasicFileAttributes attrs = goFile.getValue();
+			filesStamp.append(goFile.getKey()).append(':').append(attrs.lastModifiedTime().toMillis())
+				.append(':').append(attrs.size()).append('\n');
+		}
+		
+		PackageImports entry = packageImports.get(goPackage);
+		if(entry != null && entry.filesStamp.equals(filesStamp.toString())) {
+			return entry;
+		}
+		
+		LinkedHashSet<String> imports = new LinkedHashSet<>();
+		for (String goFile : goFiles.keySet()) {
+			try {
+				String source = FileUtil.readStringFromFile(packageDir.resolve(goFile), StringUtil.UTF8);
+				imports.addAll(GoSourceFileUtil.findImports(source));
+			} catch(IOException e) {
+				// Ignore, file was removed in the meanwhile, or can't be read
+			}
+		}
+		
+		entry = new PackageImports(filesStamp.toString(), imports);
+		if(goFiles.isEmpty()) {
+			packageImports.remove(goPackage);
+		} else {
+			packageImports.put(goPackage, entry);
+		}
+		return entry;
+	}
+	
+	protected static TreeMap<String, BasicFileAttributes> getGoSourceFiles(Path packageDir) {
+		TreeMap<String, BasicFileAttributes> goFiles = new TreeMap<>();
+		try(DirectoryStream<Path> dirStream = Files.newDirectoryStream(packageDir, "*.go")) {
+			for (Path file : dirStream) {
+				String fileName = file.getFileName().toString();
+				if(GoPackageIndex.isIgnoredName(fileName)) {
+					continue;
+				}
+				try {
+					BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+					if(attrs.isRegularFile()) {
+						goFiles.put(fileName, attrs);
+					}
+				} catch(IOException e) {
+					continue; // Broken link or inaccessible file
+				}
+			}
+		} catch(IOException e) {
+			// Package directory does not exist, or can't be read
+		}
+		return goFiles;
+	}
+	
+	/**
+	 * @return the given packages, followed by the packages from candidatePackages that import any of them,
+	 * directly or indirectly.
+	 * 
+	 * The given packages are the ones whose source files changed: only these are checked for changes. 
+	 * The cached imports of the other candidates are used as they are.
+	 */
+	public synchronized ArrayList2<GoPackageName> findDependentPackages(Collection<GoPackageName> goPackages,
+			Collection<GoPackageName> candidatePackages) {
+		for (GoPackageName goPackage : goPackages) {
+			updatePackage(goPackage);
+		}
+		HashSet<GoPackageName> candidates = new HashSet<>(candidatePackages);
+		
+		HashMap<GoPackageName, ArrayList2<GoPackageName>> importers = new HashMap<>();
+		for (GoPackageName candidate : candidates) {
+			for (String importPath : getPackageImports(candidate).imports) {
+				GoPackageName imported = resolveImport(candidate, importPath, candidates::contains);
+				if(imported != null) {
+					importers.computeIfAbsent(imported, (key) -> new ArrayList2<>()).add(candidate);
+				}
+			}
+		}
+		
+		LinkedHashSet<GoPackageName> dependents = new LinkedHashSet<>(goPackages);
+		ArrayDeque<GoPackageName> pending = new ArrayDeque<>(goPackages);
+		while(!pending.isEmpty()) {
+			ArrayList2<GoPackageName> packageImporters = importers.get(pending.remove());
+			if(packageImporters == null) {
+				continue;
+			}
+			for (GoPackageName importer : packageImporters) {
+				if(dependents.add(importer)) {
+					pending.add(importer);
+				}
+			}
+		}
+		return new ArrayList2<>(dependents);
+	}
+	
+	protected boolean isSourcePackage(GoPackageName goPackage) {
+		Location packageDir = sourceRoot.resolve_fromValid(goPackage.getFullNameAsString());
+		return packageDir.startsWith(sourceRoot) && !getGoSourceFiles(packageDir.toPath()).isEmpty();
+	}
+	
+	/**
+	 * @return the package from given candidates that an import path of given importer refers to,
+	 * or null if none. Vendor directories and relative import paths are taken into account.
+	 */
+	protected static GoPackageName resolveImport(GoPackageName importer, String importPath,
+			Predicate<GoPackageName> candidates) {
+		String importerName = importer.getFullNameAsString();
+		
+		if(importPath.startsWith("./") || importPath.startsWith("../")) {
+			ArrayList2<String> segments = new ArrayList2<>(importerName.split(GoPackageName.NAME_SEP));
+			for (String segment : importPath.split(GoPackageName.NAME_SEP)) {
+				if(segment.equals("..")) {
+					if(segments.isEmpty()) {
+						return null;
+					}
+					segments.remove(segments.size() - 1);
+				} else if(!segment.isEmpty() && !segment.equals(".")) {
+					segments.add(segment);
+				}
+			}
+			GoPackageName goPackage = new GoPackageName(StringUtil.collToString(segments, GoPackageName.NAME_SEP));
+			return candidates.test(goPackage) ? goPackage : null;
+		}
+		
+		String prefix = importerName;
+		while(true) {
+			String vendorDir = prefix.isEmpty() ? "vendor" : prefix + GoPackageName.NAME_SEP + "vendor";
+			GoPackageName vendored = new GoPackageName(vendorDir + GoPackageName.NAME_SEP + importPath);
+			if(candidates.test(vendored)) {
+				return vendored;
+			}
+			if(prefix.isEmpty()) {
+				break;
+			}
+			int sepIndex = prefix.lastIndexOf(GoPackageName.NAME_SEP);
+			prefix = sepIndex == -1 ? "" : prefix.substring(0, sepIndex);
+		}
+		
+		GoPackageName goPackage = new GoPackageName(importPath);
+		return candidates.test(goPackage) ? goPackage : null;
+	}
+	
+}
\ No newline at end of file
@@ -44,6 +44,25 @@ public class GoOs {
 		this.goOs = assertNotNull(emptyAsNull(goOs));
 	}
 	
+	/** @return the GOOS of the host that this JVM runs on (the default of the go tool). */
+	public static String getHostGoOs() {
+		String osName = System.getProperty("os.name", "").toLowerCase();
+		if(osName.startsWith("windows")) {
+			return OS_WINDOWS;
+		} else if(osName.startsWith("mac")) {
+			return OS_DARWIN;
+		} else if(osName.contains("freebsd")) {
+			return OS_FREEBSD;
+		} else if(osName.contains("openbsd")) {
+			return OS_OPENBSD;
+		} else if(osName.contains("netbsd")) {
+			return OS_NETBSD;
+		} else if(osName.contains("sunos") || osName.contains("solaris")) {
+			return OS_SOLARIS;
+		}
+		return OS_LINUX;
+	}
+	
 	public String asString() {
 		return goOs;
 	}
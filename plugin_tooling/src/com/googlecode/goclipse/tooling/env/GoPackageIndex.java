@@ -0,0 +1,416 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.env;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.googlecode.goclipse.tooling.GoPackageName;
+
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.core.CoreUtil;
+import melnorme.utilbox.misc.Location;
+
+/**
+ * In-memory index of the Go source packages under a GOPATH source root (the "src" folder of a GOPATH entry).
+ *
+ * The index is built once, with a parallel scan of the directory tree, and is then kept up to date with
+ * a {@link WatchService}. Pending file system events are applied whenever the index is queried.
+ * If the directory tree cannot be watched (for example, if the OS limit of watches is reached),
+ * each query scans the requested directory instead.
+ */
+public class GoPackageIndex {
+	
+	protected static final ConcurrentHashMap<Location, GoPackageIndex> indexes = new ConcurrentHashMap<>();
+	
+	/** @return the shared index for given source root. */
+	public static GoPackageIndex getIndex(Location sourceRoot) {
+		return indexes.computeIfAbsent(sourceRoot, GoPackageIndex::new);
+	}
+	
+	/** Dispose all indexes, and the scan threads. Indexes can still be created afterwards. */
+	public static void disposeAll() {
+		for (GoPackageIndex index : indexes.values()) {
+			index.dispose();
+		}
+		indexes.clear();
+		
+		synchronized(GoPackageIndex.class) {
+			if(scanPool != null) {
+				scanPool.shutdownNow();
+				scanPool = null;
+			}
+		}
+	}
+	
+	/** The scan is IO bound, so don't use the common pool for it. Created on first use. */
+	protected static ForkJoinPool scanPool;
+	
+	protected static synchronized ForkJoinPool getScanPool() {
+		if(scanPool == null) {
+			scanPool = new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+		}
+		return scanPool;
+	}
+	
+	protected static class DirEntry {
+		
+		protected volatile boolean hasGoSourceFiles;
+		protected volatile WatchKey watchKey;
+		
+	}
+	
+	protected final Location sourceRoot;
+	
+	/** All indexed directories, keyed by path relative to the source root, with '/' as separator. */
+	protected final ConcurrentSkipListMap<String, DirEntry> directories = new ConcurrentSkipListMap<>();
+	protected final ConcurrentHashMap<WatchKey, String> watchedDirectories = new ConcurrentHashMap<>();
+	
+	protected WatchService watchService; // null if index is not built
+	protected boolean watchingUnsupported = false;
+	
+	public GoPackageIndex(Location sourceRoot) {
+		this.sourceRoot = assertNotNull(sourceRoot);
+	}
+	
+	public Location getSourceRoot() {
+		return sourceRoot;
+	}
+	
+	public synchronized boolean isWatching() {
+		return watchService != null;
+	}
+	
+	public synchronized void dispose() {
+		closeWatchService();
+		watchingUnsupported = true;
+	}
+	
+	protected void closeWatchService() {
+		if(watchService != null) {
+			try {
+				watchService.close();
+			} catch(IOException e) {
+				// Ignore
+			}
+			watchService = null;
+		}
+		directories.clear();
+		watchedDirectories.clear();
+	}
+	
+	public static boolean isIgnoredName(String fileName) {
+		return fileName.startsWith("_") || fileName.startsWith(".");
+	}
+	
+	protected static String getChildKey(String dirKey, String fileName) {
+		return dirKey.isEmpty() ? fileName : dirKey + GoPackageName.NAME_SEP + fileName;
+	}
+	
+	protected String getKey(Location directory) {
+		return sourceRoot.relativize(directory).toString().replace(File.separator, GoPackageName.NAME_SEP);
+	}
+	
+	protected Path getPath(String dirKey) {
+		return dirKey.isEmpty() ? sourceRoot.toPath() : sourceRoot.toPath().resolve(dirKey);
+	}
+	
+	/** @return the directories in the subtree of given directory key. */
+	protected static ArrayList2<Entry<String, DirEntry>> getSubtree(NavigableMap<String, DirEntry> dirs,
+			String dirKey) {
+		if(dirKey.isEmpty()) {
+			return new ArrayList2<>(dirs.entrySet());
+		}
+		ArrayList2<Entry<String, DirEntry>> subtree = new ArrayList2<>();
+		DirEntry dirEntry = dirs.get(dirKey);
+		if(dirEntry != null) {
+			subtree.add(new SimpleImmutableEntry<>(dirKey, dirEntry));
+		}
+		// All keys that start with dirKey + '/' sort before dirKey + '0'
+		subtree.addAll(dirs.subMap(dirKey + "/", true, dirKey + "0", false).entrySet());
+		return subtree;
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/**
+	 * @return the Go source packages in given directory, or in any of its sub-directories.
+	 */
+	public synchronized ArrayList2<GoPackageName> findPackages(Location directory) {
+		if(!directory.startsWith(sourceRoot)) {
+			return new ArrayList2<>();
+		}
+		String dirKey = getKey(directory);
+		
+		if(updateIndex()) {
+			return collectPackages(directories, dirKey);
+		}
+		
+		if(!dirKey.isEmpty() && isIgnoredName(directory.getFileName())) {
+			return new ArrayList2<>();
+		}
+		ConcurrentSkipListMap<String, DirEntry> dirs = new ConcurrentSkipListMap<>();
+		getScanPool().invoke(new ScanDirectoryTask(dirs, null, null, directory.toPath(), dirKey, null));
+		return collectPackages(dirs, dirKey);
+	}
+	
+	protected static ArrayList2<GoPackageName> collectPackages(NavigableMap<String, DirEntry> dirs, String dirKey) {
+		ArrayList2<GoPackageName> packages = new ArrayList2<>();
+		for (Entry<String, DirEntry> entry : getSubtree(dirs, dirKey)) {
+			if(entry.getValue().hasGoSourceFiles && !entry.getKey().isEmpty()) {
+				packages.add(new GoPackageName(entry.getKey()));
+			}
+		}
+		return packages;
+	}
+	
+	/**
+	 * Build the index if necessary, otherwise apply pending file system events.
+	 * @return whether the index is up to date.
+	 */
+	protected boolean updateIndex() {
+		if(watchService == null) {
+			return buildIndex();
+		}
+		
+		WatchKey watchKey;
+		while((watchKey = watchService.poll()) != null) {
+			processEvents(watchKey);
+			if(watchService == null) {
+				// Source root was removed, or events were lost
+				return buildIndex();
+			}
+		}
+		return true;
+	}
+	
+	protected boolean buildIndex() {
+		if(watchingUnsupported || !sourceRoot.toFile().isDirectory()) {
+			return false;
+		}
+		
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+		} catch(IOException | UnsupportedOperationException e) {
+			watchingUnsupported = true;
+			return false;
+		}
+		
+		if(!scanDirectory("")) {
+			closeWatchService();
+			watchingUnsupported = true;
+			return false;
+		}
+		return true;
+	}
+	
+	/** @return false if the scanned directories could not be watched. */
+	protected boolean scanDirectory(String dirKey) {
+		AtomicBoolean watchFailed = new AtomicBoolean(false);
+		getScanPool().invoke(new ScanDirectoryTask(directories, watchService, watchFailed, getPath(dirKey), dirKey, null));
+		return !watchFailed.get();
+	}
+	
+	protected class ScanDirectoryTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		protected final NavigableMap<String, DirEntry> dirs;
+		protected final WatchService watchService; // can be null
+		protected final AtomicBoolean watchFailed;
+		protected final Path dir;
+		protected final String dirKey;
+		protected final ScanDirectoryTask parent;
+		protected Object fileKey;
+		
+		public ScanDirectoryTask(NavigableMap<String, DirEntry> dirs, WatchService watchService,
+				AtomicBoolean watchFailed, Path dir, String dirKey, ScanDirectoryTask parent) {
+			this.dirs = dirs;
+			this.watchService = watchService;
+			this.watchFailed = watchFailed;
+			this.dir = dir;
+			this.dirKey = dirKey;
+			this.parent = parent;
+		}
+		
+		protected boolean isAncestor(Object fileKey) {
+			for(ScanDirectoryTask task = this; task != null; task = task.parent) {
+				if(CoreUtil.areEqual(task.fileKey, fileKey)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		@Override
+		protected void compute() {
+			DirEntry dirEntry = new DirEntry();
+			ArrayList2<ScanDirectoryTask> subTasks = new ArrayList2<>();
+			
+			try {
+				// Links are followed, so keep track of the actual directories to avoid cycles
+				fileKey = getFileKey(dir, Files.readAttributes(dir, BasicFileAttributes.class));
+				
+				if(watchService != null) {
+					dirEntry.watchKey = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE);
+					watchedDirectories.put(dirEntry.watchKey, dirKey);
+				}
+				
+				try(DirectoryStream<Path> dirStream = Files.newDirectoryStream(dir)) {
+					for (Path child : dirStream) {
+						String fileName = child.getFileName().toString();
+						if(isIgnoredName(fileName)) {
+							continue;
+						}
+						
+						BasicFileAttributes attrs;
+						try {
+							attrs = Files.readAttributes(child, BasicFileAttributes.class);
+						} catch(IOException e) {
+							continue; // Broken link or inaccessible file
+						}
+						
+						if(attrs.isDirectory()) {
+							if(!isAncestor(getFileKey(child, attrs))) {
+								subTasks.add(new ScanDirectoryTask(dirs, watchService, watchFailed,
+									child, getChildKey(dirKey, fileName), this));
+							}
+						} else if(fileName.endsWith(".go")) {
+							dirEntry.hasGoSourceFiles = true;
+						}
+					}
+				}
+			} catch(IOException e) {
+				if(watchService != null && dirEntry.watchKey == null && Files.isDirectory(dir)) {
+					// Registration failed, likely because of the OS limit of watches
+					watchFailed.set(true);
+				}
+				// Otherwise ignore, directory was removed or is not readable
+				return;
+			}
+			
+			dirs.put(dirKey, dirEntry);
+			invokeAll(subTasks);
+		}
+		
+	}
+	
+	protected static Object getFileKey(Path dir, BasicFileAttributes attrs) throws IOException {
+		Object fileKey = attrs.fileKey();
+		return fileKey != null ? fileKey : dir.toRealPath();
+	}
+	
+	/* ----------------- File system events ----------------- */
+	
+	protected void processEvents(WatchKey watchKey) {
+		String dirKey = watchedDirectories.get(watchKey);
+		
+		for (WatchEvent<?> event : watchKey.pollEvents()) {
+			if(dirKey == null || !directories.containsKey(dirKey)) {
+				break; // Directory is no longer indexed
+			}
+			
+			if(event.kind() == OVERFLOW) {
+				// Events were lost, the index must be rebuilt
+				closeWatchService();
+				return;
+			}
+			
+			String fileName = event.context().toString();
+			if(isIgnoredName(fileName)) {
+				continue;
+			}
+			String childKey = getChildKey(dirKey, fileName);
+			
+			if(Files.isDirectory(getPath(childKey))) {
+				if(!directories.containsKey(childKey)) {
+					rescanSubtree(childKey);
+				}
+			} else {
+				removeSubtree(childKey);
+				if(fileName.endsWith(".go")) {
+					updateHasGoSourceFiles(dirKey);
+				}
+			}
+		}
+		
+		if(!watchKey.reset()) {
+			// Directory was deleted, or became inaccessible
+			if(watchedDirectories.remove(watchKey) != null) {
+				if(dirKey.isEmpty()) {
+					closeWatchService();
+				} else {
+					removeSubtree(dirKey);
+				}
+			}
+		}
+	}
+	
+	protected void rescanSubtree(String dirKey) {
+		if(!scanDirectory(dirKey)) {
+			// Index can no longer be kept up to date
+			closeWatchService();
+			watchingUnsupported = true;
+		}
+	}
+	
+	protected void removeSubtree(String dirKey) {
+		for (Entry<String, DirEntry> entry : getSubtree(directories, dirKey)) {
+			WatchKey watchKey = entry.getValue().watchKey;
+			if(watchKey != null) {
+				watchKey.cancel();
+				watchedDirectories.remove(watchKey);
+			}
+			directories.remove(entry.getKey());
+		}
+	}
+	
+	protected void updateHasGoSourceFiles(String dirKey) {
+		DirEntry dirEntry = directories.get(dirKey);
+		if(dirEntry == null) {
+			return;
+		}
+		boolean hasGoSourceFiles = false;
+		try(DirectoryStream<Path> dirStream = Files.newDirectoryStream(getPath(dirKey), "*.go")) {
+			for (Path child : dirStream) {
+				if(!isIgnoredName(child.getFileName().toString()) && !Files.isDirectory(child)) {
+					hasGoSourceFiles = true;
+					break;
+				}
+			}
+		} catch(IOException e) {
+			// Ignore, directory will be removed
+		}
+		dirEntry.hasGoSourceFiles = hasGoSourceFiles;
+	}
+	
+}
\ No newline at end of file
@@ -13,12 +13,7 @@ package com.googlecode.goclipse.tooling.env;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 import static melnorme.utilbox.core.CoreUtil.areEqual;
 
-import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Path;
-
 import com.googlecode.goclipse.tooling.GoPackageName;
-import com.googlecode.goclipse.tooling.GoPackagesVisitor;
 
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
@@ -63,6 +58,10 @@ public class GoWorkspaceLocation {
 		return location.resolve_valid("bin");
 	}
 	
+	public Location getPkgLocation() {
+		return location.resolve_valid("pkg");
+	}
+	
 	public Location getSrcLocation() {
 		return location.resolve_valid("src");
 	}
@@ -73,16 +72,11 @@ public class GoWorkspaceLocation {
 	}
 	
 	public ArrayList2<GoPackageName> findSourcePackages(Location directory) {
-		GoPackagesVisitor goPackagesVisitor = new GoPackagesVisitor(this, directory) {
-			
-			@Override
-			protected FileVisitResult handleFileVisitException(Path file, IOException exc) {
-				// TODO: some sort of logging
-				return FileVisitResult.CONTINUE;
-			}
-		};
-		
-		return new ArrayList2<>(goPackagesVisitor.getModuleNames());
+		return getPackageIndex().findPackages(directory);
+	}
+	
+	public GoPackageIndex getPackageIndex() {
+		return GoPackageIndex.getIndex(getSrcLocation());
 	}
 	
 	public ArrayList2<GoPackageName> findSubPackages(String parentGoPackage) throws CommonException {
@@ -0,0 +1,604 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.gocode;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.misc.StringUtil;
+
+/**
+ * A minimal implementation of the Go gob encoding (see https://golang.org/pkg/encoding/gob/),
+ * as needed to talk to the gocode server with the net/rpc protocol.
+ *
+ * Encoding is only supported for struct and slice types, declared with {@link StructType} and {@link SliceType}.
+ * Decoding is generic: structs are decoded to a Map from field name to value, slices and arrays to
+ * an {@link ArrayList2}, int and uint to Long, strings to String, and []byte to byte[].
+ */
+public class GobCodec {
+	
+	public static final int TYPE_BOOL = 1;
+	public static final int TYPE_INT = 2;
+	public static final int TYPE_UINT = 3;
+	public static final int TYPE_FLOAT = 4;
+	public static final int TYPE_BYTES = 5;
+	public static final int TYPE_STRING = 6;
+	public static final int TYPE_COMPLEX = 7;
+	public static final int TYPE_INTERFACE = 8;
+	
+	/** Type ids below this are reserved for gob predefined types. */
+	public static final int FIRST_USER_TYPE_ID = 64;
+	
+	/** Upper limit for a message size, as a sanity check against a corrupt stream. */
+	public static final int MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+	
+	@SuppressWarnings("serial")
+	public static class GobFormatException extends IOException {
+		public GobFormatException(String message) {
+			super(message);
+		}
+	}
+	
+	/* ----------------- Types ----------------- */
+	
+	/** A user-defined type, for encoding. */
+	public static abstract class UserType {
+		
+		protected final String name;
+		protected final int id;
+		
+		public UserType(String name, int id) {
+			assertTrue(id >= FIRST_USER_TYPE_ID);
+			this.name = name;
+			this.id = id;
+		}
+		
+		public int getId() {
+			return id;
+		}
+		
+		protected static int typeIdOf(Object type) {
+			return type instanceof UserType ? ((UserType) type).id : (Integer) type;
+		}
+		
+		protected static Object checkType(Object type) {
+			if(type instanceof Integer) {
+				int predefinedTypeId = (Integer) type;
+				assertTrue(predefinedTypeId > 0 && predefinedTypeId < FIRST_USER_TYPE_ID);
+			} else {
+				assertTrue(type instanceof UserType);
+			}
+			return type;
+		}
+		
+	}
+	
+	/**
+	 * Declaration of a Go struct type, for encoding.
+	 * Field types are either a predefined type id (Integer), or a {@link UserType}.
+	 * Struct values are given as an Object[] with the value of each field.
+	 */
+	public static class StructType extends UserType {
+		
+		protected final ArrayList2<String> fieldNames = new ArrayList2<>();
+		protected final ArrayList2<Object> fieldTypes = new ArrayList2<>();
+		
+		public StructType(String name, int id) {
+			super(name, id);
+		}
+		
+		public StructType field(String fieldName, Object fieldType) {
+			fieldNames.add(fieldName);
+			fieldTypes.add(checkType(fieldType));
+			return this;
+		}
+		
+		public int getFieldCount() {
+			return fieldNames.size();
+		}
+		
+	}
+	
+	/**
+	 * Declaration of a Go slice type, for encoding. Slice values are given as a {@link List}.
+	 */
+	public static class SliceType extends UserType {
+		
+		protected final Object elemType;
+		
+		public SliceType(String name, int id, Object elemType) {
+			super(name, id);
+			this.elemType = checkType(elemType);
+		}
+		
+	}
+	
+	/* ----------------- Encoder ----------------- */
+	
+	/**
+	 * Encoder for a gob stream. Like a Go gob.Encoder, type definitions are only sent once per stream.
+	 */
+	public static class Encoder {
+		
+		protected final HashSet<Integer> sentTypes = new HashSet<>();
+		
+		/** Write a message for given struct value (preceded by any type definitions not yet sent). */
+		public void writeValue(OutputStream out, StructType type, Object... fieldValues) throws IOException {
+			ByteArrayOutputStream messages = new ByteArrayOutputStream();
+			writeTypeDefinitions(messages, type);
+			
+			Buffer buf = new Buffer();
+			buf.writeInt(type.id);
+			writeStruct(buf, type, fieldValues);
+			buf.writeMessageTo(messages);
+			
+			messages.writeTo(out);
+		}
+		
+		protected void writeTypeDefinitions(ByteArrayOutputStream out, Object type) {
+			if(!(type instanceof UserType) || sentTypes.contains(((UserType) type).id)) {
+				return;
+			}
+			UserType userType = (UserType) type;
+			sentTypes.add(userType.id);
+			
+			Buffer buf = new Buffer();
+			buf.writeInt(-userType.id);
+			if(userType instanceof StructType) {
+				StructType structType = (StructType) userType;
+				for (Object fieldType : structType.fieldTypes) {
+					writeTypeDefinitions(out, fieldType);
+				}
+				
+				// wireType: field 2 is StructT
+				buf.writeUint(3);
+				// structType: field 0 is CommonType
+				buf.writeUint(1);
+				writeCommonType(buf, structType.name, structType.id);
+				// structType: field 1 is []*fieldType
+				buf.writeUint(1);
+				buf.writeUint(structType.getFieldCount());
+				for (int ix = 0; ix < structType.getFieldCount(); ix++) {
+					writeCommonType(buf, structType.fieldNames.get(ix), UserType.typeIdOf(structType.fieldTypes.get(ix)));
+				}
+				buf.writeUint(0);
+			} else {
+				SliceType sliceType = (SliceType) userType;
+				writeTypeDefinitions(out, sliceType.elemType);
+				
+				// wireType: field 1 is SliceT
+				buf.writeUint(2);
+				// sliceType: field 0 is CommonType
+				buf.writeUint(1);
+				writeCommonType(buf, sliceType.name, sliceType.id);
+				// sliceType: field 1 is Elem
+				buf.writeUint(1);
+				buf.writeInt(UserType.typeIdOf(sliceType.elemType));
+				buf.writeUint(0);
+			}
+			buf.writeUint(0);
+			buf.writeMessageTo(out);
+		}
+		
+		/* fieldType has the same layout as CommonType: Name, Id */
+		protected void writeCommonType(Buffer buf, String name, int id) {
+			buf.writeUint(1);
+			buf.writeString(name);
+			buf.writeUint(1);
+			buf.writeInt(id);
+			buf.writeUint(0);
+		}
+		
+		protected void writeStruct(Buffer buf, StructType type, Object[] fieldValues) {
+			assertTrue(fieldValues.length == type.getFieldCount());
+			int lastField = -1;
+			for (int ix = 0; ix < fieldValues.length; ix++) {
+				Object value = fieldValues[ix];
+				Object fieldType = type.fieldTypes.get(ix);
+				if(isZeroValue(value) && !(fieldType instanceof StructType)) {
+					continue; // Zero values are not transmitted
+				}
+				buf.writeUint(ix - lastField);
+				lastField = ix;
+				writeValue(buf, fieldType, value);
+			}
+			buf.writeUint(0);
+		}
+		
+		protected void writeValue(Buffer buf, Object type, Object value) {
+			if(type instanceof StructType) {
+				writeStruct(buf, (StructType) type, (Object[]) value);
+			} else if(type instanceof SliceType) {
+				List<?> list = (List<?>) value;
+				buf.writeUint(list.size());
+				for (Object element : list) {
+					writeValue(buf, ((SliceType) type).elemType, element);
+				}
+			} else {
+				writePredefined(buf, (Integer) type, value);
+			}
+		}
+		
+		protected static boolean isZeroValue(Object value) {
+			if(value == null) {
+				return true;
+			} else if(value instanceof Number) {
+				return ((Number) value).longValue() == 0;
+			} else if(value instanceof Boolean) {
+				return !((Boolean) value);
+			} else if(value instanceof String) {
+				return ((String) value).isEmpty();
+			} else if(value instanceof byte[]) {
+				return ((byte[]) value).length == 0;
+			} else if(value instanceof List) {
+				return ((List<?>) value).isEmpty();
+			}
+			return false;
+		}
+		
+		protected void writePredefined(Buffer buf, int typeId, Object value) {
+			switch(typeId) {
+			case TYPE_BOOL: buf.writeUint(((Boolean) value) ? 1 : 0); return;
+			case TYPE_INT: buf.writeInt(((Number) value).longValue()); return;
+			case TYPE_UINT: buf.writeUint(((Number) value).longValue()); return;
+			case TYPE_BYTES: buf.writeBytes((byte[]) value); return;
+			case TYPE_STRING: buf.writeString((String) value); return;
+			default:
+				throw new IllegalArgumentException("Unsupported gob type for encoding: " + typeId);
+			}
+		}
+		
+	}
+	
+	protected static class Buffer extends ByteArrayOutputStream {
+		
+		public void writeUint(long value) {
+			if(value >= 0 && value < 128) {
+				write((int) value);
+				return;
+			}
+			int byteCount = (64 - Long.numberOfLeadingZeros(value) + 7) / 8;
+			write(-byteCount & 0xFF);
+			for (int ix = byteCount - 1; ix >= 0; ix--) {
+				write((int) (value >>> (ix * 8)) & 0xFF);
+			}
+		}
+		
+		public void writeInt(long value) {
+			writeUint(value < 0 ? (~value << 1) | 1 : value << 1);
+		}
+		
+		public void writeBytes(byte[] bytes) {
+			writeUint(bytes.length);
+			write(bytes, 0, bytes.length);
+		}
+		
+		public void writeString(String string) {
+			writeBytes(string.getBytes(StringUtil.UTF8));
+		}
+		
+		public void writeMessageTo(ByteArrayOutputStream out) {
+			Buffer length = new Buffer();
+			length.writeUint(size());
+			out.write(length.buf, 0, length.count);
+			out.write(buf, 0, count);
+		}
+		
+	}
+	
+	/* ----------------- Decoder ----------------- */
+	
+	protected static enum WireKind { STRUCT, SLICE, ARRAY, MAP, OPAQUE }
+	
+	protected static class WireType {
+		protected final WireKind kind;
+		protected final ArrayList2<String> fieldNames = new ArrayList2<>();
+		protected final ArrayList2<Integer> fieldTypes = new ArrayList2<>();
+		protected int elemType;
+		protected int keyType;
+		
+		public WireType(WireKind kind) {
+			this.kind = kind;
+		}
+	}
+	
+	/**
+	 * Decoder for a gob stream, which keeps the type definitions received so far.
+	 */
+	public static class Decoder {
+		
+		protected final HashMap<Integer, WireType> types = new HashMap<>();
+		
+		/** Read the next value from given stream, processing any type definitions before it. */
+		public Object readValue(InputStream in) throws IOException {
+			while(true) {
+				Source src = new Source(readMessage(in));
+				int typeId = (int) src.readInt();
+				if(typeId < 0) {
+					types.put(-typeId, readWireType(src));
+					continue;
+				}
+				WireType type = types.get(typeId);
+				if(type == null || type.kind != WireKind.STRUCT) {
+					// Non-struct top-level values are sent as a single field with delta 0
+					if(src.readUint() != 0) {
+						throw new GobFormatException("Invalid singleton value.");
+					}
+				}
+				return readValue(src, typeId);
+			}
+		}
+		
+		protected byte[] readMessage(InputStream in) throws IOException {
+			long length = readUint(in);
+			if(length < 0 || length > MAX_MESSAGE_SIZE) {
+				throw new GobFormatException("Invalid message length: " + length);
+			}
+			byte[] message = new byte[(int) length];
+			int read = 0;
+			while(read < message.length) {
+				int count = in.read(message, read, message.length - read);
+				if(count == -1) {
+					throw new EOFException();
+				}
+				read += count;
+			}
+			return message;
+		}
+		
+		protected static long readUint(InputStream in) throws IOException {
+			int first = in.read();
+			if(first == -1) {
+				throw new EOFException();
+			}
+			if(first < 128) {
+				return first;
+			}
+			int byteCount = 256 - first;
+			if(byteCount > 8) {
+				throw new GobFormatException("Invalid uint byte count: " + byteCount);
+			}
+			long value = 0;
+			for (int ix = 0; ix < byteCount; ix++) {
+				int next = in.read();
+				if(next == -1) {
+					throw new EOFException();
+				}
+				value = (value << 8) | next;
+			}
+			return value;
+		}
+		
+		protected WireType readWireType(Source src) throws IOException {
+			WireType wireType = null;
+			int field = -1;
+			for(long delta; (delta = src.readUint()) != 0; ) {
+				field += delta;
+				switch(field) {
+				case 0: wireType = readCompositeType(src, new WireType(WireKind.ARRAY)); break;
+				case 1: wireType = readCompositeType(src, new WireType(WireKind.SLICE)); break;
+				case 2: wireType = readCompositeType(src, new WireType(WireKind.STRUCT)); break;
+				case 3: wireType = readCompositeType(src, new WireType(WireKind.MAP)); break;
+				case 4: case 5: case 6:
+					// GobEncoder, BinaryMarshaler, TextMarshaler: values are sent as opaque bytes
+					wireType = readCompositeType(src, new WireType(WireKind.OPAQUE)); break;
+				default:
+					throw new GobFormatException("Unknown wireType field: " + field);
+				}
+			}
+			if(wireType == null) {
+				throw new GobFormatException("Empty wireType.");
+			}
+			return wireType;
+		}
+		
+		/** Read arrayType, sliceType, structType, mapType or gobEncoderType, into given wireType. */
+		protected WireType readCompositeType(Source src, WireType wireType) throws IOException {
+			int field = -1;
+			for(long delta; (delta = src.readUint()) != 0; ) {
+				field += delta;
+				if(field == 0) {
+					skipCommonType(src);
+					continue;
+				}
+				switch(wireType.kind) {
+				case STRUCT:
+					if(field != 1) throw new GobFormatException("Unknown structType field: " + field);
+					long fieldCount = src.readUint();
+					for (int ix = 0; ix < fieldCount; ix++) {
+						readFieldType(src, wireType);
+					}
+					break;
+				case SLICE:
+					if(field != 1) throw new GobFormatException("Unknown sliceType field: " + field);
+					wireType.elemType = (int) src.readInt();
+					break;
+				case ARRAY:
+					if(field == 1) {
+						wireType.elemType = (int) src.readInt();
+					} else if(field == 2) {
+						src.readInt(); // Len
+					} else {
+						throw new GobFormatException("Unknown arrayType field: " + field);
+					}
+					break;
+				case MAP:
+					if(field == 1) {
+						wireType.keyType = (int) src.readInt();
+					} else if(field == 2) {
+						wireType.elemType = (int) src.readInt();
+					} else {
+						throw new GobFormatException("Unknown mapType field: " + field);
+					}
+					break;
+				case OPAQUE:
+					throw new GobFormatException("Unknown gobEncoderType field: " + field);
+				}
+			}
+			return wireType;
+		}
+		
+		protected void skipCommonType(Source src) throws IOException {
+			int field = -1;
+			for(long delta; (delta = src.readUint()) != 0; ) {
+				field += delta;
+				if(field == 0) {
+					src.readBytes(); // Name
+				} else if(field == 1) {
+					src.readInt(); // Id
+				} else {
+					throw new GobFormatException("Unknown CommonType field: " + field);
+				}
+			}
+		}
+		
+		protected void readFieldType(Source src, WireType structType) throws IOException {
+			String name = null;
+			int id = 0;
+			int field = -1;
+			for(long delta; (delta = src.readUint()) != 0; ) {
+				field += delta;
+				if(field == 0) {
+					name = src.readString();
+				} else if(field == 1) {
+					id = (int) src.readInt();
+				} else {
+					throw new GobFormatException("Unknown fieldType field: " + field);
+				}
+			}
+			structType.fieldNames.add(name);
+			structType.fieldTypes.add(id);
+		}
+		
+		protected Object readValue(Source src, int typeId) throws IOException {
+			switch(typeId) {
+			case TYPE_BOOL: return src.readUint() != 0;
+			case TYPE_INT: return src.readInt();
+			case TYPE_UINT: return src.readUint();
+			case TYPE_FLOAT: return src.readFloat();
+			case TYPE_BYTES: return src.readBytes();
+			case TYPE_STRING: return src.readString();
+			case TYPE_COMPLEX: return new double[] { src.readFloat(), src.readFloat() };
+			}
+			
+			WireType type = types.get(typeId);
+			if(type == null) {
+				throw new GobFormatException("Unknown type id: " + typeId);
+			}
+			switch(type.kind) {
+			case STRUCT: {
+				Map<String, Object> struct = new LinkedHashMap<>();
+				int field = -1;
+				for(long delta; (delta = src.readUint()) != 0; ) {
+					field += delta;
+					if(field < 0 || field >= type.fieldNames.size()) {
+						throw new GobFormatException("Invalid field number: " + field);
+					}
+					struct.put(type.fieldNames.get(field), readValue(src, type.fieldTypes.get(field)));
+				}
+				return struct;
+			}
+			case SLICE:
+			case ARRAY: {
+				long count = src.readUint();
+				ArrayList2<Object> list = new ArrayList2<>();
+				for (long ix = 0; ix < count; ix++) {
+					list.add(readValue(src, type.elemType));
+				}
+				return list;
+			}
+			case MAP: {
+				long count = src.readUint();
+				Map<Object, Object> map = new LinkedHashMap<>();
+				for (long ix = 0; ix < count; ix++) {
+					Object key = readValue(src, type.keyType);
+					map.put(key, readValue(src, type.elemType));
+				}
+				return map;
+			}
+			case OPAQUE:
+				return src.readBytes();
+			}
+			throw new GobFormatException("Unsupported type: " + typeId);
+		}
+		
+	}
+	
+	protected static class Source {
+		
+		protected final byte[] bytes;
+		protected int pos = 0;
+		
+		public Source(byte[] bytes) {
+			this.bytes = bytes;
+		}
+		
+		protected int readByte() throws GobFormatException {
+			if(pos >= bytes.length) {
+				throw new GobFormatException("Unexpected end of message.");
+			}
+			return bytes[pos++] & 0xFF;
+		}
+		
+		public long readUint() throws GobFormatException {
+			int first = readByte();
+			if(first < 128) {
+				return first;
+			}
+			int byteCount = 256 - first;
+			if(byteCount > 8) {
+				throw new GobFormatException("Invalid uint byte count: " + byteCount);
+			}
+			long value = 0;
+			for (int ix = 0; ix < byteCount; ix++) {
+				value = (value << 8) | readByte();
+			}
+			return value;
+		}
+		
+		public long readInt() throws GobFormatException {
+			long value = readUint();
+			return (value & 1) != 0 ? ~(value >>> 1) : (value >>> 1);
+		}
+		
+		public double readFloat() throws GobFormatException {
+			return Double.longBitsToDouble(Long.reverseBytes(readUint()));
+		}
+		
+		public byte[] readBytes() throws GobFormatException {
+			long length = readUint();
+			if(length < 0 || length > bytes.length - pos) {
+				throw new GobFormatException("Invalid length: " + length);
+			}
+			byte[] result = new byte[(int) length];
+			System.arraycopy(bytes, pos, result, 0, result.length);
+			pos += result.length;
+			return result;
+		}
+		
+		public String readString() throws GobFormatException {
+			return new String(readBytes(), StringUtil.UTF8);
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.gocode;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import melnorme.lang.tooling.ToolCompletionProposal;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.core.CoreUtil;
+
+/**
+ * Cache of the last gocode completion result.
+ *
+ * When the user keeps typing an identifier after a completion request, the new request can be answered
+ * by filtering the cached proposals with the longer prefix, since gocode itself only filters candidates by prefix.
+ * The cached result is only valid if the file, the start of the completion prefix, and the source outside the
+ * prefix are all unchanged.
+ */
+public class GocodeCompletionCache {
+	
+	protected Entry entry;
+	
+	protected long hitCount;
+	protected long missCount;
+	
+	public GocodeCompletionCache() {
+	}
+	
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+	
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+	
+	public synchronized void clear() {
+		entry = null;
+	}
+	
+	protected static class Entry {
+		
+		protected final String filePath;
+		protected final String source;
+		protected final int prefixStart;
+		protected final String prefix;
+		protected final Indexable<ToolCompletionProposal> proposals;
+		
+		public Entry(String filePath, String source, int prefixStart, String prefix,
+				Indexable<ToolCompletionProposal> proposals) {
+			this.filePath = filePath;
+			this.source = assertNotNull(source);
+			this.prefixStart = prefixStart;
+			this.prefix = assertNotNull(prefix);
+			this.proposals = assertNotNull(proposals);
+		}
+		
+		/** @return whether given request, with given prefix, is a refinement of the request of this entry. */
+		public boolean matches(String filePath, String source, int prefixStart, String prefix) {
+			if(!CoreUtil.areEqual(this.filePath, filePath) || this.prefixStart != prefixStart
+					|| !prefix.startsWith(this.prefix)) {
+				return false;
+			}
+			int offset = prefixStart + prefix.length();
+			int suffixLength = source.length() - offset;
+			int entryOffset = prefixStart + this.prefix.length();
+			
+			return
+				suffixLength == this.source.length() - entryOffset &&
+				source.regionMatches(0, this.source, 0, prefixStart) &&
+				source.regionMatches(offset, this.source, entryOffset, suffixLength);
+		}
+		
+	}
+	
+	/**
+	 * @return the proposals for a completion request at given offset, computed from the cached result,
+	 * or null if the cached result is not applicable.
+	 */
+	public synchronized Indexable<ToolCompletionProposal> getProposals(String filePath, String source, int offset) {
+		String prefix = GocodeOutputParser2.getWordBeforeOffset(source, offset);
+		int prefixStart = offset - prefix.length();
+		
+		if(entry == null || !entry.matches(filePath, source, prefixStart, prefix)) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		
+		ArrayList2<ToolCompletionProposal> proposals = new ArrayList2<>();
+		for (ToolCompletionProposal proposal : entry.proposals) {
+			if(proposal.getBaseReplaceString().startsWith(prefix)) {
+				proposals.add(withReplaceRange(proposal, prefixStart, prefix.length()));
+			}
+		}
+		return proposals;
+	}
+	
+	protected static ToolCompletionProposal withReplaceRange(ToolCompletionProposal proposal, int replaceOffset,
+			int replaceLength) {
+		if(proposal.getReplaceOffset() == replaceOffset && proposal.getReplaceLength() == replaceLength) {
+			return proposal;
+		}
+		return new ToolCompletionProposal(
+			replaceOffset, replaceLength,
+			proposal.getBaseReplaceString(), proposal.getLabel(),
+			proposal.getKind(), proposal.getAttributes(),
+			proposal.getTypeLabel(), proposal.getModuleName(), proposal.getDocumentation(),
+			proposal.getFullReplaceString(), proposal.getSourceSubElements());
+	}
+	
+	/** Store the result of a gocode completion request at given offset. */
+	public synchronized void putProposals(String filePath, String source, int offset,
+			Indexable<ToolCompletionProposal> proposals) {
+		String prefix = GocodeOutputParser2.getWordBeforeOffset(source, offset);
+		entry = new Entry(filePath, source, offset - prefix.length(), prefix, proposals);
+	}
+	
+}
\ No newline at end of file
@@ -16,12 +16,14 @@ import java.util.regex.Pattern;
 
 import com.googlecode.goclipse.tooling.env.GoEnvironment;
 
+import melnorme.lang.tooling.ToolingMessages;
 import melnorme.lang.tooling.common.ops.IProcessRunner;
 import melnorme.lang.tooling.toolchain.ops.ToolOutputParseHelper;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.concurrency.ICancelMonitor;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.StringUtil;
 import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
 
 
@@ -32,23 +34,70 @@ public class GocodeCompletionOperation implements ToolOutputParseHelper {
 	protected final IProcessRunner toolRunner;
 	protected final GoEnvironment goEnvironment;
 	protected final String gocodePath;
+	protected final GocodeDaemon gocodeDaemon;
 	protected final ICancelMonitor cm;
 	
 	public GocodeCompletionOperation(IProcessRunner toolRunner, GoEnvironment goEnvironment, String gocodePath,
 			ICancelMonitor cm) {
+		this(toolRunner, goEnvironment, gocodePath, null, cm);
+	}
+	
+	/**
+	 * @param gocodeDaemon optional daemon for the gocode server. If null, or if the RPC request fails, 
+	 * a gocode client process is spawned instead.
+	 */
+	public GocodeCompletionOperation(IProcessRunner toolRunner, GoEnvironment goEnvironment, String gocodePath,
+			GocodeDaemon gocodeDaemon, ICancelMonitor cm) {
 		this.toolRunner = assertNotNull(toolRunner);
 		this.goEnvironment = assertNotNull(goEnvironment);
 		this.gocodePath = assertNotNull(gocodePath);
+		this.gocodeDaemon = gocodeDaemon;
 		this.cm = assertNotNull(cm);
 	}
 	
-	protected void setLibPathForEnvironment() throws CommonException, OperationCancellation {
-		
-		ArrayList2<String> arguments = new ArrayList2<>(gocodePath);
+	/**
+	 * Execute the completion request, using the gocode daemon if available.
+	 * 
+	 * @return the gocode output, in CSV format.
+	 */
+	public String executeForOutput(String filePath, String bufferText, int offset) 
+			throws CommonException, OperationCancellation {
+		if(gocodeDaemon != null && gocodeDaemon.isProtocolSupported()) {
+			try {
+				return gocodeDaemon.autoComplete(gocodePath, goEnvironment, filePath, bufferText, offset, cm);
+			} catch(CommonException e) {
+				handleRpcFailure(e);
+			}
+		}
 		
+		ExternalProcessResult result = execute(filePath, bufferText, offset);
+		if(result.exitValue != 0) {
+			throw new CommonException(ToolingMessages.PROCESS_CompletedWithNonZeroValue("gocode", result.exitValue));
+		}
+		return result.getStdOutBytes().toString(StringUtil.UTF8);
+	}
+	
+	@SuppressWarnings("unused")
+	protected void handleRpcFailure(CommonException ce) {
+		// Default: ignore, fall back to the gocode client process
+	}
+	
+	protected void addSocketArguments(ArrayList2<String> arguments) {
 		if (USE_TCP) {
 			arguments.add("-sock=tcp");
+			String serverAddress = gocodeDaemon == null ? null : gocodeDaemon.getServerAddress();
+			if(serverAddress != null) {
+				// Talk to the same server as the gocode daemon
+				arguments.add("-addr=" + serverAddress);
+			}
 		}
+	}
+	
+	protected void setLibPathForEnvironment() throws CommonException, OperationCancellation {
+		
+		ArrayList2<String> arguments = new ArrayList2<>(gocodePath);
+		
+		addSocketArguments(arguments);
 		arguments.add("set");
 		arguments.add("lib-path");
 		arguments.add(goEnvironment.getGoPathString());
@@ -65,9 +114,7 @@ public class GocodeCompletionOperation implements ToolOutputParseHelper {
 		
 		ArrayList2<String> arguments = new ArrayList2<String>(gocodePath);
 		
-		if (USE_TCP) {
-			arguments.add("-sock=tcp");
-		}
+		addSocketArguments(arguments);
 		arguments.add("-f=csv");
 		arguments.add("autocomplete");
 		arguments.add(filePath);
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.gocode;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.googlecode.goclipse.tooling.env.GoEnvironment;
+import com.googlecode.goclipse.tooling.gocode.GobCodec.Decoder;
+import com.googlecode.goclipse.tooling.gocode.GobCodec.Encoder;
+import com.googlecode.goclipse.tooling.gocode.GobCodec.GobFormatException;
+import com.googlecode.goclipse.tooling.gocode.GobCodec.StructType;
+import com.googlecode.goclipse.tooling.gocode.GocodeDaemon.GocodeChannel;
+
+import melnorme.lang.tooling.engine.ManagedToolDaemon;
+import melnorme.lang.tooling.parser.Utf8OffsetMapper;
+import melnorme.utilbox.concurrency.ICancelMonitor;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.StringUtil;
+
+/**
+ * The gocode server (<code>gocode -s -sock=tcp -addr=host:port</code>), managed as a {@link ManagedToolDaemon}:
+ * started on the first request, and restarted if it terminates, or if the gocode path changes.
+ *
+ * Requests talk the server's net/rpc protocol directly, instead of spawning a gocode client process for each request.
+ * The socket connection is kept open between requests, and the lib-path is only sent again to the server
+ * when it changes. A cancelled request closes the connection, but leaves the server (and its cache) running.
+ */
+public class GocodeDaemon extends ManagedToolDaemon<String, GocodeChannel> {
+	
+	public static final String DEFAULT_HOST = "127.0.0.1";
+	
+	protected static final int SERVER_LISTEN_TIMEOUT_MILLIS = 5000;
+	
+	/* ----------------- gob types of the gocode RPC protocol ----------------- */
+	
+	protected static final StructType REQUEST = new StructType("Request", 65)
+			.field("ServiceMethod", GobCodec.TYPE_STRING)
+			.field("Seq", GobCodec.TYPE_UINT);
+	
+	protected static final StructType ARGS_SET = new StructType("Args_set", 66)
+			.field("Arg0", GobCodec.TYPE_STRING)
+			.field("Arg1", GobCodec.TYPE_STRING);
+	
+	protected static final StructType GO_BUILD_CONTEXT = new StructType("go_build_context", 67)
+			.field("GOARCH", GobCodec.TYPE_STRING)
+			.field("GOOS", GobCodec.TYPE_STRING)
+			.field("GOROOT", GobCodec.TYPE_STRING)
+			.field("GOPATH", GobCodec.TYPE_STRING)
+			.field("CgoEnabled", GobCodec.TYPE_BOOL)
+			.field("Compiler", GobCodec.TYPE_STRING);
+	
+	protected static final StructType ARGS_AUTO_COMPLETE = new StructType("Args_auto_complete", 68)
+			.field("Arg0", GobCodec.TYPE_BYTES)
+			.field("Arg1", GobCodec.TYPE_STRING)
+			.field("Arg2", GobCodec.TYPE_INT)
+			.field("Arg3", GO_BUILD_CONTEXT);
+	
+	/** The names of gocode's decl_class values, starting from decl_invalid (-1) */
+	protected static final String[] DECL_CLASS_NAMES = { "PANIC", "const", "func", "import", "package", "type",
+			"var" };
+	
+	/* -----------------  ----------------- */
+	
+	/** The address of the current server process. Set by the worker thread, when it starts the process. */
+	protected volatile InetSocketAddress serverAddress;
+	protected volatile boolean protocolSupported = true;
+	
+	public GocodeDaemon() {
+		super("gocode server");
+	}
+	
+	/**
+	 * @return the address of the current server process, in the format of gocode's <code>-addr</code> option,
+	 * or null if no server process was started yet.
+	 */
+	public String getServerAddress() {
+		InetSocketAddress address = serverAddress;
+		return address == null ? null : address.getHostString() + ":" + address.getPort();
+	}
+	
+	/**
+	 * @return false if the server was found to not support the RPC protocol of this client
+	 * (for example, a gocode version with different RPC methods), in which case this daemon should not be used.
+	 */
+	public boolean isProtocolSupported() {
+		return protocolSupported;
+	}
+	
+	@Override
+	protected ProcessBuilder createProcessBuilder(String gocodePath) throws CommonException {
+		// Use a free port, instead of gocode's fixed default, which might be taken by another gocode server.
+		serverAddress = new InetSocketAddress(DEFAULT_HOST, findFreePort());
+		
+		// The server inherits the same environment as the other Go tool processes
+		return new ProcessBuilder(gocodePath, "-s", "-sock=tcp", "-addr=" + getServerAddress());
+	}
+	
+	protected static int findFreePort() throws CommonException {
+		try(ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getByName(DEFAULT_HOST))) {
+			return serverSocket.getLocalPort();
+		} catch(IOException e) {
+			throw new CommonException("Could not find a free port for the gocode server: ", e);
+		}
+	}
+	
+	@Override
+	protected Process startProcess(String gocodePath, ProcessBuilder pb) throws CommonException {
+		Process process = super.startProcess(gocodePath, pb);
+		discardStreamAsync(process.getInputStream(), "StdOutReader");
+		return process;
+	}
+	
+	@Override
+	protected GocodeChannel openChannel(String gocodePath, Process process) throws IOException {
+		// If the port was taken by another process before the server could bind it, the server terminates,
+		// and is started again, with another port.
+		return new GocodeChannel(connectWhenListening(process, serverAddress, SERVER_LISTEN_TIMEOUT_MILLIS));
+	}
+	
+	/* -----------------  ----------------- */
+	
+	@SuppressWarnings("serial")
+	public static class RpcErrorException extends CommonException {
+		public RpcErrorException(String message) {
+			super(message);
+		}
+	}
+	
+	public static class GocodeChannel extends SocketDaemonChannel {
+		
+		protected final Encoder encoder = new Encoder();
+		protected final Decoder decoder = new Decoder();
+		
+		protected long seq = 0;
+		/** The options set on the server through this channel. */
+		protected final Map<String, String> options = new HashMap<>();
+		
+		public GocodeChannel(Socket socket) throws IOException {
+			super(socket);
+		}
+		
+		/** Set given option of the server (like <code>gocode set</code>), if not already set by this channel. */
+		public void setOption(String name, String value) throws IOException, RpcErrorException {
+			if(!value.equals(options.get(name))) {
+				call("RPC.RPC_set", ARGS_SET, name, value);
+				options.put(name, value);
+			}
+		}
+		
+		public Object call(String serviceMethod, StructType argsType, Object... args)
+				throws IOException, RpcErrorException {
+			long requestSeq = seq++;
+			encoder.writeValue(output, REQUEST, serviceMethod, requestSeq);
+			encoder.writeValue(output, argsType, args);
+			output.flush();
+			
+			Map<?, ?> response = asStruct(decoder.readValue(input));
+			// The reply body is always sent, even if there is an error
+			Object reply = decoder.readValue(input);
+			
+			Object responseSeq = response.get("Seq");
+			if((responseSeq == null ? 0L : responseSeq).equals(requestSeq) == false) {
+				throw new GobFormatException("Unexpected response sequence number: " + responseSeq);
+			}
+			Object error = response.get("Error");
+			if(error != null) {
+				throw new RpcErrorException(error.toString());
+			}
+			return reply;
+		}
+		
+	}
+	
+	protected static Map<?, ?> asStruct(Object value) throws GobFormatException {
+		if(value instanceof Map) {
+			return (Map<?, ?>) value;
+		}
+		throw new GobFormatException("Expected struct value, got: " + value);
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/**
+	 * Request completions for given file, at given offset, to the server of given gocode path.
+	 *
+	 * @return the completion results, in the same format as the gocode client output with <code>-f=csv</code>.
+	 */
+	public String autoComplete(String gocodePath, GoEnvironment goEnvironment, String filePath, String bufferText,
+			int offset, ICancelMonitor cm) throws CommonException, OperationCancellation {
+		if(!protocolSupported) {
+			throw new CommonException("gocode server does not support the RPC protocol.");
+		}
+		
+		byte[] fileBytes = bufferText.getBytes(StringUtil.UTF8);
+		int byteOffset = Utf8OffsetMapper.utf8Length(bufferText, 0, offset);
+		
+		String libPath = goEnvironment.getGoPathString();
+		Object[] buildContext = new Object[] {
+				goEnvironment.getEffectiveGoArch(), goEnvironment.getEffectiveGoOs(),
+				goEnvironment.getGoRoot().asString(), libPath, goEnvironment.isCgoEnabled(), "gc" };
+		
+		Object reply = executeRequest(gocodePath, (GocodeChannel channel) -> {
+			try {
+				channel.setOption("propose-builtins", "true");
+				channel.setOption("lib-path", libPath);
+				return channel.call("RPC.RPC_auto_complete", ARGS_AUTO_COMPLETE,
+					fileBytes, filePath, byteOffset, buildContext);
+			} catch(RpcErrorException e) {
+				if(e.getMessage().startsWith("rpc: can't find")) {
+					protocolSupported = false;
+				}
+				throw new CommonException("Error in gocode RPC request: " + e.getMessage(), e);
+			} catch(GobFormatException e) {
+				protocolSupported = false;
+				throw e;
+			}
+		}, cm);
+		return toCsvOutput(reply);
+	}
+	
+	/** Convert a Reply_auto_complete value to gocode's CSV output format. */
+	protected static String toCsvOutput(Object reply) throws CommonException {
+		try {
+			Object candidates = asStruct(reply).get("Arg0");
+			if(candidates == null) {
+				return "";
+			}
+			if(!(candidates instanceof List)) {
+				throw new GobFormatException("Invalid candidates value: " + candidates);
+			}
+			
+			StringBuilder sb = new StringBuilder();
+			for (Object candidateValue : (List<?>) candidates) {
+				Map<?, ?> candidate = asStruct(candidateValue);
+				Object declClass = candidate.get("Class");
+				int classIx = (declClass == null ? 0 : ((Number) declClass).intValue()) + 1;
+				String className = classIx >= 0 && classIx < DECL_CLASS_NAMES.length ?
+						DECL_CLASS_NAMES[classIx] : "PANIC";
+				
+				sb.append(className).append(",,");
+				sb.append(StringUtil.nullAsEmpty((String) candidate.get("Name"))).append(",,");
+				sb.append(StringUtil.nullAsEmpty((String) candidate.get("Type"))).append("\n");
+			}
+			return sb.toString();
+		} catch(GobFormatException | ClassCastException e) {
+			throw new CommonException("Invalid gocode RPC reply: " + e.getMessage(), e);
+		}
+	}
+	
+}
\ No newline at end of file
@@ -12,19 +12,16 @@ package com.googlecode.goclipse.tooling.oracle;
 
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 
-import java.nio.CharBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetEncoder;
-
 import com.googlecode.goclipse.tooling.env.GoEnvironment;
 
 import melnorme.lang.tooling.common.ISourceBuffer;
+import melnorme.lang.tooling.common.SourceLineColumnRange;
+import melnorme.lang.tooling.parser.SourceLinesInfo;
 import melnorme.lang.tooling.toolchain.ops.IToolOperationService;
+import melnorme.lang.tooling.toolchain.ops.SourceLocation;
 import melnorme.lang.tooling.toolchain.ops.SourceOpContext;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.misc.Location;
-import melnorme.utilbox.misc.StringUtil;
 
 public class GoOperationContext {
 	
@@ -61,20 +58,23 @@ public class GoOperationContext {
 		return opContext.getFileLocation();
 	}
 	
+	/** @return the byte offset in the operation source, for given char offset. */
 	public int getByteOffsetFromEncoding(int charOffset) throws CommonException {
-		Charset charset = StringUtil.UTF8; // All Go source file must be encoded in UTF8, not another format.
-		return getByteOffsetFromEncoding(sourceBuffer.getSource(), charOffset, charset);
+		// All Go source file must be encoded in UTF8, not another format.
+		return opContext.getSourceLinesInfo().getUtf8ByteOffset(charOffset);
 	}
-
-	public static int getByteOffsetFromEncoding(String source, int charOffset, Charset charset) throws CommonException {
-		CharsetEncoder encoder = charset.newEncoder();
-		
-		CharBuffer src = CharBuffer.wrap(source, 0, charOffset);
-		try {
-			return encoder.encode(src).limit();
-		} catch(CharacterCodingException e) {
-			throw new CommonException("Could not determine byte offset for Unicode string.", e);
-		}
+	
+	/** @return the char offset for given tool result location, whose column is a byte count (as in Go tools). */
+	public int getOffsetFor(SourceLocation sourceLocation) throws CommonException {
+		SourceLinesInfo linesInfo = opContext.getSourceLinesInfoFor(sourceLocation.getFileLocation());
+		return getOffsetFor(sourceLocation, linesInfo);
+	}
+	
+	public static int getOffsetFor(SourceLocation sourceLocation, SourceLinesInfo linesInfo) 
+			throws CommonException {
+		SourceLineColumnRange sourceLCRange = sourceLocation.getSourceRange();
+		return linesInfo.getValidatedOffsetForUtf8Column_1(
+			sourceLCRange.getValidLineIndex() + 1, sourceLCRange.getValidColumnIndex() + 1);
 	}
 	
 }
\ No newline at end of file
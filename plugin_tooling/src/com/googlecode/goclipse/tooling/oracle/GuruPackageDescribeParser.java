@@ -14,14 +14,19 @@ package com.googlecode.goclipse.tooling.oracle;
 import static melnorme.lang.tooling.structure.StructureElementKind.STRUCT;
 import static melnorme.utilbox.core.CoreUtil.list;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 
 import melnorme.lang.tooling.EProtection;
 import melnorme.lang.tooling.ElementAttributes;
@@ -30,12 +35,12 @@ import melnorme.lang.tooling.ast.SourceRange;
 import melnorme.lang.tooling.common.LineColumnPosition;
 import melnorme.lang.tooling.common.ParserError;
 import melnorme.lang.tooling.common.SourceFileLocation;
+import melnorme.lang.tooling.parser.SourceLinesInfo;
 import melnorme.lang.tooling.structure.AbstractStructureParser;
 import melnorme.lang.tooling.structure.SourceFileStructure;
 import melnorme.lang.tooling.structure.StructureElement;
 import melnorme.lang.tooling.structure.StructureElementKind;
 import melnorme.lang.tooling.toolchain.ops.ToolOutputParseHelper;
-import melnorme.lang.utils.gson.GsonHelper;
 import melnorme.lang.utils.gson.JsonParserX;
 import melnorme.lang.utils.parse.LexingUtils;
 import melnorme.lang.utils.parse.StringCharSource;
@@ -48,57 +53,138 @@ import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
 
 public class GuruPackageDescribeParser extends AbstractStructureParser {
 	
-	protected final GsonHelper helper = new GsonHelper();
-	
 	public GuruPackageDescribeParser(Location location, String goSource) {
 		super(location, goSource);
 	}
 	
+	public GuruPackageDescribeParser(Location location, SourceLinesInfo sourceLinesInfo) {
+		super(location, sourceLinesInfo);
+	}
+	
 	public SourceFileStructure parse(ExternalProcessResult result) throws CommonException {
 		if(result.exitValue != 0) {
 			String errorMsg = result.getStdErrBytes().toString(StringUtil.UTF8);
 			return parseErrorMessage(errorMsg);
 		}
 		
-		return parse(result.getStdOutBytes().toString(StringUtil.UTF8));
+		return parse(result.getStdOutBytes().toInputStream());
 	}
 	
 	@Override
 	public SourceFileStructure parse(String describeOutput) throws CommonException {
-		ArrayList2<StructureElement> elements = doParseJsonResult(describeOutput);
+		return parse(new StringReader(describeOutput));
+	}
+	
+	public SourceFileStructure parse(InputStream describeOutput) throws CommonException {
+		return parse(new InputStreamReader(describeOutput, StringUtil.UTF8));
+	}
+	
+	/**
+	 * Parse the describe output as it is read, without building a JSON tree or a String for the whole output.
+	 */
+	public SourceFileStructure parse(Reader describeOutput) throws CommonException {
+		ArrayList2<StructureElement> elements;
+		try {
+			elements = readDescribe(JsonParserX.newReader(describeOutput, true));
+		} catch(MalformedJsonException | IllegalStateException | NumberFormatException e) {
+			throw new CommonException("JSON syntax error: ", e);
+		} catch(IOException e) {
+			throw new CommonException("Error reading from input: ", e);
+		}
 		
 		return new SourceFileStructure(location, elements, null);
 	}
 	
-	protected ArrayList2<StructureElement> doParseJsonResult(String output) 
-			throws CommonException {
-		JsonObject describe = new JsonParserX().parseObject(output, true);
+	protected CommonException wrongTypeException(String key, String expectedType) {
+		return CommonException.fromMsgFormat("Member `{0}` is not a {1}.", key, expectedType);
+	}
+	
+	/** @return true if the next value is present, that is, not null. Consumes a null value. */
+	protected boolean isPresent(JsonReader reader) throws IOException {
+		if(reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return false;
+		}
+		return true;
+	}
+	
+	protected void beginObject(JsonReader reader, String key) throws IOException, CommonException {
+		if(reader.peek() != JsonToken.BEGIN_OBJECT) {
+			throw wrongTypeException(key, "Object");
+		}
+		reader.beginObject();
+	}
+	
+	protected String readOptionalString(JsonReader reader, String key) throws IOException, CommonException {
+		if(!isPresent(reader)) {
+			return null;
+		}
+		if(reader.peek() != JsonToken.STRING) {
+			throw wrongTypeException(key, "String");
+		}
+		return reader.nextString();
+	}
+	
+	protected ArrayList2<StructureElement> readDescribe(JsonReader reader) throws IOException, CommonException {
+		if(reader.peek() != JsonToken.BEGIN_OBJECT) {
+			throw new CommonException("Parsed JSON element is not a JSON object.");
+		}
+		reader.beginObject();
+		
+		ArrayList2<StructureElement> elements = null;
+		while(reader.hasNext()) {
+			if(reader.nextName().equals("package")) {
+				elements = readPackage(reader);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		
+		if(elements == null) {
+			throw wrongTypeException("package", "Object");
+		}
+		return elements;
+	}
+	
+	protected ArrayList2<StructureElement> readPackage(JsonReader reader) throws IOException, CommonException {
+		beginObject(reader, "package");
 		
-		JsonObject packageObj = helper.getObject(describe, "package");
+		ArrayList2<StructureElement> elements = null;
+		while(reader.hasNext()) {
+			if(reader.nextName().equals("members")) {
+				elements = readElements(reader, "members", false);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
 		
-		JsonArray members = helper.getOptionalArray(packageObj, "members");
-		return parseElements(members, false);
+		return elements != null ? elements : new ArrayList2<>();
 	}
 	
-	protected ArrayList2<StructureElement> parseElements(JsonArray members, boolean parsingMethods) 
-			throws CommonException {
+	protected ArrayList2<StructureElement> readElements(JsonReader reader, String key, boolean parsingMethods) 
+			throws IOException, CommonException {
 		ArrayList2<StructureElement> elements = new ArrayList2<>();
 		
-		if(members != null) {
-			for(int i = 0; i < members.size(); i++) {
-				JsonElement arrayElement = members.get(i);
-				if(arrayElement.isJsonObject()) {
-					JsonObject jsonObject = arrayElement.getAsJsonObject();
-					StructureElement structureElement = parseStructureElement(jsonObject, parsingMethods);
-					if(structureElement == null) {
-						continue; // Can happen for external elements
-					}
-					elements.add(structureElement);	
-				} else {
-					throw new CommonException("'members' array element is not a JSONObject: " + arrayElement);
-				}
+		if(!isPresent(reader)) {
+			return elements;
+		}
+		if(reader.peek() != JsonToken.BEGIN_ARRAY) {
+			throw wrongTypeException(key, "Array");
+		}
+		reader.beginArray();
+		while(reader.hasNext()) {
+			if(reader.peek() != JsonToken.BEGIN_OBJECT) {
+				throw new CommonException("'" + key + "' array element is not a JSONObject: " + reader.peek());
 			}
+			StructureElement structureElement = readStructureElement(reader, parsingMethods);
+			if(structureElement == null) {
+				continue; // Can happen for external elements
+			}
+			elements.add(structureElement);
 		}
+		reader.endArray();
 		
 		Collections.sort(elements, new Comparator<StructureElement>() {
 			@Override
@@ -119,11 +205,40 @@ public class GuruPackageDescribeParser extends AbstractStructureParser {
 		return elements;
 	}
 	
-	protected StructureElement parseStructureElement(JsonObject object, boolean parsingMethods) 
-			throws CommonException {
-		String name = helper.getString(object, "name");
+	protected StructureElement readStructureElement(JsonReader reader, boolean parsingMethods) 
+			throws IOException, CommonException {
+		String name = null;
+		String posString = null;
+		String type = null;
+		String kindString = null;
+		Indexable<StructureElement> children = new ArrayList2<>();
+		
+		// Members can come in any order, so read them all before creating the element
+		reader.beginObject();
+		while(reader.hasNext()) {
+			String key = reader.nextName();
+			switch (key) {
+			case "name": name = readOptionalString(reader, key); break;
+			case "pos": posString = readOptionalString(reader, key); break;
+			case "type": type = readOptionalString(reader, key); break;
+			case "kind": kindString = readOptionalString(reader, key); break;
+			case "methods": children = readElements(reader, key, true); break;
+			default: reader.skipValue(); break;
+			}
+		}
+		reader.endObject();
 		
-		String posString = helper.getString(object, "pos");
+		return createStructureElement(name, posString, type, kindString, children, parsingMethods);
+	}
+	
+	protected StructureElement createStructureElement(String name, String posString, String type, 
+			String kindString, Indexable<StructureElement> children, boolean parsingMethods) throws CommonException {
+		if(name == null) {
+			throw wrongTypeException("name", "String");
+		}
+		if(posString == null) {
+			throw wrongTypeException("pos", "String");
+		}
 		SourceFileLocation elementSourceFileLoc = SourceFileLocation.parseSourceRange(posString, ':');
 		
 		SourceRange nameSourceRange;
@@ -132,13 +247,9 @@ public class GuruPackageDescribeParser extends AbstractStructureParser {
 		if(!isSourceElementLocation(elementSourceFileLoc.getFileLocation())) {
 			sourceRange = nameSourceRange = null;
 		} else {
-			sourceRange = nameSourceRange = elementSourceFileLoc.parseSourceRangeFrom1BasedIndex(sourceLinesInfo);
+			sourceRange = nameSourceRange = elementSourceFileLoc.parseSourceRangeFrom1BasedUtf8Index(sourceLinesInfo);
 		}
 		
-		String type = helper.getOptionalString(object, "type");
-		
-		String kindString = helper.getOptionalString(object, "kind");
-		
 		StructureElementKind elementKind;
 		if(parsingMethods) {
 			elementKind = StructureElementKind.METHOD;
@@ -179,9 +290,6 @@ public class GuruPackageDescribeParser extends AbstractStructureParser {
 		
 		ElementAttributes elementAttributes = new ElementAttributes(protection);
 		
-		JsonArray methods = helper.getOptionalArray(object, "methods");
-		Indexable<StructureElement> children = parseElements(methods, true);
-		
 		if(!isSourceElementLocation(elementSourceFileLoc.getFileLocation())) {
 			// Fix source range to children range.
 			if(children.size() == 0) {
@@ -261,7 +369,7 @@ public class GuruPackageDescribeParser extends AbstractStructureParser {
 		
 		LineColumnPosition lcPost = ToolOutputParseHelper.parseLineColumn(lineStr, columnStr, 1, 1);
 		
-		int offset = sourceLinesInfo.getValidatedOffset_1(lcPost.line, lcPost.column);
+		int offset = sourceLinesInfo.getValidatedOffsetForUtf8Column_1(lcPost.line, lcPost.column);
 		String source = sourceLinesInfo.getSource();
 		int length = 1;
 		
@@ -269,7 +377,7 @@ public class GuruPackageDescribeParser extends AbstractStructureParser {
 			length = 0;
 		} 
 		else if(offset < source.length()) {
-			length = heuristic_determinTokenLength(offset, source);
+			length = heuristic_determinTokenLength(offset);
 		}
 		
 		SourceRange sr = new SourceRange(offset, length);
@@ -282,11 +390,8 @@ public class GuruPackageDescribeParser extends AbstractStructureParser {
 	 * Try to guess the length of the token at given offset, from given source.
 	 * Doesn't have to be accurate measurement. (used to get a better range for error msgs)  
 	 */
-	protected int heuristic_determinTokenLength(int offset, String source) {
-		
-		StringCharSource charSource = new StringCharSource(source);
-		charSource.consumeAmount(offset);
-		int length = LexingUtils.matchJavaIdentifier(charSource);
+	protected int heuristic_determinTokenLength(int offset) {
+		int length = sourceLinesInfo.getIdentifierAt(offset);
 		if (length == 0) {
 			return 1;
 		}
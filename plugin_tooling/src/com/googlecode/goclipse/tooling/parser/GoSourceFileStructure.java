@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.parser;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import com.googlecode.goclipse.tooling.parser.GoStructureParser.Declaration;
+
+import melnorme.lang.tooling.common.ParserError;
+import melnorme.lang.tooling.structure.SourceFileStructure;
+import melnorme.lang.tooling.structure.StructureElement;
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.misc.Location;
+
+/**
+ * A {@link SourceFileStructure} created by {@link GoStructureParser}, which also retains the
+ * top-level declarations it was parsed from, so that it can be incrementally updated.
+ */
+public class GoSourceFileStructure extends SourceFileStructure {
+	
+	protected final Indexable<Declaration> declarations;
+	
+	public GoSourceFileStructure(Location location, Indexable<StructureElement> children,
+			Indexable<ParserError> parserProblems, Indexable<Declaration> declarations) {
+		super(location, children, parserProblems);
+		this.declarations = assertNotNull(declarations);
+	}
+	
+	public Indexable<Declaration> getDeclarations() {
+		return declarations;
+	}
+	
+}
\ No newline at end of file
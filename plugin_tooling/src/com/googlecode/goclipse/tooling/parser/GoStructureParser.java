@@ -0,0 +1,862 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.parser;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+import melnorme.lang.tooling.EProtection;
+import melnorme.lang.tooling.ElementAttributes;
+import melnorme.lang.tooling.ast.ParserErrorTypes;
+import melnorme.lang.tooling.ast.SourceEditDelta;
+import melnorme.lang.tooling.ast.SourceRange;
+import melnorme.lang.tooling.common.ParserError;
+import melnorme.lang.tooling.structure.SourceFileStructure;
+import melnorme.lang.tooling.structure.StructureElement;
+import melnorme.lang.tooling.structure.StructureElementKind;
+import melnorme.lang.utils.parse.LexingUtils;
+import melnorme.lang.utils.parse.StringCharSource;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.misc.Location;
+
+/**
+ * An in-process parser of the top-level declarations of a Go source file.
+ *
+ * Creates the same kind of {@link SourceFileStructure} that is obtained from `guru describe`,
+ * but directly from the source text, and without any type information:
+ * types are reported as written in the source, and are null if they would have to be inferred.
+ *
+ * Function and type bodies are skipped (only balanced delimiters are tracked),
+ * so this parser does not fully validate Go syntax.
+ */
+public class GoStructureParser {
+	
+	protected final Location location;
+	protected final String source;
+	protected final StringCharSource parser;
+	
+	/** The declaration currently being parsed, which receives parsed elements and errors. */
+	protected Declaration currentDecl;
+	
+	public GoStructureParser(Location location, String source) {
+		this.location = location;
+		this.source = assertNotNull(source);
+		this.parser = new StringCharSource(source);
+	}
+	
+	public String getSource() {
+		return source;
+	}
+	
+	protected int pos() {
+		return parser.getReadPosition();
+	}
+	
+	public GoSourceFileStructure parse() {
+		ArrayList2<Declaration> declarations = new ArrayList2<>();
+		parsePackageClause(declarations);
+		
+		while(parseNextDeclaration(declarations)) {
+		}
+		return createStructure(declarations);
+	}
+	
+	/**
+	 * Parse the source of this parser, reusing the declarations of a previous structure that 
+	 * are not affected by given edit. The result is the same as for {@link #parse()}.
+	 * 
+	 * @param previous a structure previously created by this parser, for the base source of given edit.
+	 * @param edit the edit that transforms the source of previous structure into the source of this parser.
+	 */
+	public GoSourceFileStructure parseIncremental(GoSourceFileStructure previous, SourceEditDelta edit) {
+		if(edit.isEmpty()) {
+			return createStructure(previous.getDeclarations());
+		}
+		Indexable<Declaration> oldDecls = previous.getDeclarations();
+		int delta = edit.getDelta();
+		
+		ArrayList2<Declaration> declarations = new ArrayList2<>();
+		int ix = 0;
+		for(; ix < oldDecls.size(); ix++) {
+			Declaration decl = oldDecls.get(ix);
+			if(decl.getExtentEndPos() >= edit.getStartPos()) {
+				break;
+			}
+			declarations.add(decl);
+		}
+		
+		if(declarations.isEmpty()) {
+			parsePackageClause(declarations);
+			ix = 1; // The previous package clause is replaced, even if empty
+		} else {
+			parser.consumeAmount(declarations.get(declarations.size() - 1).getRange().getEndPos());
+		}
+		
+		while(true) {
+			// Try to re-synchronize with the previous declarations after the edit
+			while(ix < oldDecls.size() && oldDecls.get(ix).getRange().getStartPos() + delta < pos()) {
+				ix++;
+			}
+			if(ix < oldDecls.size() && oldDecls.get(ix).getRange().getStartPos() >= edit.getOldEndPos() &&
+					oldDecls.get(ix).getRange().getStartPos() + delta == pos()) {
+				for(; ix < oldDecls.size(); ix++) {
+					declarations.add(oldDecls.get(ix).shifted(delta));
+				}
+				break;
+			}
+			
+			if(!parseNextDeclaration(declarations)) {
+				break;
+			}
+		}
+		return createStructure(declarations);
+	}
+	
+	protected void parsePackageClause(ArrayList2<Declaration> declarations) {
+		currentDecl = new Declaration();
+		int declStart = pos();
+		
+		skipWhitespaceAndComments(true);
+		int start = pos();
+		if(!tryConsumeKeyword("package")) {
+			addError(start, tokenLengthAt(start), "expected 'package', found " + tokenDescriptionAt(start));
+		} else {
+			skipWhitespaceAndComments(false);
+			if(LexingUtils.tryConsumeJavaIdentifier(parser) == null) {
+				addError(pos(), tokenLengthAt(pos()), "expected package name, found " + tokenDescriptionAt(pos()));
+			}
+			skipUntilStatementEnd(false);
+		}
+		
+		declarations.add(currentDecl.complete(declStart, pos()));
+	}
+	
+	/**
+	 * Parse the next top-level declaration, including the whitespace and comments before it.
+	 * @return false if EOF was reached before any declaration.
+	 */
+	protected boolean parseNextDeclaration(ArrayList2<Declaration> declarations) {
+		currentDecl = new Declaration();
+		int declStart = pos();
+		
+		skipWhitespaceAndComments(true);
+		if(!parser.hasCharAhead()) {
+			if(pos() > declStart) {
+				declarations.add(currentDecl.complete(declStart, pos()));
+			}
+			return false;
+		}
+		
+		if(!parser.tryConsume(';')) {
+			parseTopLevelDeclaration();
+		}
+		declarations.add(currentDecl.complete(declStart, pos()));
+		return true;
+	}
+	
+	protected void parseTopLevelDeclaration() {
+		int declStart = pos();
+		
+		if(tryConsumeKeyword("import")) {
+			parseGroupOrSingleSpec(declStart, null);
+		} else if(tryConsumeKeyword("func")) {
+			parseFuncDecl(declStart);
+		} else if(tryConsumeKeyword("var")) {
+			parseGroupOrSingleSpec(declStart, StructureElementKind.VARIABLE);
+		} else if(tryConsumeKeyword("const")) {
+			parseGroupOrSingleSpec(declStart, StructureElementKind.CONST);
+		} else if(tryConsumeKeyword("type")) {
+			parseGroupOrSingleSpec(declStart, StructureElementKind.TYPE_DECL);
+		} else {
+			addError(declStart, tokenLengthAt(declStart),
+				"non-declaration statement outside function body: " + tokenDescriptionAt(declStart));
+			if(!skipUntilStatementEnd(false)) {
+				parser.consume(); // Ensure progress
+			}
+		}
+	}
+	
+	/* ----------------- var, const, type, import ----------------- */
+	
+	/**
+	 * @param kind the kind of the declaration. null for imports, {@link StructureElementKind#TYPE_DECL}
+	 * for type declarations.
+	 */
+	protected void parseGroupOrSingleSpec(int declStart, StructureElementKind kind) {
+		skipWhitespaceAndComments(false);
+		
+		if(!parser.tryConsume('(')) {
+			parseSpec(declStart, kind, false);
+			return;
+		}
+		
+		while(true) {
+			skipWhitespaceAndComments(true);
+			if(parser.tryConsume(')')) {
+				return;
+			}
+			if(!parser.hasCharAhead()) {
+				addError(pos(), 0, "expected ')', found 'EOF'");
+				return;
+			}
+			if(parser.tryConsume(';')) {
+				continue;
+			}
+			int specStart = pos();
+			parseSpec(specStart, kind, true);
+			if(pos() == specStart) {
+				parser.consume(); // Ensure progress
+			}
+		}
+	}
+	
+	protected void parseSpec(int specStart, StructureElementKind kind, boolean inGroup) {
+		if(kind == null) {
+			skipUntilStatementEnd(inGroup); // import spec
+			return;
+		}
+		if(kind == StructureElementKind.TYPE_DECL) {
+			parseTypeSpec(specStart, inGroup);
+			return;
+		}
+		
+		ArrayList2<SourceRange> names = new ArrayList2<>();
+		while(true) {
+			skipWhitespaceAndComments(false);
+			int nameStart = pos();
+			int nameLength = LexingUtils.matchJavaIdentifier(parser);
+			if(nameLength == 0) {
+				addError(nameStart, tokenLengthAt(nameStart),
+					"expected identifier, found " + tokenDescriptionAt(nameStart));
+				skipUntilStatementEnd(inGroup);
+				return;
+			}
+			parser.consumeAmount(nameLength);
+			names.add(new SourceRange(nameStart, nameLength));
+			
+			skipWhitespaceAndComments(false);
+			if(!parser.tryConsume(',')) {
+				break;
+			}
+		}
+		
+		String type = null;
+		if(!isAtStatementEnd(inGroup) && parser.lookahead() != '=') {
+			type = consumeTypeText(inGroup, "=");
+		}
+		skipUntilStatementEnd(inGroup);
+		
+		int specEnd = trimmedEndPos(specStart);
+		for (SourceRange nameSR : names) {
+			// For multiple names in a single spec, the range of each element is just the name
+			SourceRange sr = names.size() == 1 ? SourceRange.srStartToEnd(specStart, specEnd) : nameSR;
+			currentDecl.elements.add(createElement(nameSR, sr, kind, type, null));
+		}
+	}
+	
+	protected void parseTypeSpec(int specStart, boolean inGroup) {
+		skipWhitespaceAndComments(false);
+		int nameStart = pos();
+		int nameLength = LexingUtils.matchJavaIdentifier(parser);
+		if(nameLength == 0) {
+			addError(nameStart, tokenLengthAt(nameStart), "expected identifier, found " + tokenDescriptionAt(nameStart));
+			skipUntilStatementEnd(inGroup);
+			return;
+		}
+		parser.consumeAmount(nameLength);
+		SourceRange nameSR = new SourceRange(nameStart, nameLength);
+		
+		if(parser.lookahead() == '[') {
+			// Type parameters (as formatted by gofmt, with no space before the bracket)
+			skipBalanced();
+		}
+		skipWhitespaceAndComments(false);
+		parser.tryConsume('='); // alias declaration
+		skipWhitespaceAndComments(false);
+		
+		StructureElementKind kind = StructureElementKind.TYPE_DECL;
+		String type = null;
+		ArrayList2<StructureElement> interfaceMethods = null;
+		
+		if(tryConsumeKeyword("struct")) {
+			kind = StructureElementKind.STRUCT;
+			skipWhitespaceAndComments(false);
+			skipBalanced();
+		} else if(tryConsumeKeyword("interface")) {
+			kind = StructureElementKind.INTERFACE;
+			skipWhitespaceAndComments(false);
+			interfaceMethods = parseInterfaceBody();
+		} else {
+			type = consumeTypeText(inGroup, "");
+		}
+		skipUntilStatementEnd(inGroup);
+		
+		SourceRange sr = SourceRange.srStartToEnd(specStart, trimmedEndPos(specStart));
+		currentDecl.elements.add(createElement(nameSR, sr, kind, type, interfaceMethods));
+	}
+	
+	protected ArrayList2<StructureElement> parseInterfaceBody() {
+		ArrayList2<StructureElement> methods = new ArrayList2<>();
+		if(!parser.tryConsume('{')) {
+			addError(pos(), tokenLengthAt(pos()), "expected '{', found " + tokenDescriptionAt(pos()));
+			return methods;
+		}
+		
+		while(true) {
+			skipWhitespaceAndComments(true);
+			if(parser.tryConsume('}')) {
+				break;
+			}
+			if(!parser.hasCharAhead()) {
+				addError(pos(), 0, "expected '}', found 'EOF'");
+				break;
+			}
+			if(parser.tryConsume(';')) {
+				continue;
+			}
+			
+			int entryStart = pos();
+			int nameLength = LexingUtils.matchJavaIdentifier(parser);
+			if(nameLength > 0 && parser.lookahead(nameLength) == '(') {
+				SourceRange nameSR = new SourceRange(entryStart, nameLength);
+				parser.consumeAmount(nameLength);
+				String signature = consumeSignature(true);
+				methods.add(createElement(nameSR, SourceRange.srStartToEnd(entryStart, pos()),
+					StructureElementKind.METHOD, signature, null));
+			}
+			// Otherwise an embedded interface or a type constraint.
+			skipUntilStatementEnd(true, '}');
+			if(pos() == entryStart) {
+				parser.consume(); // Ensure progress
+			}
+		}
+		return methods;
+	}
+	
+	/* ----------------- func ----------------- */
+	
+	protected void parseFuncDecl(int declStart) {
+		skipWhitespaceAndComments(false);
+		
+		String receiverType = null;
+		if(parser.lookahead() == '(') {
+			int receiverStart = pos();
+			skipBalanced();
+			receiverType = getReceiverTypeName(source.substring(receiverStart, pos()));
+			skipWhitespaceAndComments(false);
+		}
+		
+		int nameStart = pos();
+		int nameLength = LexingUtils.matchJavaIdentifier(parser);
+		if(nameLength == 0) {
+			addError(nameStart, tokenLengthAt(nameStart), "expected identifier, found " + tokenDescriptionAt(nameStart));
+			skipUntilStatementEnd(false);
+			return;
+		}
+		parser.consumeAmount(nameLength);
+		SourceRange nameSR = new SourceRange(nameStart, nameLength);
+		
+		if(parser.lookahead() == '[') {
+			skipBalanced(); // Type parameters
+		}
+		skipWhitespaceAndComments(false);
+		
+		String signature = consumeSignature(false);
+		
+		skipWhitespaceAndComments(false);
+		if(parser.lookahead() == '{') {
+			skipBalanced();
+		}
+		skipUntilStatementEnd(false);
+		
+		SourceRange sr = SourceRange.srStartToEnd(declStart, trimmedEndPos(declStart));
+		if(receiverType == null) {
+			currentDecl.elements.add(createElement(nameSR, sr, StructureElementKind.FUNCTION, signature, null));
+		} else {
+			currentDecl.methods.add(createElement(nameSR, sr, StructureElementKind.METHOD, signature, null));
+			currentDecl.methodReceivers.add(receiverType);
+		}
+	}
+	
+	/**
+	 * Consume a function signature (parameters and results),
+	 * @return the signature as a function type string, for example: "func(a int) error".
+	 */
+	protected String consumeSignature(boolean inInterface) {
+		if(parser.lookahead() != '(') {
+			addError(pos(), tokenLengthAt(pos()), "expected '(', found " + tokenDescriptionAt(pos()));
+			return null;
+		}
+		int paramsStart = pos();
+		skipBalanced();
+		String params = normalizeWhitespace(source.substring(paramsStart, pos()));
+		
+		skipWhitespaceAndComments(false);
+		String results = "";
+		if(!isAtStatementEnd(inInterface) && parser.lookahead() != '{' && parser.lookahead() != '}') {
+			results = consumeTypeText(inInterface, "{}");
+		}
+		return "func" + params + (results.isEmpty() ? "" : " " + results);
+	}
+	
+	protected static String getReceiverTypeName(String receiverText) {
+		// Strip parenthesis, and type parameters, if any
+		String text = receiverText.substring(1, receiverText.length() - 1);
+		int typeParamsStart = text.indexOf('[');
+		if(typeParamsStart != -1) {
+			text = text.substring(0, typeParamsStart);
+		}
+		int end = text.length();
+		while(end > 0 && !Character.isJavaIdentifierPart(text.charAt(end - 1))) {
+			end--;
+		}
+		int start = end;
+		while(start > 0 && Character.isJavaIdentifierPart(text.charAt(start - 1))) {
+			start--;
+		}
+		return start == end ? null : text.substring(start, end);
+	}
+	
+	protected GoSourceFileStructure createStructure(Indexable<Declaration> declarations) {
+		ArrayList2<StructureElement> elements = new ArrayList2<>();
+		ArrayList2<ParserError> parserProblems = new ArrayList2<>();
+		HashMap<String, Integer> typeDecls = new HashMap<>();
+		LinkedHashMap<String, ArrayList2<StructureElement>> methodsByReceiver = new LinkedHashMap<>();
+		
+		for (Declaration decl : declarations) {
+			for (StructureElement element : decl.elements) {
+				if(isTypeDeclaration(element)) {
+					typeDecls.put(element.getName(), elements.size());
+				}
+				// Copy the element, since the declaration elements can be reused for another structure
+				elements.add(Declaration.copyElement(element, 0));
+			}
+			for (int ix = 0; ix < decl.methods.size(); ix++) {
+				String receiverType = decl.methodReceivers.get(ix);
+				ArrayList2<StructureElement> methods = methodsByReceiver.get(receiverType);
+				if(methods == null) {
+					methodsByReceiver.put(receiverType, methods = new ArrayList2<>());
+				}
+				methods.add(Declaration.copyElement(decl.methods.get(ix), 0));
+			}
+			parserProblems.addAll(decl.errors);
+		}
+		
+		attachMethodsToTypes(elements, typeDecls, methodsByReceiver);
+		
+		sortBySourceRange(elements);
+		return new GoSourceFileStructure(location, elements, parserProblems, declarations);
+	}
+	
+	protected static boolean isTypeDeclaration(StructureElement element) {
+		StructureElementKind kind = element.getKind();
+		return kind == StructureElementKind.STRUCT || kind == StructureElementKind.INTERFACE ||
+				kind == StructureElementKind.TYPE_DECL;
+	}
+	
+	protected void attachMethodsToTypes(ArrayList2<StructureElement> elements, HashMap<String, Integer> typeDecls,
+			LinkedHashMap<String, ArrayList2<StructureElement>> methodsByReceiver) {
+		for (Entry<String, ArrayList2<StructureElement>> entry : methodsByReceiver.entrySet()) {
+			String typeName = entry.getKey();
+			ArrayList2<StructureElement> methods = entry.getValue();
+			
+			Integer typeDeclIndex = typeDecls.get(typeName);
+			
+			if(typeDeclIndex == null) {
+				// Type is declared in another file of the package, use the range of the methods
+				sortBySourceRange(methods);
+				int startPos = methods.get(0).getSourceRange().getStartPos();
+				int endPos = methods.get(methods.size()-1).getSourceRange().getEndPos();
+				elements.add(new StructureElement(typeName, null, SourceRange.srStartToEnd(startPos, endPos),
+					StructureElementKind.TYPE_DECL, new ElementAttributes(protectionFor(typeName)), null,
+					methods));
+				continue;
+			}
+			
+			StructureElement typeElement = elements.get(typeDeclIndex);
+			ArrayList2<StructureElement> children = new ArrayList2<>();
+			children.addAll2(typeElement.getChildren());
+			children.addAll(methods);
+			sortBySourceRange(children);
+			
+			StructureElement newTypeElement = new StructureElement(typeElement.getName(),
+				typeElement.getNameSourceRange2(), typeElement.getSourceRange(), typeElement.getKind(),
+				typeElement.getAttributes(), typeElement.getType(), children);
+			elements.set(typeDeclIndex, newTypeElement);
+		}
+	}
+	
+	/**
+	 * A top-level declaration (including the whitespace and comments before it), 
+	 * and the elements and errors parsed from it.
+	 * The elements are not yet attached to each other (methods are separate from their types).
+	 */
+	public static class Declaration {
+		
+		protected SourceRange range;
+		protected final ArrayList2<StructureElement> elements = new ArrayList2<>();
+		protected final ArrayList2<StructureElement> methods = new ArrayList2<>();
+		protected final ArrayList2<String> methodReceivers = new ArrayList2<>();
+		protected final ArrayList2<ParserError> errors = new ArrayList2<>();
+		
+		protected Declaration complete(int startPos, int endPos) {
+			this.range = SourceRange.srStartToEnd(startPos, endPos);
+			return this;
+		}
+		
+		public SourceRange getRange() {
+			return range;
+		}
+		
+		/**
+		 * @return the end of the source text this declaration depends on: 
+		 * error messages may describe a token after the declaration range. 
+		 */
+		public int getExtentEndPos() {
+			int endPos = range.getEndPos();
+			for (ParserError error : errors) {
+				endPos = Math.max(endPos, error.getEndPos());
+			}
+			return endPos;
+		}
+		
+		/** @return a copy of this declaration, with all source ranges shifted by given delta. */
+		public Declaration shifted(int delta) {
+			if(delta == 0) {
+				return this;
+			}
+			Declaration decl = new Declaration();
+			for (StructureElement element : elements) {
+				decl.elements.add(copyElement(element, delta));
+			}
+			for (StructureElement method : methods) {
+				decl.methods.add(copyElement(method, delta));
+			}
+			decl.methodReceivers.addAll(methodReceivers);
+			for (ParserError error : errors) {
+				decl.errors.add(new ParserError(error.errorType, error.severity, shiftRange(error.sourceRange, delta),
+					error.msgErrorSource, error.msgData));
+			}
+			return decl.complete(range.getStartPos() + delta, range.getEndPos() + delta);
+		}
+		
+		/** @return a copy of given element (which must not have a parent), with source ranges shifted by delta. */
+		protected static StructureElement copyElement(StructureElement element, int delta) {
+			ArrayList2<StructureElement> children = new ArrayList2<>();
+			for (StructureElement child : element.getChildren()) {
+				children.add(copyElement(child, delta));
+			}
+			return new StructureElement(element.getName(), shiftRange(element.getNameSourceRange2(), delta),
+				shiftRange(element.getSourceRange(), delta), element.getKind(), element.getAttributes(),
+				element.getType(), children);
+		}
+		
+		protected static SourceRange shiftRange(SourceRange sr, int delta) {
+			return sr == null ? null : new SourceRange(sr.getOffset() + delta, sr.getLength());
+		}
+		
+	}
+	
+	/* -----------------  ----------------- */
+	
+	protected StructureElement createElement(SourceRange nameSR, SourceRange sr, StructureElementKind kind,
+			String type, ArrayList2<StructureElement> children) {
+		String name = nameSR.getRangeSubString(source);
+		EProtection protection = kind == StructureElementKind.METHOD ? EProtection.PUBLIC : protectionFor(name);
+		if(children != null) {
+			sortBySourceRange(children);
+		}
+		return new StructureElement(name, nameSR, sr, kind, new ElementAttributes(protection), type, children);
+	}
+	
+	protected static EProtection protectionFor(String name) {
+		return Character.isLowerCase(name.charAt(0)) || name.charAt(0) == '_' ?
+				EProtection.PRIVATE : EProtection.PUBLIC;
+	}
+	
+	protected static void sortBySourceRange(ArrayList2<StructureElement> elements) {
+		Collections.sort(elements, new Comparator<StructureElement>() {
+			@Override
+			public int compare(StructureElement o1, StructureElement o2) {
+				return o1.getSourceRange().getOffset() - o2.getSourceRange().getOffset();
+			}
+		});
+	}
+	
+	/** @return the current position, excluding any trailing whitespace or semicolon. */
+	protected int trimmedEndPos(int startPos) {
+		int endPos = pos();
+		while(endPos > startPos &&
+				(Character.isWhitespace(source.charAt(endPos - 1)) || source.charAt(endPos - 1) == ';')) {
+			endPos--;
+		}
+		return endPos;
+	}
+	
+	protected void addError(int offset, int length, String message) {
+		SourceRange sr = new SourceRange(offset, length);
+		currentDecl.errors.add(new ParserError(ParserErrorTypes.GENERIC_ERROR, sr, message, null));
+	}
+	
+	protected int tokenLengthAt(int offset) {
+		if(offset >= source.length()) {
+			return 0;
+		}
+		StringCharSource charSource = new StringCharSource(source);
+		charSource.consumeAmount(offset);
+		int length = LexingUtils.matchJavaIdentifier(charSource);
+		return length == 0 ? 1 : length;
+	}
+	
+	protected String tokenDescriptionAt(int offset) {
+		if(offset >= source.length()) {
+			return "'EOF'";
+		}
+		return "'" + source.substring(offset, offset + tokenLengthAt(offset)) + "'";
+	}
+	
+	/* ----------------- Lexical helpers ----------------- */
+	
+	protected boolean tryConsumeKeyword(String keyword) {
+		if(parser.lookaheadMatches(keyword) && !isIdentifierPart(parser.lookahead(keyword.length()))) {
+			parser.consumeAmount(keyword.length());
+			return true;
+		}
+		return false;
+	}
+	
+	protected static boolean isIdentifierPart(int ch) {
+		return ch != StringCharSource.EOS && Character.isJavaIdentifierPart(ch);
+	}
+	
+	/**
+	 * Skip whitespace and comments. If not skipNewlines, stop at a newline, 
+	 * since that can terminate a Go statement.
+	 */
+	protected void skipWhitespaceAndComments(boolean skipNewlines) {
+		while(true) {
+			int la = parser.lookahead();
+			if(la == '\n' || la == '\r') {
+				if(!skipNewlines) {
+					return;
+				}
+				parser.consume();
+			} else if(la != StringCharSource.EOS && Character.isWhitespace(la)) {
+				parser.consume();
+			} else if(parser.lookaheadMatches("//")) {
+				while(parser.hasCharAhead() && parser.lookahead() != '\n' && parser.lookahead() != '\r') {
+					parser.consume();
+				}
+			} else if(parser.lookaheadMatches("/*")) {
+				int commentStart = pos();
+				int commentEnd = source.indexOf("*/", commentStart + 2);
+				if(commentEnd == -1) {
+					addError(commentStart, 2, "comment not terminated");
+					parser.consumeAmount(source.length() - commentStart);
+					return;
+				}
+				parser.consumeAmount(commentEnd + 2 - commentStart);
+			} else {
+				return;
+			}
+		}
+	}
+	
+	/** Skip a string, raw string or rune literal at current position. */
+	protected boolean skipLiteral() {
+		int la = parser.lookahead();
+		if(la != '"' && la != '\'' && la != '`') {
+			return false;
+		}
+		int literalStart = pos();
+		char delim = parser.consume();
+		while(true) {
+			int ch = parser.lookahead();
+			if(ch == StringCharSource.EOS || (delim != '`' && (ch == '\n' || ch == '\r'))) {
+				addError(literalStart, 1, delim == '\'' ? "rune literal not terminated" :
+					"string literal not terminated");
+				return true;
+			}
+			parser.consume();
+			if(ch == delim) {
+				return true;
+			}
+			if(ch == '\\' && delim != '`') {
+				parser.consumeAny();
+			}
+		}
+	}
+	
+	/**
+	 * Skip a balanced bracket construct starting at current position: (...), [...] or {...}.
+	 */
+	protected void skipBalanced() {
+		int openPos = pos();
+		char open = parser.consume();
+		char close = open == '(' ? ')' : open == '[' ? ']' : '}';
+		
+		while(true) {
+			skipWhitespaceAndComments(true);
+			int la = parser.lookahead();
+			if(la == StringCharSource.EOS) {
+				addError(openPos, 1, "expected '" + close + "', found 'EOF'");
+				return;
+			}
+			if(la == close) {
+				parser.consume();
+				return;
+			}
+			if(la == '(' || la == '[' || la == '{') {
+				skipBalanced();
+			} else if(!skipLiteral()) {
+				parser.consume();
+			}
+		}
+	}
+	
+	protected boolean isAtStatementEnd(boolean inGroup) {
+		int la = parser.lookahead();
+		return la == StringCharSource.EOS || la == '\n' || la == '\r' || la == ';' || (inGroup && la == ')');
+	}
+	
+	/**
+	 * Skip until the end of the current statement, which is a newline, a semicolon, or EOF
+	 * (or the closing parenthesis, if inGroup). The newline or semicolon are also consumed.
+	 * @return whether anything was consumed.
+	 */
+	protected boolean skipUntilStatementEnd(boolean inGroup) {
+		return skipUntilStatementEnd(inGroup, ')');
+	}
+	
+	protected boolean skipUntilStatementEnd(boolean inGroup, char groupClose) {
+		int start = pos();
+		int lastTokenChar = -1;
+		while(true) {
+			skipWhitespaceAndComments(false);
+			int la = parser.lookahead();
+			if(la == StringCharSource.EOS || (inGroup && la == groupClose)) {
+				break;
+			}
+			if(la == '\n' || la == '\r' || la == ';') {
+				parser.consume();
+				if(la == ';' || !isContinuationChar(lastTokenChar)) {
+					break;
+				}
+				continue;
+			}
+			lastTokenChar = la;
+			if(la == '(' || la == '[' || la == '{') {
+				skipBalanced();
+				lastTokenChar = ')';
+			} else if(la == ')' || la == ']' || la == '}') {
+				if(inGroup) {
+					break;
+				}
+				addError(pos(), 1, "unexpected '" + (char) la + "'");
+				parser.consume();
+			} else if(skipLiteral()) {
+				lastTokenChar = '"';
+			} else {
+				parser.consume();
+				if((la == '+' || la == '-') && pos() - 2 >= start && source.charAt(pos() - 2) == la) {
+					lastTokenChar = ')'; // ++ or -- terminate a statement
+				}
+			}
+		}
+		return pos() > start;
+	}
+	
+	/**
+	 * Heuristic for Go automatic semicolon insertion: a line ending with an operator or comma
+	 * continues on the next line.
+	 */
+	protected static boolean isContinuationChar(int lastTokenChar) {
+		return lastTokenChar != -1 && ",+-*/%&|^<>=!.:".indexOf(lastTokenChar) != -1;
+	}
+	
+	/**
+	 * Consume a type expression, until the end of the statement, or one of the given terminators,
+	 * at bracket depth 0.
+	 */
+	protected String consumeTypeText(boolean inGroup, String terminators) {
+		int start = pos();
+		while(true) {
+			skipWhitespaceAndComments(false);
+			int la = parser.lookahead();
+			if(isAtStatementEnd(inGroup) || la == ')' || la == ']' || la == '}' ||
+					(la != StringCharSource.EOS && terminators.indexOf(la) != -1)) {
+				break;
+			}
+			if(la == '(' || la == '[' || la == '{') {
+				skipBalanced();
+			} else if(!skipLiteral()) {
+				parser.consume();
+			}
+		}
+		return normalizeWhitespace(source.substring(start, pos()));
+	}
+	
+	/** Remove comments, and collapse whitespace sequences into a single space. */
+	protected static String normalizeWhitespace(String text) {
+		StringBuilder sb = new StringBuilder(text.length());
+		boolean pendingSpace = false;
+		
+		for (int ix = 0; ix < text.length(); ix++) {
+			char ch = text.charAt(ix);
+			
+			if(ch == '/' && text.startsWith("//", ix)) {
+				int eol = text.indexOf('\n', ix);
+				ix = (eol == -1 ? text.length() : eol) - 1;
+				pendingSpace = true;
+				continue;
+			}
+			if(ch == '/' && text.startsWith("/*", ix)) {
+				int commentEnd = text.indexOf("*/", ix + 2);
+				ix = (commentEnd == -1 ? text.length() : commentEnd + 2) - 1;
+				pendingSpace = true;
+				continue;
+			}
+			if(Character.isWhitespace(ch)) {
+				pendingSpace = true;
+				continue;
+			}
+			if(pendingSpace && sb.length() > 0) {
+				char last = sb.charAt(sb.length() - 1);
+				if(last != '(' && last != '[' && ch != ')' && ch != ']' && ch != ',') {
+					sb.append(' ');
+				}
+			}
+			pendingSpace = false;
+			sb.append(ch);
+			if(ch == '"' || ch == '`' || ch == '\'') {
+				// Copy literal verbatim
+				int end = ix + 1;
+				while(end < text.length() && text.charAt(end) != ch) {
+					if(text.charAt(end) == '\\' && ch != '`') {
+						end++;
+					}
+					end++;
+				}
+				end = Math.min(end, text.length() - 1);
+				sb.append(text, ix + 1, end + 1);
+				ix = end;
+			}
+		}
+		return sb.toString();
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.googlecode.goclipse.tooling.tools;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.CoreUtil.areEqual;
+
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import melnorme.lang.tooling.toolchain.ops.SourceLocation;
+import melnorme.lang.tooling.toolchain.ops.SourceOpContext;
+import melnorme.lang.utils.FileCachingEntry;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.core.fntypes.CallableX;
+import melnorme.utilbox.misc.HashcodeUtil;
+import melnorme.utilbox.misc.Location;
+
+/**
+ * Caches the results of documentation hovers, so that hovering the same identifier again
+ * does not run godef, or read and parse the definition file, again:
+ *
+ * - the definition location of an identifier, keyed by the file, the contents of the source buffer,
+ * and the start offset of the identifier.
+ * - the documentation of a definition location.
+ *
+ * Both kinds of entries are validated with the modification time and size of the file of the definition location.
+ * Changes to other files (for example, a change in the imports of the package) are not detected,
+ * it is assumed these only change the result of a hover if the definition file changes too.
+ * The least recently used entries are removed first.
+ */
+public class GoDocCache {
+	
+	public static final int DEFAULT_MAX_ENTRIES = 256;
+	
+	protected final LinkedHashMap<DefinitionKey, DefinitionEntry> definitions;
+	protected final LinkedHashMap<SourceLocation, DocEntry> docs;
+	
+	protected int hitCount = 0;
+	protected int missCount = 0;
+	
+	public GoDocCache() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+	
+	public GoDocCache(int maxEntries) {
+		this.definitions = newLRUMap(maxEntries);
+		this.docs = newLRUMap(maxEntries);
+	}
+	
+	protected static <K, V> LinkedHashMap<K, V> newLRUMap(int maxEntries) {
+		return new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+	
+	public synchronized int getHitCount() {
+		return hitCount;
+	}
+	
+	public synchronized int getMissCount() {
+		return missCount;
+	}
+	
+	public synchronized void clear() {
+		definitions.clear();
+		docs.clear();
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/** @return the definition location for given key, or null if not cached (or stale). */
+	public synchronized SourceLocation getDefinition(DefinitionKey key) {
+		DefinitionEntry entry = definitions.get(key);
+		if(entry == null || entry.isStale()) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		return entry.getValue();
+	}
+	
+	public synchronized void putDefinition(DefinitionKey key, SourceLocation definition) {
+		DefinitionEntry entry = new DefinitionEntry(definition.getFileLocation());
+		entry.updateValue(definition);
+		definitions.put(key, entry);
+	}
+	
+	/**
+	 * @return the documentation for given definition location (possibly null, if there is no documentation).
+	 * If not cached, it is obtained from docCalculator, and cached.
+	 */
+	public String getDoc(SourceLocation definition, CallableX<String, CommonException> docCalculator)
+			throws CommonException {
+		synchronized(this) {
+			DocEntry entry = docs.get(definition);
+			if(entry != null && !entry.isStale()) {
+				hitCount++;
+				return entry.getValue();
+			}
+			missCount++;
+		}
+		
+		// Calculate outside of the cache lock, since it reads and parses a file.
+		DocEntry entry = new DocEntry(definition.getFileLocation());
+		entry.updateValue(docCalculator.call());
+		synchronized(this) {
+			docs.put(definition, entry);
+		}
+		return entry.getValue();
+	}
+	
+	protected static class DefinitionEntry extends FileCachingEntry<SourceLocation> {
+		
+		public DefinitionEntry(Location location) {
+			super(location);
+		}
+		
+		@Override
+		protected void handleWarning_ModifiedTimeInTheFuture(FileTime lastModifiedTime) {
+			// Ignore, entry will be considered stale when the modified time changes again.
+		}
+		
+	}
+	
+	protected static class DocEntry extends FileCachingEntry<String> {
+		
+		public DocEntry(Location location) {
+			super(location);
+		}
+		
+		@Override
+		protected void handleWarning_ModifiedTimeInTheFuture(FileTime lastModifiedTime) {
+			// Ignore, entry will be considered stale when the modified time changes again.
+		}
+		
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/**
+	 * Identifies the identifier a definition is searched for: the file, the contents of the source buffer,
+	 * and the start offset of the identifier (so that any offset inside the same identifier uses the same entry).
+	 * The buffer contents are represented by their length and a 64-bit hash, rather than retained.
+	 */
+	public static class DefinitionKey {
+		
+		protected final Location fileLocation;
+		protected final int sourceLength;
+		protected final long sourceHash;
+		protected final int identifierOffset;
+		
+		public DefinitionKey(Location fileLocation, String source, int offset) {
+			this.fileLocation = assertNotNull(fileLocation);
+			this.sourceLength = source.length();
+			this.sourceHash = hash64(source);
+			this.identifierOffset = getIdentifierStart(source, offset);
+		}
+		
+		/** @return the key for given operation context, or null if it has no file location. */
+		public static DefinitionKey create(SourceOpContext opContext) {
+			if(!opContext.getOptionalFileLocation().isPresent()) {
+				return null;
+			}
+			return new DefinitionKey(opContext.getOptionalFileLocation().get(), opContext.getSource(),
+				opContext.getOffset());
+		}
+		
+		public int getIdentifierOffset() {
+			return identifierOffset;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) return true;
+			if(!(obj instanceof DefinitionKey)) return false;
+			
+			DefinitionKey other = (DefinitionKey) obj;
+			
+			return
+				areEqual(fileLocation, other.fileLocation) &&
+				sourceLength == other.sourceLength &&
+				sourceHash == other.sourceHash &&
+				identifierOffset == other.identifierOffset;
+		}
+		
+		@Override
+		public int hashCode() {
+			return HashcodeUtil.combineHashCodes(fileLocation.hashCode(), Long.hashCode(sourceHash), identifierOffset);
+		}
+		
+	}
+	
+	protected static int getIdentifierStart(String source, int offset) {
+		if(offset < 0 || offset >= source.length() || !Character.isJavaIdentifierPart(source.charAt(offset))) {
+			return offset; // Not inside an identifier
+		}
+		int start = offset;
+		while(start > 0 && Character.isJavaIdentifierPart(source.charAt(start - 1))) {
+			start--;
+		}
+		return start;
+	}
+	
+	/** FNV-1a 64-bit hash of given string's chars. */
+	protected static long hash64(String source) {
+		long hash = 0xcbf29ce484222325L;
+		for (int ix = 0; ix < source.length(); ix++) {
+			hash = (hash ^ source.charAt(ix)) * 0x100000001b3L;
+		}
+		return hash;
+	}
+	
+}
\ No newline at end of file
@@ -11,10 +11,14 @@
 package com.googlecode.goclipse.tooling.tools;
 
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.CoreUtil.areEqual;
 
 import com.googlecode.goclipse.tooling.oracle.GoDocParser;
+import com.googlecode.goclipse.tooling.oracle.GoOperationContext;
+import com.googlecode.goclipse.tooling.tools.GoDocCache.DefinitionKey;
 
 import melnorme.lang.tooling.common.ops.IOperationMonitor;
+import melnorme.lang.tooling.parser.SourceLinesInfo;
 import melnorme.lang.tooling.toolchain.ops.AbstractToolOperation;
 import melnorme.lang.tooling.toolchain.ops.OperationSoftFailure;
 import melnorme.lang.tooling.toolchain.ops.SourceLocation;
@@ -25,26 +29,49 @@ import melnorme.utilbox.core.CommonException;
 public class GoFindDocOperation implements AbstractToolOperation<String> {
 	
 	protected final GoFindDefinitionOperation findDefOp;
+	protected final GoDocCache docCache;
 	
 	public GoFindDocOperation(GoFindDefinitionOperation findDefOp) {
+		this(findDefOp, new GoDocCache());
+	}
+	
+	public GoFindDocOperation(GoFindDefinitionOperation findDefOp, GoDocCache docCache) {
 		this.findDefOp = assertNotNull(findDefOp);
+		this.docCache = assertNotNull(docCache);
 	}
 	
 	@Override
 	public String executeToolOperation(IOperationMonitor om) throws CommonException, OperationCancellation {
+		SourceOpContext opContext = findDefOp.getGoOpContext().getOpContext();
 		
-		SourceLocation findDefResult;
-		try {
-			findDefResult = findDefOp.getValidResult(om);
-		} catch(OperationSoftFailure e) {
-			return null; // No documentation will be available
+		DefinitionKey definitionKey = DefinitionKey.create(opContext);
+		SourceLocation findDefResult = definitionKey == null ? null : docCache.getDefinition(definitionKey);
+		if(findDefResult == null) {
+			try {
+				findDefResult = findDefOp.getValidResult(om);
+			} catch(OperationSoftFailure e) {
+				return null; // No documentation will be available
+			}
+			if(definitionKey != null) {
+				docCache.putDefinition(definitionKey, findDefResult);
+			}
 		}
 		
-		SourceOpContext opContext = findDefOp.getGoOpContext().getOpContext();
-		String fileContents = opContext.getSourceFor(findDefResult.getFileLocation());
-		int offset = opContext.getOffsetFor(findDefResult);
+		SourceLocation definition = findDefResult;
+		if(opContext.isDocumentDirty() &&
+				areEqual(definition.getFileLocation(), opContext.getOptionalFileLocation().orElse(null))) {
+			// Documentation is read from the editor buffer, not the file, so it can't be validated with the file.
+			return parseDoc(opContext, definition);
+		}
+		return docCache.getDoc(definition, () -> parseDoc(opContext, definition));
+	}
+	
+	protected static String parseDoc(SourceOpContext opContext, SourceLocation findDefResult)
+			throws CommonException {
+		SourceLinesInfo linesInfo = opContext.getSourceLinesInfoFor(findDefResult.getFileLocation());
+		int offset = GoOperationContext.getOffsetFor(findDefResult, linesInfo);
 		
-		return new GoDocParser().parseDocForDefinitionAt(fileContents, offset);
+		return new GoDocParser().parseDocForDefinitionAt(linesInfo.getSource(), offset);
 	}
 
 }
\ No newline at end of file